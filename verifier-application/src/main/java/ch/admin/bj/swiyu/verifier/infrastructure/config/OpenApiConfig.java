@@ -1,5 +1,6 @@
 package ch.admin.bj.swiyu.verifier.infrastructure.config;
 
+import ch.admin.bj.swiyu.verifier.dto.callback.WebhookCallbackBatchResponseDto;
 import ch.admin.bj.swiyu.verifier.dto.callback.WebhookCallbackDto;
 import io.swagger.v3.core.converter.ModelConverters;
 import io.swagger.v3.oas.models.OpenAPI;
@@ -31,7 +32,11 @@ public class OpenApiConfig {
 
     @Bean
     public GlobalOpenApiCustomizer openApiCustomizer() {
-        return openApi -> openApi.getComponents().getSchemas().put("WebhookCallback",
-                ModelConverters.getInstance().readAllAsResolvedSchema(WebhookCallbackDto.class).schema);
+        return openApi -> {
+            openApi.getComponents().getSchemas().put("WebhookCallback",
+                    ModelConverters.getInstance().readAllAsResolvedSchema(WebhookCallbackDto.class).schema);
+            openApi.getComponents().getSchemas().put("WebhookCallbackBatchResponse",
+                    ModelConverters.getInstance().readAllAsResolvedSchema(WebhookCallbackBatchResponseDto.class).schema);
+        };
     }
 }
\ No newline at end of file
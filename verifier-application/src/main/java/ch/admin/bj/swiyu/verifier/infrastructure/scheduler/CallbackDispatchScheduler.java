@@ -3,6 +3,7 @@ package ch.admin.bj.swiyu.verifier.infrastructure.scheduler;
 import ch.admin.bj.swiyu.verifier.common.config.WebhookProperties;
 import ch.admin.bj.swiyu.verifier.domain.callback.CallbackEvent;
 import ch.admin.bj.swiyu.verifier.domain.callback.CallbackEventRepository;
+import ch.admin.bj.swiyu.verifier.dto.callback.WebhookCallbackBatchResponseDto;
 import ch.admin.bj.swiyu.verifier.service.callback.CallbackMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -10,59 +11,218 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.http.MediaType;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Delivers the collected callback events to the configured webhook.
+ * <p>
+ * Events are claimed in batches of {@code webhook.batch-size} with {@code FOR UPDATE SKIP LOCKED}, so several
+ * instances share the backlog instead of waiting for each other. A claimed event is hidden from other instances
+ * while it is sent, the callbacks of a batch are sent concurrently and delivered events are deleted with a single
+ * statement. Failed events are retried with an exponential backoff between {@code webhook.retry-backoff} and
+ * {@code webhook.max-retry-backoff}.
+ * <p>
+ * With {@code webhook.coalesce-callbacks} the callbacks are sent as JSON array of up to
+ * {@code webhook.max-callbacks-per-request} callbacks. A request which is not full is only sent once its oldest
+ * callback waited for {@code webhook.max-linger}. The receiver acknowledges all callbacks of a request with a 2xx
+ * response, except those of the verifications listed in an optional JSON {@link WebhookCallbackBatchResponseDto}.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class CallbackDispatchScheduler {
 
+    /**
+     * Limits the doubling of the backoff, beyond it the maximum backoff applies anyway
+     */
+    private static final int MAX_BACKOFF_EXPONENT = 30;
+
     private final WebhookProperties webhookProperties;
     private final CallbackEventRepository callbackEventRepository;
     private final WebClient webClient;
 
     @Scheduled(initialDelay = 0, fixedDelayString = "${webhook.callback-interval}")
-    @Transactional
     public void triggerProcessCallback() {
         if (StringUtils.isBlank(webhookProperties.getCallbackUri())) {
             // No Callback URI defined; We do not need to do callbacks
             return;
         }
+        if (webhookProperties.isCoalesceCallbacks() && isLingering()) {
+            return;
+        }
 
-        var events = callbackEventRepository.findAll();
-        events.forEach(event -> processCallbackEvent(
-                event,
-                webhookProperties.getCallbackUri(),
-                webhookProperties.getApiKeyHeader(),
-                webhookProperties.getApiKeyValue()
-        ));
+        List<CallbackEvent> events;
+        do {
+            var now = Instant.now();
+            events = callbackEventRepository.claimDueEvents(now, now.plus(claimDuration()), webhookProperties.getBatchSize());
+            dispatch(events);
+            // A full batch indicates further due events
+        } while (events.size() >= webhookProperties.getBatchSize());
     }
 
-    private void processCallbackEvent(CallbackEvent event, String callbackUri, String authHeader, String authValue) {
-        // Send the event
-        var request = webClient.post().uri(callbackUri);
-        if (!StringUtils.isBlank(authHeader)) {
-            request = request.header(authHeader, authValue);
+    private void dispatch(List<CallbackEvent> events) {
+        if (events.isEmpty()) {
+            return;
         }
-        try {
-            request
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(CallbackMapper.toWebhookCallbackDto(event))
+
+        var deliveredIds = Flux.fromIterable(toRequests(events))
+                .flatMap(request -> Flux.defer(() -> send(request))
+                                .onErrorResume(e -> {
+                                    logFailedCallback(e);
+                                    return Flux.empty();
+                                }),
+                        webhookProperties.getParallelism())
+                .collect(Collectors.toSet())
+                .block();
+
+        if (!deliveredIds.isEmpty()) {
+            callbackEventRepository.deleteAllByIdInBatch(deliveredIds);
+        }
+        rescheduleFailedEvents(events, deliveredIds);
+    }
+
+    /**
+     * Splits the events into the requests to send, one per event unless callbacks are coalesced
+     */
+    private List<List<CallbackEvent>> toRequests(List<CallbackEvent> events) {
+        var requestSize = webhookProperties.isCoalesceCallbacks() ? webhookProperties.getMaxCallbacksPerRequest() : 1;
+        var requests = new ArrayList<List<CallbackEvent>>();
+        for (int i = 0; i < events.size(); i += requestSize) {
+            requests.add(events.subList(i, Math.min(i + requestSize, events.size())));
+        }
+        return requests;
+    }
+
+    /**
+     * Sends one request and emits the ids of the events acknowledged by the receiver.
+     */
+    private Flux<UUID> send(List<CallbackEvent> events) {
+        if (!webhookProperties.isCoalesceCallbacks()) {
+            var event = events.getFirst();
+            return post(CallbackMapper.toWebhookCallbackDto(event))
                     .retrieve()
                     .toBodilessEntity()
-                    .block();
-            callbackEventRepository.delete(event);
-        } catch (WebClientResponseException e) {
-            // Note; If delivery failed we will keep retrying to send the message ad-infinitum.
-            // This is intended behaviour as we have to guarantee an at-least-once delivery.
+                    .timeout(webhookProperties.getTimeout())
+                    .thenReturn(event.getId())
+                    .flux();
+        }
+
+        var callbacks = events.stream().map(CallbackMapper::toWebhookCallbackDto).toList();
+        return post(callbacks)
+                .exchangeToMono(this::toBatchResponse)
+                .timeout(webhookProperties.getTimeout())
+                .mapNotNull(WebhookCallbackBatchResponseDto::getRejectedVerificationIds)
+                .defaultIfEmpty(List.of())
+                .flatMapIterable(rejectedVerificationIds -> {
+                    if (!rejectedVerificationIds.isEmpty()) {
+                        log.warn("Callback to {} rejected {} of {} callbacks", webhookProperties.getCallbackUri(),
+                                rejectedVerificationIds.size(), callbacks.size());
+                    }
+                    return events.stream()
+                            .filter(event -> !rejectedVerificationIds.contains(event.getVerificationId()))
+                            .map(CallbackEvent::getId)
+                            .toList();
+                });
+    }
+
+    /**
+     * Reads the optional {@link WebhookCallbackBatchResponseDto} of a 2xx response. Only a JSON body is read, any
+     * other body, e.g. a plain {@code OK}, acknowledges all callbacks of the request like an empty one.
+     */
+    private Mono<WebhookCallbackBatchResponseDto> toBatchResponse(ClientResponse response) {
+        if (response.statusCode().isError()) {
+            return response.createError();
+        }
+        var isJson = response.headers().contentType()
+                .filter(contentType -> MediaType.APPLICATION_JSON.isCompatibleWith(contentType)
+                        || "json".equalsIgnoreCase(contentType.getSubtypeSuffix()))
+                .isPresent();
+        if (!isJson) {
+            return response.releaseBody().then(Mono.empty());
+        }
+        return response.bodyToMono(WebhookCallbackBatchResponseDto.class);
+    }
+
+    private WebClient.RequestHeadersSpec<?> post(Object body) {
+        var request = webClient.post().uri(webhookProperties.getCallbackUri());
+        if (!StringUtils.isBlank(webhookProperties.getApiKeyHeader())) {
+            request = request.header(webhookProperties.getApiKeyHeader(), webhookProperties.getApiKeyValue());
+        }
+        return request
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body);
+    }
+
+    /**
+     * A request which is not full is held back until its oldest callback waited for the maximum linger time.
+     * Nothing is claimed while no event is due.
+     */
+    private boolean isLingering() {
+        var now = Instant.now();
+        var due = callbackEventRepository.countDueEvents(now);
+        if (due.count() == 0) {
+            return true;
+        }
+        return due.count() < webhookProperties.getMaxCallbacksPerRequest()
+                && due.oldestDueAt().isAfter(now.minus(webhookProperties.getMaxLinger()));
+    }
+
+    /**
+     * Time a claimed batch is hidden from other instances: the time it takes at most to send it, plus one timeout
+     * as margin for deleting or rescheduling its events.
+     */
+    private Duration claimDuration() {
+        var rounds = Math.ceilDiv(webhookProperties.getBatchSize(), webhookProperties.getParallelism());
+        return webhookProperties.getTimeout().multipliedBy(rounds + 1L);
+    }
+
+    /**
+     * Failed events are kept and retried later, as we have to guarantee an at-least-once delivery. Events with the
+     * same number of attempts share their next attempt, so they are rescheduled with one statement.
+     */
+    private void rescheduleFailedEvents(List<CallbackEvent> events, Set<UUID> deliveredIds) {
+        var now = Instant.now();
+        events.stream()
+                .filter(event -> !deliveredIds.contains(event.getId()))
+                .collect(Collectors.groupingBy(CallbackEvent::getAttempts,
+                        Collectors.mapping(CallbackEvent::getId, Collectors.toList())))
+                .forEach((attempts, ids) ->
+                        callbackEventRepository.rescheduleEvents(ids, now.plus(retryBackoff(attempts))));
+    }
+
+    /**
+     * Backoff after the given number of failed attempts, doubled with every attempt up to the maximum backoff.
+     */
+    Duration retryBackoff(int attempts) {
+        var exponent = Math.clamp(attempts - 1L, 0, MAX_BACKOFF_EXPONENT);
+        var backoff = webhookProperties.getRetryBackoff().multipliedBy(1L << exponent);
+        return backoff.compareTo(webhookProperties.getMaxRetryBackoff()) > 0
+                ? webhookProperties.getMaxRetryBackoff()
+                : backoff;
+    }
+
+    private void logFailedCallback(Throwable e) {
+        if (e instanceof WebClientResponseException responseException) {
             log.error(
                     "Callback to {} failed with status code {} with message {}",
                     webhookProperties.getCallbackUri(),
-                    e.getStatusCode(),
-                    e.getMessage()
+                    responseException.getStatusCode(),
+                    responseException.getMessage()
             );
+        } else {
+            log.error("Callback to {} failed with message {}", webhookProperties.getCallbackUri(), e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,121 @@
+package ch.admin.bj.swiyu.verifier.infrastructure.scheduler;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static ch.admin.bj.swiyu.verifier.service.callback.CallbackEventProducer.CALLBACK_EVENT_CHANNEL;
+
+/**
+ * Dispatches callback events as soon as they are committed, active with {@code webhook.listen-notify}.
+ * <p>
+ * Keeps one connection of the pool listening on the {@code callback_event} channel and runs the
+ * {@link CallbackDispatchScheduler} whenever a notification arrives. Notifications arriving while callbacks are sent
+ * are handled together by the next run. The scheduled run every {@code webhook.callback-interval} remains as
+ * fallback, e.g. for events missed while reconnecting.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "webhook", name = "listen-notify", havingValue = "true")
+public class CallbackNotificationListener {
+
+    /**
+     * Longest time to wait for a notification before checking whether the listener was stopped
+     */
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration RECONNECT_DELAY = Duration.ofSeconds(5);
+
+    private final DataSource dataSource;
+    private final CallbackDispatchScheduler callbackDispatchScheduler;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService listenerExecutor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("callback-notification-listener").daemon().factory());
+
+    public CallbackNotificationListener(DataSource dataSource, CallbackDispatchScheduler callbackDispatchScheduler) {
+        this.dataSource = dataSource;
+        this.callbackDispatchScheduler = callbackDispatchScheduler;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (running.compareAndSet(false, true)) {
+            listenerExecutor.execute(this::listen);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running.set(false);
+        listenerExecutor.shutdown();
+        if (!listenerExecutor.awaitTermination(POLL_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            listenerExecutor.shutdownNow();
+        }
+    }
+
+    private void listen() {
+        while (running.get()) {
+            try (var connection = dataSource.getConnection()) {
+                listen(connection);
+            } catch (SQLException e) {
+                log.warn("Listening for callback events failed, reconnecting in {}", RECONNECT_DELAY, e);
+                if (!sleep(RECONNECT_DELAY)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void listen(Connection connection) throws SQLException {
+        try (var statement = connection.createStatement()) {
+            statement.execute("LISTEN " + CALLBACK_EVENT_CHANNEL);
+        }
+        try {
+            var pgConnection = connection.unwrap(PGConnection.class);
+            log.info("Listening for callback events on channel {}", CALLBACK_EVENT_CHANNEL);
+            // Events committed before listening started would otherwise wait for the fallback sweep
+            dispatch();
+            while (running.get()) {
+                var notifications = pgConnection.getNotifications((int) POLL_TIMEOUT.toMillis());
+                if (notifications != null && notifications.length > 0) {
+                    dispatch();
+                }
+            }
+        } finally {
+            // The connection goes back to the pool
+            try (var statement = connection.createStatement()) {
+                statement.execute("UNLISTEN *");
+            }
+        }
+    }
+
+    private void dispatch() {
+        try {
+            callbackDispatchScheduler.triggerProcessCallback();
+        } catch (RuntimeException e) {
+            log.error("Dispatching notified callback events failed", e);
+        }
+    }
+
+    private static boolean sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
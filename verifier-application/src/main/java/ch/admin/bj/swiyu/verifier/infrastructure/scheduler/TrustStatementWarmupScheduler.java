@@ -0,0 +1,55 @@
+package ch.admin.bj.swiyu.verifier.infrastructure.scheduler;
+
+import ch.admin.bj.swiyu.verifier.common.config.ApplicationProperties;
+import ch.admin.bj.swiyu.verifier.common.config.TrustRegistryProperties;
+import ch.admin.bj.swiyu.verifier.service.trustregistry.TrustStatementCacheService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Keeps the Trust Protocol 2.0 trust statement caches warm.
+ *
+ * <p>Loads the active trust lists, the statements of the configured
+ * {@code swiyu.trust-registry.warmup-issuer-dids} and the statements of the verifier itself once on startup.
+ * As an {@link ApplicationRunner} this happens before the readiness state changes to accepting traffic, so the
+ * first presentations after a deployment do not pay for the trust registry calls, DID resolutions and status list
+ * downloads. Afterwards the caches are loaded again every {@code swiyu.trust-registry.warmup-interval}.</p>
+ *
+ * <p>The caches are held in memory of every instance, so the job is intentionally not lock-protected.</p>
+ *
+ * <p>Only active when {@code swiyu.trust-registry.api-url} is configured.</p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnExpression("'${swiyu.trust-registry.api-url:}'.length() > 0")
+public class TrustStatementWarmupScheduler implements ApplicationRunner {
+
+    private final TrustRegistryProperties properties;
+    private final ApplicationProperties applicationProperties;
+    private final TrustStatementCacheService trustStatementCacheService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        log.info("Warming up trust statement caches for {} issuer(s)", properties.getWarmupIssuerDids().size());
+        warmUp();
+    }
+
+    @Scheduled(fixedDelayString = "#{@trustRegistryProperties.warmupInterval.toMillis()}",
+            initialDelayString = "#{@trustRegistryProperties.warmupInterval.toMillis()}")
+    public void warmUp() {
+        try {
+            trustStatementCacheService.warmUp(properties.getWarmupIssuerDids(), List.of(applicationProperties.getClientId()));
+        } catch (RuntimeException e) {
+            // a failed warm-up must neither prevent the startup nor stop the schedule
+            log.warn("Failed to warm up trust statement caches: {}", e.getMessage());
+        }
+    }
+}
@@ -153,7 +153,7 @@ public class DefaultExceptionHandler extends ResponseEntityExceptionHandler {
     }
 
     @ExceptionHandler(VerificationException.class)
-    ResponseEntity<VerificationErrorResponseDto> handleVerificationException(VerificationException e) {
+    public ResponseEntity<VerificationErrorResponseDto> handleVerificationException(VerificationException e) {
         var error = toVerificationErrorResponseDto(e);
 
         log.warn("The received verification presentation could not be verified - caused by {}-{}:{}", error.error(), error.errorCode(), error.errorDescription(), e);
@@ -0,0 +1,145 @@
+package ch.admin.bj.swiyu.verifier.infrastructure.web.oid4vp;
+
+import ch.admin.bj.swiyu.verifier.common.exception.ProcessClosedException;
+import ch.admin.bj.swiyu.verifier.common.exception.VerificationException;
+import ch.admin.bj.swiyu.verifier.dto.VPApiVersion;
+import ch.admin.bj.swiyu.verifier.dto.VerificationPresentationUnionDto;
+import ch.admin.bj.swiyu.verifier.infrastructure.web.DefaultExceptionHandler;
+import ch.admin.bj.swiyu.verifier.service.oid4vp.ReactivePresentationVerificationUsecase;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindException;
+import org.springframework.web.servlet.function.RequestPredicates;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.RouterFunctions;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking variant of {@link VerificationController#receiveVerificationPresentation}, active with
+ * {@code application.reactive-presentation-submission}.
+ * <p>
+ * Registered as functional route, which is matched before the annotated controllers, so it takes over
+ * {@code POST /oid4vp/api/request-object/{request_id}/response-data} while the controller keeps documenting the
+ * endpoint. The request thread is released as soon as the submission was bound, the response is written once
+ * {@link ReactivePresentationVerificationUsecase} verified the presentation.
+ * <p>
+ * The {@code @ExceptionHandler} methods of {@link DefaultExceptionHandler} are not applied to functional routes, so
+ * errors are translated here by calling them directly and are answered with the same status and body as by the
+ * controller. Likewise, {@code @Timed} cannot be put on a route, so the submission is timed explicitly with the
+ * meter name and tags of {@code @Timed} on the controller method.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "application", name = "reactive-presentation-submission", havingValue = "true")
+public class ReactiveVerificationPresentationRoute {
+
+    private final ReactivePresentationVerificationUsecase reactivePresentationVerificationUsecase;
+    private final ConversionService mvcConversionService;
+    private final DefaultExceptionHandler defaultExceptionHandler;
+    private final MeterRegistry meterRegistry;
+
+    public ReactiveVerificationPresentationRoute(ReactivePresentationVerificationUsecase reactivePresentationVerificationUsecase,
+                                                 @Qualifier("mvcConversionService") ConversionService mvcConversionService,
+                                                 DefaultExceptionHandler defaultExceptionHandler,
+                                                 MeterRegistry meterRegistry) {
+        this.reactivePresentationVerificationUsecase = reactivePresentationVerificationUsecase;
+        this.mvcConversionService = mvcConversionService;
+        this.defaultExceptionHandler = defaultExceptionHandler;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> reactiveVerificationPresentationRouterFunction() {
+        return RouterFunctions.route()
+                .POST("/oid4vp/api/request-object/{request_id}/response-data",
+                        RequestPredicates.contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                                .and(RequestPredicates.accept(MediaType.APPLICATION_JSON)),
+                        this::receiveVerificationPresentation)
+                .build();
+    }
+
+    private ServerResponse receiveVerificationPresentation(ServerRequest request) {
+        var sample = Timer.start(meterRegistry);
+        try {
+            var requestId = UUID.fromString(request.pathVariable("request_id"));
+            var versionString = request.headers().firstHeader("SWIYU-API-Version");
+
+            log.info("Received verification presentation for request_id: {} with version: {}", requestId, versionString);
+            VPApiVersion version = VPApiVersion.fromValue(versionString);
+            var unionDto = bind(request);
+
+            return ServerResponse.async(reactivePresentationVerificationUsecase
+                    .receiveVerificationPresentation(requestId, version, unionDto)
+                    .map(response -> {
+                        log.info("Successfully processed verification presentation for request_id: {}", requestId);
+                        sample.stop(timer("none"));
+                        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).body(response);
+                    })
+                    .onErrorResume(Exception.class, e -> Mono.just(handleError(e, request, sample))));
+        } catch (RuntimeException e) {
+            return handleError(e, request, sample);
+        }
+    }
+
+    /**
+     * Answers an error like {@link DefaultExceptionHandler} does for the controller.
+     */
+    private ServerResponse handleError(Exception e, ServerRequest request, Timer.Sample sample) {
+        sample.stop(timer(e.getClass().getSimpleName()));
+        ResponseEntity<?> errorResponse = switch (e) {
+            case VerificationException verificationException ->
+                    defaultExceptionHandler.handleVerificationException(verificationException);
+            case ProcessClosedException processClosedException ->
+                    defaultExceptionHandler.handleProcessAlreadyClosedException(processClosedException);
+            case IllegalArgumentException illegalArgumentException ->
+                    defaultExceptionHandler.handleIllegalArgumentException(illegalArgumentException);
+            case NoSuchElementException noSuchElementException ->
+                    defaultExceptionHandler.handleNoSuchElementException(noSuchElementException);
+            default -> defaultExceptionHandler.handleException(e, request.servletRequest());
+        };
+        return ServerResponse.status(errorResponse.getStatusCode())
+                .headers(headers -> headers.addAll(errorResponse.getHeaders()))
+                .body(errorResponse.getBody());
+    }
+
+    /**
+     * Same meter as {@code @Timed} on {@link VerificationController#receiveVerificationPresentation}.
+     */
+    private Timer timer(String exception) {
+        return Timer.builder("method.timed")
+                .tag("class", VerificationController.class.getName())
+                .tag("method", "receiveVerificationPresentation")
+                .tag("exception", exception)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Binds the form parameters like the annotated controller does, including the registered converters.
+     */
+    private VerificationPresentationUnionDto bind(ServerRequest request) {
+        try {
+            return request.bind(VerificationPresentationUnionDto.class,
+                    binder -> binder.setConversionService(mvcConversionService));
+        } catch (BindException e) {
+            var fieldErrors = e.getFieldErrors().stream()
+                    .map(error -> String.format("%s: %s", error.getField(), error.getDefaultMessage()))
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+            throw new IllegalArgumentException(fieldErrors, e);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+-- Add signed_request_object columns to management table
+-- These columns store the request object signed ahead of the wallet fetch (application.presign-request-objects)
+-- together with its expiry as unix epoch in milliseconds.
+-- Nullable to remain backwards-compatible with existing rows.
+
+ALTER TABLE management
+    ADD COLUMN signed_request_object TEXT,
+    ADD COLUMN signed_request_object_expires_at BIGINT;
@@ -0,0 +1,13 @@
+-- Add delivery attempt tracking to callback_event
+-- attempts counts the delivery attempts, next_attempt_at is the time from which the event may be claimed again.
+-- Existing events are due right away.
+
+ALTER TABLE callback_event
+    ADD COLUMN attempts        INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN next_attempt_at TIMESTAMP;
+
+UPDATE callback_event SET next_attempt_at = timestamp;
+
+ALTER TABLE callback_event ALTER COLUMN next_attempt_at SET NOT NULL;
+
+CREATE INDEX idx_callback_event_next_attempt_at ON callback_event (next_attempt_at);
@@ -0,0 +1,115 @@
+-- Expired verifications are deleted in chunks by id, which needs an index on id.
+CREATE INDEX idx_management_id ON management (id);
+
+-- Optional partitioning of management by expires_at, used with application.management-partitioning.
+-- Partitions cover ranges of expires_at (epoch milliseconds) aligned to multiples of the partition interval and are
+-- named after the start of their range. A partition whose range ended contains only expired verifications and is
+-- dropped as a whole. Verifications outside of all ranges are kept in the default partition.
+
+-- Lists the range partitions of management with their bounds.
+CREATE OR REPLACE FUNCTION management_partition_bounds()
+    RETURNS TABLE
+            (
+                partition_name TEXT,
+                range_start    BIGINT,
+                range_end      BIGINT
+            )
+    LANGUAGE sql
+    STABLE
+AS
+$$
+SELECT c.relname::TEXT,
+       substring(pg_get_expr(c.relpartbound, c.oid) FROM 'FROM \(''?(-?\d+)''?\)')::BIGINT,
+       substring(pg_get_expr(c.relpartbound, c.oid) FROM 'TO \(''?(-?\d+)''?\)')::BIGINT
+FROM pg_inherits i
+         JOIN pg_class c ON c.oid = i.inhrelid
+WHERE i.inhparent = to_regclass('management')
+  AND pg_get_expr(c.relpartbound, c.oid) <> 'DEFAULT';
+$$;
+
+-- Creates the missing partitions covering [p_from, p_until). Verifications stored in the default partition for the
+-- range of a new partition are moved to it. Ranges overlapping an existing partition, e.g. after the interval was
+-- changed, are skipped. Returns the number of created partitions.
+CREATE OR REPLACE FUNCTION create_management_partitions(p_from BIGINT, p_until BIGINT, p_interval BIGINT)
+    RETURNS INTEGER
+    LANGUAGE plpgsql
+AS
+$$
+DECLARE
+    v_start   BIGINT := p_from - mod(p_from, p_interval);
+    v_name    TEXT;
+    v_created INTEGER := 0;
+BEGIN
+    WHILE v_start < p_until
+        LOOP
+            IF NOT EXISTS (SELECT 1
+                           FROM management_partition_bounds() b
+                           WHERE b.range_start < v_start + p_interval
+                             AND b.range_end > v_start) THEN
+                v_name := 'management_p' || v_start;
+                EXECUTE format('CREATE TABLE %I (LIKE management INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', v_name);
+                EXECUTE format('WITH moved AS (DELETE FROM management_default WHERE expires_at >= %s AND expires_at < %s RETURNING *) '
+                                   || 'INSERT INTO %I SELECT * FROM moved', v_start, v_start + p_interval, v_name);
+                EXECUTE format('ALTER TABLE management ATTACH PARTITION %I FOR VALUES FROM (%s) TO (%s)',
+                               v_name, v_start, v_start + p_interval);
+                v_created := v_created + 1;
+            END IF;
+            v_start := v_start + p_interval;
+        END LOOP;
+    RETURN v_created;
+END;
+$$;
+
+-- Detaches and drops the partitions whose range ended before p_now. Returns the number of dropped partitions.
+CREATE OR REPLACE FUNCTION drop_expired_management_partitions(p_now BIGINT)
+    RETURNS INTEGER
+    LANGUAGE plpgsql
+AS
+$$
+DECLARE
+    v_partition RECORD;
+    v_dropped   INTEGER := 0;
+BEGIN
+    FOR v_partition IN SELECT b.partition_name FROM management_partition_bounds() b WHERE b.range_end <= p_now
+        LOOP
+            EXECUTE format('ALTER TABLE management DETACH PARTITION %I', v_partition.partition_name);
+            EXECUTE format('DROP TABLE %I', v_partition.partition_name);
+            v_dropped := v_dropped + 1;
+        END LOOP;
+    RETURN v_dropped;
+END;
+$$;
+
+-- Converts management into a table partitioned by expires_at with partitions covering [p_now, p_until).
+-- Verifications which expired before p_now are not taken over. Returns false if management is partitioned already.
+CREATE OR REPLACE FUNCTION partition_management(p_now BIGINT, p_until BIGINT, p_interval BIGINT)
+    RETURNS BOOLEAN
+    LANGUAGE plpgsql
+AS
+$$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('management')) THEN
+        RETURN FALSE;
+    END IF;
+
+    LOCK TABLE management IN ACCESS EXCLUSIVE MODE;
+    ALTER TABLE management RENAME TO management_unpartitioned;
+    CREATE TABLE management
+    (
+        LIKE management_unpartitioned INCLUDING DEFAULTS INCLUDING CONSTRAINTS
+    ) PARTITION BY RANGE (expires_at);
+    CREATE TABLE management_default PARTITION OF management DEFAULT;
+    PERFORM create_management_partitions(p_now, p_until, p_interval);
+
+    INSERT INTO management
+    SELECT *
+    FROM management_unpartitioned
+    WHERE expires_at >= p_now
+       OR expires_at IS NULL;
+    DROP TABLE management_unpartitioned;
+
+    CREATE INDEX idx_management_expires_at ON management (expires_at);
+    CREATE INDEX idx_management_id ON management (id);
+    RETURN TRUE;
+END;
+$$;
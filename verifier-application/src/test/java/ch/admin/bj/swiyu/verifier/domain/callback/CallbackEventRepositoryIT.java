@@ -0,0 +1,171 @@
+package ch.admin.bj.swiyu.verifier.domain.callback;
+
+import ch.admin.bj.swiyu.verifier.PostgreSQLContainerInitializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Runs the claiming, rescheduling and deleting of callback events against PostgreSQL. The tests work on events due
+ * long before any event written by other tests, so only their own events are claimed, and delete them afterwards.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Testcontainers
+@ContextConfiguration(initializers = PostgreSQLContainerInitializer.class)
+class CallbackEventRepositoryIT {
+
+    private static final Duration CLAIM_DURATION = Duration.ofMinutes(5);
+
+    @Autowired
+    private CallbackEventRepository callbackEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Instant now = Instant.parse("2000-01-01T00:00:00Z");
+    private final List<UUID> savedIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        callbackEventRepository.deleteAllByIdInBatch(savedIds);
+    }
+
+    @Test
+    void claimDueEvents_whenDue_thenCountsAttemptAndHidesUntilClaimedUntil() {
+        var first = saveEvent(now.minusSeconds(60));
+        var second = saveEvent(now.minusSeconds(30));
+        var notDue = saveEvent(now.plusSeconds(60));
+        var claimedUntil = now.plus(CLAIM_DURATION);
+
+        var claimed = callbackEventRepository.claimDueEvents(now, claimedUntil, 10);
+
+        assertThat(claimed).extracting(CallbackEvent::getId).containsExactlyInAnyOrder(first, second);
+        assertThat(claimed).allSatisfy(event -> {
+            assertThat(event.getAttempts()).isEqualTo(1);
+            assertThat(event.getNextAttemptAt()).isEqualTo(claimedUntil);
+        });
+        assertThat(callbackEventRepository.findById(first).orElseThrow().getAttempts()).isEqualTo(1);
+        assertThat(callbackEventRepository.findById(notDue).orElseThrow().getAttempts()).isZero();
+
+        // claimed events are due again once the claim expired
+        assertThat(callbackEventRepository.claimDueEvents(now, claimedUntil, 10)).isEmpty();
+        assertThat(callbackEventRepository.claimDueEvents(claimedUntil, claimedUntil.plus(CLAIM_DURATION), 10))
+                .extracting(CallbackEvent::getId, CallbackEvent::getAttempts)
+                .containsExactlyInAnyOrder(
+                        tuple(first, 2),
+                        tuple(second, 2),
+                        tuple(notDue, 1));
+    }
+
+    @Test
+    void claimDueEvents_whenLimited_thenClaimsLongestDueFirst() {
+        var oldest = saveEvent(now.minusSeconds(90));
+        saveEvent(now.minusSeconds(30));
+        var older = saveEvent(now.minusSeconds(60));
+
+        var claimed = callbackEventRepository.claimDueEvents(now, now.plus(CLAIM_DURATION), 2);
+
+        assertThat(claimed).extracting(CallbackEvent::getId).containsExactlyInAnyOrder(oldest, older);
+    }
+
+    @Test
+    void claimDueEvents_whenClaimedConcurrently_thenClaimsAreDisjoint() throws Exception {
+        var ids = List.of(saveEvent(now.minusSeconds(60)), saveEvent(now.minusSeconds(50)),
+                saveEvent(now.minusSeconds(40)), saveEvent(now.minusSeconds(30)));
+        var claimedUntil = now.plus(CLAIM_DURATION);
+        var firstClaimed = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        // the first claim keeps its transaction and so its row locks open while the second one claims
+        var firstClaim = CompletableFuture.supplyAsync(() -> new TransactionTemplate(transactionManager).execute(status -> {
+            var claimed = callbackEventRepository.claimDueEvents(now, claimedUntil, 2);
+            firstClaimed.countDown();
+            awaitQuietly(release);
+            return claimed;
+        }));
+        List<CallbackEvent> secondClaim;
+        try {
+            assertThat(firstClaimed.await(10, TimeUnit.SECONDS)).isTrue();
+            secondClaim = CompletableFuture.supplyAsync(() -> callbackEventRepository.claimDueEvents(now, claimedUntil, 10))
+                    .get(10, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+        }
+
+        var firstIds = firstClaim.get(10, TimeUnit.SECONDS).stream().map(CallbackEvent::getId).toList();
+        var secondIds = secondClaim.stream().map(CallbackEvent::getId).toList();
+        assertThat(firstIds).hasSize(2).doesNotContainAnyElementsOf(secondIds);
+        assertThat(secondIds).hasSize(2);
+        assertThat(callbackEventRepository.findAllById(ids))
+                .allSatisfy(event -> assertThat(event.getAttempts()).isEqualTo(1));
+    }
+
+    @Test
+    void rescheduleEvents_whenRescheduled_thenDueAtNewTime() {
+        var first = saveEvent(now.minusSeconds(60));
+        var second = saveEvent(now.minusSeconds(30));
+        var claimed = callbackEventRepository.claimDueEvents(now, now.plus(CLAIM_DURATION), 10);
+        var nextAttemptAt = now.plusSeconds(10);
+
+        var rescheduled = callbackEventRepository.rescheduleEvents(claimed.stream().map(CallbackEvent::getId).toList(),
+                nextAttemptAt);
+
+        assertThat(rescheduled).isEqualTo(2);
+        assertThat(callbackEventRepository.findAllById(List.of(first, second)))
+                .allSatisfy(event -> assertThat(event.getNextAttemptAt()).isEqualTo(nextAttemptAt));
+        assertThat(callbackEventRepository.claimDueEvents(nextAttemptAt.minusMillis(1), now.plus(CLAIM_DURATION), 10))
+                .isEmpty();
+        assertThat(callbackEventRepository.claimDueEvents(nextAttemptAt, now.plus(CLAIM_DURATION), 10))
+                .extracting(CallbackEvent::getId)
+                .containsExactlyInAnyOrder(first, second);
+    }
+
+    @Test
+    void deleteAllByIdInBatch_whenDelivered_thenOnlyDeliveredEventsDeleted() {
+        var delivered = saveEvent(now.minusSeconds(60));
+        var failed = saveEvent(now.minusSeconds(30));
+        callbackEventRepository.claimDueEvents(now, now.plus(CLAIM_DURATION), 10);
+
+        callbackEventRepository.deleteAllByIdInBatch(List.of(delivered));
+
+        assertThat(callbackEventRepository.existsById(delivered)).isFalse();
+        assertThat(callbackEventRepository.existsById(failed)).isTrue();
+    }
+
+    private UUID saveEvent(Instant nextAttemptAt) {
+        var id = callbackEventRepository.save(CallbackEvent.builder()
+                .verificationId(UUID.randomUUID())
+                .timestamp(nextAttemptAt)
+                .nextAttemptAt(nextAttemptAt)
+                .build()).getId();
+        savedIds.add(id);
+        return id;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
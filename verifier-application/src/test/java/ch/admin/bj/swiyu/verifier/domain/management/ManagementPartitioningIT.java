@@ -0,0 +1,204 @@
+package ch.admin.bj.swiyu.verifier.domain.management;
+
+import ch.admin.bj.swiyu.verifier.PostgreSQLContainerInitializer;
+import ch.admin.bj.swiyu.verifier.common.DcqlTestHelper;
+import ch.admin.bj.swiyu.verifier.infrastructure.web.oid4vp.BaseVerificationControllerTest;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the purge and the partitioning of the managements by expiry (V2.6.0) against PostgreSQL. The table is
+ * converted by these tests, so they use a database of their own instead of the one shared by the other tests. The
+ * tests build on each other and run in order.
+ * <p>
+ * All expiry times lie in the future, so the scheduled removal of expired managements does not interfere; the
+ * functions are called with {@link #NOW} as the current time instead.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ManagementPartitioningIT {
+
+    private static final long INTERVAL = Duration.ofDays(1).toMillis();
+    private static final long NOW = System.currentTimeMillis() + 30 * INTERVAL;
+    // Start of the partition containing NOW
+    private static final long RANGE_START = NOW - NOW % INTERVAL;
+
+    @Container
+    private static final PostgreSQLContainer<?> database =
+            new PostgreSQLContainer<>(DockerImageName.parse(PostgreSQLContainerInitializer.POSTGRES_IMAGE_NAME));
+
+    private static UUID inRangeId;
+    private static UUID farFutureId;
+    private static UUID noExpiryId;
+
+    @Autowired
+    private ManagementRepository managementRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", database::getJdbcUrl);
+        registry.add("spring.datasource.username", database::getUsername);
+        registry.add("spring.datasource.password", database::getPassword);
+    }
+
+    @Test
+    @Order(1)
+    void deleteExpired_whenRowLocked_thenDeletesInChunksAndSkipsLockedRow() throws Exception {
+        var lockedId = saveManagement(NOW - 1000);
+        saveManagement(NOW - 2000);
+        saveManagement(NOW - 3000);
+        var validId = saveManagement(NOW + 1000);
+        var locked = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        var lockHolder = CompletableFuture.runAsync(() -> new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> {
+                    jdbcTemplate.queryForList("SELECT id FROM management WHERE id = ? FOR UPDATE", lockedId);
+                    locked.countDown();
+                    awaitQuietly(release);
+                }));
+        try {
+            assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(managementRepository.deleteExpired(NOW, 1)).isEqualTo(1);
+            assertThat(managementRepository.deleteExpired(NOW, 10)).isEqualTo(1);
+            assertThat(managementRepository.deleteExpired(NOW, 10)).isZero();
+        } finally {
+            release.countDown();
+            lockHolder.get(10, TimeUnit.SECONDS);
+        }
+
+        assertThat(managementRepository.deleteExpired(NOW, 10)).isEqualTo(1);
+        assertThat(managementRepository.existsById(lockedId)).isFalse();
+        assertThat(managementRepository.existsById(validId)).isTrue();
+        managementRepository.deleteById(validId);
+    }
+
+    @Test
+    @Order(2)
+    void partitionByExpiry_whenPopulated_thenMovesRowsIntoPartitions() {
+        var expiredId = saveManagement(NOW - 1000);
+        inRangeId = saveManagement(RANGE_START + INTERVAL + 1000);
+        farFutureId = saveManagement(RANGE_START + 10 * INTERVAL + 1000);
+        noExpiryId = saveManagement(NOW);
+        jdbcTemplate.update("UPDATE management SET expires_at = NULL WHERE id = ?", noExpiryId);
+
+        assertThat(managementRepository.partitionByExpiry(NOW, RANGE_START + 2 * INTERVAL, INTERVAL)).isTrue();
+
+        assertThat(partitionNames()).containsExactlyInAnyOrder(partitionName(RANGE_START),
+                partitionName(RANGE_START + INTERVAL), "management_default");
+        assertThat(partitionOf(expiredId)).isNull();
+        assertThat(partitionOf(inRangeId)).isEqualTo(partitionName(RANGE_START + INTERVAL));
+        assertThat(partitionOf(farFutureId)).isEqualTo("management_default");
+        assertThat(partitionOf(noExpiryId)).isEqualTo("management_default");
+
+        assertThat(managementRepository.partitionByExpiry(NOW, RANGE_START + 2 * INTERVAL, INTERVAL)).isFalse();
+    }
+
+    @Test
+    @Order(3)
+    void createPartitions_whenRowsInDefaultPartition_thenMovesThemToNewPartition() {
+        var farFutureStart = RANGE_START + 10 * INTERVAL;
+
+        assertThat(managementRepository.createPartitions(farFutureStart, farFutureStart + INTERVAL, INTERVAL))
+                .isEqualTo(1);
+
+        assertThat(partitionOf(farFutureId)).isEqualTo(partitionName(farFutureStart));
+        assertThat(partitionOf(noExpiryId)).isEqualTo("management_default");
+        assertThat(managementRepository.createPartitions(farFutureStart, farFutureStart + INTERVAL, INTERVAL))
+                .isZero();
+    }
+
+    @Test
+    @Order(4)
+    void dropExpiredPartitions_whenRangeEnded_thenDropsPartitionWithRows() {
+        assertThat(managementRepository.dropExpiredPartitions(RANGE_START + 2 * INTERVAL)).isEqualTo(2);
+
+        assertThat(partitionNames()).containsExactlyInAnyOrder(partitionName(RANGE_START + 10 * INTERVAL),
+                "management_default");
+        assertThat(partitionOf(inRangeId)).isNull();
+        assertThat(partitionOf(farFutureId)).isEqualTo(partitionName(RANGE_START + 10 * INTERVAL));
+        assertThat(partitionOf(noExpiryId)).isEqualTo("management_default");
+        assertThat(managementRepository.dropExpiredPartitions(RANGE_START + 2 * INTERVAL)).isZero();
+    }
+
+    @Test
+    @Order(5)
+    void deleteExpired_whenPartitioned_thenDeletesAcrossPartitions() {
+        var defaultPartitionId = saveManagement(NOW - 1000);
+        assertThat(partitionOf(defaultPartitionId)).isEqualTo("management_default");
+        assertThat(managementRepository.findById(defaultPartitionId)).isPresent();
+
+        assertThat(managementRepository.deleteExpired(RANGE_START + 11 * INTERVAL, 10)).isEqualTo(2);
+
+        assertThat(partitionOf(defaultPartitionId)).isNull();
+        assertThat(partitionOf(farFutureId)).isNull();
+        assertThat(partitionOf(noExpiryId)).isEqualTo("management_default");
+    }
+
+    private UUID saveManagement(long expiresAt) {
+        var id = UUID.randomUUID();
+        managementRepository.save(Management.builder()
+                .id(id)
+                .state(VerificationStatus.PENDING)
+                .expirationInSeconds(86400)
+                .expiresAt(expiresAt)
+                .acceptedIssuerDids(List.of("did:example:issuer"))
+                .dcqlQuery(DcqlTestHelper.stringToDcqlQuery(BaseVerificationControllerTest.dcqlQueryJson()))
+                .build());
+        return id;
+    }
+
+    private String partitionOf(UUID id) {
+        return jdbcTemplate.queryForList("SELECT tableoid::regclass::text FROM management WHERE id = ?", String.class, id)
+                .stream().findFirst().orElse(null);
+    }
+
+    private List<String> partitionNames() {
+        return jdbcTemplate.queryForList("SELECT c.relname::text FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                + "WHERE i.inhparent = 'management'::regclass", String.class);
+    }
+
+    private static String partitionName(long rangeStart) {
+        return "management_p" + rangeStart;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
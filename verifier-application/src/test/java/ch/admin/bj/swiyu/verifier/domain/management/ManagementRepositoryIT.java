@@ -0,0 +1,162 @@
+package ch.admin.bj.swiyu.verifier.domain.management;
+
+import ch.admin.bj.swiyu.verifier.PostgreSQLContainerInitializer;
+import ch.admin.bj.swiyu.verifier.common.DcqlTestHelper;
+import ch.admin.bj.swiyu.verifier.common.exception.ProcessClosedException;
+import ch.admin.bj.swiyu.verifier.infrastructure.web.oid4vp.BaseVerificationControllerTest;
+import ch.admin.bj.swiyu.verifier.service.management.ManagementTransactionalService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs the single statement session claim ({@code application.atomic-session-claim}) against PostgreSQL: the native
+ * {@code UPDATE ... RETURNING *} of {@link ManagementRepository#claimForProcessing(UUID, long)} and the JPQL update of
+ * {@link ManagementRepository#completeProcessing}.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Testcontainers
+@ContextConfiguration(initializers = PostgreSQLContainerInitializer.class)
+@TestPropertySource(properties = "application.atomic-session-claim=true")
+class ManagementRepositoryIT {
+
+    private static final long FAR_FUTURE = 4070908800000L;
+
+    @Autowired
+    private ManagementRepository managementRepository;
+
+    @Autowired
+    private ManagementTransactionalService managementTransactionalService;
+
+    @Test
+    void claimForProcessing_whenPending_thenReturnsClaimedManagement() {
+        var id = savePendingManagement(FAR_FUTURE);
+
+        var claimed = managementRepository.claimForProcessing(id, System.currentTimeMillis());
+
+        assertThat(claimed).hasValueSatisfying(m -> {
+            assertThat(m.getId()).isEqualTo(id);
+            assertThat(m.getState()).isEqualTo(VerificationStatus.IN_PROGRESS);
+            assertThat(m.getDcqlQuery()).isNotNull();
+        });
+        assertThat(managementRepository.findStateById(id)).contains(VerificationStatus.IN_PROGRESS);
+        assertThat(managementRepository.findById(id).orElseThrow().getVersion()).isEqualTo(claimed.get().getVersion());
+    }
+
+    @Test
+    void claimForProcessing_whenClaimedAlreadyOrExpired_thenEmpty() {
+        var claimedId = savePendingManagement(FAR_FUTURE);
+        var expiredId = savePendingManagement(System.currentTimeMillis() - 1000);
+        managementRepository.claimForProcessing(claimedId, System.currentTimeMillis());
+
+        assertThat(managementRepository.claimForProcessing(claimedId, System.currentTimeMillis())).isEmpty();
+        assertThat(managementRepository.claimForProcessing(expiredId, System.currentTimeMillis())).isEmpty();
+        assertThat(managementRepository.claimForProcessing(UUID.randomUUID(), System.currentTimeMillis())).isEmpty();
+        assertThat(managementRepository.findStateById(expiredId)).contains(VerificationStatus.PENDING);
+    }
+
+    @Test
+    void completeProcessing_whenInProgress_thenStoresResultOnce() {
+        var id = savePendingManagement(FAR_FUTURE);
+        var claimed = managementRepository.claimForProcessing(id, System.currentTimeMillis()).orElseThrow();
+        var walletResponse = ResponseData.builder().credentialSubjectData("{\"first_name\":\"Test\"}").build();
+        var responseCode = UUID.randomUUID();
+        var redirectURI = URI.create("https://example.com/callback");
+
+        int updated = managementRepository.completeProcessing(id, VerificationStatus.SUCCESS, walletResponse,
+                responseCode, redirectURI, Instant.now());
+
+        assertThat(updated).isEqualTo(1);
+        var stored = managementRepository.findById(id).orElseThrow();
+        assertThat(stored.getState()).isEqualTo(VerificationStatus.SUCCESS);
+        assertThat(stored.getWalletResponse()).isEqualTo(walletResponse);
+        assertThat(stored.getResponseCode()).isEqualTo(responseCode);
+        assertThat(stored.getRedirectURI()).isEqualTo(redirectURI);
+        assertThat(stored.getVersion()).isEqualTo(claimed.getVersion() + 1);
+
+        assertThat(managementRepository.completeProcessing(id, VerificationStatus.FAILED, walletResponse,
+                responseCode, redirectURI, Instant.now())).isZero();
+        assertThat(managementRepository.findStateById(id)).contains(VerificationStatus.SUCCESS);
+    }
+
+    @Test
+    void claimSessionForProcessing_whenClaimedConcurrently_thenLoserGetsOptimisticLockingFailure() throws Exception {
+        var id = savePendingManagement(FAR_FUTURE);
+        int submissions = 4;
+        var start = new CountDownLatch(1);
+        var results = new ArrayList<CompletableFuture<Management>>();
+
+        try (var executor = Executors.newFixedThreadPool(submissions)) {
+            for (int i = 0; i < submissions; i++) {
+                results.add(CompletableFuture.supplyAsync(() -> {
+                    awaitQuietly(start);
+                    return managementTransactionalService.claimSessionForProcessing(id);
+                }, executor));
+            }
+            start.countDown();
+
+            var failures = new ArrayList<Throwable>();
+            var claimed = new ArrayList<Management>();
+            for (var result : results) {
+                try {
+                    claimed.add(result.get());
+                } catch (ExecutionException e) {
+                    failures.add(e.getCause());
+                }
+            }
+
+            assertThat(claimed).hasSize(1);
+            assertThat(failures).hasSize(submissions - 1)
+                    .allSatisfy(e -> assertThat(e).isInstanceOf(ObjectOptimisticLockingFailureException.class));
+        }
+    }
+
+    @Test
+    void claimSessionForProcessing_whenCompleted_thenProcessClosed() {
+        var id = savePendingManagement(FAR_FUTURE);
+        managementRepository.claimForProcessing(id, System.currentTimeMillis());
+        managementRepository.completeProcessing(id, VerificationStatus.FAILED, null, null, null, Instant.now());
+
+        assertThrows(ProcessClosedException.class, () -> managementTransactionalService.claimSessionForProcessing(id));
+    }
+
+    private UUID savePendingManagement(long expiresAt) {
+        var id = UUID.randomUUID();
+        managementRepository.save(Management.builder()
+                .id(id)
+                .state(VerificationStatus.PENDING)
+                .expirationInSeconds(86400)
+                .expiresAt(expiresAt)
+                .acceptedIssuerDids(List.of("did:example:issuer"))
+                .dcqlQuery(DcqlTestHelper.stringToDcqlQuery(BaseVerificationControllerTest.dcqlQueryJson()))
+                .build());
+        return id;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package ch.admin.bj.swiyu.verifier.infrastructure.scheduler;
+
+import ch.admin.bj.swiyu.verifier.PostgreSQLContainerInitializer;
+import ch.admin.bj.swiyu.verifier.service.callback.CallbackEventProducer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import static ch.admin.bj.swiyu.verifier.service.callback.CallbackEventProducer.CALLBACK_EVENT_CHANNEL;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@code webhook.listen-notify} against PostgreSQL: the {@code NOTIFY} issued by {@link CallbackEventProducer}
+ * with the {@link JdbcTemplate} has to take part in the JPA transaction storing the event, so a connection of the
+ * pool listening on the channel is only notified once the event was committed.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Testcontainers
+@ContextConfiguration(initializers = PostgreSQLContainerInitializer.class)
+@TestPropertySource(properties = {
+        "webhook.listen-notify=true",
+        "webhook.callback-uri=http://localhost/callback"
+})
+class CallbackNotificationIT {
+
+    private static final int NOTIFICATION_TIMEOUT_MILLIS = 2000;
+
+    // Keeps the events written by the tests from being sent
+    @MockitoBean
+    private CallbackDispatchScheduler callbackDispatchScheduler;
+
+    @Autowired
+    private CallbackEventProducer callbackEventProducer;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Connection listeningConnection;
+    private PGConnection pgConnection;
+    private UUID verificationId;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        listeningConnection = dataSource.getConnection();
+        try (var statement = listeningConnection.createStatement()) {
+            statement.execute("LISTEN " + CALLBACK_EVENT_CHANNEL);
+        }
+        pgConnection = listeningConnection.unwrap(PGConnection.class);
+        verificationId = UUID.randomUUID();
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (var statement = listeningConnection.createStatement()) {
+            statement.execute("UNLISTEN *");
+        }
+        listeningConnection.close();
+        jdbcTemplate.update("DELETE FROM callback_event WHERE verification_id = ?", verificationId);
+    }
+
+    @Test
+    void produceEvent_whenCommitted_thenListenerNotifiedAfterCommit() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            callbackEventProducer.produceEvent(verificationId);
+            // The notification is held back until the transaction storing the event commits
+            assertThat(receiveNotifications()).isEmpty();
+        });
+
+        assertThat(receiveNotifications()).extracting(PGNotification::getName).containsExactly(CALLBACK_EVENT_CHANNEL);
+        assertThat(countEvents()).isEqualTo(1);
+    }
+
+    @Test
+    void produceEvent_whenRolledBack_thenListenerNotNotified() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            callbackEventProducer.produceEvent(verificationId);
+            status.setRollbackOnly();
+        });
+
+        assertThat(receiveNotifications()).isEmpty();
+        assertThat(countEvents()).isZero();
+    }
+
+    @Test
+    void produceEvent_whenSeveralEventsInOneTransaction_thenNotificationsFolded() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            callbackEventProducer.produceEvent(verificationId);
+            callbackEventProducer.produceEvent(verificationId);
+        });
+
+        assertThat(receiveNotifications()).hasSize(1);
+        assertThat(countEvents()).isEqualTo(2);
+    }
+
+    private PGNotification[] receiveNotifications() {
+        try {
+            var notifications = pgConnection.getNotifications(NOTIFICATION_TIMEOUT_MILLIS);
+            return notifications != null ? notifications : new PGNotification[0];
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Integer countEvents() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM callback_event WHERE verification_id = ?",
+                Integer.class, verificationId);
+    }
+}
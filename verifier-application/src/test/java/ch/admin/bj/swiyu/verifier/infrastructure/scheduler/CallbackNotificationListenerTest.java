@@ -0,0 +1,78 @@
+package ch.admin.bj.swiyu.verifier.infrastructure.scheduler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class CallbackNotificationListenerTest {
+
+    private DataSource dataSource;
+    private Connection connection;
+    private Statement statement;
+    private PGConnection pgConnection;
+    private CallbackDispatchScheduler callbackDispatchScheduler;
+    private CallbackNotificationListener listener;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = mock(DataSource.class);
+        connection = mock(Connection.class);
+        statement = mock(Statement.class);
+        pgConnection = mock(PGConnection.class);
+        callbackDispatchScheduler = mock(CallbackDispatchScheduler.class);
+
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+
+        listener = new CallbackNotificationListener(dataSource, callbackDispatchScheduler);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        listener.shutdown();
+    }
+
+    @Test
+    void start_thenListensAndDispatchesOnNotification() throws SQLException {
+        when(pgConnection.getNotifications(anyInt()))
+                .thenReturn(new PGNotification[]{mock(PGNotification.class)})
+                .thenAnswer(invocation -> {
+                    Thread.sleep(10);
+                    return new PGNotification[0];
+                });
+
+        listener.start();
+
+        verify(statement, timeout(1000)).execute("LISTEN callback_event");
+        // once to catch up after listening started, once for the notification
+        verify(callbackDispatchScheduler, timeout(1000).times(2)).triggerProcessCallback();
+    }
+
+    @Test
+    void start_whenDispatchFails_thenKeepsListening() throws SQLException {
+        doThrow(new IllegalStateException("database unavailable")).doNothing()
+                .when(callbackDispatchScheduler).triggerProcessCallback();
+        when(pgConnection.getNotifications(anyInt()))
+                .thenReturn(new PGNotification[]{mock(PGNotification.class)})
+                .thenAnswer(invocation -> {
+                    Thread.sleep(10);
+                    return new PGNotification[0];
+                });
+
+        listener.start();
+
+        verify(callbackDispatchScheduler, timeout(1000).times(2)).triggerProcessCallback();
+        verify(dataSource, times(1)).getConnection();
+    }
+}
@@ -3,23 +3,36 @@ package ch.admin.bj.swiyu.verifier.infrastructure.scheduler;
 import ch.admin.bj.swiyu.verifier.common.config.WebhookProperties;
 import ch.admin.bj.swiyu.verifier.domain.callback.CallbackEvent;
 import ch.admin.bj.swiyu.verifier.domain.callback.CallbackEventRepository;
+import ch.admin.bj.swiyu.verifier.domain.callback.DueCallbackEvents;
 import ch.admin.bj.swiyu.verifier.service.callback.CallbackEventProducer;
+import ch.admin.bj.swiyu.verifier.service.callback.CallbackMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class CallbackTest {
@@ -30,6 +43,8 @@ class CallbackTest {
     @Mock
     private WebClient webClient;
     @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
     private WebClient.RequestBodyUriSpec requestBodyUriSpec;
     @Mock
     private WebClient.RequestBodySpec requestBodySpec;
@@ -50,6 +65,11 @@ class CallbackTest {
         when(webhookProperties.getCallbackUri()).thenReturn("http://test/callback");
         when(webhookProperties.getApiKeyHeader()).thenReturn("x-api-key");
         when(webhookProperties.getApiKeyValue()).thenReturn("secret");
+        when(webhookProperties.getBatchSize()).thenReturn(100);
+        when(webhookProperties.getParallelism()).thenReturn(10);
+        when(webhookProperties.getTimeout()).thenReturn(Duration.ofSeconds(30));
+        when(webhookProperties.getRetryBackoff()).thenReturn(Duration.ofSeconds(5));
+        when(webhookProperties.getMaxRetryBackoff()).thenReturn(Duration.ofMinutes(10));
     }
 
     @Test
@@ -57,6 +77,17 @@ class CallbackTest {
         UUID id = UUID.randomUUID();
         callbackEventProducer.produceEvent(id);
         verify(callbackEventRepository).save(any(CallbackEvent.class));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void produceEvent_whenListenNotify_thenNotifiesDispatcher() {
+        when(webhookProperties.isListenNotify()).thenReturn(true);
+
+        callbackEventProducer.produceEvent(UUID.randomUUID());
+
+        verify(callbackEventRepository).save(any(CallbackEvent.class));
+        verify(jdbcTemplate).execute("NOTIFY callback_event");
     }
 
     /**
@@ -70,7 +101,7 @@ class CallbackTest {
                 .verificationId(UUID.randomUUID())
                 .timestamp(Instant.now())
                 .build();
-        when(callbackEventRepository.findAll()).thenReturn(List.of(event));
+        when(callbackEventRepository.claimDueEvents(any(), any(), anyInt())).thenReturn(List.of(event));
         when(webClient.post()).thenReturn(requestBodyUriSpec);
         when(requestBodyUriSpec.uri(anyString())).thenReturn(requestBodySpec);
         when(requestBodySpec.header(anyString(), anyString())).thenReturn(requestBodySpec);
@@ -83,7 +114,8 @@ class CallbackTest {
         callbackDispatchScheduler.triggerProcessCallback();
 
         verify(webClient).post();
-        verify(callbackEventRepository).delete(event);
+        verify(callbackEventRepository).deleteAllByIdInBatch(Set.of(event.getId()));
+        verify(callbackEventRepository, never()).rescheduleEvents(any(), any());
     }
 
     /**
@@ -97,7 +129,7 @@ class CallbackTest {
                 .verificationId(UUID.randomUUID())
                 .timestamp(Instant.now())
                 .build();
-        when(callbackEventRepository.findAll()).thenReturn(List.of(event));
+        when(callbackEventRepository.claimDueEvents(any(), any(), anyInt())).thenReturn(List.of(event));
         when(webClient.post()).thenReturn(requestBodyUriSpec);
         when(requestBodyUriSpec.uri(anyString())).thenReturn(requestBodySpec);
         when(requestBodySpec.header(anyString(), anyString())).thenReturn(requestBodySpec);
@@ -109,8 +141,165 @@ class CallbackTest {
         );
         when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
 
+        var before = Instant.now();
+        callbackDispatchScheduler.triggerProcessCallback();
+
+        verify(callbackEventRepository, never()).deleteAllByIdInBatch(any());
+        verify(callbackEventRepository).rescheduleEvents(eq(List.of(event.getId())),
+                argThat(nextAttemptAt -> !nextAttemptAt.isBefore(before.plusSeconds(5))));
+    }
+
+    /**
+     * A failing callback must not prevent the delivery of the other events of the batch.
+     */
+    @Test
+    void triggerProcessCallback_whenOneCallbackFails_thenDeletesOnlyDeliveredEvents() {
+        var failing = CallbackEvent.builder().verificationId(UUID.randomUUID()).timestamp(Instant.now()).attempts(3).build();
+        var delivered = CallbackEvent.builder().verificationId(UUID.randomUUID()).timestamp(Instant.now()).attempts(1).build();
+        when(callbackEventRepository.claimDueEvents(any(), any(), anyInt())).thenReturn(List.of(failing, delivered));
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri(anyString())).thenReturn(requestBodySpec);
+        when(requestBodySpec.header(anyString(), anyString())).thenReturn(requestBodySpec);
+        when(requestBodySpec.contentType(MediaType.APPLICATION_JSON)).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any(Object.class))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.toBodilessEntity()).thenReturn(
+                Mono.error(new IllegalStateException("Connection refused")),
+                Mono.empty()
+        );
+
+        var before = Instant.now();
+        callbackDispatchScheduler.triggerProcessCallback();
+
+        verify(callbackEventRepository).deleteAllByIdInBatch(Set.of(delivered.getId()));
+        // third attempt failed: 5s * 2^2
+        verify(callbackEventRepository).rescheduleEvents(eq(List.of(failing.getId())),
+                argThat(nextAttemptAt -> !nextAttemptAt.isBefore(before.plusSeconds(20))
+                        && nextAttemptAt.isBefore(before.plusSeconds(21))));
+    }
+
+    @Test
+    void triggerProcessCallback_whenFullBatchClaimed_thenClaimsNextBatch() {
+        when(webhookProperties.getBatchSize()).thenReturn(1);
+        when(webhookProperties.getParallelism()).thenReturn(1);
+        var first = CallbackEvent.builder().verificationId(UUID.randomUUID()).timestamp(Instant.now()).attempts(1).build();
+        var second = CallbackEvent.builder().verificationId(UUID.randomUUID()).timestamp(Instant.now()).attempts(1).build();
+        when(callbackEventRepository.claimDueEvents(any(), any(), eq(1)))
+                .thenReturn(List.of(first), List.of(second), List.of());
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri(anyString())).thenReturn(requestBodySpec);
+        when(requestBodySpec.header(anyString(), anyString())).thenReturn(requestBodySpec);
+        when(requestBodySpec.contentType(MediaType.APPLICATION_JSON)).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any(Object.class))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.toBodilessEntity()).thenReturn(Mono.empty());
+
+        callbackDispatchScheduler.triggerProcessCallback();
+
+        verify(callbackEventRepository, times(3)).claimDueEvents(any(), any(), eq(1));
+        verify(callbackEventRepository).deleteAllByIdInBatch(Set.of(first.getId()));
+        verify(callbackEventRepository).deleteAllByIdInBatch(Set.of(second.getId()));
+    }
+
+    @Test
+    void retryBackoff_doublesPerAttemptUpToMaximum() {
+        assertThat(callbackDispatchScheduler.retryBackoff(1)).isEqualTo(Duration.ofSeconds(5));
+        assertThat(callbackDispatchScheduler.retryBackoff(2)).isEqualTo(Duration.ofSeconds(10));
+        assertThat(callbackDispatchScheduler.retryBackoff(4)).isEqualTo(Duration.ofSeconds(40));
+        assertThat(callbackDispatchScheduler.retryBackoff(8)).isEqualTo(Duration.ofMinutes(10));
+        assertThat(callbackDispatchScheduler.retryBackoff(1000)).isEqualTo(Duration.ofMinutes(10));
+    }
+
+    @Test
+    void triggerProcessCallback_whenCoalesced_thenSendsCallbacksInOneRequest() {
+        var first = CallbackEvent.builder().verificationId(UUID.randomUUID()).timestamp(Instant.now()).build();
+        var second = CallbackEvent.builder().verificationId(UUID.randomUUID()).timestamp(Instant.now()).build();
+        mockCoalescedDelivery(List.of(first, second), ClientResponse.create(HttpStatus.OK).build());
+
+        callbackDispatchScheduler.triggerProcessCallback();
+
+        verify(webClient, times(1)).post();
+        verify(requestBodySpec).bodyValue(List.of(CallbackMapper.toWebhookCallbackDto(first), CallbackMapper.toWebhookCallbackDto(second)));
+        verify(callbackEventRepository).deleteAllByIdInBatch(Set.of(first.getId(), second.getId()));
+        verify(callbackEventRepository, never()).rescheduleEvents(any(), any());
+    }
+
+    /**
+     * Callbacks rejected by the receiver are kept and sent again, all others are acknowledged.
+     */
+    @Test
+    void triggerProcessCallback_whenCoalescedAndCallbackRejected_thenKeepsOnlyRejectedEvent() {
+        var rejected = CallbackEvent.builder().verificationId(UUID.randomUUID()).timestamp(Instant.now()).attempts(1).build();
+        var acknowledged = CallbackEvent.builder().verificationId(UUID.randomUUID()).timestamp(Instant.now()).attempts(1).build();
+        mockCoalescedDelivery(List.of(rejected, acknowledged), ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"rejected_verification_ids\":[\"%s\"]}".formatted(rejected.getVerificationId()))
+                .build());
+
+        callbackDispatchScheduler.triggerProcessCallback();
+
+        verify(callbackEventRepository).deleteAllByIdInBatch(Set.of(acknowledged.getId()));
+        verify(callbackEventRepository).rescheduleEvents(eq(List.of(rejected.getId())), any());
+    }
+
+    /**
+     * A receiver which answers with a body other than JSON, e.g. a plain "OK", acknowledges all callbacks.
+     */
+    @Test
+    void triggerProcessCallback_whenCoalescedAndPlainTextResponse_thenAcknowledgesAllEvents() {
+        var first = CallbackEvent.builder().verificationId(UUID.randomUUID()).timestamp(Instant.now()).build();
+        var second = CallbackEvent.builder().verificationId(UUID.randomUUID()).timestamp(Instant.now()).build();
+        mockCoalescedDelivery(List.of(first, second), ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
+                .body("OK")
+                .build());
+
+        callbackDispatchScheduler.triggerProcessCallback();
+
+        verify(callbackEventRepository).deleteAllByIdInBatch(Set.of(first.getId(), second.getId()));
+        verify(callbackEventRepository, never()).rescheduleEvents(any(), any());
+    }
+
+    @Test
+    void triggerProcessCallback_whenCoalescedAndRequestFails_thenReschedulesAllEvents() {
+        var first = CallbackEvent.builder().verificationId(UUID.randomUUID()).timestamp(Instant.now()).attempts(1).build();
+        var second = CallbackEvent.builder().verificationId(UUID.randomUUID()).timestamp(Instant.now()).attempts(1).build();
+        mockCoalescedDelivery(List.of(first, second), ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
+                .body("Service Unavailable")
+                .build());
+
+        callbackDispatchScheduler.triggerProcessCallback();
+
+        verify(callbackEventRepository, never()).deleteAllByIdInBatch(any());
+        verify(callbackEventRepository).rescheduleEvents(eq(List.of(first.getId(), second.getId())), any());
+    }
+
+    @Test
+    void triggerProcessCallback_whenCoalescedAndRequestNotFullWithinLinger_thenWaits() {
+        when(webhookProperties.isCoalesceCallbacks()).thenReturn(true);
+        when(webhookProperties.getMaxCallbacksPerRequest()).thenReturn(50);
+        when(webhookProperties.getMaxLinger()).thenReturn(Duration.ofSeconds(10));
+        when(callbackEventRepository.countDueEvents(any())).thenReturn(new DueCallbackEvents(3, Instant.now().minusSeconds(1)));
+
         callbackDispatchScheduler.triggerProcessCallback();
 
-        verify(callbackEventRepository, never()).delete(event);
+        verify(callbackEventRepository, never()).claimDueEvents(any(), any(), anyInt());
+        verifyNoInteractions(webClient);
+    }
+
+    private void mockCoalescedDelivery(List<CallbackEvent> events, ClientResponse response) {
+        when(webhookProperties.isCoalesceCallbacks()).thenReturn(true);
+        when(webhookProperties.getMaxCallbacksPerRequest()).thenReturn(50);
+        when(webhookProperties.getMaxLinger()).thenReturn(Duration.ZERO);
+        when(callbackEventRepository.countDueEvents(any())).thenReturn(new DueCallbackEvents(events.size(), Instant.now()));
+        when(callbackEventRepository.claimDueEvents(any(), any(), anyInt())).thenReturn(events);
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri(anyString())).thenReturn(requestBodySpec);
+        when(requestBodySpec.header(anyString(), anyString())).thenReturn(requestBodySpec);
+        when(requestBodySpec.contentType(MediaType.APPLICATION_JSON)).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any(Object.class))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.exchangeToMono(any())).thenAnswer(invocation ->
+                invocation.<Function<ClientResponse, Mono<?>>>getArgument(0).apply(response));
     }
-}
\ No newline at end of file
+}
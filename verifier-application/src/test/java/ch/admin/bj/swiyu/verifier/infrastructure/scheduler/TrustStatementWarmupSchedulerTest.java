@@ -0,0 +1,51 @@
+package ch.admin.bj.swiyu.verifier.infrastructure.scheduler;
+
+import ch.admin.bj.swiyu.verifier.common.config.ApplicationProperties;
+import ch.admin.bj.swiyu.verifier.common.config.TrustRegistryProperties;
+import ch.admin.bj.swiyu.verifier.service.trustregistry.TrustStatementCacheService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.DefaultApplicationArguments;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatNoException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link TrustStatementWarmupScheduler}.
+ */
+class TrustStatementWarmupSchedulerTest {
+
+    private static final String ISSUER_DID = "did:tdw:example.com:issuer";
+    private static final String VERIFIER_DID = "did:tdw:example.com:verifier";
+
+    private TrustStatementCacheService trustStatementCacheService;
+    private TrustStatementWarmupScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        trustStatementCacheService = mock(TrustStatementCacheService.class);
+        var properties = new TrustRegistryProperties();
+        properties.setWarmupIssuerDids(List.of(ISSUER_DID));
+        var applicationProperties = new ApplicationProperties();
+        applicationProperties.setClientId(VERIFIER_DID);
+
+        scheduler = new TrustStatementWarmupScheduler(properties, applicationProperties, trustStatementCacheService);
+    }
+
+    @Test
+    void run_whenStarted_thenConfiguredIssuersAndVerifierWarmedUp() {
+        scheduler.run(new DefaultApplicationArguments());
+
+        verify(trustStatementCacheService).warmUp(List.of(ISSUER_DID), List.of(VERIFIER_DID));
+    }
+
+    @Test
+    void warmUp_whenCacheServiceFails_thenExceptionNotPropagated() {
+        doThrow(new IllegalStateException("registry unavailable")).when(trustStatementCacheService).warmUp(any(), any());
+
+        assertThatNoException().isThrownBy(() -> scheduler.warmUp());
+    }
+}
@@ -0,0 +1,111 @@
+package ch.admin.bj.swiyu.verifier.infrastructure.web.oid4vp;
+
+import ch.admin.bj.swiyu.verifier.common.exception.ProcessClosedException;
+import ch.admin.bj.swiyu.verifier.common.exception.VerificationErrorResponseCode;
+import ch.admin.bj.swiyu.verifier.dto.VPApiVersion;
+import ch.admin.bj.swiyu.verifier.dto.VerificationPresentationResponseDto;
+import ch.admin.bj.swiyu.verifier.infrastructure.web.DefaultExceptionHandler;
+import ch.admin.bj.swiyu.verifier.service.oid4vp.ReactivePresentationVerificationUsecase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.format.support.DefaultFormattingConversionService;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.UUID;
+
+import static ch.admin.bj.swiyu.verifier.common.exception.VerificationException.submissionErrorV1;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ReactiveVerificationPresentationRouteTest {
+
+    private static final String RESPONSE_DATA_URL = "/oid4vp/api/request-object/%s/response-data";
+
+    private ReactivePresentationVerificationUsecase usecase;
+    private SimpleMeterRegistry meterRegistry;
+    private MockMvc mvc;
+    private UUID requestId;
+
+    @BeforeEach
+    void setUp() {
+        usecase = mock(ReactivePresentationVerificationUsecase.class);
+        meterRegistry = new SimpleMeterRegistry();
+        var route = new ReactiveVerificationPresentationRoute(usecase, new DefaultFormattingConversionService(),
+                new DefaultExceptionHandler(), meterRegistry);
+        mvc = MockMvcBuilders.routerFunctions(route.reactiveVerificationPresentationRouterFunction()).build();
+        requestId = UUID.randomUUID();
+    }
+
+    @Test
+    void receiveVerificationPresentation_whenVerified_thenOk() throws Exception {
+        when(usecase.receiveVerificationPresentation(eq(requestId), eq(VPApiVersion.V1), any()))
+                .thenReturn(Mono.just(new VerificationPresentationResponseDto(URI.create("https://example.com/done"))));
+
+        submitAndDispatch()
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.redirect_uri").value("https://example.com/done"));
+
+        assertThat(meterRegistry.get("method.timed").tag("exception", "none").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void receiveVerificationPresentation_whenVerificationFails_thenBadRequestWithVerificationError() throws Exception {
+        var error = submissionErrorV1(null, VerificationErrorResponseCode.CREDENTIAL_EXPIRED, "expired");
+        when(usecase.receiveVerificationPresentation(eq(requestId), eq(VPApiVersion.V1), any()))
+                .thenReturn(Mono.error(error));
+
+        submitAndDispatch()
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error_code").value("credential_expired"))
+                .andExpect(jsonPath("$.error_description").value("expired"));
+
+        assertThat(meterRegistry.get("method.timed").tag("exception", "VerificationException").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void receiveVerificationPresentation_whenProcessClosed_thenGone() throws Exception {
+        when(usecase.receiveVerificationPresentation(eq(requestId), eq(VPApiVersion.V1), any()))
+                .thenReturn(Mono.error(new ProcessClosedException()));
+
+        submitAndDispatch()
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    void receiveVerificationPresentation_whenRequestIdInvalid_thenBadRequestWithoutSubmission() throws Exception {
+        mvc.perform(post(RESPONSE_DATA_URL.formatted("not-a-uuid"))
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("state", "state"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(usecase);
+    }
+
+    private ResultActions submitAndDispatch() throws Exception {
+        var result = mvc.perform(post(RESPONSE_DATA_URL.formatted(requestId))
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("vp_token", "vp-token")
+                        .param("state", "state"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mvc.perform(asyncDispatch(result));
+    }
+}
@@ -15,6 +15,7 @@ import ch.admin.bj.swiyu.verifier.service.oid4vp.test.fixtures.DidDocFixtures;
 import ch.admin.bj.swiyu.verifier.service.oid4vp.test.fixtures.KeyFixtures;
 import ch.admin.bj.swiyu.verifier.service.oid4vp.test.fixtures.StatusListGenerator;
 import ch.admin.bj.swiyu.verifier.service.oid4vp.test.mock.SDJWTCredentialMock;
+import ch.admin.bj.swiyu.verifier.service.statuslist.StatusListFetchResult;
 import ch.admin.bj.swiyu.verifier.service.statuslist.StatusListMaxSizeExceededException;
 import ch.admin.bj.swiyu.verifier.service.statuslist.StatusListResolver;
 import com.authlete.sd.Disclosure;
@@ -61,6 +62,8 @@ import static ch.admin.bj.swiyu.verifier.service.oid4vp.test.mock.SDJWTCredentia
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.MediaType.APPLICATION_FORM_URLENCODED_VALUE;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -352,12 +355,12 @@ class VerificationControllerIT extends BaseVerificationControllerTest {
         Integer statusListIndex = "".equals(input) ? null : Integer.parseInt(input);
         // GIVEN
         SDJWTCredentialMock emulator = new SDJWTCredentialMock();
-        when(mockedStatusListResolverAdapter.resolveStatusList(StatusListGenerator.SPEC_SUBJECT))
-                .thenAnswer(invocation -> createTokenStatusListTokenVerifiableCredential(
+        when(mockedStatusListResolverAdapter.fetchStatusList(eq(StatusListGenerator.SPEC_SUBJECT), any(), any()))
+                .thenAnswer(invocation -> StatusListFetchResult.modified(createTokenStatusListTokenVerifiableCredential(
                         StatusListGenerator.SPEC_STATUS_LIST,
                         emulator.getKey(),
                         emulator.getIssuerId(),
-                        emulator.getKidHeaderValue())
+                        emulator.getKidHeaderValue()), null, null)
                 );
 
         var sdJWT = emulator.createSDJWTMock(statusListIndex);
@@ -382,12 +385,12 @@ class VerificationControllerIT extends BaseVerificationControllerTest {
         Integer index = "".equals(input) ? null : Integer.parseInt(input);
         // GIVEN
         SDJWTCredentialMock emulator = new SDJWTCredentialMock();
-        when(mockedStatusListResolverAdapter.resolveStatusList(StatusListGenerator.SPEC_SUBJECT))
-                .thenAnswer(invocation -> createTokenStatusListTokenVerifiableCredential(
+        when(mockedStatusListResolverAdapter.fetchStatusList(eq(StatusListGenerator.SPEC_SUBJECT), any(), any()))
+                .thenAnswer(invocation -> StatusListFetchResult.modified(createTokenStatusListTokenVerifiableCredential(
                         StatusListGenerator.SPEC_STATUS_LIST,
                         emulator.getKey(),
                         emulator.getIssuerId(),
-                        emulator.getKidHeaderValue())
+                        emulator.getKidHeaderValue()), null, null)
                 );
 
         var sdJWT = emulator.createSDJWTMock(index);
@@ -417,12 +420,12 @@ class VerificationControllerIT extends BaseVerificationControllerTest {
         // GIVEN
         SDJWTCredentialMock emulator = new SDJWTCredentialMock();
         // idx=0 has status value 1 (revoked) in SPEC_STATUS_LIST
-        when(mockedStatusListResolverAdapter.resolveStatusList(StatusListGenerator.SPEC_SUBJECT))
-                .thenAnswer(invocation -> createTokenStatusListTokenVerifiableCredential(
+        when(mockedStatusListResolverAdapter.fetchStatusList(eq(StatusListGenerator.SPEC_SUBJECT), any(), any()))
+                .thenAnswer(invocation -> StatusListFetchResult.modified(createTokenStatusListTokenVerifiableCredential(
                         StatusListGenerator.SPEC_STATUS_LIST,
                         emulator.getKey(),
                         emulator.getIssuerId(),
-                        emulator.getKidHeaderValue())
+                        emulator.getKidHeaderValue()), null, null)
                 );
 
         var sdJwt = emulator.createSDJWTMock(0);
@@ -633,14 +636,14 @@ class VerificationControllerIT extends BaseVerificationControllerTest {
         Integer statusListIndex = Integer.parseInt("2");
         // GIVEN
         SDJWTCredentialMock emulator = new SDJWTCredentialMock();
-        when(mockedStatusListResolverAdapter.resolveStatusList(StatusListGenerator.SPEC_SUBJECT)).thenAnswer(invocation -> {
+        when(mockedStatusListResolverAdapter.fetchStatusList(eq(StatusListGenerator.SPEC_SUBJECT), any(), any())).thenAnswer(invocation -> {
             // holder key is not the one that should have signed the statuslist
-            return createTokenStatusListTokenVerifiableCredential(
+            return StatusListFetchResult.modified(createTokenStatusListTokenVerifiableCredential(
                     StatusListGenerator.SPEC_STATUS_LIST,
                     emulator.getHolderKey(),
                     emulator.getIssuerId(),
                     emulator.getKidHeaderValue()
-            );
+            ), null, null);
         });
 
         var sdJWT = emulator.createSDJWTMock(statusListIndex);
@@ -687,12 +690,12 @@ class VerificationControllerIT extends BaseVerificationControllerTest {
 
         // GIVEN
         SDJWTCredentialMock emulator = new SDJWTCredentialMock();
-        when(mockedStatusListResolverAdapter.resolveStatusList(StatusListGenerator.SPEC_SUBJECT))
-                .thenAnswer(invocation -> createTokenStatusListTokenVerifiableCredential(
+        when(mockedStatusListResolverAdapter.fetchStatusList(eq(StatusListGenerator.SPEC_SUBJECT), any(), any()))
+                .thenAnswer(invocation -> StatusListFetchResult.modified(createTokenStatusListTokenVerifiableCredential(
                         StatusListGenerator.SPEC_STATUS_LIST,
                         emulator.getKey(),
                         emulator.getIssuerId(),
-                        emulator.getKidHeaderValue())
+                        emulator.getKidHeaderValue()), null, null)
                 );
 
         var sdJWT = emulator.createSDJWTMock(100);
@@ -720,7 +723,7 @@ class VerificationControllerIT extends BaseVerificationControllerTest {
         SDJWTCredentialMock emulator = new SDJWTCredentialMock();
 
         // ContetLengthInterceptor throws invalid argument exception if status list is too big
-        when(mockedStatusListResolverAdapter.resolveStatusList(StatusListGenerator.SPEC_SUBJECT))
+        when(mockedStatusListResolverAdapter.fetchStatusList(eq(StatusListGenerator.SPEC_SUBJECT), any(), any()))
                 .thenThrow(new StatusListMaxSizeExceededException(expectedErrorMesssage));
 
         var sdJWT = emulator.createSDJWTMock(100);
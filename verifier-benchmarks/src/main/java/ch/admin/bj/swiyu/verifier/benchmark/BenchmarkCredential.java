@@ -0,0 +1,139 @@
+package ch.admin.bj.swiyu.verifier.benchmark;
+
+import ch.admin.bj.swiyu.verifier.domain.management.dcql.DcqlClaim;
+import com.authlete.sd.Disclosure;
+import com.authlete.sd.SDJWT;
+import com.authlete.sd.SDObjectBuilder;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A signed SD-JWT VC with key binding, shaped like an eID credential: mostly flat selectively disclosable claims,
+ * one nested object with its own {@code _sd} digests and one array with {@code ...} element digests.
+ *
+ * @param presentation    complete presentation {jwt}~{disclosure-1}~...~{disclosure-n}~{kb-jwt}
+ * @param issuerPublicKey public key the issuer-signed JWT can be verified with
+ * @param requestedClaims DCQL claims requesting every disclosed value of the credential
+ */
+public record BenchmarkCredential(String presentation, ECKey issuerPublicKey, List<DcqlClaim> requestedClaims) {
+
+    public static final String ISSUER_DID = "did:webvh:some-scid:example.com:api:v1:BENCHMARK-ISSUER";
+    public static final String ISSUER_KID = ISSUER_DID + "#key-1";
+    public static final String VCT = "benchmark-vct";
+    public static final String VERIFIER_CLIENT_ID = "did:example:verifier";
+
+    private static final String NESTED_CLAIM = "address";
+    private static final String ARRAY_CLAIM = "nationalities";
+
+    /**
+     * Creates a credential presenting exactly {@code disclosureCount} disclosures. A tenth of them are used as
+     * array elements, another tenth as claims of the nested object (which is disclosed itself), the rest are flat.
+     *
+     * @param disclosureCount total number of disclosures in the presentation
+     * @param nonce           nonce the key binding JWT is bound to
+     */
+    public static BenchmarkCredential create(int disclosureCount, String nonce) {
+        try {
+            var issuerKey = new ECKeyGenerator(Curve.P_256).keyID("key-1").algorithm(JWSAlgorithm.ES256).generate();
+            var holderKey = new ECKeyGenerator(Curve.P_256).generate();
+
+            var arrayCount = disclosureCount / 10;
+            var nestedCount = disclosureCount / 10;
+            var flatCount = disclosureCount - arrayCount - nestedCount - (nestedCount > 0 ? 1 : 0);
+
+            var builder = new SDObjectBuilder();
+            var disclosures = new ArrayList<Disclosure>();
+            var requestedClaims = new ArrayList<DcqlClaim>();
+
+            for (int i = 0; i < flatCount; i++) {
+                var disclosure = new Disclosure("claim_" + i, "value_" + i);
+                builder.putSDClaim(disclosure);
+                disclosures.add(disclosure);
+                requestedClaims.add(DcqlClaim.builder().path(List.of("claim_" + i)).build());
+            }
+
+            if (nestedCount > 0) {
+                var nested = new SDObjectBuilder();
+                for (int i = 0; i < nestedCount; i++) {
+                    var disclosure = new Disclosure("line_" + i, "line value " + i);
+                    nested.putSDClaim(disclosure);
+                    disclosures.add(disclosure);
+                    requestedClaims.add(DcqlClaim.builder().path(List.of(NESTED_CLAIM, "line_" + i)).build());
+                }
+                var nestedDisclosure = new Disclosure(NESTED_CLAIM, nested.build());
+                builder.putSDClaim(nestedDisclosure);
+                disclosures.add(nestedDisclosure);
+            }
+
+            if (arrayCount > 0) {
+                var elements = new ArrayList<Map<String, Object>>();
+                for (int i = 0; i < arrayCount; i++) {
+                    var disclosure = new Disclosure("CH-" + i);
+                    elements.add(disclosure.toArrayElement());
+                    disclosures.add(disclosure);
+                }
+                builder.putClaim(ARRAY_CLAIM, elements);
+                requestedClaims.add(DcqlClaim.builder().path(Arrays.asList(ARRAY_CLAIM, null)).values(List.of("CH-0")).build());
+            }
+
+            requestedClaims.add(DcqlClaim.builder().path(List.of("vct")).values(List.of(VCT)).build());
+
+            var now = Instant.now();
+            builder.putClaim("iss", ISSUER_DID);
+            builder.putClaim("iat", now.getEpochSecond());
+            builder.putClaim("exp", now.plus(365, ChronoUnit.DAYS).getEpochSecond());
+            builder.putClaim("vct", VCT);
+            builder.putClaim("cnf", Map.of("jwk", holderKey.toPublicJWK().toJSONObject()));
+
+            var header = new JWSHeader.Builder(JWSAlgorithm.ES256)
+                    .type(new JOSEObjectType("dc+sd-jwt"))
+                    .keyID(ISSUER_KID)
+                    .build();
+            var jwt = new SignedJWT(header, JWTClaimsSet.parse(builder.build(true)));
+            jwt.sign(new ECDSASigner(issuerKey));
+
+            var sdJwt = new SDJWT(jwt.serialize(), disclosures).toString();
+            var presentation = sdJwt + createKeyBindingProof(sdJwt, holderKey, nonce, now);
+
+            return new BenchmarkCredential(presentation, issuerKey.toPublicJWK(), List.copyOf(requestedClaims));
+        } catch (JOSEException | ParseException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to create benchmark credential", e);
+        }
+    }
+
+    private static String createKeyBindingProof(String sdJwt, ECKey holderKey, String nonce, Instant issuedAt)
+            throws NoSuchAlgorithmException, ParseException, JOSEException {
+        var hash = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(MessageDigest.getInstance("sha-256").digest(sdJwt.getBytes(StandardCharsets.US_ASCII)));
+        var proofData = new HashMap<String, Object>();
+        proofData.put("sd_hash", hash);
+        proofData.put("iat", issuedAt.getEpochSecond());
+        proofData.put("aud", VERIFIER_CLIENT_ID);
+        proofData.put("nonce", nonce);
+        var header = new JWSHeader.Builder(JWSAlgorithm.ES256).type(new JOSEObjectType("kb+jwt")).build();
+        var jwt = new SignedJWT(header, JWTClaimsSet.parse(proofData));
+        jwt.sign(new ECDSASigner(holderKey));
+        return jwt.serialize();
+    }
+}
@@ -0,0 +1,56 @@
+package ch.admin.bj.swiyu.verifier.benchmark;
+
+import ch.admin.bj.swiyu.verifier.service.publickey.DidResolverFacade;
+import com.nimbusds.jose.jwk.JWK;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link DidResolverFacade} stand-in answering key lookups from memory, so benchmarks measure verification
+ * and not DID resolution over the network.
+ */
+public class InMemoryDidResolverFacade extends DidResolverFacade {
+
+    private final Map<String, JWK> keys = new ConcurrentHashMap<>();
+    private Duration latency = Duration.ZERO;
+
+    public InMemoryDidResolverFacade() {
+        super(null, null);
+    }
+
+    /**
+     * @param keyId full did including the #fragment, as found in the kid header
+     * @param key   public key returned for the given key id
+     */
+    public InMemoryDidResolverFacade register(String keyId, JWK key) {
+        keys.put(keyId, key);
+        return this;
+    }
+
+    /**
+     * @param latency time every key lookup blocks the calling thread, standing in for the DID resolution over the network
+     */
+    public InMemoryDidResolverFacade withLatency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    @Override
+    public JWK resolveKey(String keyId) {
+        if (latency.isPositive()) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while resolving %s".formatted(keyId), e);
+            }
+        }
+        var key = keys.get(keyId);
+        if (key == null) {
+            throw new IllegalArgumentException("No key registered for %s".formatted(keyId));
+        }
+        return key;
+    }
+}
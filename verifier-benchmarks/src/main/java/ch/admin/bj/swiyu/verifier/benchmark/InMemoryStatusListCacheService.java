@@ -0,0 +1,38 @@
+package ch.admin.bj.swiyu.verifier.benchmark;
+
+import ch.admin.bj.swiyu.verifier.common.config.CacheProperties;
+import ch.admin.bj.swiyu.verifier.common.exception.VerificationErrorResponseCode;
+import ch.admin.bj.swiyu.verifier.service.statuslist.StatusListCacheService;
+import ch.admin.bj.swiyu.verifier.service.statuslist.ValidatedStatusList;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static ch.admin.bj.swiyu.verifier.common.exception.VerificationException.credentialError;
+
+/**
+ * {@link StatusListCacheService} stand-in serving already validated status list tokens from memory, i.e. the state
+ * of a warm cache.
+ */
+public class InMemoryStatusListCacheService extends StatusListCacheService {
+
+    private final Map<String, ValidatedStatusList> statusLists = new ConcurrentHashMap<>();
+
+    public InMemoryStatusListCacheService() {
+        super(new CacheProperties(), null, null, null);
+    }
+
+    public InMemoryStatusListCacheService register(String uri, ValidatedStatusList statusList) {
+        statusLists.put(uri, statusList);
+        return this;
+    }
+
+    @Override
+    public ValidatedStatusList getValidatedStatusListByUri(String uri) {
+        var statusList = statusLists.get(uri);
+        if (statusList == null) {
+            throw credentialError(VerificationErrorResponseCode.UNRESOLVABLE_STATUS_LIST, "Status List %s cannot be resolved".formatted(uri));
+        }
+        return statusList;
+    }
+}
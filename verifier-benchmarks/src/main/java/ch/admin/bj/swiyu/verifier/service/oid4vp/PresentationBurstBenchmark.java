@@ -0,0 +1,130 @@
+package ch.admin.bj.swiyu.verifier.service.oid4vp;
+
+import ch.admin.bj.swiyu.jwtvalidator.DidJwtValidator;
+import ch.admin.bj.swiyu.jwtvalidator.UrlRestriction;
+import ch.admin.bj.swiyu.verifier.benchmark.BenchmarkCredential;
+import ch.admin.bj.swiyu.verifier.benchmark.InMemoryDidResolverFacade;
+import ch.admin.bj.swiyu.verifier.benchmark.InMemoryStatusListCacheService;
+import ch.admin.bj.swiyu.verifier.common.config.ApplicationProperties;
+import ch.admin.bj.swiyu.verifier.common.config.VerificationProperties;
+import ch.admin.bj.swiyu.verifier.domain.SdJwt;
+import ch.admin.bj.swiyu.verifier.domain.management.Management;
+import ch.admin.bj.swiyu.verifier.service.dcql.DcqlUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH harness for a burst of wallets submitting their presentations at the same time, e.g. after a QR code was
+ * scanned by a whole queue of people.
+ * <p>
+ * Every presentation blocks its thread for {@link #remoteLatencyMillis} in the DID resolution, standing in for the
+ * uncached outbound calls of the verification path (DID documents, status lists, trust statements). The burst is
+ * either processed by a fixed pool of 200 platform threads, the default size of the Tomcat request thread pool, or
+ * with one virtual thread per presentation as with {@code VIRTUAL_THREADS_ENABLED}. The score is the time until the
+ * whole burst is verified.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PresentationBurstBenchmark {
+
+    private static final int TOMCAT_DEFAULT_MAX_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    /**
+     * Number of presentations submitted at the same time
+     */
+    @Param({"200", "1000", "5000"})
+    public int burstSize;
+
+    /**
+     * Time a presentation waits for remote calls
+     */
+    @Param({"20"})
+    public int remoteLatencyMillis;
+
+    private SdJwtVpTokenVerifier verifier;
+    private Management management;
+    private BenchmarkCredential credential;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var nonce = UUID.randomUUID().toString();
+        credential = BenchmarkCredential.create(10, nonce);
+
+        var applicationProperties = new ApplicationProperties();
+        applicationProperties.setClientId(BenchmarkCredential.VERIFIER_CLIENT_ID);
+        var verificationProperties = new VerificationProperties();
+        // key binding proof is created once per trial and must stay acceptable for its whole duration
+        verificationProperties.setAcceptableProofTimeWindowSeconds((int) TimeUnit.HOURS.toSeconds(1));
+
+        verifier = new SdJwtVpTokenVerifier(
+                new InMemoryDidResolverFacade()
+                        .register(BenchmarkCredential.ISSUER_KID, credential.issuerPublicKey())
+                        .withLatency(Duration.ofMillis(remoteLatencyMillis)),
+                new DidJwtValidator(new UrlRestriction(Set.of("example.com"))),
+                new InMemoryStatusListCacheService(),
+                applicationProperties,
+                verificationProperties);
+        management = Management.builder().requestNonce(nonce).build();
+
+        executor = switch (threads) {
+            case "platform" -> Executors.newFixedThreadPool(TOMCAT_DEFAULT_MAX_THREADS);
+            case "virtual" -> Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("presentation-", 0).factory());
+            default -> throw new IllegalArgumentException("Unknown threads %s".formatted(threads));
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public int burst() throws InterruptedException, ExecutionException {
+        var presentations = new ArrayList<Future<SdJwt>>(burstSize);
+        for (int i = 0; i < burstSize; i++) {
+            presentations.add(executor.submit(this::verifyPresentation));
+        }
+        for (var presentation : presentations) {
+            presentation.get();
+        }
+        return presentations.size();
+    }
+
+    private SdJwt verifyPresentation() {
+        var sdJwt = new SdJwt(credential.presentation());
+        verifier.verifyVerifiableCredentialJWT(sdJwt, management);
+        verifier.validateKeyBinding(sdJwt, management);
+        verifier.validateDisclosures(sdJwt, management);
+        DcqlUtil.validateRequestedClaims(sdJwt, credential.requestedClaims());
+        return sdJwt;
+    }
+}
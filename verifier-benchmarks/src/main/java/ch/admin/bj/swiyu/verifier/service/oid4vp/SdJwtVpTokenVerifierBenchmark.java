@@ -0,0 +1,139 @@
+package ch.admin.bj.swiyu.verifier.service.oid4vp;
+
+import ch.admin.bj.swiyu.jwtvalidator.DidJwtValidator;
+import ch.admin.bj.swiyu.jwtvalidator.UrlRestriction;
+import ch.admin.bj.swiyu.verifier.benchmark.BenchmarkCredential;
+import ch.admin.bj.swiyu.verifier.benchmark.InMemoryDidResolverFacade;
+import ch.admin.bj.swiyu.verifier.benchmark.InMemoryStatusListCacheService;
+import ch.admin.bj.swiyu.verifier.common.config.ApplicationProperties;
+import ch.admin.bj.swiyu.verifier.common.config.VerificationProperties;
+import ch.admin.bj.swiyu.verifier.domain.SdJwt;
+import ch.admin.bj.swiyu.verifier.domain.management.Management;
+import ch.admin.bj.swiyu.verifier.service.dcql.DcqlUtil;
+import ch.admin.bj.swiyu.verifier.service.statuslist.StatusListStatusVerifier;
+import com.authlete.sd.Disclosure;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH harness for the stages a single SD-JWT VC passes through when a wallet submits a presentation.
+ * <p>
+ * Lives in the package of {@link SdJwtVpTokenVerifier} to reach its protected and package private stages.
+ * DID resolution and the status list cache are replaced by in-memory stand-ins, so the numbers only contain the
+ * CPU spent in the verifier itself. Each stage is measured on a credential that already passed the previous
+ * stages, {@link #fullPresentation()} runs all of them on a freshly parsed presentation.
+ * <p>
+ * Run with {@code java -jar verifier-benchmarks/target/benchmarks.jar -prof gc} to additionally get the allocation
+ * rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SdJwtVpTokenVerifierBenchmark {
+
+    /**
+     * Number of disclosures in the presented credential
+     */
+    @Param({"1", "10", "50", "200"})
+    public int disclosureCount;
+
+    private SdJwtVpTokenVerifier verifier;
+    private Management management;
+    private BenchmarkCredential credential;
+    /**
+     * Presentation which already passed all verification stages
+     */
+    private SdJwt verifiedSdJwt;
+    private List<Disclosure> disclosures;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var nonce = UUID.randomUUID().toString();
+        credential = BenchmarkCredential.create(disclosureCount, nonce);
+
+        var applicationProperties = new ApplicationProperties();
+        applicationProperties.setClientId(BenchmarkCredential.VERIFIER_CLIENT_ID);
+        var verificationProperties = new VerificationProperties();
+        // key binding proof is created once per trial and must stay acceptable for its whole duration
+        verificationProperties.setAcceptableProofTimeWindowSeconds((int) TimeUnit.HOURS.toSeconds(1));
+
+        verifier = new SdJwtVpTokenVerifier(
+                new InMemoryDidResolverFacade().register(BenchmarkCredential.ISSUER_KID, credential.issuerPublicKey()),
+                new DidJwtValidator(new UrlRestriction(Set.of("example.com"))),
+                new InMemoryStatusListCacheService(),
+                new StatusListStatusVerifier(verificationProperties),
+                applicationProperties,
+                verificationProperties);
+        management = Management.builder().requestNonce(nonce).build();
+
+        verifiedSdJwt = new SdJwt(credential.presentation());
+        verifier.verifyVerifiableCredentialJWT(verifiedSdJwt, management);
+        verifier.validateKeyBinding(verifiedSdJwt, management);
+        verifier.validateDisclosures(verifiedSdJwt, management);
+        DcqlUtil.validateRequestedClaims(verifiedSdJwt, credential.requestedClaims());
+        disclosures = verifiedSdJwt.getDisclosures();
+    }
+
+    @Benchmark
+    public SdJwt parsePresentation() {
+        return new SdJwt(credential.presentation());
+    }
+
+    @Benchmark
+    public SdJwt verifyVerifiableCredentialJWT() {
+        verifier.verifyVerifiableCredentialJWT(verifiedSdJwt, management);
+        return verifiedSdJwt;
+    }
+
+    @Benchmark
+    public SdJwt validateKeyBinding() {
+        verifier.validateKeyBinding(verifiedSdJwt, management);
+        return verifiedSdJwt;
+    }
+
+    @Benchmark
+    public SdJwt validateDisclosures() {
+        verifier.validateDisclosures(verifiedSdJwt, management);
+        return verifiedSdJwt;
+    }
+
+    @Benchmark
+    public Object processDisclosures() {
+        return verifier.processDisclosures(verifiedSdJwt.getClaims(), disclosures, management.getId());
+    }
+
+    @Benchmark
+    public SdJwt validateRequestedClaims() {
+        DcqlUtil.validateRequestedClaims(verifiedSdJwt, credential.requestedClaims());
+        return verifiedSdJwt;
+    }
+
+    @Benchmark
+    public SdJwt fullPresentation() {
+        var sdJwt = new SdJwt(credential.presentation());
+        verifier.verifyVerifiableCredentialJWT(sdJwt, management);
+        verifier.validateKeyBinding(sdJwt, management);
+        verifier.verifyStatus(sdJwt.getClaims().getClaims(), sdJwt.getHeader());
+        verifier.validateDisclosures(sdJwt, management);
+        DcqlUtil.validateRequestedClaims(sdJwt, credential.requestedClaims());
+        return sdJwt;
+    }
+}
@@ -9,6 +9,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -64,6 +65,61 @@ public class ApplicationProperties {
      */
     private int requestObjectTTLSeconds = 600;
 
+    /**
+     * Sign the request object of a JWT secured verification right after its creation and store it with the
+     * verification, instead of signing it when the wallet fetches it
+     */
+    private boolean presignRequestObjects;
+
+    /**
+     * Process wallet submissions as a non-blocking pipeline, so the request thread is released while the
+     * presentation is verified
+     */
+    private boolean reactivePresentationSubmission;
+
+    /**
+     * Number of database calls reactive submissions may run at the same time, should not exceed the size of the
+     * connection pool
+     */
+    @Min(1)
+    private int reactiveSubmissionJdbcParallelism = 10;
+
+    /**
+     * Verify all VP tokens of a DCQL submission concurrently instead of one after the other
+     */
+    private boolean parallelDcqlVerification;
+
+    /**
+     * Claim and complete wallet submissions with a single update statement each, instead of loading the
+     * verification before every state change
+     */
+    private boolean atomicSessionClaim;
+
+    /**
+     * Number of expired verifications deleted per statement and transaction
+     */
+    @Min(1)
+    private int dataClearBatchSize = 1000;
+
+    /**
+     * Longest time one cleanup run keeps deleting expired verifications, the remaining ones are deleted by the next run
+     */
+    @NotNull
+    private Duration dataClearTimeBudget = Duration.ofMinutes(1);
+
+    /**
+     * Partition the verifications by their expiry and drop whole partitions once all of their verifications expired.
+     * The first cleanup run converts the table and holds an exclusive lock on it meanwhile, which blocks all reads and
+     * writes of verifications until the conversion is done.
+     */
+    private boolean managementPartitioning;
+
+    /**
+     * Range of expiry times covered by one partition of the verifications
+     */
+    @NotNull
+    private Duration managementPartitionInterval = Duration.ofDays(1);
+
     /**
      * List of accepted registry hosts, containing both status and trust hosts
      */
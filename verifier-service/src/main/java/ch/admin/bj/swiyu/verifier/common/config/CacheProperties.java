@@ -1,10 +1,17 @@
 package ch.admin.bj.swiyu.verifier.common.config;
 
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
 
+import java.time.Duration;
+
 @Validated
 @Data
 @ConfigurationProperties(prefix = "caching")
@@ -28,6 +35,86 @@ public class CacheProperties {
     @Deprecated
     private Long statusListCacheTtl;
 
+    /**
+     * Reload cached status lists in the background before they expire, while the cached one is still returned
+     */
+    private boolean statusListRefreshAhead = false;
+
+    /**
+     * Share of the lifetime of a cached status list after which it is reloaded when
+     * {@link #statusListRefreshAhead} is enabled, 0 disables the reload
+     */
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double statusListRefreshAheadRatio = 0.8;
+
+    /**
+     * Time in milliseconds a resolved public key stays in the {@link CachingConfig#JWK_CACHE}.
+     * Used unless {@code caching.jwk.expire-after-write} is set.
+     */
+    @NotNull
+    private Long jwkCacheTtlMs = 3_600_000L;
+
+    /**
+     * Legacy time in milliseconds a resolved public key stays in the cache
+     */
+    // Todo: EIDOMNI-1246 Contract - remove caching.jwk-cache-ttl
+    @Deprecated
+    private Long jwkCacheTtl;
+
+    /**
+     * Time in milliseconds a trust statement stays in the {@link CachingConfig#TRUST_STATEMENT_CACHE}.
+     * Used unless {@code caching.trust-statement.expire-after-write} is set.
+     */
+    @NotNull
+    private Long trustCacheTtlMs = 3_600_000L;
+
+    /**
+     * Legacy time in milliseconds a trust statement stays in the cache
+     */
+    // Todo: EIDOMNI-1246 Contract - remove caching.trust-cache-ttl
+    @Deprecated
+    private Long trustCacheTtl;
+
+    /**
+     * Settings of the {@link CachingConfig#JWK_CACHE}
+     */
+    @Valid
+    private CacheSpec jwk = new CacheSpec(10_000L);
+
+    /**
+     * Settings of the {@link CachingConfig#TRUST_STATEMENT_CACHE}
+     */
+    @Valid
+    private CacheSpec trustStatement = new CacheSpec(1000L);
+
+    /**
+     * Settings of the signers kept by {@link ch.admin.bj.swiyu.verifier.service.JwsSignerRegistry}.
+     * Refresh-after-write is not supported.
+     */
+    @Valid
+    private CacheSpec jwsSigner = new CacheSpec(100L);
+
+    /**
+     * Settings of the {@link CachingConfig#SIGNING_KEY_CACHE}
+     */
+    @Valid
+    private CacheSpec signingKey = new CacheSpec(100L);
+
+    /**
+     * Settings of the {@link CachingConfig#VERIFIER_METADATA_CACHE}
+     */
+    @Valid
+    private CacheSpec verifierMetadata = new CacheSpec(10L);
+
+    /**
+     * Settings of the request object templates kept by
+     * {@link ch.admin.bj.swiyu.verifier.service.oid4vp.RequestObjectService}.
+     * Refresh-after-write is not supported.
+     */
+    @Valid
+    private CacheSpec requestObjectTemplate = new CacheSpec(1000L);
+
     /**
      * Backoff when no valid Status List or Trust Statement is found or the trust statement is not valid.
      */
@@ -43,4 +130,52 @@ public class CacheProperties {
     public Long getStatusListCacheTtlMs() {
         return statusListCacheTtl != null ? statusListCacheTtl : statusListCacheTtlMs;
     }
-}
\ No newline at end of file
+
+    /**
+     * Backwards compatibility getter, the legacy property 'caching.jwk-cache-ttl' takes precedence.
+     */
+    public Long getJwkCacheTtlMs() {
+        return jwkCacheTtl != null ? jwkCacheTtl : jwkCacheTtlMs;
+    }
+
+    /**
+     * Backwards compatibility getter, the legacy property 'caching.trust-cache-ttl' takes precedence.
+     */
+    public Long getTrustCacheTtlMs() {
+        return trustCacheTtl != null ? trustCacheTtl : trustCacheTtlMs;
+    }
+
+    /**
+     * Size and eviction settings of a single Spring cache, see {@link CachingConfig}.
+     */
+    @Data
+    @NoArgsConstructor
+    public static class CacheSpec {
+
+        /**
+         * Maximum number of entries, the least recently used entries are evicted first
+         */
+        @Positive
+        private long maximumSize = 1000L;
+
+        /**
+         * Time after which an entry is removed, counted from when it was written. Entries never expire if not set.
+         */
+        private Duration expireAfterWrite;
+
+        /**
+         * Time after which an entry is reloaded in the background on the next access, while the old value is still
+         * served. Only supported for caches with a {@link RefreshableCacheLoader}.
+         */
+        private Duration refreshAfterWrite;
+
+        /**
+         * Record hit, miss and eviction statistics and export them as metrics
+         */
+        private boolean recordStats = true;
+
+        public CacheSpec(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+    }
+}
@@ -1,28 +1,85 @@
 package ch.admin.bj.swiyu.verifier.common.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Spring caches used with {@code @Cacheable}. Each cache is bounded and expires its entries individually, as
+ * configured under {@code caching.*} in {@link CacheProperties}. Statistics of the caches are exported as
+ * {@code cache.*} metrics.
+ */
 @Configuration
 @EnableCaching
 public class CachingConfig {
 
     public static final String TRUST_STATEMENT_CACHE = "trustStatementCache";
     public static final String SIGNING_KEY_CACHE = "signingKeyCache";
-    public static final String JWS_SIGNER_CACHE = "JwsSignerCache";
     public static final String JWK_CACHE = "jwk-cache";
     public static final String VERIFIER_METADATA_CACHE = "verifierMetadataCache";
 
     @Bean
-    public CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager(
-                TRUST_STATEMENT_CACHE,
-                SIGNING_KEY_CACHE,
-                JWS_SIGNER_CACHE,
-                JWK_CACHE,
-                VERIFIER_METADATA_CACHE);
+    public CacheManager cacheManager(CacheProperties cacheProperties,
+                                     ObjectProvider<RefreshableCacheLoader> cacheLoaders,
+                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        Map<String, RefreshableCacheLoader> loaders = cacheLoaders.stream()
+                .collect(Collectors.toMap(RefreshableCacheLoader::getCacheName, Function.identity()));
+
+        var cacheManager = new CaffeineCacheManager();
+        // only the caches registered below are available, unknown cache names fail instead of creating unbounded caches
+        cacheManager.setCacheNames(List.of());
+        registerCache(cacheManager, TRUST_STATEMENT_CACHE, cacheProperties.getTrustStatement(),
+                Duration.ofMillis(cacheProperties.getTrustCacheTtlMs()), loaders, meterRegistry);
+        registerCache(cacheManager, SIGNING_KEY_CACHE, cacheProperties.getSigningKey(), null, loaders, meterRegistry);
+        registerCache(cacheManager, JWK_CACHE, cacheProperties.getJwk(),
+                Duration.ofMillis(cacheProperties.getJwkCacheTtlMs()), loaders, meterRegistry);
+        registerCache(cacheManager, VERIFIER_METADATA_CACHE, cacheProperties.getVerifierMetadata(), null, loaders, meterRegistry);
+        return cacheManager;
+    }
+
+    private static void registerCache(CaffeineCacheManager cacheManager,
+                                      String name,
+                                      CacheProperties.CacheSpec spec,
+                                      Duration defaultExpireAfterWrite,
+                                      Map<String, RefreshableCacheLoader> loaders,
+                                      ObjectProvider<MeterRegistry> meterRegistry) {
+        var builder = Caffeine.newBuilder().maximumSize(spec.getMaximumSize());
+
+        var expireAfterWrite = spec.getExpireAfterWrite() != null ? spec.getExpireAfterWrite() : defaultExpireAfterWrite;
+        if (expireAfterWrite != null) {
+            builder.expireAfterWrite(expireAfterWrite);
+        }
+        if (spec.isRecordStats()) {
+            builder.recordStats();
+        }
+
+        Cache<Object, Object> cache;
+        var loader = loaders.get(name);
+        if (spec.getRefreshAfterWrite() != null) {
+            if (loader == null) {
+                throw new IllegalStateException("Cache %s does not support refresh-after-write".formatted(name));
+            }
+            cache = builder.refreshAfterWrite(spec.getRefreshAfterWrite()).build(loader);
+        } else {
+            cache = builder.build();
+        }
+
+        if (spec.isRecordStats()) {
+            meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, cache, name));
+        }
+        cacheManager.registerCustomCache(name, cache);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,17 @@
+package ch.admin.bj.swiyu.verifier.common.config;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+
+/**
+ * Loads the values of one of the caches of {@link CachingConfig}. Required for a cache to be refreshed in the
+ * background with {@code caching.<cache>.refresh-after-write}.
+ * <p>
+ * The key is the cache key Spring derives from the arguments of the {@code @Cacheable} method.
+ */
+public interface RefreshableCacheLoader extends CacheLoader<Object, Object> {
+
+    /**
+     * @return name of the cache this loader provides the values for
+     */
+    String getCacheName();
+}
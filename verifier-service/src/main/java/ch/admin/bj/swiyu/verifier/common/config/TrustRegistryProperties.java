@@ -6,6 +6,8 @@ import org.springframework.context.annotation.Configuration;
 
 import java.net.URL;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Configuration properties for the Trust Registry (TMS) integration required by Trust Protocol 2.0.
@@ -45,6 +47,31 @@ public class TrustRegistryProperties {
      */
     private long maxCacheTtlSeconds = 3600;
 
+    /**
+     * Share of the validity window of a cached trust statement after which it is reloaded in the background,
+     * while the cached one is still used. Set to {@code 1} to only reload expired trust statements.
+     */
+    private double refreshAheadRatio = 0.8;
+
+    /**
+     * DIDs of the issuers whose Trust Protocol 2.0 trust statements are loaded into the cache on startup,
+     * before the application reports to be ready, and kept loaded afterwards.
+     */
+    private List<String> warmupIssuerDids = new ArrayList<>();
+
+    /**
+     * Interval in which the trust statements of the warm-up are reloaded after startup.
+     * Default: {@code PT5M} (5 minutes).
+     */
+    private Duration warmupInterval = Duration.ofMinutes(5);
+
+    /**
+     * Maximum number of trust anchors of a single verification which are evaluated concurrently.
+     * With {@code 1} the trust anchors are evaluated one after the other. Either way the evaluation
+     * stops at the first trust anchor trusting the issuer.
+     */
+    private int trustAnchorParallelism = 1;
+
     /**
      * Base URL of the TMS CBS Authoring API used for On-the-Fly vqPS registration.
      * When absent, the vqPS registration flow is disabled and no vqPS will be injected.
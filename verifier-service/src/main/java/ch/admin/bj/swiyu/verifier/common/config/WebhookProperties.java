@@ -1,12 +1,18 @@
 package ch.admin.bj.swiyu.verifier.common.config;
 
 import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
 
 @Getter
 @Setter
+@Validated
 @ConfigurationProperties("webhook")
 public class WebhookProperties {
     @Nullable
@@ -15,4 +21,58 @@ public class WebhookProperties {
     private String apiKeyHeader;
     @Nullable
     private String apiKeyValue;
+
+    /**
+     * Maximum number of events claimed at once by one instance
+     */
+    @Min(1)
+    private int batchSize = 100;
+
+    /**
+     * Maximum number of callbacks sent at the same time
+     */
+    @Min(1)
+    private int parallelism = 10;
+
+    /**
+     * Time a single callback may take. Claimed events are hidden from other instances until their whole batch could
+     * have been sent.
+     */
+    @NotNull
+    private Duration timeout = Duration.ofSeconds(30);
+
+    /**
+     * Delay before the first retry of a failed callback, doubled with every further attempt
+     */
+    @NotNull
+    private Duration retryBackoff = Duration.ofSeconds(5);
+
+    /**
+     * Upper limit for the delay between two attempts
+     */
+    @NotNull
+    private Duration maxRetryBackoff = Duration.ofMinutes(10);
+
+    /**
+     * Send the callbacks as JSON array, up to {@link #maxCallbacksPerRequest} per request
+     */
+    private boolean coalesceCallbacks;
+
+    /**
+     * Maximum number of callbacks sent in one request if callbacks are coalesced
+     */
+    @Min(1)
+    private int maxCallbacksPerRequest = 50;
+
+    /**
+     * Time due callbacks may wait for further callbacks to fill a request, if callbacks are coalesced
+     */
+    @NotNull
+    private Duration maxLinger = Duration.ZERO;
+
+    /**
+     * Notify the dispatcher about new callback events with PostgreSQL {@code NOTIFY}, the callback interval is then
+     * only a fallback sweep
+     */
+    private boolean listenNotify;
 }
\ No newline at end of file
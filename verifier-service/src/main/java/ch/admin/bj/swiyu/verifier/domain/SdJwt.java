@@ -6,13 +6,17 @@ import ch.admin.bj.swiyu.verifier.common.exception.VerificationException;
 import com.authlete.sd.Disclosure;
 import com.nimbusds.jose.JWSHeader;
 import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.nio.charset.Charset;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -20,6 +24,9 @@ import java.util.Optional;
 /**
  * The class models a selective disclosure JSON Web Token (SD-JWT) w.r.t.
  * <a href="https://www.rfc-editor.org/rfc/rfc9901.html#section-4">RFC 9901 ("Selective Disclosure for JSON Web Tokens")</a>
+ * <p>
+ * The parts are decoded lazily and at most once, so all verification stages can share the parsed JWTs and disclosures.
+ * Instances are meant to be used by a single verification at a time and are not thread safe.
  */
 public class SdJwt {
 
@@ -51,6 +58,11 @@ public class SdJwt {
     @Getter
     private final String presentationHash;
 
+    private SignedJWT signedJwt;
+    private List<Disclosure> disclosures;
+    private Map<String, Disclosure> disclosuresByDigest;
+    private SignedJWT keyBindingJwt;
+
     /**
      * The only constructor for the class. The class instantiation is made as outcome of parsing the supplied string
      * representing a <a href="https://www.rfc-editor.org/rfc/rfc9901.html">SD-JWT</a>.
@@ -109,14 +121,78 @@ public class SdJwt {
         return keyBinding.isPresent();
     }
 
+    /**
+     * The <a href="https://www.rfc-editor.org/rfc/rfc9901.html#section-4.1">Issuer-signed JWT</a>, parsed on first access.
+     * Note that parsing does not verify the signature.
+     *
+     * @return the parsed issuer-signed JWT
+     * @throws ParseException if the issuer-signed JWT is not a valid JWS
+     */
+    public SignedJWT getSignedJwt() throws ParseException {
+        if (signedJwt == null) {
+            signedJwt = SignedJWT.parse(getJwt());
+        }
+        return signedJwt;
+    }
+
+    /**
+     * The <a href="https://www.rfc-editor.org/rfc/rfc9901.html#section-4.3">Key Binding JWT</a>, parsed on first access.
+     *
+     * @return the parsed key binding JWT or empty if the SD-JWT has no key binding
+     * @throws ParseException if the key binding JWT is not a valid JWS
+     */
+    public Optional<SignedJWT> getKeyBindingJwt() throws ParseException {
+        if (keyBinding.isEmpty()) {
+            return Optional.empty();
+        }
+        if (keyBindingJwt == null) {
+            keyBindingJwt = SignedJWT.parse(keyBinding.get());
+        }
+        return Optional.of(keyBindingJwt);
+    }
+
+    /**
+     * @return the disclosures in the order they were presented, decoded on first access
+     */
     public List<Disclosure> getDisclosures() {
-        int disclosureLength = getParts().length;
-        if (hasKeyBinding()) {
-            // Last entry in parts is key binding
-            disclosureLength -= 1;
+        if (disclosures == null) {
+            int disclosureLength = getParts().length;
+            if (hasKeyBinding()) {
+                // Last entry in parts is key binding
+                disclosureLength -= 1;
+            }
+            disclosures = Arrays.stream(Arrays.copyOfRange(getParts(), 1, disclosureLength))
+                    .map(Disclosure::parse).toList();
+        }
+        return disclosures;
+    }
+
+    /**
+     * @return the disclosures by their digest, the digests being computed on first access
+     * @throws VerificationException if the same disclosure is presented more than once
+     */
+    public Map<String, Disclosure> getDisclosuresByDigest() {
+        if (disclosuresByDigest == null) {
+            disclosuresByDigest = indexByDigest(getDisclosures());
+        }
+        return disclosuresByDigest;
+    }
+
+    /**
+     * @param disclosures disclosures of a single SD-JWT
+     * @return unmodifiable map of the disclosures by their digest
+     * @throws VerificationException if the same disclosure is contained more than once
+     */
+    public static Map<String, Disclosure> indexByDigest(List<Disclosure> disclosures) {
+        Map<String, Disclosure> byDigest = HashMap.newHashMap(disclosures.size());
+        for (Disclosure disclosure : disclosures) {
+            if (byDigest.putIfAbsent(disclosure.digest(), disclosure) != null) {
+                throw VerificationException.credentialError(
+                        VerificationErrorResponseCode.MALFORMED_CREDENTIAL,
+                        "Request contains non-distinct disclosures");
+            }
         }
-        return Arrays.stream(Arrays.copyOfRange(getParts(), 1, disclosureLength))
-                .map(Disclosure::parse).toList();
+        return Collections.unmodifiableMap(byDigest);
     }
 
     public JWSHeader getHeader() {
@@ -30,5 +30,18 @@ public class CallbackEvent {
     @CreatedDate
     private Instant timestamp;
 
+    /**
+     * Number of times the event was claimed for delivery
+     */
+    @Column
+    @Builder.Default
+    private int attempts = 0;
+
+    /**
+     * The event is not claimed for delivery before this time
+     */
+    @Column
+    @Builder.Default
+    private Instant nextAttemptAt = Instant.now();
 
 }
\ No newline at end of file
@@ -1,26 +1,48 @@
 package ch.admin.bj.swiyu.verifier.domain.callback;
 
-import jakarta.persistence.LockModeType;
-import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
-import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.lang.NonNull;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 public interface CallbackEventRepository extends JpaRepository<CallbackEvent, UUID> {
 
     /**
-     * Fetch limit records, skipping locked ones
-     * Using  <a href="https://docs.jboss.org/hibernate/orm/7.0/userguide/html_single/Hibernate_User_Guide.html#locking-LockMode">UPGRADE_SKIPLOCKED from Hibernate User Guide</a>
+     * Claims up to limit due events for delivery, skipping events locked by other instances.
+     * The attempts of the claimed events are counted up and they are not due again before claimedUntil, so the
+     * delivery can happen outside of the transaction.
      */
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @QueryHints(value = {@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2")})
+    @Transactional
+    @Query(value = "UPDATE callback_event SET attempts = attempts + 1, next_attempt_at = :claimedUntil " +
+            "WHERE id IN (SELECT id FROM callback_event WHERE next_attempt_at <= :now " +
+            "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+            "RETURNING *", nativeQuery = true)
     @NonNull
-    List<CallbackEvent> findAll();
+    List<CallbackEvent> claimDueEvents(@Param("now") Instant now,
+                                       @Param("claimedUntil") Instant claimedUntil,
+                                       @Param("limit") int limit);
+
+    /**
+     * Counts the events due at the given time, without claiming them.
+     */
+    @Query("SELECT new ch.admin.bj.swiyu.verifier.domain.callback.DueCallbackEvents(COUNT(e), MIN(e.nextAttemptAt)) " +
+            "FROM CallbackEvent e WHERE e.nextAttemptAt <= :now")
+    DueCallbackEvents countDueEvents(@Param("now") Instant now);
+
+    /**
+     * Sets the time of the next delivery attempt of the given events.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE CallbackEvent e SET e.nextAttemptAt = :nextAttemptAt WHERE e.id IN :ids")
+    int rescheduleEvents(@Param("ids") Collection<UUID> ids, @Param("nextAttemptAt") Instant nextAttemptAt);
 
     /**
      * Fetch all records with a timestamp before the provided instant.
@@ -29,4 +51,4 @@ public interface CallbackEventRepository extends JpaRepository<CallbackEvent, UU
      */
     @NonNull
     List<CallbackEvent> findAllByTimestampBefore(Instant timestamp);
-}
\ No newline at end of file
+}
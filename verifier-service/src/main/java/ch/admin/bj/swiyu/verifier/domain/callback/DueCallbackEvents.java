@@ -0,0 +1,12 @@
+package ch.admin.bj.swiyu.verifier.domain.callback;
+
+import java.time.Instant;
+
+/**
+ * Number of callback events due for delivery and the time the longest waiting of them became due
+ *
+ * @param count       number of due events
+ * @param oldestDueAt time the longest waiting event became due, null if no event is due
+ */
+public record DueCallbackEvents(long count, Instant oldestDueAt) {
+}
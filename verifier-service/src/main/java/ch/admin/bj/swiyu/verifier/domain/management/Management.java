@@ -18,6 +18,7 @@ import org.springframework.web.util.UriComponentsBuilder;
 import java.net.URI;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
 
 import static ch.admin.bj.swiyu.verifier.domain.management.VerificationStatus.FAILED;
@@ -25,7 +26,10 @@ import static ch.admin.bj.swiyu.verifier.domain.management.VerificationStatus.FA
 @Entity
 @Table(
         name = "management",
-        indexes = @Index(name = "idx_management_expires_at", columnList = "expires_at")
+        indexes = {
+                @Index(name = "idx_management_expires_at", columnList = "expires_at"),
+                @Index(name = "idx_management_id", columnList = "id")
+        }
 )
 @Getter
 @Builder
@@ -120,6 +124,18 @@ public class Management {
     @Column(name = "vqps_query_hash")
     private String vqpsQueryHash;
 
+    /**
+     * Request object signed ahead of the wallet fetch, see {@code application.presign-request-objects}
+     */
+    @Column(name = "signed_request_object")
+    private String signedRequestObject;
+
+    /**
+     * Expiration time of the {@link #signedRequestObject} as unix epoch in milliseconds
+     */
+    @Column(name = "signed_request_object_expires_at")
+    private Long signedRequestObjectExpiresAt;
+
     /**
      * Guarded set State, preventing illegal transaction
      *
@@ -196,6 +212,20 @@ public class Management {
         return System.currentTimeMillis() > expiresAt;
     }
 
+    /**
+     * Returns the stored signed request object if it is still valid for at least the given time.
+     *
+     * @param minRemainingMillis time the request object must at least stay valid for
+     * @return the signed request object, or empty if none is stored or it expires too soon
+     */
+    public Optional<String> getSignedRequestObjectValidFor(long minRemainingMillis) {
+        if (signedRequestObject == null || signedRequestObjectExpiresAt == null
+                || signedRequestObjectExpiresAt - System.currentTimeMillis() < minRemainingMillis) {
+            return Optional.empty();
+        }
+        return Optional.of(signedRequestObject);
+    }
+
     /**
      * Returns {@code true} if the verification process is still open
      * (not expired and still pending), {@code false} otherwise.
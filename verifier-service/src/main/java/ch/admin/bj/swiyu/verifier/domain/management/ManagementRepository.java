@@ -5,13 +5,101 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.net.URI;
+import java.time.Instant;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface ManagementRepository extends JpaRepository<Management, UUID> {
 
+    /**
+     * Deletes up to {@code limit} managements which expired before {@code expiresAt}. Managements locked by a
+     * concurrent transaction are skipped.
+     *
+     * @return the number of deleted managements
+     */
+    @Transactional
     @Modifying
-    @Query("DELETE FROM Management m WHERE m.expiresAt < :expiresAt")
-    void deleteByExpiresAtIsBefore(@Param("expiresAt") Long expiresAt);
+    @Query(value = "DELETE FROM management WHERE id IN (SELECT id FROM management WHERE expires_at < :expiresAt " +
+            "LIMIT :limit FOR UPDATE SKIP LOCKED)", nativeQuery = true)
+    int deleteExpired(@Param("expiresAt") long expiresAt, @Param("limit") int limit);
+
+    /**
+     * Converts the management table into a table partitioned by {@code expires_at}, unless it is partitioned already.
+     * The conversion copies all managements which have not expired and holds an {@code ACCESS EXCLUSIVE} lock on the
+     * table until the transaction ends, so every read and write of a management waits for it.
+     *
+     * @return true if the table was converted
+     */
+    @Transactional
+    @Query(value = "SELECT partition_management(:now, :until, :interval)", nativeQuery = true)
+    boolean partitionByExpiry(@Param("now") long now, @Param("until") long until, @Param("interval") long interval);
+
+    /**
+     * Creates the missing partitions for the managements expiring before {@code until}.
+     *
+     * @return the number of created partitions
+     */
+    @Transactional
+    @Query(value = "SELECT create_management_partitions(:now, :until, :interval)", nativeQuery = true)
+    int createPartitions(@Param("now") long now, @Param("until") long until, @Param("interval") long interval);
+
+    /**
+     * Drops the partitions in which all managements expired before {@code now}.
+     *
+     * @return the number of dropped partitions
+     */
+    @Transactional
+    @Query(value = "SELECT drop_expired_management_partitions(:now)", nativeQuery = true)
+    int dropExpiredPartitions(@Param("now") long now);
+
+    /**
+     * Stores a signed request object without touching the version of the management, so it does not conflict
+     * with a concurrent claim for processing.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Management m SET m.signedRequestObject = :signedRequestObject, " +
+            "m.signedRequestObjectExpiresAt = :expiresAt WHERE m.id = :id")
+    int storeSignedRequestObject(@Param("id") UUID id,
+                                 @Param("signedRequestObject") String signedRequestObject,
+                                 @Param("expiresAt") Long expiresAt);
+
+    /**
+     * Claims a pending, not yet expired management for processing in a single round trip.
+     *
+     * @return the claimed management in state {@code IN_PROGRESS}, or empty if it does not exist, is not pending
+     * anymore or has expired
+     */
+    @Transactional
+    @Query(value = "UPDATE management SET state = 'IN_PROGRESS', version = version + 1, last_modified_at = CURRENT_TIMESTAMP " +
+            "WHERE id = :id AND state = 'PENDING' AND expires_at > :now RETURNING *", nativeQuery = true)
+    Optional<Management> claimForProcessing(@Param("id") UUID id, @Param("now") long now);
+
+    /**
+     * @return the state of the management, or empty if it does not exist
+     */
+    @Query("SELECT m.state FROM Management m WHERE m.id = :id")
+    Optional<VerificationStatus> findStateById(@Param("id") UUID id);
+
+    /**
+     * Stores the result of a management claimed with {@link #claimForProcessing(UUID, long)} without loading it again.
+     *
+     * @return the number of updated rows, 0 if the management is not in progress anymore
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Management m SET m.state = :state, m.walletResponse = :walletResponse, " +
+            "m.responseCode = :responseCode, m.redirectURI = :redirectURI, m.version = m.version + 1, " +
+            "m.auditMetadata.lastModifiedAt = :now " +
+            "WHERE m.id = :id AND m.state = ch.admin.bj.swiyu.verifier.domain.management.VerificationStatus.IN_PROGRESS")
+    int completeProcessing(@Param("id") UUID id,
+                           @Param("state") VerificationStatus state,
+                           @Param("walletResponse") ResponseData walletResponse,
+                           @Param("responseCode") UUID responseCode,
+                           @Param("redirectURI") URI redirectURI,
+                           @Param("now") Instant now);
 }
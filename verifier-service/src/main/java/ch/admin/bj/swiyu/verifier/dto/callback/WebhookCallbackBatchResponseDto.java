@@ -0,0 +1,23 @@
+package ch.admin.bj.swiyu.verifier.dto.callback;
+
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(name = "WebhookCallbackBatchResponse", description = "Optional response to a batch of callbacks. " +
+        "Callbacks of the listed verifications are sent again, all others are acknowledged.")
+public class WebhookCallbackBatchResponseDto {
+    @JsonProperty(value = "rejected_verification_ids")
+    private List<UUID> rejectedVerificationIds;
+}
@@ -9,16 +9,13 @@ import ch.admin.bj.swiyu.verifier.common.config.SignatureConfiguration;
 import com.nimbusds.jose.JWSSigner;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
-import static ch.admin.bj.swiyu.verifier.common.config.CachingConfig.JWS_SIGNER_CACHE;
-
 /**
  * This service is used to create a signer for the given signature configuration.
  * It uses the KeyManagementStrategyFactory to create the signer based on the key management method.
  * <p>
- * The signer is cached to avoid creating it multiple times.
+ * Every call creates a new signer, use the {@link JwsSignerRegistry} to reuse them.
  */
 @Service
 @AllArgsConstructor
@@ -30,7 +27,6 @@ public class JwsSignatureFacade {
     /**
      * Create Signer with overridden overrideKeyId & overrideKeyPin
      */
-    @Cacheable(JWS_SIGNER_CACHE)
     public JWSSigner createSigner(@NotNull SignatureConfiguration signatureConfiguration, String overrideKeyId, String overrideKeyPin) throws KeyStrategyException {
         SignatureConfigurationDto dto = mapToLibConfig(signatureConfiguration);
         return jwsSignatureService.createSigner(dto, overrideKeyId, overrideKeyPin);
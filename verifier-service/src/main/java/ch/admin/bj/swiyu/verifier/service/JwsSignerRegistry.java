@@ -0,0 +1,147 @@
+package ch.admin.bj.swiyu.verifier.service;
+
+import ch.admin.bj.swiyu.jwssignatureservice.factory.strategy.KeyStrategyException;
+import ch.admin.bj.swiyu.verifier.common.config.ApplicationProperties;
+import ch.admin.bj.swiyu.verifier.common.config.CacheProperties;
+import ch.admin.bj.swiyu.verifier.common.config.SignatureConfiguration;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nimbusds.jose.JWSSigner;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+
+/**
+ * Holds the signers used to sign request objects, so the key is only loaded once and not for every request.
+ * <p>
+ * Signers are kept per key management method, key id, key PIN and verification method. The PIN is only kept as
+ * HMAC under a random key generated for this instance, so the cache keys do not allow guessing the PIN offline. A
+ * signer is never handed out for a different PIN than the one it was created with. A signer failing to
+ * sign is evicted with {@link #evict(String, String, String)} and created again on the next use, so a broken
+ * HSM session does not fail all following requests. The cache is sized by {@code caching.jws-signer}.
+ */
+@Service
+@Slf4j
+public class JwsSignerRegistry {
+
+    static final String CACHE_NAME = "JwsSignerCache";
+    private static final String PIN_MAC_ALGORITHM = "HmacSHA256";
+
+    private final ApplicationProperties applicationProperties;
+    private final JwsSignatureFacade jwsSignatureFacade;
+    private final SecretKeySpec pinMacKey;
+
+    @Getter(value = AccessLevel.PROTECTED) // Allow Protected level access to cache for unit tests
+    private final Cache<SignerKey, JWSSigner> signers;
+
+    public JwsSignerRegistry(ApplicationProperties applicationProperties,
+                             JwsSignatureFacade jwsSignatureFacade,
+                             CacheProperties cacheProperties,
+                             ObjectProvider<MeterRegistry> meterRegistry) {
+        this.applicationProperties = applicationProperties;
+        this.jwsSignatureFacade = jwsSignatureFacade;
+        var pinMacKeyBytes = new byte[32];
+        new SecureRandom().nextBytes(pinMacKeyBytes);
+        this.pinMacKey = new SecretKeySpec(pinMacKeyBytes, PIN_MAC_ALGORITHM);
+
+        var spec = cacheProperties.getJwsSigner();
+        var builder = Caffeine.newBuilder().maximumSize(spec.getMaximumSize());
+        if (spec.getExpireAfterWrite() != null) {
+            builder.expireAfterWrite(spec.getExpireAfterWrite());
+        }
+        if (spec.isRecordStats()) {
+            builder.recordStats();
+        }
+        this.signers = builder.build();
+        if (spec.isRecordStats()) {
+            meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, signers, CACHE_NAME));
+        }
+    }
+
+    /**
+     * Returns the signer for the configured key, optionally overriding the HSM key identifier and PIN. The signer
+     * is created on first use and shared by all following requests.
+     *
+     * @param keyId              key identifier overriding the configured one, or {@code null}/empty for the default
+     * @param keyPin             key PIN overriding the configured one, or {@code null}/empty for the default
+     * @param verificationMethod the verification method the signed JWTs refer to
+     * @return the signer, or {@code null} if no signing key is configured
+     * @throws IllegalStateException if the signer could not be created
+     */
+    public JWSSigner getSigner(String keyId, String keyPin, String verificationMethod) {
+        return signers.get(toKey(keyId, keyPin, verificationMethod), key -> createSigner(keyId, keyPin));
+    }
+
+    /**
+     * Removes the signer, e.g. after it failed to sign. The next {@link #getSigner(String, String, String)} creates
+     * a new one.
+     */
+    public void evict(String keyId, String keyPin, String verificationMethod) {
+        log.warn("Evicting signer for key {} and verification method {}", keyId, verificationMethod);
+        signers.invalidate(toKey(keyId, keyPin, verificationMethod));
+    }
+
+    private JWSSigner createSigner(String keyId, String keyPin) {
+        try {
+            return jwsSignatureFacade.createSigner(toSignatureConfiguration(applicationProperties), keyId, keyPin);
+        } catch (KeyStrategyException e) {
+            throw new IllegalStateException("Failed to create signer", e);
+        }
+    }
+
+    private SignerKey toKey(String keyId, String keyPin, String verificationMethod) {
+        return new SignerKey(applicationProperties.getKeyManagementMethod(),
+                StringUtils.trimToNull(keyId),
+                hashPin(keyPin),
+                verificationMethod);
+    }
+
+    private String hashPin(String keyPin) {
+        if (StringUtils.isEmpty(keyPin)) {
+            return null;
+        }
+        try {
+            // Mac instances are not thread safe
+            var mac = Mac.getInstance(PIN_MAC_ALGORITHM);
+            mac.init(pinMacKey);
+            return HexFormat.of().formatHex(mac.doFinal(keyPin.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Loading hash algorithm failed. Please check the configuration", e);
+        }
+    }
+
+    /**
+     * Mapping allowing to use same logic as issuer service in most parts
+     *
+     * @return SignatureConfiguration built from the given application properties
+     */
+    private static SignatureConfiguration toSignatureConfiguration(ApplicationProperties applicationProperties) {
+        return SignatureConfiguration.builder()
+                .keyManagementMethod(applicationProperties.getKeyManagementMethod())
+                .privateKey(applicationProperties.getSigningKey())
+                .hsm(applicationProperties.getHsm())
+                .pkcs11Config(applicationProperties.getHsm().getPkcs11Config())
+                .verificationMethod(applicationProperties.getSigningKeyVerificationMethod())
+                .build();
+    }
+
+    /**
+     * Identifies a signer
+     *
+     * @param keyPinHash HMAC-SHA256 of the overriding key PIN, {@code null} for the configured one
+     */
+    protected record SignerKey(String keyManagementMethod, String keyId, String keyPinHash, String verificationMethod) {
+    }
+}
@@ -1,9 +1,6 @@
 package ch.admin.bj.swiyu.verifier.service;
 
-import ch.admin.bj.swiyu.jwssignatureservice.factory.strategy.KeyStrategyException;
 import ch.admin.bj.swiyu.jwtutil.JwtUtil;
-import ch.admin.bj.swiyu.verifier.common.config.ApplicationProperties;
-import ch.admin.bj.swiyu.verifier.common.config.SignatureConfiguration;
 import ch.admin.bj.swiyu.verifier.common.profile.SwissProfileVersions;
 import ch.admin.bj.swiyu.verifier.common.util.SignerProvider;
 
@@ -24,13 +21,13 @@ import org.springframework.stereotype.Service;
 public class JwtSigningService {
 
     private static final String OAUTH_AUTHZ_REQ_JWT = "oauth-authz-req+jwt";
-    private final ApplicationProperties applicationProperties;
-    private final JwsSignatureFacade jwsSignatureFacade;
+    private final JwsSignerRegistry jwsSignerRegistry;
 
 
     /**
      * Signs the provided JWT claims set using the specified or default signing configuration.
      * If keyId and keyPin are provided, they override the default key settings; otherwise, defaults are used.
+     * The signer is taken from the {@link JwsSignerRegistry} and evicted from it if signing fails.
      *
      * @param claimsSet the JWT claims to sign
      * @param keyId optional key ID to override the default; if null, default is used
@@ -46,7 +43,7 @@ public class JwtSigningService {
 
         SignerProvider signerProvider;
         try {
-            signerProvider = createSignerProvider(keyId, keyPin);
+            signerProvider = new SignerProvider(jwsSignerRegistry.getSigner(keyId, keyPin, verificationMethod));
         } catch (Exception e) {
             throw new IllegalStateException("Failed to initialize signature provider. This is probably because the key could not be loaded.", e);
         }
@@ -63,38 +60,12 @@ public class JwtSigningService {
                 .customParam(SwissProfileVersions.PROFILE_VERSION_PARAM, SwissProfileVersions.VERIFICATION_PROFILE_VERSION)
                 .build();
 
-        return JwtUtil.signJwt(claimsSet, header, signerProvider.getSigner());
-    }
-
-    /**
-     * Creates a {@link SignerProvider} based on the default application configuration,
-     * optionally overriding the hardware security module (HSM) key identifier and PIN.
-     * * <p>If {@code keyId} or {@code keyPin} are provided (not null and not empty),
-     * they selectively replace the default values specified in the application properties.</p>
-     *
-     * @param keyId  The specific key identifier to use, or {@code null}/empty to fall back to the default.
-     * @param keyPin The specific key PIN to use, or {@code null}/empty to fall back to the default.
-     * @return A fully configured {@link SignerProvider} ready for JWT signing operations.
-     * @throws KeyStrategyException If the underlying signature strategy cannot be initialized.
-     */
-    private SignerProvider createSignerProvider(String keyId, String keyPin) throws IllegalArgumentException, KeyStrategyException {
-        var defaultSignatureConfiguration = toSignatureConfiguration(applicationProperties);
-        return new SignerProvider(jwsSignatureFacade.createSigner(defaultSignatureConfiguration, keyId, keyPin));
-    }
-
-    /**
-     * Mapping allowing to use same logic as issuer service in most parts
-     *
-     * @return SignatureConfiguration built from the given application properties
-     */
-    private static SignatureConfiguration toSignatureConfiguration(
-            ApplicationProperties applicationProperties) {
-        return SignatureConfiguration.builder()
-                .keyManagementMethod(applicationProperties.getKeyManagementMethod())
-                .privateKey(applicationProperties.getSigningKey())
-                .hsm(applicationProperties.getHsm())
-                .pkcs11Config(applicationProperties.getHsm().getPkcs11Config())
-                .verificationMethod(applicationProperties.getSigningKeyVerificationMethod())
-                .build();
+        try {
+            return JwtUtil.signJwt(claimsSet, header, signerProvider.getSigner());
+        } catch (Exception e) {
+            // the signer may be broken, e.g. a lost HSM session, create a new one for the next request
+            jwsSignerRegistry.evict(keyId, keyPin, verificationMethod);
+            throw e;
+        }
     }
 }
@@ -5,6 +5,7 @@ import ch.admin.bj.swiyu.verifier.domain.callback.CallbackEvent;
 import ch.admin.bj.swiyu.verifier.domain.callback.CallbackEventRepository;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,19 +16,31 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class CallbackEventProducer {
 
+    /**
+     * PostgreSQL channel notified about new callback events, see {@code webhook.listen-notify}
+     */
+    public static final String CALLBACK_EVENT_CHANNEL = "callback_event";
+
     private final WebhookProperties webhookProperties;
     private final CallbackEventRepository callbackEventRepository;
+    private final JdbcTemplate jdbcTemplate;
 
     @Transactional
     public void produceEvent(UUID verificationId) {
         if (StringUtils.isBlank(webhookProperties.getCallbackUri())) {
             return;
         }
+        var now = Instant.now();
         var event = CallbackEvent.builder()
                 .verificationId(verificationId)
-                .timestamp(Instant.now())
+                .timestamp(now)
+                .nextAttemptAt(now)
                 .build();
         callbackEventRepository.save(event);
+        if (webhookProperties.isListenNotify()) {
+            // Delivered by PostgreSQL once the transaction commits, notifications of one transaction are folded
+            jdbcTemplate.execute("NOTIFY " + CALLBACK_EVENT_CHANNEL);
+        }
     }
 }
 
@@ -19,6 +19,7 @@ import com.nimbusds.jose.jwk.JWKSet;
 import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
@@ -50,6 +51,8 @@ public class ManagementService {
      */
     private final Optional<VqpsRegistrationService> vqpsRegistrationService;
 
+    private final ApplicationEventPublisher eventPublisher;
+
     /**
      * Retrieves a management entity by its ID.
      *
@@ -84,6 +87,8 @@ public class ManagementService {
      * in the database. The scope is stored on the Management entity so that the
      * request object service can inject the vqPS into the Authorization Request.</p>
      *
+     * <p>A {@link VerificationManagementCreatedEvent} is published once the management is stored.</p>
+     *
      * @param request the DTO containing creation details
      * @return the ManagementResponseDto for the created management
      */
@@ -111,6 +116,8 @@ public class ManagementService {
                 request.redirectURI()
         );
         log.info("Created pending verification for id: {}", management.getId());
+        eventPublisher.publishEvent(new VerificationManagementCreatedEvent(
+                management.getId(), Boolean.TRUE.equals(management.getJwtSecuredAuthorizationRequest())));
         return toManagementResponseDto(management, applicationProperties);
     }
 
@@ -143,10 +150,32 @@ public class ManagementService {
     }
 
     /**
-     * Removes all expired managements from the system.
+     * Removes expired managements from the system.
+     * <p>
+     * The managements are deleted in chunks of {@code application.data-clear-batch-size}, each in its own short
+     * transaction, until none is left or {@code application.data-clear-time-budget} is used up. With
+     * {@code application.management-partitioning} the partitions of expired managements are dropped as a whole first.
      */
     public void removeExpiredManagements() {
-        managementTransactionalService.deleteExpiredManagements();
+        if (applicationProperties.isManagementPartitioning()) {
+            try {
+                managementTransactionalService.maintainManagementPartitions(applicationProperties.getManagementPartitionInterval());
+            } catch (RuntimeException e) {
+                // The expired managements are still deleted in chunks
+                log.error("Maintaining the management partitions failed", e);
+            }
+        }
+
+        var batchSize = applicationProperties.getDataClearBatchSize();
+        var deadline = Instant.now().plus(applicationProperties.getDataClearTimeBudget());
+        long removed = 0;
+        int deleted;
+        do {
+            deleted = managementTransactionalService.deleteExpiredManagements(batchSize);
+            removed += deleted;
+            // A full chunk indicates further expired managements
+        } while (deleted >= batchSize && Instant.now().isBefore(deadline));
+        log.info("Removed {} expired managements", removed);
     }
 
     /**
@@ -192,4 +221,38 @@ public class ManagementService {
         managementTransactionalService.markVerificationFailedDueToClientRejection(managementEntityId, rejection);
         return uriToVerificationPresentation(null);
     }
-}
\ No newline at end of file
+
+    /**
+     * Marks the claimed verification as succeeded with the provided data.
+     *
+     * @param claimedManagement     the management returned by {@link #claimSessionForProcessing(UUID)}
+     * @param credentialSubjectData the data from the credential subject
+     * @return the {@link VerificationPresentationResponseDto} containing the response URI
+     */
+    public VerificationPresentationResponseDto markVerificationSucceeded(Management claimedManagement, String credentialSubjectData) {
+        var uri = managementTransactionalService.markVerificationSucceeded(claimedManagement, credentialSubjectData);
+        return uriToVerificationPresentation(uri);
+    }
+
+    /**
+     * Marks the claimed verification as failed with the provided exception.
+     *
+     * @param claimedManagement the management returned by {@link #claimSessionForProcessing(UUID)}
+     * @param e                 the VerificationException containing error details
+     */
+    public void markVerificationFailed(Management claimedManagement, VerificationException e) {
+        managementTransactionalService.markVerificationFailed(claimedManagement, e);
+    }
+
+    /**
+     * Marks the claimed verification as failed due to client rejection.
+     *
+     * @param claimedManagement the management returned by {@link #claimSessionForProcessing(UUID)}
+     * @param rejection         the error response from the wallet
+     * @return the {@link VerificationPresentationResponseDto} without a redirect uri
+     */
+    public VerificationPresentationResponseDto markVerificationFailedDueToClientRejection(Management claimedManagement, VerificationPresentationRejectionDto rejection) {
+        managementTransactionalService.markVerificationFailedDueToClientRejection(claimedManagement, rejection);
+        return uriToVerificationPresentation(null);
+    }
+}
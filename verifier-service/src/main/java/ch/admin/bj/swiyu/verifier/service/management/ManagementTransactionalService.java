@@ -9,14 +9,18 @@ import ch.admin.bj.swiyu.verifier.domain.management.*;
 import ch.admin.bj.swiyu.verifier.domain.management.dcql.DcqlQuery;
 import ch.admin.bj.swiyu.verifier.dto.VerificationPresentationRejectionDto;
 import ch.admin.bj.swiyu.verifier.dto.management.CreateVerificationManagementDto;
+import ch.admin.bj.swiyu.verifier.service.callback.CallbackEventProducer;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -34,6 +38,7 @@ public class ManagementTransactionalService {
 
     private final ManagementRepository repository;
     private final ApplicationProperties applicationProperties;
+    private final CallbackEventProducer callbackEventProducer;
 
     /**
      * Load a Management entity by id and enforce expiration and response-code guards within the current transaction.
@@ -100,11 +105,39 @@ public class ManagementTransactionalService {
     }
 
     /**
-     * Deletes all expired Managements in a single transactional operation.
+     * Deletes up to {@code limit} expired Managements in its own transaction.
+     *
+     * @param limit the maximum number of Managements to delete
+     * @return the number of deleted Managements
+     */
+    @Transactional
+    public int deleteExpiredManagements(int limit) {
+        return repository.deleteExpired(System.currentTimeMillis(), limit);
+    }
+
+    /**
+     * Maintains the partitions of the Managements by expiry in a single transaction: converts the table into
+     * partitions on the first run, creates the partitions for the Managements created until the next runs and drops
+     * the partitions in which all Managements expired.
+     * <p>
+     * The conversion locks the table exclusively until this transaction commits: the management API and the wallet
+     * submissions are blocked for that time, which grows with the number of stored Managements.
+     *
+     * @param partitionInterval the range of expiry times covered by one partition
      */
     @Transactional
-    public void deleteExpiredManagements() {
-        repository.deleteByExpiresAtIsBefore(System.currentTimeMillis());
+    public void maintainManagementPartitions(Duration partitionInterval) {
+        var now = System.currentTimeMillis();
+        var interval = partitionInterval.toMillis();
+        // Managements created until the next runs expire at most one TTL from now
+        var until = now + applicationProperties.getVerificationTTL() * 1000L + 2 * interval;
+
+        if (repository.partitionByExpiry(now, until, interval)) {
+            log.info("Partitioned managements by expiry in ranges of {}", partitionInterval);
+        }
+        var created = repository.createPartitions(now, until, interval);
+        var dropped = repository.dropExpiredPartitions(now);
+        log.debug("Created {} and dropped {} management partitions", created, dropped);
     }
 
 
@@ -118,6 +151,10 @@ public class ManagementTransactionalService {
      * {@link org.springframework.orm.ObjectOptimisticLockingFailureException}, which the
      * caller must handle.</p>
      *
+     * <p>With {@code application.atomic-session-claim} the transition is a single
+     * {@code UPDATE … WHERE state = 'PENDING' … RETURNING *}, the losing thread then receives the
+     * {@link org.springframework.orm.ObjectOptimisticLockingFailureException} right away instead of at commit.</p>
+     *
      * @param managementEntityId the session to claim
      * @return the {@link Management} entity in state {@code IN_PROGRESS}
      * @throws ProcessClosedException                                          if the session is not {@code PENDING} or has expired
@@ -127,6 +164,9 @@ public class ManagementTransactionalService {
      */
     @Transactional(timeout = 10)
     public Management claimSessionForProcessing(UUID managementEntityId) {
+        if (applicationProperties.isAtomicSessionClaim()) {
+            return claimSessionAtomically(managementEntityId);
+        }
         Management m = repository.findById(managementEntityId)
                 .orElseThrow(() ->
                         submissionError(VerificationErrorResponseCode.AUTHORIZATION_REQUEST_OBJECT_NOT_FOUND,
@@ -144,7 +184,8 @@ public class ManagementTransactionalService {
     }
 
     /**
-     * Persists a successful verification result in its own short-lived transaction.
+     * Persists a successful verification result in its own short-lived transaction, together with the callback
+     * event notifying the business verifier.
      *
      * @param managementEntityId    the id of the Management entity to update
      * @param credentialSubjectData the credential subject data to store in the Management entity
@@ -158,11 +199,12 @@ public class ManagementTransactionalService {
     public URI markVerificationSucceeded(UUID managementEntityId, String credentialSubjectData) {
         var managementEntity = getInProgressManagementEntity(managementEntityId);
         managementEntity.verificationSucceeded(credentialSubjectData);
+        callbackEventProducer.produceEvent(managementEntityId);
         return managementEntity.getRedirectURI();
     }
 
     /**
-     * Persists a failed verification result in its own short-lived transaction.
+     * Persists a failed verification result in its own short-lived transaction, together with the callback event.
      */
     @Transactional(
             propagation = Propagation.REQUIRES_NEW,
@@ -172,11 +214,12 @@ public class ManagementTransactionalService {
     public void markVerificationFailed(UUID managementEntityId, VerificationException e) {
         var managementEntity = getInProgressManagementEntity(managementEntityId);
         managementEntity.verificationFailed(e.getErrorResponseCode(), e.getErrorDescription());
+        callbackEventProducer.produceEvent(managementEntityId);
     }
 
     /**
      * Persists a failed verification result due to an explicit client/wallet rejection
-     * in its own short-lived transaction.
+     * in its own short-lived transaction, together with the callback event.
      */
     @Transactional(
             propagation = Propagation.REQUIRES_NEW,
@@ -187,6 +230,66 @@ public class ManagementTransactionalService {
         var managementEntity = getInProgressManagementEntity(managementEntityId);
         log.trace(LOADED_MANAGEMENT_ENTITY_FOR + "{}", managementEntityId);
         managementEntity.verificationFailedDueToClientRejection(rejection.getErrorDescription(), ManagementMapper.toVerificationErrorResponseCode(rejection.getError()));
+        callbackEventProducer.produceEvent(managementEntityId);
+    }
+
+    /**
+     * Persists a successful verification result of a session claimed by {@link #claimSessionForProcessing(UUID)}.
+     * <p>
+     * With {@code application.atomic-session-claim} the result is applied to the claimed entity and written with a
+     * single update, otherwise the entity is loaded again as in {@link #markVerificationSucceeded(UUID, String)}.
+     *
+     * @param claimedManagement     the entity returned by the claim
+     * @param credentialSubjectData the credential subject data to store in the Management entity
+     * @return the redirect URI to which the client should be sent after successful verification
+     */
+    @Transactional(
+            propagation = Propagation.REQUIRES_NEW,
+            noRollbackFor = VerificationException.class,
+            timeout = 10
+    )
+    public URI markVerificationSucceeded(Management claimedManagement, String credentialSubjectData) {
+        if (!applicationProperties.isAtomicSessionClaim()) {
+            return markVerificationSucceeded(claimedManagement.getId(), credentialSubjectData);
+        }
+        claimedManagement.verificationSucceeded(credentialSubjectData);
+        return completeClaimedSession(claimedManagement);
+    }
+
+    /**
+     * Persists a failed verification result of a session claimed by {@link #claimSessionForProcessing(UUID)}, see
+     * {@link #markVerificationSucceeded(Management, String)}.
+     */
+    @Transactional(
+            propagation = Propagation.REQUIRES_NEW,
+            noRollbackFor = VerificationException.class,
+            timeout = 10
+    )
+    public void markVerificationFailed(Management claimedManagement, VerificationException e) {
+        if (!applicationProperties.isAtomicSessionClaim()) {
+            markVerificationFailed(claimedManagement.getId(), e);
+            return;
+        }
+        claimedManagement.verificationFailed(e.getErrorResponseCode(), e.getErrorDescription());
+        completeClaimedSession(claimedManagement);
+    }
+
+    /**
+     * Persists the client rejection of a session claimed by {@link #claimSessionForProcessing(UUID)}, see
+     * {@link #markVerificationSucceeded(Management, String)}.
+     */
+    @Transactional(
+            propagation = Propagation.REQUIRES_NEW,
+            noRollbackFor = VerificationException.class,
+            timeout = 10
+    )
+    public void markVerificationFailedDueToClientRejection(Management claimedManagement, VerificationPresentationRejectionDto rejection) {
+        if (!applicationProperties.isAtomicSessionClaim()) {
+            markVerificationFailedDueToClientRejection(claimedManagement.getId(), rejection);
+            return;
+        }
+        claimedManagement.verificationFailedDueToClientRejection(rejection.getErrorDescription(), ManagementMapper.toVerificationErrorResponseCode(rejection.getError()));
+        completeClaimedSession(claimedManagement);
     }
 
     @Transactional
@@ -194,6 +297,47 @@ public class ManagementTransactionalService {
         return repository.findById(requestId);
     }
 
+    /**
+     * Transitions the session from {@code PENDING} to {@code IN_PROGRESS} with a single statement. Only if
+     * nothing was claimed, the session is looked up again to tell a missing from a closed session.
+     */
+    private Management claimSessionAtomically(UUID managementEntityId) {
+        return repository.claimForProcessing(managementEntityId, System.currentTimeMillis())
+                .orElseThrow(() -> {
+                    var state = repository.findStateById(managementEntityId);
+                    if (state.isEmpty()) {
+                        return submissionError(VerificationErrorResponseCode.AUTHORIZATION_REQUEST_OBJECT_NOT_FOUND,
+                                MANAGEMENT_ENTITY_NOT_FOUND + managementEntityId);
+                    }
+                    if (VerificationStatus.IN_PROGRESS.equals(state.get())) {
+                        // Another submission claimed the session, it completes the session and notifies the business verifier
+                        return new ObjectOptimisticLockingFailureException(Management.class, managementEntityId);
+                    }
+                    log.warn("Submission rejected for session {}: not pending anymore or expired", managementEntityId);
+                    return new ProcessClosedException();
+                });
+    }
+
+    /**
+     * Writes the result the claimed session transitioned to in memory, as long as it is still in progress, and the
+     * callback event in the same transaction.
+     *
+     * @throws ProcessClosedException if the session is not in progress anymore
+     */
+    private URI completeClaimedSession(Management claimedManagement) {
+        int updated = repository.completeProcessing(claimedManagement.getId(),
+                claimedManagement.getState(),
+                claimedManagement.getWalletResponse(),
+                claimedManagement.getResponseCode(),
+                claimedManagement.getRedirectURI(),
+                Instant.now());
+        if (updated == 0) {
+            throw new ProcessClosedException();
+        }
+        callbackEventProducer.produceEvent(claimedManagement.getId());
+        return claimedManagement.getRedirectURI();
+    }
+
     /**
      * Returns the {@link Management} entity with the given
      * {@code managementEntityId}
@@ -0,0 +1,12 @@
+package ch.admin.bj.swiyu.verifier.service.management;
+
+import java.util.UUID;
+
+/**
+ * Published by {@link ManagementService} after a new verification management was committed.
+ *
+ * @param managementId                   id of the created management
+ * @param jwtSecuredAuthorizationRequest whether the wallet fetches a signed request object for it
+ */
+public record VerificationManagementCreatedEvent(UUID managementId, boolean jwtSecuredAuthorizationRequest) {
+}
@@ -6,18 +6,25 @@ import ch.admin.bj.swiyu.verifier.common.exception.VerificationErrorResponseCode
 import ch.admin.bj.swiyu.verifier.common.exception.VerificationException;
 import ch.admin.bj.swiyu.verifier.domain.SdJwt;
 import ch.admin.bj.swiyu.verifier.domain.management.Management;
+import ch.admin.bj.swiyu.verifier.domain.management.dcql.DcqlCredential;
 import ch.admin.bj.swiyu.verifier.service.oid4vp.ports.DcqlEvaluator;
 import ch.admin.bj.swiyu.verifier.service.oid4vp.ports.PresentationVerifier;
 import tools.jackson.core.JacksonException;
 import tools.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static ch.admin.bj.swiyu.verifier.common.exception.VerificationException.submissionError;
 
@@ -26,6 +33,10 @@ import static ch.admin.bj.swiyu.verifier.common.exception.VerificationException.
  * <p>
  * For each requested credential it verifies VP tokens into {@link SdJwt}, filters by VCT,
  * validates the requested claims, and returns the extracted claims as a JSON string.
+ * <p>
+ * With {@code application.parallel-dcql-verification} all VP tokens of a submission are verified concurrently,
+ * so a submission with several credentials takes about as long as its slowest credential. Credentials sharing an
+ * issuer key or a status list share one lookup through the key and status list caches.
  */
 @Slf4j
 @Component
@@ -37,6 +48,17 @@ public class DcqlPresentationVerificationService {
     private final ObjectMapper objectMapper;
     private final ApplicationProperties applicationProperties;
 
+    /**
+     * Executor verifying the VP tokens of a submission concurrently
+     */
+    private final ExecutorService verificationExecutor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("dcql-verification-", 0).factory());
+
+    @PreDestroy
+    void shutdown() {
+        verificationExecutor.shutdownNow();
+    }
+
     /**
      * Processes the DCQL presentation request and returns the validated claims per credential as JSON.
      * <p>
@@ -58,42 +80,105 @@ public class DcqlPresentationVerificationService {
         if (vpTokens == null) {
             throw submissionError(VerificationErrorResponseCode.INVALID_PRESENTATION_SUBMISSION, "Missing vp_token object in presentation submission");
         }
+        var requestedVpTokens = requestedCredentials.stream()
+                .map(requestedCredential -> getRequestedVpTokens(requestedCredential, vpTokens))
+                .toList();
         var verifiedResponses = new HashMap<String, List<Map<String, Object>>>();
-        for (var requestedCredential : requestedCredentials) {
-            if (!vpTokens.containsKey(requestedCredential.getId())) {
-                throw submissionError(VerificationErrorResponseCode.INVALID_PRESENTATION_SUBMISSION, "Missing vp token for requested credential id " + requestedCredential.getId());
-            }
-            var requestedVpTokens = vpTokens.get(requestedCredential.getId());
-            if (requestedVpTokens == null) {
-                throw submissionError(VerificationErrorResponseCode.INVALID_PRESENTATION_SUBMISSION, "Vp token entry for requested credential id " + requestedCredential.getId() + " must not be null");
+        if (applicationProperties.isParallelDcqlVerification()) {
+            var verifications = startVerifications(entity, requestedCredentials, requestedVpTokens);
+            try {
+                for (int i = 0; i < requestedCredentials.size(); i++) {
+                    var sdJwts = verifications.get(i).stream().map(DcqlPresentationVerificationService::await).toList();
+                    addVerifiedResponse(verifiedResponses, requestedCredentials.get(i), sdJwts);
+                }
+            } finally {
+                verifications.forEach(credentialVerifications -> credentialVerifications.forEach(verification -> verification.cancel(false)));
             }
-            if (!Boolean.TRUE.equals(requestedCredential.getMultiple()) && requestedVpTokens.size() > 1) {
-                throw submissionError(VerificationErrorResponseCode.INVALID_PRESENTATION_SUBMISSION, "Expected only 1 vp token for " + requestedCredential.getId());
+        } else {
+            for (int i = 0; i < requestedCredentials.size(); i++) {
+                var requestedCredential = requestedCredentials.get(i);
+                var sdJwts = requestedVpTokens.get(i).stream()
+                        .map(token -> presentationVerifier.verify(token, entity, requestedCredential))
+                        .toList();
+                addVerifiedResponse(verifiedResponses, requestedCredential, sdJwts);
             }
+        }
+        return writeAsString(verifiedResponses);
+    }
 
-            if (requestedVpTokens.size() > applicationProperties.getMaxVcsAccepted()) {
-                throw submissionError(VerificationErrorResponseCode.INVALID_PRESENTATION_SUBMISSION, "Cannot Accept more than %s vcs received %s".formatted(applicationProperties.getMaxVcsAccepted(), requestedVpTokens.size()));
-            }
+    /**
+     * @return the VP tokens presented for the requested credential, after checking them against the DCQL query
+     */
+    private List<String> getRequestedVpTokens(DcqlCredential requestedCredential, Map<String, List<String>> vpTokens) {
+        if (!vpTokens.containsKey(requestedCredential.getId())) {
+            throw submissionError(VerificationErrorResponseCode.INVALID_PRESENTATION_SUBMISSION, "Missing vp token for requested credential id " + requestedCredential.getId());
+        }
+        var requestedVpTokens = vpTokens.get(requestedCredential.getId());
+        if (requestedVpTokens == null) {
+            throw submissionError(VerificationErrorResponseCode.INVALID_PRESENTATION_SUBMISSION, "Vp token entry for requested credential id " + requestedCredential.getId() + " must not be null");
+        }
+        if (!Boolean.TRUE.equals(requestedCredential.getMultiple()) && requestedVpTokens.size() > 1) {
+            throw submissionError(VerificationErrorResponseCode.INVALID_PRESENTATION_SUBMISSION, "Expected only 1 vp token for " + requestedCredential.getId());
+        }
 
-            if (requestedVpTokens.stream().anyMatch(Objects::isNull)) {
-                throw submissionError(VerificationErrorResponseCode.INVALID_PRESENTATION_SUBMISSION, "Vp token list for requested credential id " + requestedCredential.getId() + " must not contain null entries");
-            }
+        if (requestedVpTokens.size() > applicationProperties.getMaxVcsAccepted()) {
+            throw submissionError(VerificationErrorResponseCode.INVALID_PRESENTATION_SUBMISSION, "Cannot Accept more than %s vcs received %s".formatted(applicationProperties.getMaxVcsAccepted(), requestedVpTokens.size()));
+        }
 
-            var sdJwts = requestedVpTokens.stream()
-                    .map(token -> presentationVerifier.verify(token, entity, requestedCredential))
-                    .toList();
+        if (requestedVpTokens.stream().anyMatch(Objects::isNull)) {
+            throw submissionError(VerificationErrorResponseCode.INVALID_PRESENTATION_SUBMISSION, "Vp token list for requested credential id " + requestedCredential.getId() + " must not contain null entries");
+        }
+        return requestedVpTokens;
+    }
 
-            sdJwts = dcqlEvaluator.filterByVct(sdJwts, requestedCredential.getMeta());
+    private void addVerifiedResponse(Map<String, List<Map<String, Object>>> verifiedResponses,
+                                     DcqlCredential requestedCredential,
+                                     List<SdJwt> sdJwts) {
+        sdJwts = dcqlEvaluator.filterByVct(sdJwts, requestedCredential.getMeta());
 
-            if (sdJwts.isEmpty()) {
-                throw submissionError(VerificationErrorResponseCode.INVALID_PRESENTATION_SUBMISSION, "No matching SD-JWT for requested credential id " + requestedCredential.getId());
-            }
+        if (sdJwts.isEmpty()) {
+            throw submissionError(VerificationErrorResponseCode.INVALID_PRESENTATION_SUBMISSION, "No matching SD-JWT for requested credential id " + requestedCredential.getId());
+        }
 
-            var sdjwt = sdJwts.getFirst();
-            dcqlEvaluator.validateRequestedClaims(sdjwt, requestedCredential.getClaims());
-            verifiedResponses.put(requestedCredential.getId(), List.of(sdjwt.getResolvedClaims()));
+        var sdjwt = sdJwts.getFirst();
+        dcqlEvaluator.validateRequestedClaims(sdjwt, requestedCredential.getClaims());
+        verifiedResponses.put(requestedCredential.getId(), List.of(sdjwt.getResolvedClaims()));
+    }
+
+    /**
+     * Starts verifying all VP tokens of the submission at once, each on its own virtual thread. A single VP token is
+     * verified on the calling thread.
+     *
+     * @return the pending verifications per requested credential, in the order of the VP tokens
+     */
+    private List<List<CompletableFuture<SdJwt>>> startVerifications(Management entity,
+                                                                     List<DcqlCredential> requestedCredentials,
+                                                                     List<List<String>> requestedVpTokens) {
+        var concurrent = requestedVpTokens.stream().mapToInt(List::size).sum() > 1;
+        var verifications = new ArrayList<List<CompletableFuture<SdJwt>>>(requestedCredentials.size());
+        for (int i = 0; i < requestedCredentials.size(); i++) {
+            var requestedCredential = requestedCredentials.get(i);
+            verifications.add(requestedVpTokens.get(i).stream()
+                    .map(token -> concurrent
+                            ? CompletableFuture.supplyAsync(() -> presentationVerifier.verify(token, entity, requestedCredential), verificationExecutor)
+                            : CompletableFuture.completedFuture(presentationVerifier.verify(token, entity, requestedCredential)))
+                    .toList());
+        }
+        return verifications;
+    }
+
+    /**
+     * @return the verified SD-JWT, or rethrows the exception the verification failed with
+     */
+    private static SdJwt await(CompletableFuture<SdJwt> verification) {
+        try {
+            return verification.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
         }
-        return writeAsString(verifiedResponses);
     }
 
     private String writeAsString(Object object) {
@@ -37,8 +37,7 @@ public class DcqlVpTokenVerifier {
         JWTClaimsSet claims = vpToken.getClaims();
         try {
             issuerTrustValidator.validateTrust(
-                didKidParser.getDidFromAbsoluteKid(
-                    didKidParser.extractKidFromHeader(vpToken.getJwt())),
+                didKidParser.getDidFromAbsoluteKid(vpToken.getHeader().getKeyID()),
                     claims.getStringClaim("vct"), management);
         } catch (ParseException e) {
             log.error("Failed to extract vct claim from JWT token", e);
@@ -9,7 +9,6 @@ import ch.admin.bj.swiyu.verifier.dto.VerificationPresentationMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import static ch.admin.bj.swiyu.verifier.common.exception.VerificationException.submissionError;
 
@@ -53,7 +52,6 @@ public class PresentationResponseResolver {
      * @throws IllegalArgumentException if response mode and payload (encrypted/plain) are inconsistent,
      *                                  or decryption fails
      */
-    @Transactional(readOnly = true)
     public PresentationResult mapToPresentationResult(Management managementEntity,
                                                       VPApiVersion apiVersion,
                                                       VerificationPresentationUnionDto verificationResponse) {
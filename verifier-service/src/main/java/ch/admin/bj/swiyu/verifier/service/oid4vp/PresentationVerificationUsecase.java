@@ -39,7 +39,8 @@ public class PresentationVerificationUsecase {
      *       (v2 error structure).</li>
      *   <li>In the happy path, the management entity is marked as failed due to client rejection without
      *       throwing an exception to the caller.</li>
-     *   <li>In all cases, a callback event is produced to signal completion.</li>
+     *   <li>In all cases, a callback event is produced to signal completion. Whenever the outcome is persisted,
+     *       the callback event is written in the same transaction.</li>
      * </ul>
      *
      * @param managementEntityId the id of the Management
@@ -49,22 +50,30 @@ public class PresentationVerificationUsecase {
     public VerificationPresentationResponseDto receiveVerificationPresentationClientRejection(UUID managementEntityId, VerificationPresentationRejectionDto rejection) {
         log.debug("Processing rejection for request_id: {}", managementEntityId);
 
+        // Flag, to know if the callback event was already written together with the outcome
+        boolean isCallbackEventWritten = false;
+
         try {
             // 1. Atomically claim the session: PENDING → IN_PROGRESS (TOCTOU-safe)
-            managementService.claimSessionForProcessing(managementEntityId);
-            // 2. Mark as failed due to client rejection in its own short-lived transaction
-            return managementService.markVerificationFailedDueToClientRejection(managementEntityId, rejection);
+            Management managementEntity = managementService.claimSessionForProcessing(managementEntityId);
+            // 2. Mark as failed due to client rejection in its own short-lived transaction, including the callback event
+            var responseDto = managementService.markVerificationFailedDueToClientRejection(managementEntity, rejection);
+            isCallbackEventWritten = true;
+            return responseDto;
         } catch (VerificationException e) {
-            // 2a. Persist failed verification result in a dedicated short transaction
+            // 2a. Persist failed verification result in a dedicated short transaction, including the callback event
             managementService.markVerificationFailed(managementEntityId, e);
+            isCallbackEventWritten = true;
             log.debug("Saved failed verification result for {}", managementEntityId);
 
 
             //PMD: rethrow since client gets notified of the error (v2 structure)
             throw e; // NOPMD - ExceptionAsFlowControl
         } finally {
-            // 3. Notify Business Verifier that this verification is done (non-transactional)
-            callbackEventProducer.produceEvent(managementEntityId);
+            // 3. Notify Business Verifier that this verification is done, if no outcome could be persisted
+            if (!isCallbackEventWritten) {
+                callbackEventProducer.produceEvent(managementEntityId);
+            }
         }
     }
 
@@ -80,7 +89,9 @@ public class PresentationVerificationUsecase {
      *       backward-compatible error contracts for DCQL endpoints.</li>
      *   <li>In all cases (success or failure), a callback event is produced via
      *       {@link CallbackEventProducer#produceEvent(java.util.UUID)} to notify the business verifier
-     *       that the DCQL verification attempt is finished.</li>
+     *       that the DCQL verification attempt is finished. It is written in the same transaction as the
+     *       verification result, so a crash can neither lose nor duplicate it. Only if no result could be
+     *       persisted, it is written on its own.</li>
      * </ul>
      *
      * @param managementEntityId the id of the Management
@@ -92,24 +103,33 @@ public class PresentationVerificationUsecase {
 
         // Flag, to know if WE are allowed to fire the event in the finally block
         boolean isSessionClaimedByThisThread = true;
+        // Flag, to know if the callback event was already written together with the verification result
+        boolean isCallbackEventWritten = false;
+        Management managementEntity = null;
 
         try {
             // 1. Atomically claim the session: PENDING → IN_PROGRESS (TOCTOU-safe)
-            Management managementEntity = managementService.claimSessionForProcessing(managementEntityId);
+            managementEntity = managementService.claimSessionForProcessing(managementEntityId);
 
             // 2. Perform the potentially long‑running remote/DCQL verification outside of any DB transaction
             log.debug("Starting DCQL submission verification for {}", managementEntityId);
             var credentialSubjectData = dcqlPresentationVerificationService.process(managementEntity, request);
             log.trace("DCQL submission verification completed for {}", managementEntityId);
 
-            // 3a. Persist successful verification result in a dedicated short transaction
-            var responseDto = managementService.markVerificationSucceeded(managementEntityId, credentialSubjectData);
+            // 3a. Persist successful verification result and callback event in a dedicated short transaction
+            var responseDto = managementService.markVerificationSucceeded(managementEntity, credentialSubjectData);
+            isCallbackEventWritten = true;
             log.debug("Saved successful DCQL verification result for {}", managementEntityId);
 
             return responseDto;
         } catch (VerificationException e) {
-            // 3b. Persist failed verification result in a dedicated short transaction
-            managementService.markVerificationFailed(managementEntityId, e);
+            // 3b. Persist failed verification result and callback event in a dedicated short transaction
+            if (managementEntity != null) {
+                managementService.markVerificationFailed(managementEntity, e);
+            } else {
+                managementService.markVerificationFailed(managementEntityId, e);
+            }
+            isCallbackEventWritten = true;
             log.debug("Saved failed DCQL verification result for {}", managementEntityId);
 
             // PMD: we intentionally convert v2 -> v1 error contract here
@@ -121,8 +141,8 @@ public class PresentationVerificationUsecase {
             log.warn("Concurrent submission rejected for session {}", managementEntityId);
             throw new ProcessClosedException();
         } finally {
-            // 4. Notify Business Verifier that this verification is done (non-transactional)
-            if (isSessionClaimedByThisThread) {
+            // 4. Notify Business Verifier that this verification is done, if no result could be persisted
+            if (isSessionClaimedByThisThread && !isCallbackEventWritten) {
                 callbackEventProducer.produceEvent(managementEntityId);
             }
         }
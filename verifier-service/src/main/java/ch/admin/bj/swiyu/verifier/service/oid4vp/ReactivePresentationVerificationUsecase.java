@@ -0,0 +1,192 @@
+package ch.admin.bj.swiyu.verifier.service.oid4vp;
+
+import ch.admin.bj.swiyu.verifier.common.config.ApplicationProperties;
+import ch.admin.bj.swiyu.verifier.common.exception.ProcessClosedException;
+import ch.admin.bj.swiyu.verifier.common.exception.VerificationException;
+import ch.admin.bj.swiyu.verifier.domain.management.Management;
+import ch.admin.bj.swiyu.verifier.dto.VPApiVersion;
+import ch.admin.bj.swiyu.verifier.dto.VerificationPresentationDCQLRequestDto;
+import ch.admin.bj.swiyu.verifier.dto.VerificationPresentationResponseDto;
+import ch.admin.bj.swiyu.verifier.dto.VerificationPresentationUnionDto;
+import ch.admin.bj.swiyu.verifier.service.callback.CallbackEventProducer;
+import ch.admin.bj.swiyu.verifier.service.management.ManagementService;
+import ch.admin.bj.swiyu.verifier.service.oid4vp.PresentationResult.Dcql;
+import ch.admin.bj.swiyu.verifier.service.oid4vp.PresentationResult.EncryptedDcql;
+import ch.admin.bj.swiyu.verifier.service.oid4vp.PresentationResult.Rejection;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static ch.admin.bj.swiyu.verifier.common.exception.VerificationException.submissionErrorV1;
+
+/**
+ * Non-blocking variant of the wallet submission, active with {@code application.reactive-presentation-submission}.
+ * <p>
+ * Runs the same stages as {@link PresentationVerificationUsecase}, composed as one {@link Mono}, so the request
+ * thread is released as soon as the submission was received:
+ * <ul>
+ *   <li>Database calls run on a bounded scheduler with at most
+ *       {@code application.reactive-submission-jdbc-parallelism} threads, so a burst of submissions queues for
+ *       the connection pool instead of blocking request threads.</li>
+ *   <li>Decryption and the verification of the presentation (DID key resolution, status lists, trust statements)
+ *       run on virtual threads, one per submission, as the resolvers block while waiting for the registries.</li>
+ * </ul>
+ * Errors, state transitions and the callback event are the same as in the blocking submission.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "application", name = "reactive-presentation-submission", havingValue = "true")
+public class ReactivePresentationVerificationUsecase {
+
+    private final PresentationResponseResolver presentationResponseResolver;
+    private final PresentationVerificationUsecase presentationVerificationUsecase;
+    private final DcqlPresentationVerificationService dcqlPresentationVerificationService;
+    private final ManagementService managementService;
+    private final CallbackEventProducer callbackEventProducer;
+
+    private final Scheduler jdbcScheduler;
+    private final Scheduler verificationScheduler;
+
+    public ReactivePresentationVerificationUsecase(PresentationResponseResolver presentationResponseResolver,
+                                                   PresentationVerificationUsecase presentationVerificationUsecase,
+                                                   DcqlPresentationVerificationService dcqlPresentationVerificationService,
+                                                   ManagementService managementService,
+                                                   CallbackEventProducer callbackEventProducer,
+                                                   ApplicationProperties applicationProperties) {
+        this.presentationResponseResolver = presentationResponseResolver;
+        this.presentationVerificationUsecase = presentationVerificationUsecase;
+        this.dcqlPresentationVerificationService = dcqlPresentationVerificationService;
+        this.managementService = managementService;
+        this.callbackEventProducer = callbackEventProducer;
+        this.jdbcScheduler = Schedulers.newBoundedElastic(applicationProperties.getReactiveSubmissionJdbcParallelism(),
+                Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "presentation-submission-jdbc");
+        this.verificationScheduler = Schedulers.fromExecutorService(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("presentation-verification-", 0).factory()),
+                "presentation-verification");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jdbcScheduler.dispose();
+        verificationScheduler.dispose();
+    }
+
+    /**
+     * Receives the response of the wallet to the verification request.
+     *
+     * @param managementEntityId the id of the Management
+     * @param apiVersion         API version from the SWIYU-API-Version header
+     * @param unionDto           raw response sent by the wallet (possibly encrypted or a rejection)
+     * @return the {@link VerificationPresentationResponseDto} to be sent to the wallet, or the same errors as the
+     * blocking submission
+     */
+    public Mono<VerificationPresentationResponseDto> receiveVerificationPresentation(UUID managementEntityId,
+                                                                                     VPApiVersion apiVersion,
+                                                                                     VerificationPresentationUnionDto unionDto) {
+        return onJdbc(() -> managementService.getManagementById(managementEntityId))
+                .publishOn(verificationScheduler)
+                .map(managementEntity -> resolvePresentation(managementEntity, apiVersion, unionDto))
+                .flatMap(result -> switch (result) {
+                    // Rejections only update the database
+                    case Rejection(var rejectionDto) -> onJdbc(() -> presentationVerificationUsecase
+                            .receiveVerificationPresentationClientRejection(managementEntityId, rejectionDto));
+                    case Dcql(var dcqlDto) -> receiveVerificationPresentationDCQL(managementEntityId, dcqlDto);
+                    case EncryptedDcql(var encryptedDcqlDto) ->
+                            receiveVerificationPresentationDCQL(managementEntityId, encryptedDcqlDto);
+                });
+    }
+
+    private PresentationResult resolvePresentation(Management managementEntity,
+                                                   VPApiVersion apiVersion,
+                                                   VerificationPresentationUnionDto unionDto) {
+        var decryptedUnionDto = presentationResponseResolver.decryptIfNecessary(managementEntity, unionDto);
+        if (!managementEntity.matchesOauthState(decryptedUnionDto.getState())) {
+            throw new IllegalArgumentException("OAuth2.0 State mismatch. Expected to receive the state as in Request Object");
+        }
+        return presentationResponseResolver.mapToPresentationResult(managementEntity, apiVersion, decryptedUnionDto);
+    }
+
+    /**
+     * Reactive counterpart of {@link PresentationVerificationUsecase#receiveVerificationPresentationDCQL}.
+     */
+    private Mono<VerificationPresentationResponseDto> receiveVerificationPresentationDCQL(UUID managementEntityId,
+                                                                                         VerificationPresentationDCQLRequestDto request) {
+        log.debug("Processing DCQL presentation for request_id: {}", managementEntityId);
+
+        return Mono.defer(() -> {
+            // Tells whether the callback event was already written together with the verification result
+            var callbackEventWritten = new AtomicBoolean();
+
+            // 1. Atomically claim the session: PENDING → IN_PROGRESS (TOCTOU-safe)
+            return onJdbc(() -> managementService.claimSessionForProcessing(managementEntityId))
+                    // 3b. A session which could not be claimed, e.g. as it does not exist, has its failure persisted
+                    .onErrorResume(VerificationException.class, e ->
+                            markVerificationFailed(managementEntityId, null, e, callbackEventWritten))
+                    .publishOn(verificationScheduler)
+                    .flatMap(managementEntity -> verifyClaimedSession(managementEntity, request, callbackEventWritten))
+                    // 4. Notify Business Verifier if no result could be persisted, unless another submission claimed it
+                    .onErrorResume(e -> !(e instanceof ObjectOptimisticLockingFailureException) && !callbackEventWritten.get(),
+                            e -> onJdbc(() -> {
+                                callbackEventProducer.produceEvent(managementEntityId);
+                                return e;
+                            }).flatMap(Mono::error))
+                    // 3c. Another submission is already working on this session, only report the error to the client
+                    .onErrorMap(ObjectOptimisticLockingFailureException.class, e -> {
+                        log.warn("Concurrent submission rejected for session {}", managementEntityId);
+                        return new ProcessClosedException();
+                    });
+        });
+    }
+
+    private Mono<VerificationPresentationResponseDto> verifyClaimedSession(Management managementEntity,
+                                                                          VerificationPresentationDCQLRequestDto request,
+                                                                          AtomicBoolean callbackEventWritten) {
+        // 2. Perform the potentially long‑running remote/DCQL verification outside of any DB transaction
+        return Mono.fromCallable(() -> dcqlPresentationVerificationService.process(managementEntity, request))
+                // 3a. Persist successful verification result and callback event in a dedicated short transaction
+                .flatMap(credentialSubjectData -> onJdbc(() -> {
+                    var responseDto = managementService.markVerificationSucceeded(managementEntity, credentialSubjectData);
+                    callbackEventWritten.set(true);
+                    return responseDto;
+                }))
+                // 3b. Persist failed verification result and callback event in a dedicated short transaction
+                .onErrorResume(VerificationException.class, e ->
+                        markVerificationFailed(managementEntity.getId(), managementEntity, e, callbackEventWritten));
+    }
+
+    /**
+     * Persists the failed verification together with the callback event and fails with the v1 error, like
+     * {@link PresentationVerificationUsecase#receiveVerificationPresentationDCQL} does.
+     *
+     * @param managementEntity the claimed Management, null if the session could not be claimed
+     */
+    private <T> Mono<T> markVerificationFailed(UUID managementEntityId,
+                                               Management managementEntity,
+                                               VerificationException e,
+                                               AtomicBoolean callbackEventWritten) {
+        return onJdbc(() -> {
+            if (managementEntity != null) {
+                managementService.markVerificationFailed(managementEntity, e);
+            } else {
+                managementService.markVerificationFailed(managementEntityId, e);
+            }
+            callbackEventWritten.set(true);
+            log.debug("Saved failed DCQL verification result for {}", managementEntityId);
+            return e;
+        }).then(Mono.error(() -> submissionErrorV1(e, e.getErrorResponseCode(), e.getErrorDescription())));
+    }
+
+    private <T> Mono<T> onJdbc(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(jdbcScheduler);
+    }
+}
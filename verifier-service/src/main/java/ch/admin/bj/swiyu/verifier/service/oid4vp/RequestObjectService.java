@@ -1,34 +1,44 @@
 package ch.admin.bj.swiyu.verifier.service.oid4vp;
 
 import ch.admin.bj.swiyu.verifier.common.config.ApplicationProperties;
+import ch.admin.bj.swiyu.verifier.common.config.CacheProperties;
 import ch.admin.bj.swiyu.verifier.common.exception.ProcessClosedException;
 import ch.admin.bj.swiyu.verifier.common.util.json.JsonUtil;
 import ch.admin.bj.swiyu.verifier.domain.management.Management;
 import ch.admin.bj.swiyu.verifier.domain.management.ManagementRepository;
+import ch.admin.bj.swiyu.verifier.domain.management.ResponseModeType;
+import ch.admin.bj.swiyu.verifier.domain.management.dcql.DcqlQuery;
 import ch.admin.bj.swiyu.verifier.dto.requestobject.RequestObjectDto;
+import ch.admin.bj.swiyu.verifier.dto.requestobject.VerifierInfoEntryDto;
 import ch.admin.bj.swiyu.verifier.service.JwtSigningService;
 import ch.admin.bj.swiyu.verifier.service.management.DcqlMapper;
 import ch.admin.bj.swiyu.verifier.service.management.ManagementMapper;
+import ch.admin.bj.swiyu.verifier.service.management.VerificationManagementCreatedEvent;
 import ch.admin.bj.swiyu.verifier.service.trustregistry.TrustStatementInjectionService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import tools.jackson.databind.ObjectMapper;
 
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 
 @Slf4j
 @Service
-@AllArgsConstructor
 public class RequestObjectService {
     public static final String AUDIENCE = "https://self-issued.me/v2";
     public static final String RESPONSE_TYPE = "vp_token";
 
+    private static final String CLIENT_METADATA_CLAIM = "client_metadata";
+    private static final String JWKS_CLAIM = "jwks";
+
     private final ApplicationProperties applicationProperties;
     private final ManagementRepository managementRepository;
     private final ObjectMapper objectMapper;
@@ -39,6 +49,38 @@ public class RequestObjectService {
      */
     private final Optional<TrustStatementInjectionService> trustStatementInjectionService;
 
+    /**
+     * JSON-ready claims shared by all request objects with the same {@link RequestObjectTemplateKey}
+     */
+    private final Cache<RequestObjectTemplateKey, Map<String, Object>> templateCache;
+
+    /**
+     * Executor signing the request objects of new verifications, see {@link #onVerificationManagementCreated}
+     */
+    private final Executor presignExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("request-object-presign-", 0).factory());
+
+    public RequestObjectService(ApplicationProperties applicationProperties,
+                                ManagementRepository managementRepository,
+                                ObjectMapper objectMapper,
+                                JwtSigningService jwtSigningService,
+                                MetadataService metadataService,
+                                Optional<TrustStatementInjectionService> trustStatementInjectionService,
+                                CacheProperties cacheProperties) {
+        this.applicationProperties = applicationProperties;
+        this.managementRepository = managementRepository;
+        this.objectMapper = objectMapper;
+        this.jwtSigningService = jwtSigningService;
+        this.metadataService = metadataService;
+        this.trustStatementInjectionService = trustStatementInjectionService;
+
+        var spec = cacheProperties.getRequestObjectTemplate();
+        var builder = Caffeine.newBuilder().maximumSize(spec.getMaximumSize());
+        if (spec.getExpireAfterWrite() != null) {
+            builder.expireAfterWrite(spec.getExpireAfterWrite());
+        }
+        this.templateCache = builder.build();
+    }
 
     /**
      * Aggregated view of the effective configuration for a single request object.
@@ -47,16 +89,31 @@ public class RequestObjectService {
     private record EffectiveRequestObjectConfig(String externalUrl, String clientId, String verificationMethod) {
     }
 
+    /**
+     * Everything the claims of a request object depend on, except for the values unique to a single verification
+     * (nonce, state, response_uri, the ephemeral encryption keys and the times).
+     */
+    protected record RequestObjectTemplateKey(String clientId,
+                                              Map<String, String> clientMetadataOverrides,
+                                              ResponseModeType responseModeType,
+                                              List<String> encryptedResponseEncValuesSupported,
+                                              DcqlQuery dcqlQuery,
+                                              List<VerifierInfoEntryDto> verifierInfo,
+                                              String scope) {
+    }
+
     /**
      * Main entry point: build a JWT-Secured Authorization Request (JAR)
      * request object for the given management id
      * <p>
      * 1. Load and validate the Management entity (domain rules).
-     * 2. Resolve the effective configuration (defaults + overrides).
-     * 3. Build the request object DTO.
-     * 4. Sign the request object
+     * 2. Return the pre-signed request object if it is still valid long enough.
+     * 3. Resolve the effective configuration (defaults + overrides).
+     * 4. Build the request object claims from the cached template.
+     * 5. Sign the request object and, if pre-signing is enabled, store it for the following fetches
+     * <p>
+     * Intentionally not transactional, so no database connection is held while the request object is signed.
      */
-    @Transactional(readOnly = true)
     public String assembleRequestObject(UUID managementEntityId) {
 
         log.debug("Prepare request object for mgmt-id {}", managementEntityId);
@@ -64,69 +121,140 @@ public class RequestObjectService {
         log.trace("Load and validate the Management entity (domain rules)");
         Management managementEntity = loadAndValidateManagementEntity(managementEntityId);
 
+        if (applicationProperties.isPresignRequestObjects()) {
+            var presigned = managementEntity.getSignedRequestObjectValidFor(minRemainingValidityMillis());
+            if (presigned.isPresent()) {
+                log.trace("Return the pre-signed request object");
+                return presigned.get();
+            }
+        }
+
+        return signAndStoreRequestObject(managementEntity);
+    }
+
+    /**
+     * Signs the request object of a new JWT secured verification in the background, when
+     * {@code application.presign-request-objects} is enabled. If signing fails the request object is signed when
+     * the wallet fetches it.
+     */
+    @EventListener
+    public void onVerificationManagementCreated(VerificationManagementCreatedEvent event) {
+        if (!applicationProperties.isPresignRequestObjects() || !event.jwtSecuredAuthorizationRequest()) {
+            return;
+        }
+        presignExecutor.execute(() -> {
+            try {
+                signAndStoreRequestObject(loadAndValidateManagementEntity(event.managementId()));
+                log.debug("Pre-signed request object for mgmt-id {}", event.managementId());
+            } catch (RuntimeException e) {
+                log.warn("Failed to pre-sign request object for mgmt-id {}, it is signed when fetched: {}",
+                        event.managementId(), e.getMessage());
+            }
+        });
+    }
+
+    private String signAndStoreRequestObject(Management managementEntity) {
         log.trace("Resolve the effective configuration (defaults + overrides).");
         var effectiveConfig = resolveEffectiveConfig(managementEntity);
 
-        log.trace("Build the request object DTO (incl. optional TP2.0 verifier_info injection).");
-        var requestObject = buildRequestObject(managementEntity, effectiveConfig);
+        log.trace("Build the request object claims (incl. optional TP2.0 verifier_info injection).");
+        var claims = createJWTClaimsSet(getTemplate(managementEntity, effectiveConfig), managementEntity, effectiveConfig);
 
         log.trace("Sign and return the JWT string");
-        return signRequestObject(requestObject, managementEntity, effectiveConfig);
+        var signedRequestObject = signRequestObject(claims, managementEntity, effectiveConfig);
+
+        if (applicationProperties.isPresignRequestObjects()) {
+            managementRepository.storeSignedRequestObject(managementEntity.getId(), signedRequestObject,
+                    claims.getExpirationTime().getTime());
+        }
+        return signedRequestObject;
     }
 
     /**
-     * Build the {@link RequestObjectDto} for the given management entity.
-     * <p>
-     * This method is responsible for mapping domain data (presentation definition,
-     * DCQL query, response specification, etc.) into the wire-level request object.
+     * A stored request object is only handed out while at least half of its lifetime is left, so the wallet has
+     * enough time to process it. Afterwards it is signed again.
      */
-    private RequestObjectDto buildRequestObject(Management managementEntity,
-                                                EffectiveRequestObjectConfig effectiveConfig) {
-        var dcqlQuery = managementEntity.getDcqlQuery();
+    private long minRemainingValidityMillis() {
+        return applicationProperties.getRequestObjectTTLSeconds() * 1000L / 2;
+    }
 
+    /**
+     * Returns the claims of the request object which are the same for all verifications sharing the same
+     * configuration, response mode, DCQL query and verifier_info.
+     * <p>
+     * The verifier_info is resolved for every request object, as the trust statements are verified on injection.
+     */
+    private Map<String, Object> getTemplate(Management managementEntity, EffectiveRequestObjectConfig effectiveConfig) {
         var responseSpecification = managementEntity.getResponseSpecification();
-        var clientMetadata = metadataService.getOpenidClientMetadataForManagementEntity(managementEntity, responseSpecification);
 
-        var baseRequestObject = RequestObjectDto.builder()
+        // Optional TP2.0 enrichment: when the trust-registry integration is enabled, inject the
+        // verifier_info array (idTS + pvaTS). The clientId already resolved in effectiveConfig
+        // doubles as the verifier DID looked up in the trust registry.
+        var trustInfo = trustStatementInjectionService
+                .map(svc -> svc.injectVerifierInfo(new RequestObjectDto(), effectiveConfig.clientId(), managementEntity))
+                .orElseGet(RequestObjectDto::new);
+
+        var key = new RequestObjectTemplateKey(
+                effectiveConfig.clientId(),
+                managementEntity.getConfigurationOverride().clientMetadata(),
+                responseSpecification.getResponseModeType(),
+                responseSpecification.getEncryptedResponseEncValuesSupported(),
+                managementEntity.getDcqlQuery(),
+                trustInfo.getVerifierInfo(),
+                trustInfo.getScope());
+        return templateCache.get(key, k -> buildTemplate(k, managementEntity));
+    }
+
+    /**
+     * Build the template claims for the given key.
+     * <p>
+     * This method is responsible for mapping domain data (DCQL query, response specification,
+     * client metadata etc.) into the wire-level request object. The ephemeral encryption keys of the
+     * verification are left out of the client metadata, they are added by {@link #createJWTClaimsSet}.
+     */
+    private Map<String, Object> buildTemplate(RequestObjectTemplateKey key, Management managementEntity) {
+        var clientMetadata = metadataService.getOpenidClientMetadataForManagementEntity(
+                managementEntity, managementEntity.getResponseSpecification());
+        clientMetadata.setJwks(null);
+
+        var template = RequestObjectDto.builder()
                 .audience(AUDIENCE)
-                .nonce(managementEntity.getRequestNonce())
-                .dcqlQuery(DcqlMapper.toDcqlQueryDto(dcqlQuery))
-                .clientId(effectiveConfig.clientId())
+                // Per OID4VP spec: when a vqPS is present, the Authorization Request MUST use
+                // the scope parameter instead of dcql_query (they are mutually exclusive).
+                .dcqlQuery(key.scope() == null ? DcqlMapper.toDcqlQueryDto(key.dcqlQuery()) : null)
+                .scope(key.scope())
+                .clientId(key.clientId())
                 .clientMetadata(clientMetadata)
-
                 .responseType(RESPONSE_TYPE)
-                .responseMode(ManagementMapper.toResponseModeDto(responseSpecification.getResponseModeType()))
-                .responseUri(String.format("%s/oid4vp/api/request-object/%s/response-data",
-                        effectiveConfig.externalUrl(),
-                        managementEntity.getId()))
-                .state(managementEntity.getOauthState())
-                .encryptedResponseEncValuesSupported(responseSpecification.getEncryptedResponseEncValuesSupported())
+                .responseMode(ManagementMapper.toResponseModeDto(key.responseModeType()))
+                .encryptedResponseEncValuesSupported(key.encryptedResponseEncValuesSupported())
+                .verifierInfo(key.verifierInfo())
                 .build();
 
-        // Optional TP2.0 enrichment: when the trust-registry integration is enabled, inject the
-        // verifier_info array (idTS + pvaTS). The clientId already resolved in effectiveConfig
-        // doubles as the verifier DID looked up in the trust registry.
-        return trustStatementInjectionService
-                .map(svc -> svc.injectVerifierInfo(baseRequestObject, effectiveConfig.clientId(), managementEntity))
-                .orElse(baseRequestObject);
+        // Get all properties of the request object as a JSON-ready map
+        Map<String, Object> requestObjectProperties = new LinkedHashMap<>(
+                JsonUtil.getJsonObject(objectMapper.convertValue(template, Map.class)));
+        // filter out null values
+        requestObjectProperties.values().removeIf(Objects::isNull);
+        return Collections.unmodifiableMap(requestObjectProperties);
     }
 
     /**
-     * Sign the given request object and return the serialized JWT.
+     * Sign the given request object claims and return the serialized JWT.
      * <p>
      * This includes:
      * - resolving the correct signer (override vs. default),
      * - validating that a signer is actually available,
-     * - building the JWS header and JWT claims,
+     * - building the JWS header,
      * - performing the cryptographic signing and returning the compact serialization.
      */
-    private String signRequestObject(RequestObjectDto requestObject,
+    private String signRequestObject(JWTClaimsSet claims,
                                      Management managementEntity,
                                      EffectiveRequestObjectConfig effectiveConfig) {
         var override = managementEntity.getConfigurationOverride();
 
         try {
-            SignedJWT signedJwt = jwtSigningService.signJwt(createJWTClaimsSet(effectiveConfig.clientId(), requestObject),
+            SignedJWT signedJwt = jwtSigningService.signJwt(claims,
                     override.keyId(), override.keyPin(), effectiveConfig.verificationMethod());
             return signedJwt.serialize();
         } catch (Exception e) {
@@ -169,25 +297,41 @@ public class RequestObjectService {
     }
 
     /**
-     * Create a {@link JWTClaimsSet} from the request object by converting the DTO
-     * to a Map and copying all non-null properties as JWT claims.
+     * Create the {@link JWTClaimsSet} of a single request object by copying the template claims and adding the
+     * values unique to the verification.
      */
-    private JWTClaimsSet createJWTClaimsSet(String issuer, RequestObjectDto requestObject) {
+    private JWTClaimsSet createJWTClaimsSet(Map<String, Object> template,
+                                            Management managementEntity,
+                                            EffectiveRequestObjectConfig effectiveConfig) {
         JWTClaimsSet.Builder builder = new JWTClaimsSet.Builder();
-        builder.issuer(issuer);
+        builder.issuer(effectiveConfig.clientId());
         builder.issueTime(Date.from(Instant.now()));
         builder.expirationTime(Date.from(Instant.now().plusSeconds(applicationProperties.getRequestObjectTTLSeconds())));
+        template.forEach(builder::claim);
 
-        // Get all properties of the request object as a JSON-ready map
-        Map<String, Object> requestObjectProperties = JsonUtil.getJsonObject(objectMapper.convertValue(requestObject, Map.class));
-        requestObjectProperties.keySet().stream()
-                // filter out null values
-                .filter(key -> requestObjectProperties.get(key) != null)
-                // add all non-null values to the JWT
-                .forEach(key -> builder.claim(key, requestObjectProperties.get(key)));
+        claimIfPresent(builder, "nonce", managementEntity.getRequestNonce());
+        claimIfPresent(builder, "state", managementEntity.getOauthState());
+        builder.claim("response_uri", String.format("%s/oid4vp/api/request-object/%s/response-data",
+                effectiveConfig.externalUrl(),
+                managementEntity.getId()));
+
+        var responseSpecification = managementEntity.getResponseSpecification();
+        if (ResponseModeType.DIRECT_POST_JWT.equals(responseSpecification.getResponseModeType())
+                && responseSpecification.getJwks() != null
+                && template.get(CLIENT_METADATA_CLAIM) instanceof Map<?, ?> clientMetadata) {
+            Map<String, Object> patchedClientMetadata = new LinkedHashMap<>(JsonUtil.getJsonObject(clientMetadata));
+            patchedClientMetadata.put(JWKS_CLAIM, objectMapper.convertValue(
+                    ManagementMapper.toJWKSetDto(responseSpecification.getJwks()), Map.class));
+            builder.claim(CLIENT_METADATA_CLAIM, patchedClientMetadata);
+        }
 
         return builder.build();
     }
 
-}
+    private static void claimIfPresent(JWTClaimsSet.Builder builder, String name, Object value) {
+        if (value != null) {
+            builder.claim(name, value);
+        }
+    }
 
+}
@@ -0,0 +1,176 @@
+package ch.admin.bj.swiyu.verifier.service.oid4vp;
+
+import ch.admin.bj.swiyu.verifier.domain.SdJwt;
+import com.authlete.sd.Disclosure;
+import com.nimbusds.jwt.util.DateUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static ch.admin.bj.swiyu.verifier.common.exception.VerificationErrorResponseCode.MALFORMED_CREDENTIAL;
+import static ch.admin.bj.swiyu.verifier.common.exception.VerificationException.credentialError;
+
+/**
+ * Replaces the embedded digests of an Issuer-signed JWT payload with the values of the matching disclosures
+ * (<a href="https://www.rfc-editor.org/rfc/rfc9901.html#section-7.1">RFC 9901 7.1 step 3 & 4</a>).
+ * <p>
+ * Works in one recursive pass directly on the maps and lists of the parsed JWT. Objects and arrays which do not
+ * contain any digests are returned as they are instead of being copied. A resolver keeps track of the used digests,
+ * so a new instance has to be used for every SD-JWT.
+ */
+final class SdJwtDisclosureResolver {
+
+    private static final String SD_CLAIM = "_sd";
+    private static final String ARRAY_ELEMENT_DIGEST = "...";
+
+    private final Map<String, Disclosure> digestToDisclosure;
+    private final Set<String> usedDigests;
+
+    /**
+     * @param digestToDisclosure all disclosures presented with the SD-JWT by their digest, see {@link SdJwt#getDisclosuresByDigest()}
+     */
+    SdJwtDisclosureResolver(Map<String, Disclosure> digestToDisclosure) {
+        this.digestToDisclosure = digestToDisclosure;
+        this.usedDigests = HashSet.newHashSet(digestToDisclosure.size());
+    }
+
+    /**
+     * Resolves all disclosures embedded in the payload. Registered time claims are kept as NumericDate, the way they
+     * were issued.
+     *
+     * @param claims the claims of the Issuer-signed JWT
+     * @return new map with the processed payload, without any '_sd' keys
+     */
+    Map<String, Object> resolvePayload(Map<String, Object> claims) {
+        var payload = resolveObject(claims);
+        Map<String, Object> processed = LinkedHashMap.newLinkedHashMap(payload.size());
+        payload.forEach((name, value) -> processed.put(name, value instanceof Date date ? DateUtils.toSecondsSinceEpoch(date) : value));
+        return processed;
+    }
+
+    /**
+     * @return true if every presented disclosure is referenced by a digest in the payload
+     */
+    boolean allDisclosuresUsed() {
+        return usedDigests.size() == digestToDisclosure.size();
+    }
+
+    private Object resolveValue(Object value) {
+        if (value instanceof Map<?, ?> object) {
+            return resolveObject(object);
+        }
+        if (value instanceof List<?> array) {
+            return resolveArray(array);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> resolveObject(Map<?, ?> object) {
+        if (!object.containsKey(SD_CLAIM)) {
+            Map<String, Object> copy = null;
+            for (var entry : object.entrySet()) {
+                var value = entry.getValue();
+                var resolved = resolveValue(value);
+                if (resolved != value && copy == null) {
+                    copy = new LinkedHashMap<>((Map<String, Object>) object);
+                }
+                if (copy != null) {
+                    copy.put((String) entry.getKey(), resolved);
+                }
+            }
+            return copy != null ? copy : (Map<String, Object>) object;
+        }
+
+        if (!(object.get(SD_CLAIM) instanceof List<?> digests)) {
+            throw credentialError(MALFORMED_CREDENTIAL, "'_sd' claim must be a JSON array");
+        }
+
+        Map<String, Object> resolved = LinkedHashMap.newLinkedHashMap(object.size() + digests.size());
+        for (var entry : object.entrySet()) {
+            if (!SD_CLAIM.equals(entry.getKey())) {
+                resolved.put((String) entry.getKey(), resolveValue(entry.getValue()));
+            }
+        }
+
+        for (Object digest : digests) {
+            var disclosure = findDisclosure(digest);
+            if (disclosure == null) {
+                // decoy digest or claim not disclosed by the holder
+                continue;
+            }
+            var claimName = disclosure.getClaimName();
+
+            // 3.2.1 If the contents of the respective Disclosure is not a JSON array of three elements (salt, claim name, claim value), the SD-JWT MUST be rejected.
+            if (claimName == null || disclosure.getClaimValue() == null || disclosure.getSalt() == null) {
+                throw credentialError(MALFORMED_CREDENTIAL, "Illegal disclosure found");
+            }
+
+            // 3.2. If the claim name is _sd or ..., the SD-JWT MUST be rejected.
+            if (claimName.equals(SD_CLAIM) || claimName.equals(ARRAY_ELEMENT_DIGEST)) {
+                throw credentialError(MALFORMED_CREDENTIAL, "Illegal disclosure found with name _sd or ...");
+            }
+
+            // 3.3.  If the claim name already exists at the level of the _sd key, the SD-JWT MUST be rejected
+            if (resolved.containsKey(claimName)) {
+                throw credentialError(MALFORMED_CREDENTIAL, "Claim name already exists at the level of the _sd key");
+            }
+
+            resolved.put(claimName, resolveValue(disclosure.getClaimValue()));
+        }
+        return resolved;
+    }
+
+    private List<?> resolveArray(List<?> array) {
+        List<Object> copy = null;
+        for (int i = 0; i < array.size(); i++) {
+            var element = array.get(i);
+            Object resolved;
+            if (element instanceof Map<?, ?> object && object.containsKey(ARRAY_ELEMENT_DIGEST)) {
+                var digest = object.get(ARRAY_ELEMENT_DIGEST);
+                var disclosure = findDisclosure(digest);
+                if (disclosure == null) {
+                    // if value is not requested, add digest to array otherwise index access won't work
+                    resolved = digest;
+                } else {
+                    if (disclosure.getClaimName() != null || disclosure.getClaimValue() == null || disclosure.getSalt() == null) {
+                        throw credentialError(MALFORMED_CREDENTIAL, "Illegal non-array disclosure found");
+                    }
+                    resolved = resolveValue(disclosure.getClaimValue());
+                }
+            } else {
+                resolved = resolveValue(element);
+            }
+
+            if (resolved != element && copy == null) {
+                copy = new ArrayList<>(array.size());
+                copy.addAll(array.subList(0, i));
+            }
+            if (copy != null) {
+                copy.add(resolved);
+            }
+        }
+        return copy != null ? copy : array;
+    }
+
+    /**
+     * @return the disclosure for the digest, or null if none was presented for it
+     * @throws ch.admin.bj.swiyu.verifier.common.exception.VerificationException if the digest was already used
+     */
+    private Disclosure findDisclosure(Object digest) {
+        if (!(digest instanceof String digestValue)) {
+            return null;
+        }
+        var disclosure = digestToDisclosure.get(digestValue);
+        // 4. If any digest value is encountered more than once in the Issuer-signed JWT payload, the SD-JWT MUST be rejected.
+        if (disclosure != null && !usedDigests.add(digestValue)) {
+            throw credentialError(MALFORMED_CREDENTIAL, "Duplicate digest detected");
+        }
+        return disclosure;
+    }
+}
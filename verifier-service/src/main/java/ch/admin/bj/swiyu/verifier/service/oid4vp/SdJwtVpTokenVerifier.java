@@ -1,16 +1,12 @@
 package ch.admin.bj.swiyu.verifier.service.oid4vp;
 
-import ch.admin.bj.swiyu.jwtutil.JwtUtil;
 import ch.admin.bj.swiyu.jwtutil.JwtUtilException;
 import ch.admin.bj.swiyu.jwtvalidator.DidJwtValidator;
 import ch.admin.bj.swiyu.jwtvalidator.DidKidParser;
 import ch.admin.bj.swiyu.jwtvalidator.JwtValidatorException;
 import ch.admin.bj.swiyu.statuslist.TokenStatusListBit;
-import ch.admin.bj.swiyu.statuslist.TokenStatusListVerifier;
-import ch.admin.bj.swiyu.statuslist.dto.StatusVerificationResultDto;
 import ch.admin.bj.swiyu.statuslist.dto.TokenStatusListMapper;
 import ch.admin.bj.swiyu.statuslist.dto.TokenStatusListReferenceDto;
-import ch.admin.bj.swiyu.statuslist.dto.TokenStatusListTokenDto;
 import ch.admin.bj.swiyu.verifier.common.config.ApplicationProperties;
 import ch.admin.bj.swiyu.verifier.common.config.VerificationProperties;
 import ch.admin.bj.swiyu.verifier.common.exception.VerificationErrorResponseCode;
@@ -23,14 +19,14 @@ import ch.admin.bj.swiyu.verifier.service.publickey.DidResolverFacade;
 import ch.admin.bj.swiyu.verifier.domain.management.dcql.DcqlCredential;
 import ch.admin.bj.swiyu.verifier.service.statuslist.StatusListCacheService;
 import ch.admin.bj.swiyu.verifier.service.statuslist.StatusListMaxSizeExceededException;
+import ch.admin.bj.swiyu.verifier.service.statuslist.StatusListStatusVerifier;
+import ch.admin.bj.swiyu.verifier.service.statuslist.ValidatedStatusList;
 
 import com.authlete.sd.Disclosure;
-import tools.jackson.core.type.TypeReference;
-import tools.jackson.databind.JsonNode;
-import tools.jackson.databind.ObjectMapper;
-import tools.jackson.databind.node.ArrayNode;
-import tools.jackson.databind.node.ObjectNode;
+import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.jwk.ECKey;
 import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
@@ -43,11 +39,9 @@ import org.jetbrains.annotations.NotNull;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
-import java.io.IOException;
 import java.text.ParseException;
 import java.time.Instant;
 import java.util.*;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static ch.admin.bj.swiyu.verifier.common.exception.VerificationErrorResponseCode.*;
@@ -76,10 +70,9 @@ public class SdJwtVpTokenVerifier {
     private final DidResolverFacade didResolver;
     private final DidJwtValidator jwtValidator;
     private final StatusListCacheService statusListCacheService;
+    private final StatusListStatusVerifier statusListStatusVerifier;
     private final ApplicationProperties applicationProperties;
     private final VerificationProperties verificationProperties;
-    private final TokenStatusListVerifier statusListVerifier;
-    private final ObjectMapper objectMapper = new ObjectMapper();
     @Deprecated(since = "Trust Protocol 2.0")
     private final DidKidParser didKidParser = new DidKidParser();
 
@@ -112,7 +105,7 @@ public class SdJwtVpTokenVerifier {
      */
     protected void verifyVerifiableCredentialJWT(SdJwt sdJwt, Management managementEntity) {
         try {
-            SignedJWT nimbusJwt = SignedJWT.parse(sdJwt.getJwt());
+            SignedJWT nimbusJwt = sdJwt.getSignedJwt();
             var header = nimbusJwt.getHeader();
             validateHeader(header);
             var claims = nimbusJwt.getJWTClaimsSet();
@@ -150,13 +143,11 @@ public class SdJwtVpTokenVerifier {
             throw credentialError(MALFORMED_CREDENTIAL, "Can not resolve disclosures. Existing Claim would be overridden.");
         }
 
-        JsonNode resolvedClaims = processDisclosures(sdJwt.getClaims(), disclosures, managementEntity.getId());
-
-        var prepared = objectMapper.convertValue(resolvedClaims, new TypeReference<Map<String, Object>>(){});
+        var resolvedClaims = processDisclosures(sdJwt.getClaims(), sdJwt.getDisclosuresByDigest(), managementEntity.getId());
 
         log.trace("Successfully verified disclosure digests of id {}", managementEntity.getId());
 
-        sdJwt.setResolvedClaims(prepared);
+        sdJwt.setResolvedClaims(resolvedClaims);
     }
 
     /**
@@ -188,30 +179,40 @@ public class SdJwtVpTokenVerifier {
         }
     }
 
+    /**
+     * Checks the status of the credential in its referenced Token Status List. The status list is served from the
+     * cache with its status values already decoded, so the check itself is an array read.
+     *
+     * @param vcClaims claims of the issuer-signed JWT
+     * @param header   header of the issuer-signed JWT
+     */
     protected void verifyStatus(Map<String, Object> vcClaims, JWSHeader header) {
         TokenStatusListReferenceDto reference = TokenStatusListMapper.toTokenStatusListReference(vcClaims, header);
         if (reference.getStatus() == null) {
             // no Status Reference -> VC has no Status
             return;
         }
+        int index = StatusListStatusVerifier.getStatusListIndex(vcClaims).orElseThrow(() ->
+                credentialError(MALFORMED_CREDENTIAL, "Status list reference of the credential is malformed"));
         try {
-            TokenStatusListTokenDto statusList = statusListCacheService.getTokenStatusListTokenByUri(reference.getReferencedStatusListUri());
+            ValidatedStatusList statusList = statusListCacheService.getValidatedStatusListByUri(reference.getReferencedStatusListUri());
             if(statusList == null) {
                 throw credentialError(UNRESOLVABLE_STATUS_LIST, "Status List not found or malformed");
             }
-            StatusVerificationResultDto statusListState = statusListVerifier.verifyStatus(reference, statusList);
             // TODO EIDOMNI-1090 - Pass through state to business component, removing the if else logic below
-            if(statusListState.status().filter(s -> s > TokenStatusListBit.REVOKED.getBitNumber()).isPresent()) {
+            OptionalInt status = statusListStatusVerifier.verifyStatus(vcClaims.get("iss"),
+                    reference.getReferencedStatusListUri(), index, statusList);
+            if (status.isEmpty()) {
+                // Something wrong with the status list
+                throw credentialError(CREDENTIAL_REVOKED, "Credential is not valid");
+            }
+            if (status.getAsInt() > TokenStatusListBit.REVOKED.getBitNumber()) {
                 // Suspended or Custom State
                 throw credentialError(CREDENTIAL_SUSPENDED, "Credential is suspended");
-            } else if (!statusListState.valid()) {
-                // Something wrong with the status list or revoked
+            } else if (status.getAsInt() == TokenStatusListBit.REVOKED.getBitNumber()) {
                 throw credentialError(CREDENTIAL_REVOKED, "Credential is not valid");
             }
-        } catch (
-            IndexOutOfBoundsException | 
-            IOException |
-            JwtValidatorException e) {
+        } catch (IndexOutOfBoundsException | JwtValidatorException e) {
             throw credentialError(e, UNRESOLVABLE_STATUS_LIST, "Status List Token malformed");
         } catch (StatusListMaxSizeExceededException e) {
             throw credentialError(e, UNRESOLVABLE_STATUS_LIST, "Status list size from %s exceeds maximum allowed size".formatted(reference.getReferencedStatusListUri()));
@@ -230,7 +231,7 @@ public class SdJwtVpTokenVerifier {
     void validateKeyBinding(SdJwt sdJwt, Management management) {
         JWK keyBinding = getHolderKeyBinding(sdJwt.getClaims().getClaims());
         // Validate Holder Binding Proof JWT
-        JWTClaimsSet keyBindingClaims = getValidatedHolderKeyProof(sdJwt.getKeyBinding().orElseThrow(), keyBinding,
+        JWTClaimsSet keyBindingClaims = getValidatedHolderKeyProof(sdJwt, keyBinding,
                 Optional.ofNullable(management.getConfigurationOverride())
                         .orElse(new ConfigurationOverride(null, null, null, null, null, null)));
         validateNonce(keyBindingClaims, management.getRequestNonce());
@@ -267,19 +268,15 @@ public class SdJwtVpTokenVerifier {
     }
 
     @NotNull
-    private JWTClaimsSet getValidatedHolderKeyProof(String keyBindingProof, JWK keyBinding, ConfigurationOverride configurationOverride) {
+    private JWTClaimsSet getValidatedHolderKeyProof(SdJwt sdJwt, JWK keyBinding, ConfigurationOverride configurationOverride) {
         JWTClaimsSet keyBindingClaims;
         try {
-            SignedJWT keyBindingJWT = SignedJWT.parse(keyBindingProof);
+            SignedJWT keyBindingJWT = sdJwt.getKeyBindingJwt().orElseThrow();
 
             validateKeyBindingHeader(keyBindingJWT.getHeader());
-            try {
-                JwtUtil.verifyJwt(keyBindingProof, keyBinding);
-            } catch (JwtUtilException e) {
-                throw credentialError(HOLDER_BINDING_MISMATCH, "Holder Binding provided does not match the one in the credential");
-            }
-            validateKeyBindingClaims(keyBindingJWT);
+            verifyKeyBindingSignature(keyBindingJWT, keyBinding);
             keyBindingClaims = keyBindingJWT.getJWTClaimsSet();
+            validateKeyBindingClaims(keyBindingClaims);
             validateHolderBindingAudience(keyBindingClaims.getAudience(), configurationOverride);
         } catch (ParseException e) {
             throw credentialError(e, HOLDER_BINDING_MISMATCH, "Holder Binding could not be parsed");
@@ -341,13 +338,27 @@ public class SdJwtVpTokenVerifier {
         }
     }
 
+    /**
+     * Verifies the signature of the already parsed key binding jwt with the holder's key from the cnf claim
+     */
+    private void verifyKeyBindingSignature(SignedJWT keyBindingJWT, JWK keyBinding) {
+        try {
+            // Algorithm has been restricted to ES256 by the header validation
+            if (!(keyBinding instanceof ECKey holderKey) || !keyBindingJWT.verify(new ECDSAVerifier(holderKey))) {
+                throw credentialError(HOLDER_BINDING_MISMATCH, "Holder Binding provided does not match the one in the credential");
+            }
+        } catch (JOSEException e) {
+            throw credentialError(e, HOLDER_BINDING_MISMATCH, "Holder Binding provided does not match the one in the credential");
+        }
+    }
+
     /**
      * Check if the jwt has been issued in an acceptable time window
      */
-    private void validateKeyBindingClaims(SignedJWT keyBindingJWT) throws BadJWTException, ParseException {
+    private void validateKeyBindingClaims(JWTClaimsSet keyBindingClaims) throws BadJWTException {
         // See https://connect2id.com/products/nimbus-jose-jwt/examples/validating-jwt-access-tokens#framework
-        new DefaultJWTClaimsVerifier<>(null, Set.of("iat")).verify(keyBindingJWT.getJWTClaimsSet(), null);
-        var proofIssueTime = keyBindingJWT.getJWTClaimsSet().getIssueTime().toInstant();
+        new DefaultJWTClaimsVerifier<>(null, Set.of("iat")).verify(keyBindingClaims, null);
+        var proofIssueTime = keyBindingClaims.getIssueTime().toInstant();
         var now = Instant.now();
         // iat not within acceptable proof time window
         if (proofIssueTime.isBefore(now.minusSeconds(verificationProperties.getAcceptableProofTimeWindowSeconds()))
@@ -392,44 +403,38 @@ public class SdJwtVpTokenVerifier {
 
     /**
      * Process the Disclosures and embedded digests in the Issuer-signed JWT
+     *
+     * @return the processed payload with all disclosed claims resolved
      */
-    protected JsonNode processDisclosures(JWTClaimsSet claimSet, List<Disclosure> disclosures, UUID managementEntityId) {
-
-        var claims = objectMapper.convertValue(claimSet.getClaims(), JsonNode.class);
-
+    protected Map<String, Object> processDisclosures(JWTClaimsSet claimSet, List<Disclosure> disclosures, UUID managementEntityId) {
         // 3.1 - For each Disclosure provided Calculate the digest over the base64url-encoded string
         // Reject immediately if the same disclosure appears more than once (identical digest)
-        Map<String, Disclosure> digestToDisclosure = disclosures.stream().collect(
-                Collectors.toMap(
-                        Disclosure::digest,
-                        Function.identity(),
-                        (existing, duplicate) -> {
-                            throw credentialError(MALFORMED_CREDENTIAL, "Request contains non-distinct disclosures");
-                        }
-                ));
+        return processDisclosures(claimSet, SdJwt.indexByDigest(disclosures), managementEntityId);
+    }
 
-        log.trace("Prepared {} disclosure digests for id {}", disclosures.size(), managementEntityId);
+    /**
+     * Process the Disclosures and embedded digests in the Issuer-signed JWT
+     *
+     * @param digestToDisclosure the presented disclosures by their digest
+     * @return the processed payload with all disclosed claims resolved
+     */
+    protected Map<String, Object> processDisclosures(JWTClaimsSet claimSet, Map<String, Disclosure> digestToDisclosure, UUID managementEntityId) {
 
-        List<String> usedDigests = new LinkedList<>();
+        var resolver = new SdJwtDisclosureResolver(digestToDisclosure);
 
-        JsonNode processed = processNode(claims, digestToDisclosure, usedDigests);
+        log.trace("Prepared {} disclosure digests for id {}", digestToDisclosure.size(), managementEntityId);
 
-        // 3.5 Remove _sd keys
-        removeSdKeys(processed);
+        // 3.2 - 3.5 Replace embedded digests and remove _sd keys, 4. duplicate digests are rejected while resolving
+        var processed = resolver.resolvePayload(claimSet.getClaims());
 
         // 3.6 Check if correct _sd_alg-value Remove _sd_alg
-        if (processed.hasNonNull(SDJWT_ALG_CLAIM) && !SUPPORTED_SDJWT_ALGORITHMS.contains(processed.get(SDJWT_ALG_CLAIM).asString())) {
-            throw credentialError(INVALID_FORMAT, "Unsupported _sd_alg value: %s".formatted(processed.get(SDJWT_ALG_CLAIM).asString()));
-        }
-        ((ObjectNode) processed).remove(SDJWT_ALG_CLAIM);
-
-        // 4. Check duplicate digests
-        if (usedDigests.size() != new HashSet<>(usedDigests).size()) {
-            throw credentialError(MALFORMED_CREDENTIAL, "Duplicate digest detected");
+        var sdAlg = processed.remove(SDJWT_ALG_CLAIM);
+        if (sdAlg != null && !SUPPORTED_SDJWT_ALGORITHMS.contains(sdAlg)) {
+            throw credentialError(INVALID_FORMAT, "Unsupported _sd_alg value: %s".formatted(sdAlg));
         }
 
         // 5. Ensure all disclosures used
-        if (usedDigests.size() != disclosures.size()) {
+        if (!resolver.allDisclosuresUsed()) {
             throw credentialError(MALFORMED_CREDENTIAL, "Unused disclosures detected");
         }
 
@@ -438,136 +443,4 @@ public class SdJwtVpTokenVerifier {
 
         return processed;
     }
-
-    private JsonNode processNode(JsonNode node,
-                                 Map<String, Disclosure> digestMap,
-                                 List<String> usedDigests) {
-        if (node.isObject()) {
-            return processObjectNode((ObjectNode) node, digestMap, usedDigests);
-        }
-
-        if (node.isArray()) {
-            return processArrayNode((ArrayNode) node, digestMap, usedDigests);
-        }
-
-        return node;
-    }
-
-    private JsonNode processObjectNode(ObjectNode object,
-                                       Map<String, Disclosure> digestMap,
-                                       List<String> usedDigests) {
-        // if no _sd key present, just recurse into fields
-        if (!object.has("_sd")) {
-            Iterator<String> fields = object.propertyNames().iterator();
-            List<String> names = new ArrayList<>();
-            fields.forEachRemaining(names::add);
-            for (String name : names) {
-                object.set(name, processNode(object.get(name), digestMap, usedDigests));
-            }
-            return object;
-        }
-
-        // object has _sd -> process disclosures first
-        JsonNode sdNode = object.get("_sd");
-        if (!(sdNode instanceof ArrayNode sdArray)) {
-            throw credentialError(MALFORMED_CREDENTIAL, "'_sd' claim must be a JSON array");
-        }
-
-        // snapshot original fields to avoid processing newly added fields
-        List<String> originalFields = new ArrayList<>();
-        object.propertyNames().iterator().forEachRemaining(originalFields::add);
-
-        handleSdArray(object, sdArray, digestMap, usedDigests);
-
-        // iterate only the original fields (skip _sd) and recurse
-        for (String field : originalFields) {
-            if ("_sd".equals(field)) continue;
-            object.set(field, processNode(object.get(field), digestMap, usedDigests));
-        }
-
-        return object;
-    }
-
-    private void handleSdArray(ObjectNode object,
-                               ArrayNode sdArray,
-                               Map<String, Disclosure> digestMap,
-                               List<String> usedDigests) {
-        for (JsonNode digestNode : sdArray) {
-            String digest = digestNode.asString();
-
-            if (!digestMap.containsKey(digest)) continue;
-
-            usedDigests.add(digest);
-            var disclosure = digestMap.get(digest);
-            var claimName = disclosure.getClaimName();
-
-            // 3.2.1 If the contents of the respective Disclosure is not a JSON array of three elements (salt, claim name, claim value), the SD-JWT MUST be rejected.
-            if (claimName == null || disclosure.getClaimValue() == null || disclosure.getSalt() == null) {
-                throw credentialError(MALFORMED_CREDENTIAL, "Illegal disclosure found");
-            }
-
-            // 3.2. If the claim name is _sd or ..., the SD-JWT MUST be rejected.
-            if (claimName.equals("_sd") || claimName.equals("...")) {
-                throw credentialError(MALFORMED_CREDENTIAL, "Illegal disclosure found with name _sd or ...");
-            }
-
-            // 3.3.  If the claim name already exists at the level of the _sd key, the SD-JWT MUST be rejected
-            if (object.has(claimName)) {
-                throw credentialError(MALFORMED_CREDENTIAL, "Claim name already exists at the level of the _sd key");
-            }
-
-            var claimValue = objectMapper.convertValue(disclosure.getClaimValue(), JsonNode.class);
-            object.set(claimName, processNode(claimValue, digestMap, usedDigests));
-        }
-    }
-
-    private JsonNode processArrayNode(ArrayNode array,
-                                      Map<String, Disclosure> digestMap,
-                                      List<String> usedDigests) {
-        ArrayNode newArray = objectMapper.createArrayNode();
-
-        for (JsonNode element : array) {
-            if (element.isObject() && element.has("...")) {
-                String digest = element.get("...").asString();
-
-                JsonNode value;
-
-                if (digestMap.containsKey(digest)) {
-                    usedDigests.add(digest);
-                    var disclosure = digestMap.get(digest);
-
-                    if (disclosure.getClaimName() != null || disclosure.getClaimValue() == null || disclosure.getSalt() == null) {
-                        throw credentialError(MALFORMED_CREDENTIAL, "Illegal non-array disclosure found");
-                    }
-
-                    value = objectMapper.convertValue(disclosure.getClaimValue(), JsonNode.class);
-                } else {
-                    // if value is not requested, add digest to array otherwise index access won't work
-                    value = objectMapper.convertValue(digest, JsonNode.class);
-                }
-
-
-                newArray.add(processNode(value, digestMap, usedDigests));
-            } else {
-                newArray.add(processNode(element, digestMap, usedDigests));
-            }
-        }
-
-        return newArray;
-    }
-
-    private void removeSdKeys(JsonNode node) {
-        if (node.isObject()) {
-            ObjectNode obj = (ObjectNode) node;
-            obj.remove("_sd");
-
-            for (String string : obj.propertyNames()) {
-                removeSdKeys(obj.get(string));
-            }
-        } else if (node.isArray()) {
-            for (JsonNode n : node) {
-                removeSdKeys(n);
-            }
-        }
-    }
 }
\ No newline at end of file
@@ -1,29 +1,76 @@
 package ch.admin.bj.swiyu.verifier.service.oid4vp;
 
 import java.text.ParseException;
+import java.time.Duration;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import jakarta.annotation.PreDestroy;
 import tools.jackson.core.JacksonException;
 
+import ch.admin.bj.swiyu.verifier.common.config.CacheProperties;
 import ch.admin.bj.swiyu.verifier.common.exception.VerificationException;
 import ch.admin.bj.swiyu.verifier.domain.SdJwt;
 import ch.admin.bj.swiyu.verifier.domain.management.Management;
 import ch.admin.bj.swiyu.verifier.domain.management.TrustAnchor;
 import ch.admin.bj.swiyu.verifier.service.publickey.TrustProtocolv1Resolver;
-import lombok.RequiredArgsConstructor;
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Validates trust according to the Trust Protocol 1.0.
+ * <p>
+ * The trust statements of all trust anchors are loaded concurrently. Trust statements without key binding which
+ * passed the verification are cached by their hash until their {@code exp}, but at most as long as the raw trust
+ * statements are cached, so identical trust statements are not verified again for every presentation.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 @Deprecated(since = "Trust Protocol 2.0")
 public class TrustProtocol1Validator {
     private final TrustProtocolv1Resolver trustStatementLoader;
     private final SdJwtVpTokenVerifier sdJwtVpTokenVerifier;
 
+    @Getter(value = AccessLevel.PROTECTED) // Allow Protected level access to cache for unit tests
+    private final Cache<String, VerifiedTrustStatement> verifiedTrustStatementCache;
+
+    /**
+     * Executor loading the trust statements of the trust anchors concurrently
+     */
+    private final ExecutorService trustStatementLoadingExecutor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("trust-statement-loading-", 0).factory());
+
+    public TrustProtocol1Validator(TrustProtocolv1Resolver trustStatementLoader,
+                                   SdJwtVpTokenVerifier sdJwtVpTokenVerifier,
+                                   CacheProperties cacheProperties) {
+        this.trustStatementLoader = trustStatementLoader;
+        this.sdJwtVpTokenVerifier = sdJwtVpTokenVerifier;
+        var trustStatementSpec = cacheProperties.getTrustStatement();
+        var maxTimeToLive = trustStatementSpec.getExpireAfterWrite() != null
+                ? trustStatementSpec.getExpireAfterWrite()
+                : Duration.ofMillis(cacheProperties.getTrustCacheTtlMs());
+        this.verifiedTrustStatementCache = Caffeine.newBuilder()
+                .maximumSize(trustStatementSpec.getMaximumSize())
+                .expireAfter(new VerifiedTrustStatementExpiry(maxTimeToLive))
+                .build();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        trustStatementLoadingExecutor.shutdownNow();
+    }
+
     /**
      * Evaluate the trust protocol 1.0 trust
      */
@@ -37,19 +84,36 @@ public class TrustProtocol1Validator {
         return trustAnchors.stream().anyMatch(trustAnchor -> trustAnchor.did().equals(issuerDid));
     }
 
+    /**
+     * Starts loading the trust statements of all trust anchors at once and verifies them in the order of the trust
+     * anchors. Loads which are still running when a trust anchor trusts the issuer are cancelled.
+     */
     private boolean isTrustedViaRegistry(String issuerDid, String vct, List<TrustAnchor> trustAnchors, Management management) {
-        for (var trustAnchor : trustAnchors) {
-            List<String> trustStatements = fetchTrustStatementIssuance(vct, trustAnchor);
-            if (trustStatements.isEmpty()) {
-                log.debug("Failed to fetch trust statements for vct {} from {}", vct, trustAnchor.trustRegistryUri());
-                continue;
-            }
+        if (StringUtils.isBlank(vct) || trustAnchors.isEmpty()) {
+            return false;
+        }
+        List<CompletableFuture<List<String>>> loads = trustAnchors.stream()
+                .map(trustAnchor -> trustAnchors.size() > 1
+                        ? CompletableFuture.supplyAsync(() -> fetchTrustStatementIssuance(vct, trustAnchor), trustStatementLoadingExecutor)
+                        : CompletableFuture.completedFuture(fetchTrustStatementIssuance(vct, trustAnchor)))
+                .toList();
+        try {
+            for (int i = 0; i < trustAnchors.size(); i++) {
+                var trustAnchor = trustAnchors.get(i);
+                List<String> trustStatements = loads.get(i).join();
+                if (trustStatements.isEmpty()) {
+                    log.debug("Failed to fetch trust statements for vct {} from {}", vct, trustAnchor.trustRegistryUri());
+                    continue;
+                }
 
-            if (verifyTrustStatements(issuerDid, vct, trustAnchor, trustStatements, management)) {
-                return true;
+                if (verifyTrustStatements(issuerDid, vct, trustAnchor, trustStatements, management)) {
+                    return true;
+                }
             }
+            return false;
+        } finally {
+            loads.forEach(load -> load.cancel(false));
         }
-        return false;
     }
 
     private boolean verifyTrustStatements(String issuerDid, String vct, TrustAnchor trustAnchor,
@@ -78,11 +142,29 @@ public class TrustProtocol1Validator {
 
     private boolean isProvidingTrust(String issuerDid, String vct, TrustAnchor trustAnchor,
                                      String rawTrustStatement, Management management) throws ParseException {
+        var trustStatement = verifyTrustStatement(rawTrustStatement, management);
+        return issuerDid.equals(trustStatement.subject())
+                && trustAnchor.did().equals(trustStatement.issuer())
+                && vct.equals(trustStatement.canIssue());
+    }
+
+    /**
+     * Verifies the trust statement, or returns the result of an earlier verification of the same trust statement.
+     * Trust statements with key binding are verified every time, as the key binding depends on the request.
+     * Failed verifications are not cached.
+     */
+    private VerifiedTrustStatement verifyTrustStatement(String rawTrustStatement, Management management) throws ParseException {
         var trustStatement = new SdJwt(rawTrustStatement);
-        trustStatement = sdJwtVpTokenVerifier.verifyVpTokenTrustStatement(trustStatement, management);
-        return issuerDid.equals(trustStatement.getClaims().getSubject())
-                && trustAnchor.did().equals(trustStatement.getClaims().getIssuer())
-                && vct.equals(trustStatement.getClaims().getStringClaim("canIssue"));
+        if (trustStatement.hasKeyBinding()) {
+            return VerifiedTrustStatement.of(sdJwtVpTokenVerifier.verifyVpTokenTrustStatement(trustStatement, management));
+        }
+        var cached = verifiedTrustStatementCache.getIfPresent(trustStatement.getPresentationHash());
+        if (cached != null) {
+            return cached;
+        }
+        var verified = VerifiedTrustStatement.of(sdJwtVpTokenVerifier.verifyVpTokenTrustStatement(trustStatement, management));
+        verifiedTrustStatementCache.put(trustStatement.getPresentationHash(), verified);
+        return verified;
     }
 
     private List<String> fetchTrustStatementIssuance(String vct, TrustAnchor trustAnchor) {
@@ -96,4 +178,43 @@ public class TrustProtocol1Validator {
         }
     }
 
+    /**
+     * The claims of a verified trust statement the trust evaluation depends on.
+     *
+     * @param expiresAt expiration time of the trust statement, {@code null} if it does not expire
+     */
+    protected record VerifiedTrustStatement(String subject, String issuer, String canIssue, Date expiresAt) {
+
+        static VerifiedTrustStatement of(SdJwt trustStatement) throws ParseException {
+            var claims = trustStatement.getClaims();
+            return new VerifiedTrustStatement(claims.getSubject(), claims.getIssuer(),
+                    claims.getStringClaim("canIssue"), claims.getExpirationTime());
+        }
+    }
+
+    /**
+     * Expires a verified trust statement at its {@code exp}, but at the latest after the given time to live, so
+     * revocations through its status list are noticed.
+     */
+    private record VerifiedTrustStatementExpiry(Duration maxTimeToLive) implements Expiry<String, VerifiedTrustStatement> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedTrustStatement value, long currentTime) {
+            if (value.expiresAt() == null) {
+                return maxTimeToLive.toNanos();
+            }
+            var remainingMillis = value.expiresAt().getTime() - System.currentTimeMillis();
+            return Duration.ofMillis(Math.clamp(remainingMillis, 0L, maxTimeToLive.toMillis())).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedTrustStatement value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedTrustStatement value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
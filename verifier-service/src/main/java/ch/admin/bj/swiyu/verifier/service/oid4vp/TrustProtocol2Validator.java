@@ -1,24 +1,37 @@
 package ch.admin.bj.swiyu.verifier.service.oid4vp;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.stereotype.Service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.nimbusds.jose.jwk.JWKSet;
 
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
+
 import ch.admin.bj.swiyu.jwtvalidator.DidKidParser;
 import ch.admin.bj.swiyu.jwtvalidator.UrlRestriction;
 import ch.admin.bj.swiyu.tsverifier.TrustStatementVerifier;
 import ch.admin.bj.swiyu.tsverifier.statement.TrustMarkers;
 import ch.admin.bj.swiyu.tsverifier.statement.TrustVerificationResult;
+import ch.admin.bj.swiyu.verifier.common.config.TrustRegistryProperties;
 import ch.admin.bj.swiyu.verifier.domain.management.Management;
 import ch.admin.bj.swiyu.verifier.domain.management.TrustAnchor;
 import ch.admin.bj.swiyu.verifier.service.trustregistry.TrustStatementCacheService;
-import lombok.RequiredArgsConstructor;
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -37,9 +50,14 @@ import lombok.extern.slf4j.Slf4j;
  * {@link #isTrusted(String, String, Management)} returns {@code true} when the
  * issuer's trust markers indicate a trusted issuer (i.e. when
  * {@link TrustMarkers#isTrustedIssuer()} evaluates to {@code true}).
+ *
+ * <p>
+ * Verification results are cached per trust anchor, issuer and vct until the
+ * first of the trust statements they were computed from expires, and are
+ * dropped when the trust statements of the issuer or trust anchor are
+ * invalidated in the {@link TrustStatementCacheService}.
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 @ConditionalOnBean(TrustStatementCacheService.class)
 public class TrustProtocol2Validator {
@@ -48,29 +66,174 @@ public class TrustProtocol2Validator {
     @Qualifier("trustStatementValidator")
     private final DidKidParser didKidParser = new DidKidParser();
 
+    @Getter(value = AccessLevel.PROTECTED) // Allow Protected level access to cache for unit tests
+    private final Cache<TrustEvaluationKey, CachedTrustVerification> verificationResultCache;
+
+    /**
+     * Executor starting a virtual thread per trust anchor evaluation, {@code null} if the trust anchors are evaluated
+     * one after the other
+     */
+    @Nullable
+    private final ExecutorService trustAnchorExecutor;
+    /**
+     * Maximum number of trust anchors of a single {@link #isTrusted(String, String, Management)} call evaluated at
+     * the same time
+     */
+    private final int trustAnchorParallelism;
+
+    public TrustProtocol2Validator(TrustStatementCacheService statementProvider, TrustRegistryProperties properties) {
+        this.statementProvider = statementProvider;
+        this.verificationResultCache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxCacheSize())
+                .expireAfter(new CachedTrustVerificationExpiry())
+                .build();
+        this.trustAnchorParallelism = properties.getTrustAnchorParallelism();
+        this.trustAnchorExecutor = trustAnchorParallelism > 1
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("trust-anchor-evaluation-", 0).factory())
+                : null;
+        statementProvider.addInvalidationListener(this::invalidateVerificationResults);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (trustAnchorExecutor != null) {
+            trustAnchorExecutor.shutdownNow();
+        }
+    }
+
     /**
      * Determines whether the given {@code issuerDid} can be considered trusted
      * for issuing the credential type {@code vct} under the supplied
      * {@link Management} configuration.
+     * <p>
+     * The evaluation stops at the first trust anchor trusting the issuer. With
+     * {@code swiyu.trust-registry.trust-anchor-parallelism} above one, up to that
+     * many trust anchors of this call are evaluated concurrently. Trust anchors
+     * configured more than once are evaluated once. A trust anchor which cannot
+     * be evaluated is skipped; its failure is only thrown if no other trust
+     * anchor trusts the issuer.
      *
      * @param issuerDid  the DID of the issuer whose trust is being evaluated
      * @param vct        the Verifiable Credential Type that the issuer wants to
      *                   issue (e.g. {@code "urn:ch.admin.fedpol.eid"})
      * @param management the management configuration that contains the list of
      *                   {@link TrustAnchor}s to be used for verification
+     *
      * @return {@code true} if at least one trust anchor yields a
      *         {@link TrustMarkers#isTrustedIssuer()} result of {@code true},
      *         otherwise {@code false}
      */
     public boolean isTrusted(String issuerDid, String vct, Management management) {
-        Map<String, TrustVerificationResult> verificationResults = management.getTrustAnchors().stream()
-                .collect(Collectors.toMap(TrustAnchor::did,
-                        trustAnchor -> evaluateTrust(issuerDid, vct, trustAnchor)));
-        return verificationResults.values().stream().anyMatch(result -> result.markers().isTrustedIssuer());
+        List<String> trustAnchorDids = management.getTrustAnchors().stream()
+                .map(TrustAnchor::did)
+                .distinct()
+                .toList();
+        if (trustAnchorExecutor == null || trustAnchorDids.size() < 2) {
+            return isTrustedByAny(issuerDid, vct, trustAnchorDids);
+        }
+        return isTrustedByAnyConcurrently(issuerDid, vct, trustAnchorDids);
+    }
+
+    private boolean isTrustedByAny(String issuerDid, String vct, List<String> trustAnchorDids) {
+        RuntimeException failure = null;
+        for (String trustAnchorDid : trustAnchorDids) {
+            try {
+                if (isTrustedBy(issuerDid, vct, trustAnchorDid)) {
+                    return true;
+                }
+            } catch (RuntimeException e) {
+                failure = skipFailedTrustAnchor(trustAnchorDid, failure, e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return false;
     }
 
     /**
-     * Executes the full verification flow for a single {@link TrustAnchor}.
+     * Evaluates the trust anchors on the trust anchor executor and returns as soon
+     * as one of them trusts the issuer. At most {@link #trustAnchorParallelism}
+     * evaluations of this call run at the same time, the next trust anchor is
+     * only submitted when one of them completed. Running evaluations complete in
+     * the background to fill the cache.
+     */
+    private boolean isTrustedByAnyConcurrently(String issuerDid, String vct, List<String> trustAnchorDids) {
+        var completionService = new ExecutorCompletionService<Boolean>(trustAnchorExecutor);
+        var evaluations = new ArrayList<Evaluation>();
+        Iterator<String> pending = trustAnchorDids.iterator();
+        RuntimeException failure = null;
+        try {
+            while (evaluations.size() < trustAnchorParallelism && pending.hasNext()) {
+                evaluations.add(submit(completionService, issuerDid, vct, pending.next()));
+            }
+            for (int completed = 0; completed < evaluations.size(); completed++) {
+                Future<Boolean> done = completionService.take();
+                try {
+                    if (Boolean.TRUE.equals(done.get())) {
+                        return true;
+                    }
+                } catch (ExecutionException e) {
+                    failure = skipFailedTrustAnchor(trustAnchorDidOf(evaluations, done), failure, asRuntimeException(e));
+                }
+                if (pending.hasNext()) {
+                    evaluations.add(submit(completionService, issuerDid, vct, pending.next()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while evaluating trust anchors", e);
+        } finally {
+            evaluations.forEach(evaluation -> evaluation.future().cancel(false));
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return false;
+    }
+
+    private Evaluation submit(ExecutorCompletionService<Boolean> completionService, String issuerDid, String vct,
+            String trustAnchorDid) {
+        return new Evaluation(trustAnchorDid, completionService.submit(() -> isTrustedBy(issuerDid, vct, trustAnchorDid)));
+    }
+
+    private static String trustAnchorDidOf(List<Evaluation> evaluations, Future<Boolean> future) {
+        return evaluations.stream()
+                .filter(evaluation -> evaluation.future() == future)
+                .map(Evaluation::trustAnchorDid)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static RuntimeException asRuntimeException(ExecutionException e) {
+        return e.getCause() instanceof RuntimeException runtimeException
+                ? runtimeException
+                : new IllegalStateException("Failed to evaluate trust anchor", e.getCause());
+    }
+
+    /**
+     * Another trust anchor may still trust the issuer, so the failure is only kept to be thrown if none does.
+     *
+     * @return the first failure of this evaluation
+     */
+    private static RuntimeException skipFailedTrustAnchor(String trustAnchorDid, @Nullable RuntimeException firstFailure,
+            RuntimeException failure) {
+        log.warn("Failed to evaluate trust anchor {}, continuing with the remaining trust anchors", trustAnchorDid, failure);
+        if (firstFailure == null) {
+            return failure;
+        }
+        if (firstFailure != failure) {
+            firstFailure.addSuppressed(failure);
+        }
+        return firstFailure;
+    }
+
+    private boolean isTrustedBy(String issuerDid, String vct, String trustAnchorDid) {
+        return evaluateTrust(issuerDid, vct, trustAnchorDid).markers().isTrustedIssuer();
+    }
+
+    /**
+     * Executes the full verification flow for a single {@link TrustAnchor} DID.
      *
      * <ol>
      * <li>Creates a {@link UrlRestriction} that limits the verification to the
@@ -90,21 +253,65 @@ public class TrustProtocol2Validator {
      * {@link TrustVerificationResult}.
      * </li>
      * </ol>
+     * The result is taken from the cache if the same trust anchor, issuer and vct
+     * have already been verified with the currently cached statements.
      *
      * @return the verification result containing {@link TrustMarkers}
      */
-    private TrustVerificationResult evaluateTrust(String issuerDid, String vct, TrustAnchor trustAnchor) {
-        List<String> statementJwts = statementProvider.getAllIssuanceStatementsFor(issuerDid);
-        TrustStatementVerifier tsVerifier = new TrustStatementVerifier(statementJwts, didKidParser);
-        TrustVerificationResult result = tsVerifier.verifyIssuanceStatements(trustAnchor.did(), issuerDid, vct);
+    private TrustVerificationResult evaluateTrust(String issuerDid, String vct, String trustAnchorDid) {
+        var key = new TrustEvaluationKey(trustAnchorDid, issuerDid, vct);
+        return verificationResultCache.get(key, this::verifyIssuanceStatements).result();
+    }
+
+    private CachedTrustVerification verifyIssuanceStatements(TrustEvaluationKey key) {
+        var issuanceStatements = statementProvider.getIssuanceStatementsFor(key.issuerDid());
+        TrustStatementVerifier tsVerifier = new TrustStatementVerifier(issuanceStatements.statements(), didKidParser);
+        TrustVerificationResult result = tsVerifier.verifyIssuanceStatements(key.trustAnchorDid(), key.issuerDid(), key.vct());
         TrustMarkers markers = result.markers();
         log.debug("Validated Trust Marks for {} with result: identity {}, compliant actor {}, vct {} is governed use case {}, governed use case authorization {}",
-            issuerDid, markers.identityTrustMarker(), 
+            key.issuerDid(), markers.identityTrustMarker(), 
             markers.compliantActorTrustMarker(), 
-            vct, 
+            key.vct(), 
             markers.governedUseCaseTrustMarker(), 
             markers.governedUseCaseAuthorizationTrustMarker()
         );
-        return result;
+        return new CachedTrustVerification(result, issuanceStatements.validityNanos());
+    }
+
+    private void invalidateVerificationResults(String did) {
+        verificationResultCache.asMap().keySet()
+                .removeIf(key -> key.issuerDid().equals(did) || key.trustAnchorDid().equals(did));
+    }
+
+    protected record TrustEvaluationKey(String trustAnchorDid, String issuerDid, String vct) {
+    }
+
+    private record Evaluation(String trustAnchorDid, Future<Boolean> future) {
+    }
+
+    /**
+     * @param result        the verification result
+     * @param validityNanos nanoseconds until the first of the trust statements the result was computed from expires
+     */
+    protected record CachedTrustVerification(TrustVerificationResult result, long validityNanos) {
+    }
+
+    private static final class CachedTrustVerificationExpiry implements Expiry<TrustEvaluationKey, CachedTrustVerification> {
+        @Override
+        public long expireAfterCreate(TrustEvaluationKey key, CachedTrustVerification value, long currentTime) {
+            return value.validityNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(TrustEvaluationKey key, CachedTrustVerification value, long currentTime,
+                long currentDuration) {
+            return value.validityNanos();
+        }
+
+        @Override
+        public long expireAfterRead(TrustEvaluationKey key, CachedTrustVerification value, long currentTime,
+                long currentDuration) {
+            return currentDuration;
+        }
     }
 }
@@ -32,7 +32,7 @@ public class DidResolverFacade implements KeyResolver {
      * @param keyId full did:tdw/did:webvh including #fragment indicating the verification method
      * @return JWK fetched from the did document
      */
-    @Cacheable(JWK_CACHE)
+    @Cacheable(value = JWK_CACHE, sync = true) // concurrent lookups of the same key share one resolution
     public JWK resolveKey(String keyId) {
         return didResolverAdapter.resolveKey(keyId, urlRewriteProperties.getUrlMappings());
     }
@@ -66,7 +66,7 @@ public class DidResolverFacade implements KeyResolver {
      * @return the trust statement as a String, or null if resolution fails
      */
     @Deprecated(since = "Trust Protocol 2.0")
-    @Cacheable(TRUST_STATEMENT_CACHE)
+    @Cacheable(value = TRUST_STATEMENT_CACHE, sync = true)
     public String resolveTrustStatement(String trustRegistryUrl, String vct) {
         try {
             return didResolverAdapter.resolveTrustStatement(trustRegistryUrl, vct, urlRewriteProperties.getUrlMappings());
@@ -0,0 +1,34 @@
+package ch.admin.bj.swiyu.verifier.service.publickey;
+
+import ch.admin.bj.swiyu.didresolveradapter.DidResolverAdapter;
+import ch.admin.bj.swiyu.verifier.common.config.RefreshableCacheLoader;
+import ch.admin.bj.swiyu.verifier.common.config.UrlRewriteProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import static ch.admin.bj.swiyu.verifier.common.config.CachingConfig.JWK_CACHE;
+
+/**
+ * Reloads the public keys cached by {@link DidResolverFacade#resolveKey(String)} when
+ * {@code caching.jwk.refresh-after-write} is configured.
+ */
+@Component
+@RequiredArgsConstructor
+public class JwkCacheLoader implements RefreshableCacheLoader {
+
+    private final DidResolverAdapter didResolverAdapter;
+    private final UrlRewriteProperties urlRewriteProperties;
+
+    @Override
+    public String getCacheName() {
+        return JWK_CACHE;
+    }
+
+    /**
+     * @param keyId full did:tdw/did:webvh including #fragment, the cache key of {@link DidResolverFacade#resolveKey(String)}
+     */
+    @Override
+    public Object load(Object keyId) {
+        return didResolverAdapter.resolveKey((String) keyId, urlRewriteProperties.getUrlMappings());
+    }
+}
@@ -0,0 +1,106 @@
+package ch.admin.bj.swiyu.verifier.service.statuslist;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * The decompressed status values of a Token Status List
+ * (<a href="https://datatracker.ietf.org/doc/html/draft-ietf-oauth-status-list#section-4.1">status_list</a>).
+ * <p>
+ * Decoded once when the status list is loaded, looking up the status of a credential afterward is an array read.
+ * Instances are immutable and can be shared between threads.
+ */
+public final class DecodedStatusList {
+
+    private static final Set<Integer> VALID_BITS = Set.of(1, 2, 4, 8);
+
+    private final byte[] statuses;
+    private final int bits;
+
+    private DecodedStatusList(byte[] statuses, int bits) {
+        this.statuses = statuses;
+        this.bits = bits;
+    }
+
+    /**
+     * @param lst              base64url encoded, zlib compressed byte array of the status list
+     * @param bits             number of bits per status, one of 1, 2, 4 or 8
+     * @param maxDecodedLength maximum number of bytes the decompressed status list may have
+     * @throws IOException if lst is not valid base64url or zlib data, or decompresses to more than maxDecodedLength bytes
+     */
+    public static DecodedStatusList decode(String lst, int bits, int maxDecodedLength) throws IOException {
+        if (!VALID_BITS.contains(bits)) {
+            throw new IllegalArgumentException("Status list bits must be one of %s but was %d".formatted(VALID_BITS, bits));
+        }
+        byte[] compressed;
+        try {
+            compressed = Base64.getUrlDecoder().decode(lst);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Status list is not base64url encoded", e);
+        }
+        return new DecodedStatusList(inflate(compressed, maxDecodedLength), bits);
+    }
+
+    /**
+     * @return number of statuses in the list
+     */
+    public int size() {
+        return statuses.length * (Byte.SIZE / bits);
+    }
+
+    /**
+     * @param index index of the status, as referenced by the credential with {@code idx}
+     * @return status value at the index, e.g. 0 for valid, 1 for revoked, 2 for suspended
+     * @throws IndexOutOfBoundsException if the index is not within the status list
+     */
+    public int statusAt(int index) {
+        return statusAt(index, bits);
+    }
+
+    /**
+     * @param index index of the status
+     * @param bits  bits per status to read the list with, has to match the bits the list was decoded with
+     * @return status value at the index
+     * @throws IndexOutOfBoundsException if the index is not within the status list
+     * @throws IllegalArgumentException  if bits does not match the status list
+     */
+    public int statusAt(int index, int bits) {
+        if (bits != this.bits) {
+            throw new IllegalArgumentException("Status list has %d bits per status, not %d".formatted(this.bits, bits));
+        }
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Status list index %d out of bounds for size %d".formatted(index, size()));
+        }
+        int bitPosition = index * bits;
+        int value = statuses[bitPosition / Byte.SIZE] >> (bitPosition % Byte.SIZE);
+        return value & ((1 << bits) - 1);
+    }
+
+    private static byte[] inflate(byte[] compressed, int maxDecodedLength) throws IOException {
+        var inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            var decoded = new ByteArrayOutputStream(Math.min(maxDecodedLength, compressed.length * 4));
+            var buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Status list is truncated");
+                }
+                if (decoded.size() + length > maxDecodedLength) {
+                    throw new IOException("Status list exceeds the maximum decoded size of %d bytes".formatted(maxDecodedLength));
+                }
+                decoded.write(buffer, 0, length);
+            }
+            return decoded.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Status list is not zlib compressed", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -13,15 +13,24 @@ import ch.admin.bj.swiyu.verifier.service.publickey.DidResolverFacade;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
 import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.text.ParseException;
+import java.time.Duration;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import static ch.admin.bj.swiyu.verifier.common.exception.VerificationException.credentialError;
@@ -29,14 +38,35 @@ import static ch.admin.bj.swiyu.verifier.common.exception.VerificationException.
 @Slf4j
 @Service
 public class StatusListCacheService {
+    private static final String STATUS_LIST_CLAIM = "status_list";
+    /**
+     * Upper bound for a decompressed status list, 16 MiB are 134 million statuses with 1 bit each
+     */
+    private static final int MAX_DECODED_STATUS_LIST_BYTES = 16 * 1024 * 1024;
+
     private final CacheProperties cacheProperties;
     private final DidKidParser didKidParser = new DidKidParser();
     private final DidJwtValidator didJwtValidator;
     private final DidResolverFacade issuerPublicKeyLoader;
     private final StatusListResolver statusListResolver;
+    private final Ticker ticker = Ticker.systemTicker();
+    /**
+     * URIs of the status lists currently reloaded in the background, at most one reload runs per URI
+     */
+    private final Set<String> refreshingUris = ConcurrentHashMap.newKeySet();
+    private final Executor refreshExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("status-list-refresh-", 0).factory());
 
     @Getter(value = AccessLevel.PROTECTED) // Allow Protected level access to cache for unit tests
-    private final Cache<String, Optional<TokenStatusListTokenDto>> cache;
+    private final Cache<String, CachedStatusList> cache;
+    /**
+     * Last successfully validated status list per URI whose response carried an ETag or Last-Modified, kept beyond
+     * the expiry of the cache entry to send conditional requests. A 304 Not Modified response reuses it without
+     * parsing, verifying and decoding the token again. Entries are dropped after twice the status list cache TTL,
+     * so only status lists which are still requested keep their decoded statuses.
+     */
+    @Getter(value = AccessLevel.PROTECTED) // Allow Protected level access to cache for unit tests
+    private final Cache<String, CachedStatusList> revalidationCache;
 
     public StatusListCacheService(CacheProperties cacheProperties, DidJwtValidator didJwtValidator,
             DidResolverFacade issuerPublicKeyLoader, StatusListResolver statusListResolver) {
@@ -45,88 +75,220 @@ public class StatusListCacheService {
         this.issuerPublicKeyLoader = issuerPublicKeyLoader;
         this.statusListResolver = statusListResolver;
         this.cache = buildTokenStatusListTokenCache();
+        var cacheTtlMs = Math.max(0, cacheProperties.getStatusListCacheTtlMs());
+        this.revalidationCache = Caffeine.newBuilder()
+                // caching disabled, always fetch the full status list
+                .maximumSize(cacheTtlMs > 0 ? cacheProperties.getStatusListCacheSize() : 0)
+                .ticker(ticker)
+                // long enough to revalidate once the cache entry expired, if the status list is still requested
+                .expireAfterWrite(Duration.ofMillis(2 * cacheTtlMs))
+                .build();
     }
 
     /**
-     * Resolves the given URI to a verified TokenStatusListToken, caching it if possible to reduce load
+     * Resolves the given URI to a verified TokenStatusListToken, caching it if possible to reduce load.
      * @param uri URI where the status list is located
      * @return the TokenStatusListToken or null, if it cannot be resolved
      */
     public TokenStatusListTokenDto getTokenStatusListTokenByUri(String uri) {
-        return cache.get(uri, this::resolveValidatedStatusList).orElseThrow(() ->
+        return getValidatedStatusListByUri(uri).token();
+    }
+
+    /**
+     * Resolves the given URI to a verified status list with its status values already decoded, caching it if possible
+     * to reduce load.
+     * <p>
+     * With {@code caching.status-list-refresh-ahead} enabled, a cached status list which passed the configured share of
+     * its lifetime is reloaded in the background, while the cached and still valid one is returned.
+     * @param uri URI where the status list is located
+     * @return the validated status list
+     */
+    public ValidatedStatusList getValidatedStatusListByUri(String uri) {
+        var cached = cache.get(uri, this::loadStatusList);
+        if (cached.statusList().isPresent() && ticker.read() >= cached.refreshAtNanos()) {
+            refreshInBackground(uri);
+        }
+        return cached.statusList().orElseThrow(() ->
             credentialError(VerificationErrorResponseCode.UNRESOLVABLE_STATUS_LIST, "Status List %s cannot be resolved".formatted(uri)));
     }
 
+    /**
+     * Reloads the status list unless a reload of it is already running. A failed reload keeps the cached status list,
+     * it is used until it expires.
+     */
+    private void refreshInBackground(String uri) {
+        if (!refreshingUris.add(uri)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    var reloaded = loadStatusList(uri);
+                    if (reloaded.statusList().isPresent()) {
+                        cache.put(uri, reloaded);
+                    }
+                } finally {
+                    refreshingUris.remove(uri);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshingUris.remove(uri);
+            log.warn("Failed to schedule refresh of status list {}", uri, e);
+        }
+    }
+
+    private CachedStatusList loadStatusList(String uri) {
+        var previous = revalidationCache.getIfPresent(uri);
+        var loaded = previous != null ? revalidateStatusList(uri, previous) : resolveValidatedStatusList(uri, null, null);
+        var statusList = loaded.statusList();
+        var loadedAtNanos = ticker.read();
+        var ttlNanos = getTtlOrBackoff(statusList.map(ValidatedStatusList::token));
+        var ratio = cacheProperties.getStatusListRefreshAheadRatio();
+        // Without caching or with a ratio of 0 every access would start another reload
+        var refreshAtNanos = cacheProperties.isStatusListRefreshAhead() && statusList.isPresent()
+                && ttlNanos > 0 && ratio > 0
+                ? loadedAtNanos + (long) (ttlNanos * ratio)
+                : Long.MAX_VALUE;
+        var cached = new CachedStatusList(statusList, ttlNanos, refreshAtNanos, loaded.eTag(), loaded.lastModified());
+        if (statusList.isPresent()) {
+            // without validators the status list can not be requested conditionally
+            if (loaded.eTag() != null || loaded.lastModified() != null) {
+                revalidationCache.put(uri, cached);
+            } else {
+                revalidationCache.invalidate(uri);
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * Requests the status list conditionally with the validators of the previously validated one, which is reused
+     * when the server answers 304 Not Modified. Its lifetime is computed again, it is still bound by its {@code exp}.
+     */
+    private LoadedStatusList revalidateStatusList(String uri, CachedStatusList previous) {
+        var reloaded = resolveValidatedStatusList(uri, previous.eTag(), previous.lastModified());
+        if (reloaded.notModified()) {
+            log.debug("Status list {} not modified, extending cached status list", uri);
+            // a 304 omitting the validators keeps those sent in the request
+            return new LoadedStatusList(previous.statusList(), false,
+                    reloaded.eTag() != null ? reloaded.eTag() : previous.eTag(),
+                    reloaded.lastModified() != null ? reloaded.lastModified() : previous.lastModified());
+        }
+        return reloaded;
+    }
+
     /**
      * Fetches and validates the Token Status List found at URI. Validation is for it being a valid JWT and 
      * fulfilling the basic requirements of a token status list according to the spec.
      * @param uri URI where the status list is located
-     * @return the TokenStatusListToken or null, if it cannot be resolved
+     * @param eTag ETag of the previously validated status list, if any
+     * @param lastModified Last-Modified of the previously validated status list, if any
+     * @return the validated status list with its decoded status values, empty if it cannot be resolved or was not modified
      */
-    private Optional<TokenStatusListTokenDto> resolveValidatedStatusList(String uri) {
+    private LoadedStatusList resolveValidatedStatusList(String uri, String eTag, String lastModified) {
         try {
-        String statusListJWT = statusListResolver.resolveStatusList(uri);
+        StatusListFetchResult fetched = statusListResolver.fetchStatusList(uri, eTag, lastModified);
+        if (fetched.notModified()) {
+            return new LoadedStatusList(Optional.empty(), true, fetched.eTag(), fetched.lastModified());
+        }
+        String statusListJWT = fetched.statusListJwt();
         SignedJWT tokenStatusListJWT = SignedJWT.parse(statusListJWT);
         TokenStatusListVerifier.hasValidTokenStatusListTokenHeader(tokenStatusListJWT.getHeader());
         String kid = didKidParser.extractKidFromHeader(statusListJWT);
         JWK statusListKey = issuerPublicKeyLoader.resolveKey(kid);
-        TokenStatusListTokenDto statusList = TokenStatusListMapper.toTokenStatusListToken(tokenStatusListJWT.getJWTClaimsSet().getClaims(), tokenStatusListJWT.getHeader());
+        JWTClaimsSet claims = tokenStatusListJWT.getJWTClaimsSet();
+        TokenStatusListTokenDto statusList = TokenStatusListMapper.toTokenStatusListToken(claims.getClaims(), tokenStatusListJWT.getHeader());
         didJwtValidator.validateJwt(statusListJWT, statusListKey);
-        return Optional.of(statusList);
-        } catch (JwtUtilException | StatusListFetchFailedException | IllegalArgumentException | ParseException e) {
+        // without iss claim the status list is issued by the DID of its signing key
+        var issuer = claims.getIssuer() != null ? claims.getIssuer() : didKidParser.getDidFromAbsoluteKid(kid);
+        var validated = new ValidatedStatusList(statusList, issuer, claims.getSubject(), decodeStatuses(claims));
+        return new LoadedStatusList(Optional.of(validated), false, fetched.eTag(), fetched.lastModified());
+        } catch (JwtUtilException | StatusListFetchFailedException | IllegalArgumentException | ParseException | IOException e) {
             log.info("Failed to load status list {}", uri, e);
-            return Optional.empty();
+            return new LoadedStatusList(Optional.empty(), false, null, null);
         }
     }
 
+    /**
+     * Decompresses the status values once, so checking the status of a credential does not have to do it again.
+     */
+    private static DecodedStatusList decodeStatuses(JWTClaimsSet claims) throws ParseException, IOException {
+        var statusListClaim = claims.getJSONObjectClaim(STATUS_LIST_CLAIM);
+        if (statusListClaim == null
+                || !(statusListClaim.get("bits") instanceof Number bits)
+                || !(statusListClaim.get("lst") instanceof String lst)) {
+            throw new IllegalArgumentException("Status list token must contain status_list with bits and lst");
+        }
+        return DecodedStatusList.decode(lst, bits.intValue(), MAX_DECODED_STATUS_LIST_BYTES);
+    }
+
 
     /**
      * Create a Caffeine cache for TokenStatusListTokens, taking the minimum of expiry, ttl or a property ttl for cache lifetime duration
      * @return A new caffeine cache
      */
-    private Cache<String, Optional<TokenStatusListTokenDto>> buildTokenStatusListTokenCache() {
-        var maxCacheTTLNs = TimeUnit.MILLISECONDS.toNanos(cacheProperties.getStatusListCacheTtlMs());
+    private Cache<String, CachedStatusList> buildTokenStatusListTokenCache() {
         return Caffeine.newBuilder()
                 .maximumSize(cacheProperties.getStatusListCacheSize())
-                .expireAfter(buildTokenStatusListExpire(maxCacheTTLNs))
+                .ticker(ticker)
+                .expireAfter(buildTokenStatusListExpire())
                 .build();
     }
 
     /**
-     * 
-     * @param maxCacheTTLNs TTL, if smaller than exp or ttl of status list overriding the status list's config
-     * @return the caffeine expiry object with correct expiry times configured
+     * @return the caffeine expiry object using the lifetime computed when the status list was loaded
      */
-        private Expiry<String, Optional<TokenStatusListTokenDto>> buildTokenStatusListExpire(long maxCacheTTLNs) {
-            return new Expiry<>() {
+    private Expiry<String, CachedStatusList> buildTokenStatusListExpire() {
+        return new Expiry<>() {
 
-                @Override
-                public long expireAfterCreate(String key, Optional<TokenStatusListTokenDto> value, long currentTime) {
-                    return getTtlOrBackoff(value);
-                }
+            @Override
+            public long expireAfterCreate(String key, CachedStatusList value, long currentTime) {
+                return value.ttlNanos();
+            }
 
-                @Override
-                public long expireAfterUpdate(String key, Optional<TokenStatusListTokenDto> value, long currentTime,
-                        long currentDuration) {
-                    return getTtlOrBackoff(value);
-                }
+            @Override
+            public long expireAfterUpdate(String key, CachedStatusList value, long currentTime,
+                    long currentDuration) {
+                return value.ttlNanos();
+            }
 
-                @Override
-                public long expireAfterRead(String key, Optional<TokenStatusListTokenDto> value, long currentTime,
-                        long currentDuration) {
-                    return currentDuration;
-                }
-                
-                private long getTtlOrBackoff(Optional<TokenStatusListTokenDto> value) {
-                    return value
-                        .map(this::getTTLTime)
-                        .orElse(TimeUnit.SECONDS.toNanos(cacheProperties.getRequestBackoffSeconds()));
-                }
+            @Override
+            public long expireAfterRead(String key, CachedStatusList value, long currentTime,
+                    long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
 
-                private long getTTLTime(TokenStatusListTokenDto value) {
-                    long minimumTimeout = TimeUtil.minNanosUntilExpiry(maxCacheTTLNs, TimeUtil.secondsToNanos(value.getExp()));
-                    return TimeUtil.minWithNullable(minimumTimeout, TimeUtil.secondsToNanos(value.getTtl()));
-                }
-            };
-        }
+    private long getTtlOrBackoff(Optional<TokenStatusListTokenDto> value) {
+        return value
+            .map(this::getTTLTime)
+            .orElse(TimeUnit.SECONDS.toNanos(cacheProperties.getRequestBackoffSeconds()));
+    }
+
+    /**
+     * The TTL from the properties, if smaller than exp or ttl of status list overriding the status list's config
+     */
+    private long getTTLTime(TokenStatusListTokenDto value) {
+        var maxCacheTTLNs = TimeUnit.MILLISECONDS.toNanos(cacheProperties.getStatusListCacheTtlMs());
+        long minimumTimeout = TimeUtil.minNanosUntilExpiry(maxCacheTTLNs, TimeUtil.secondsToNanos(value.getExp()));
+        return TimeUtil.minWithNullable(minimumTimeout, TimeUtil.secondsToNanos(value.getTtl()));
+    }
+
+    /**
+     * A resolved status list, or the failure to resolve it, as kept in the cache
+     *
+     * @param statusList     the validated status list, empty if it could not be resolved
+     * @param ttlNanos       time the entry is kept in the cache
+     * @param refreshAtNanos ticker time from which on the status list is reloaded in the background
+     * @param eTag           ETag of the response the status list was loaded from
+     * @param lastModified   Last-Modified of the response the status list was loaded from
+     */
+    protected record CachedStatusList(Optional<ValidatedStatusList> statusList, long ttlNanos, long refreshAtNanos,
+                                      String eTag, String lastModified) {
+    }
+
+    private record LoadedStatusList(Optional<ValidatedStatusList> statusList, boolean notModified,
+                                    String eTag, String lastModified) {
+    }
 }
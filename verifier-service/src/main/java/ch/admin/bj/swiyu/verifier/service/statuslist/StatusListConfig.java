@@ -3,15 +3,12 @@ package ch.admin.bj.swiyu.verifier.service.statuslist;
 import java.util.HashSet;
 import java.util.Set;
 
-import ch.admin.bj.swiyu.verifier.common.config.VerificationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 
 import ch.admin.bj.swiyu.jwtvalidator.DidJwtValidator;
 import ch.admin.bj.swiyu.jwtvalidator.UrlRestriction;
-import ch.admin.bj.swiyu.statuslist.TokenStatusListVerifier;
-import ch.admin.bj.swiyu.statuslist.TokenStatusListVerifierConfig;
 import ch.admin.bj.swiyu.verifier.common.config.ApplicationProperties;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -22,7 +19,6 @@ import lombok.extern.slf4j.Slf4j;
 public class StatusListConfig {
     
     private final ApplicationProperties applicationProperties;
-    private final VerificationProperties verificationProperties;
 
     /**
      * Creates a {@link DidJwtValidator} restricted to the configured registry hosts.
@@ -41,17 +37,4 @@ public class StatusListConfig {
         log.info("Configuring trust statement JWT validator with allowed host: {}", hosts);
         return new DidJwtValidator(new UrlRestriction(hosts));
     }
-
-    /**
-     * Creates a {@link TokenStatusListVerifier} which can be configured using the application properties
-     * @return the {@link TokenStatusListVerifier} bean named {@code tokenStatusListVerifier}
-     */
-    @Bean
-    public TokenStatusListVerifier tokenStatusListVerifier() {
-        return new TokenStatusListVerifier(
-            TokenStatusListVerifierConfig.builder()
-                .issuerMustMatch(true)
-                .expiryMustBePresent(verificationProperties.isExpiryMustBePresent())
-                .build());
-    }
 }
@@ -0,0 +1,25 @@
+package ch.admin.bj.swiyu.verifier.service.statuslist;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Response of a (conditional) status list request.
+ *
+ * @param notModified   true if the server answered 304, i.e. the status list sent with the validators is still current
+ * @param statusListJwt the status list token, null if not modified
+ * @param eTag          the ETag header of the response, to re-validate the status list with If-None-Match
+ * @param lastModified  the Last-Modified header of the response, to re-validate the status list with If-Modified-Since
+ */
+public record StatusListFetchResult(boolean notModified,
+                                    @Nullable String statusListJwt,
+                                    @Nullable String eTag,
+                                    @Nullable String lastModified) {
+
+    public static StatusListFetchResult modified(String statusListJwt, @Nullable String eTag, @Nullable String lastModified) {
+        return new StatusListFetchResult(false, statusListJwt, eTag, lastModified);
+    }
+
+    public static StatusListFetchResult notModified(@Nullable String eTag, @Nullable String lastModified) {
+        return new StatusListFetchResult(true, null, eTag, lastModified);
+    }
+}
@@ -6,7 +6,10 @@ import ch.admin.bj.swiyu.verifier.common.config.UrlRewriteProperties;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpStatusCode;
+
+import jakarta.annotation.Nullable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
@@ -15,6 +18,7 @@ import reactor.core.publisher.Mono;
 
 import java.net.MalformedURLException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 
 import static org.apache.commons.lang3.ObjectUtils.isEmpty;
 
@@ -31,7 +35,26 @@ public class StatusListResolver {
     private final WebClient statusListWebClient;
     private final ApplicationProperties applicationProperties;
 
+    /**
+     * Downloads the status list token found at the URI.
+     *
+     * @param uri URI where the status list is located
+     * @return the status list token
+     */
     public String resolveStatusList(String uri) {
+        return fetchStatusList(uri, null, null).statusListJwt();
+    }
+
+    /**
+     * Downloads the status list token found at the URI. If validators of a previous response are given, the request is
+     * conditional and the server can answer with 304 Not Modified instead of sending the status list again.
+     *
+     * @param uri          URI where the status list is located
+     * @param eTag         ETag of the status list known to the caller, sent as If-None-Match
+     * @param lastModified Last-Modified of the status list known to the caller, sent as If-Modified-Since
+     * @return the downloaded status list with its validators, or not modified
+     */
+    public StatusListFetchResult fetchStatusList(String uri, @Nullable String eTag, @Nullable String lastModified) {
 
         var rewrittenUrl = urlRewriteProperties.getRewrittenUrl(uri);
         log.debug("HTTP Request after url rewrite to status list from {}", rewrittenUrl);
@@ -50,14 +73,23 @@ public class StatusListResolver {
             throw new IllegalArgumentException("Malformed URL %s in StatusList".formatted(rewrittenUrl), e);
         }
 
-        var result = statusListWebClient
+        var response = statusListWebClient
                 .get()
                 .uri(rewrittenUrl)
+                .headers(headers -> {
+                    if (eTag != null) {
+                        headers.setIfNoneMatch(eTag);
+                    }
+                    if (lastModified != null) {
+                        headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+                    }
+                })
                 .retrieve()
-                .onStatus(status -> status != HttpStatusCode.valueOf(200), response ->
+                .onStatus(status -> !status.isSameCodeAs(HttpStatus.OK) && !status.isSameCodeAs(HttpStatus.NOT_MODIFIED), clientResponse ->
                         Mono.error(new StatusListFetchFailedException(
                                 "Status list with uri: %s could not be retrieved".formatted(rewrittenUrl))))
-                .bodyToMono(String.class)
+                // the compact JWT is ASCII, reading it as bytes skips the charset decoding of the String decoder
+                .toEntity(byte[].class)
                 .onErrorResume(WebClientResponseException.class, ex -> {
                     if (ex.getCause().toString().contains("DataBufferLimitException")) {
                         return Mono.error(new StatusListMaxSizeExceededException(
@@ -69,11 +101,25 @@ public class StatusListResolver {
                 })
                 .block();
 
-        if (result == null) {
+        if (response == null) {
+            throw new StatusListFetchFailedException(
+                    "Status list with uri: %s returned an empty response".formatted(rewrittenUrl));
+        }
+        var headers = response.getHeaders();
+        var responseETag = headers.getETag();
+        var responseLastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+        if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+            log.debug("Status list from {} not modified", rewrittenUrl);
+            return StatusListFetchResult.notModified(
+                    responseETag != null ? responseETag : eTag,
+                    responseLastModified != null ? responseLastModified : lastModified);
+        }
+        if (response.getBody() == null) {
             throw new StatusListFetchFailedException(
                     "Status list with uri: %s returned an empty response".formatted(rewrittenUrl));
         }
-        return result;
+        return StatusListFetchResult.modified(
+                new String(response.getBody(), StandardCharsets.US_ASCII), responseETag, responseLastModified);
     }
 
     private boolean isHttpsUrl(String url) {
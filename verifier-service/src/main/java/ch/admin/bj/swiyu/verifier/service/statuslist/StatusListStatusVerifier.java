@@ -0,0 +1,90 @@
+package ch.admin.bj.swiyu.verifier.service.statuslist;
+
+import ch.admin.bj.swiyu.verifier.common.config.VerificationProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+import java.util.OptionalInt;
+
+/**
+ * Reads the status of a token (credential or trust statement) from the Token Status List it references.
+ * <p>
+ * Credentials and trust statements are checked with the same rules: the status list has to be issued by the issuer of
+ * the token, its {@code sub} has to be the URI referenced by the token and, unless disabled with {@code verification.expiry-must-be-present}, carry an expiry which has not
+ * passed. The status is read from the status values decoded when the status list was loaded.
+ */
+@Service
+@RequiredArgsConstructor
+public class StatusListStatusVerifier {
+
+    /**
+     * Status value of a token which is neither revoked nor suspended.
+     */
+    public static final int VALID_STATUS = 0;
+
+    private final VerificationProperties verificationProperties;
+
+    /**
+     * @param tokenIssuer   the {@code iss} claim of the token referencing the status list
+     * @param statusListUri the {@code status.status_list.uri} claim of the token referencing the status list
+     * @param index         the index of the token in the status list, see {@link #getStatusListIndex(Map)}
+     * @param statusList    the referenced status list
+     * @return the status of the token, empty if the status list is not applicable to the token
+     * @throws IndexOutOfBoundsException if the index is not within the status list
+     */
+    public OptionalInt verifyStatus(Object tokenIssuer, String statusListUri, int index, ValidatedStatusList statusList) {
+        if (!isApplicableStatusList(statusList, tokenIssuer, statusListUri)) {
+            return OptionalInt.empty();
+        }
+        return OptionalInt.of(statusList.statuses().statusAt(index));
+    }
+
+    private boolean isApplicableStatusList(ValidatedStatusList statusList, Object tokenIssuer, String statusListUri) {
+        if (statusList.issuer() == null || !statusList.issuer().equals(tokenIssuer)) {
+            return false;
+        }
+        // A status list published at one URI must not be used for a token referencing another one
+        if (statusList.subject() == null || !statusList.subject().equals(statusListUri)) {
+            return false;
+        }
+        Long exp = statusList.token().getExp();
+        if (exp == null) {
+            return !verificationProperties.isExpiryMustBePresent();
+        }
+        return Instant.now().getEpochSecond() < exp;
+    }
+
+    /**
+     * @param claims claims of the token referencing the status list
+     * @return the {@code status.status_list.idx} claim of the token, empty if it is missing or not a whole number
+     *         between 0 and {@link Integer#MAX_VALUE}
+     */
+    public static OptionalInt getStatusListIndex(Map<String, Object> claims) {
+        if (claims.get("status") instanceof Map<?, ?> status
+                && status.get("status_list") instanceof Map<?, ?> statusListReference
+                && statusListReference.get("idx") instanceof Number idx) {
+            return toIndex(idx);
+        }
+        return OptionalInt.empty();
+    }
+
+    private static OptionalInt toIndex(Number idx) {
+        BigDecimal value;
+        try {
+            // Exact for all number types produced by the JSON parser, unlike Number#longValue
+            value = new BigDecimal(idx.toString());
+        } catch (NumberFormatException e) {
+            // NaN or infinite
+            return OptionalInt.empty();
+        }
+        if (value.signum() < 0
+                || value.stripTrailingZeros().scale() > 0
+                || value.compareTo(BigDecimal.valueOf(Integer.MAX_VALUE)) > 0) {
+            return OptionalInt.empty();
+        }
+        return OptionalInt.of(value.intValueExact());
+    }
+}
@@ -0,0 +1,15 @@
+package ch.admin.bj.swiyu.verifier.service.statuslist;
+
+import ch.admin.bj.swiyu.statuslist.dto.TokenStatusListTokenDto;
+
+/**
+ * A Token Status List whose signature was verified, together with its already decoded status values.
+ *
+ * @param token    the status list token
+ * @param issuer   the {@code iss} claim of the status list token, or the DID of its signing key if it has none
+ * @param subject  the {@code sub} claim of the status list token, the URI the status list is published at
+ * @param statuses the decompressed status values of the status list
+ */
+public record ValidatedStatusList(TokenStatusListTokenDto token, String issuer, String subject,
+                                  DecodedStatusList statuses) {
+}
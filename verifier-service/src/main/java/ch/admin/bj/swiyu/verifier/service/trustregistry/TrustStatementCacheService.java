@@ -2,28 +2,41 @@ package ch.admin.bj.swiyu.verifier.service.trustregistry;
 
 import ch.admin.bj.swiyu.core.trust.client.api.TrustProtocol20Api;
 import ch.admin.bj.swiyu.core.trust.client.model.PagedModelString;
-import ch.admin.bj.swiyu.jwtvalidator.JwtValidatorException;
 import ch.admin.bj.swiyu.verifier.common.config.CacheProperties;
 import ch.admin.bj.swiyu.verifier.common.config.TrustRegistryProperties;
 
-import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
 import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 import org.jspecify.annotations.NonNull;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Service;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * Service that fetches and caches Trust Protocol 2.0 trust statements
@@ -60,6 +73,15 @@ import java.util.concurrent.TimeUnit;
  * </p>
  *
  * <p>
+ * All caches are {@link AsyncLoadingCache}s holding the pending registry call,
+ * so the statements of one issuer can be fetched concurrently and concurrent
+ * misses for the same key share a single call. Once a valid statement passed
+ * {@code swiyu.trust-registry.refresh-ahead-ratio} of its validity window it
+ * is reloaded in the background while the cached one is still returned. A
+ * failed reload keeps the cached statement until it expires.
+ * </p>
+ *
+ * <p>
  * Only active when {@code swiyu.trust-registry.api-url} is configured.
  * </p>
  */
@@ -68,6 +90,13 @@ import java.util.concurrent.TimeUnit;
 @ConditionalOnExpression("'${swiyu.trust-registry.api-url:}'.length() > 0")
 public class TrustStatementCacheService {
     private final static String ACTIVE_TRUST_LIST_STATEMENT = "active_trust_list_statement";
+    /**
+     * Cached for the request backoff when the active piTLS or ncTLS could not be
+     * fetched. Compared by identity to tell it apart from a registry without an
+     * active list.
+     */
+    private static final ValidatedSingleTrustStatement FAILED_TRUST_LIST_STATEMENT =
+            new ValidatedSingleTrustStatement(Optional.empty(), false, 0);
 
     private final CacheProperties cacheProperties;
     private final TrustProtocol20Api trustProtocol20Api;
@@ -75,13 +104,23 @@ public class TrustStatementCacheService {
     private final CacheMaintenanceService cacheMaintenanceService;
 
     private final TrustStatementValidator trustStatementValidator;
+    private final Ticker ticker = Ticker.systemTicker();
+    private final List<Consumer<String>> invalidationListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Scheduler validating the fetched statements. Validation resolves DIDs and status lists with blocking calls,
+     * so every validation runs on its own virtual thread instead of competing for the capped bounded elastic pool.
+     */
+    private final Scheduler validationScheduler = Schedulers.fromExecutorService(
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("trust-statement-validation-", 0).factory()),
+            "trust-statement-validation");
 
     /**
      * Cache for {@code idTS} JWTs, keyed by issuer DID.
      * Stores a single Optional JWT per issuer.
      */
     @Getter(value = AccessLevel.PROTECTED) // Allow Protected level access to cache for unit tests
-    private final Cache<String, ValidatedSingleTrustStatement> idTsCache;
+    private final AsyncLoadingCache<String, CachedValue<ValidatedSingleTrustStatement>> idTsCache;
 
     /**
      * Cache for {@code pvaTS} JWT lists, keyed by verifier DID.
@@ -92,11 +131,11 @@ public class TrustStatementCacheService {
      * expires.
      */
     @Getter(value = AccessLevel.PROTECTED) // Allow Protected level access to cache for unit tests
-    private final Cache<String, List<ValidatedSingleTrustStatement>> pvaTsCache;
+    private final AsyncLoadingCache<String, CachedValue<List<ValidatedSingleTrustStatement>>> pvaTsCache;
 
-    private final Cache<String, ValidatedSingleTrustStatement> piTLSCache;
-    private final Cache<String, ValidatedSingleTrustStatement> ncTLSCache;
-    private final Cache<String, List<ValidatedSingleTrustStatement>> piaTsCache;
+    private final AsyncLoadingCache<String, CachedValue<ValidatedSingleTrustStatement>> piTLSCache;
+    private final AsyncLoadingCache<String, CachedValue<ValidatedSingleTrustStatement>> ncTLSCache;
+    private final AsyncLoadingCache<String, CachedValue<List<ValidatedSingleTrustStatement>>> piaTsCache;
 
     /**
      * Constructs the cache service with injected API client and configuration.
@@ -116,19 +155,24 @@ public class TrustStatementCacheService {
         this.cacheMaintenanceService = cacheMaintenanceService;
         this.trustStatementValidator = trustStatementValidator;
         this.cacheProperties = cacheProperties;
-        this.idTsCache = buildTrustStatementCache();
-        this.pvaTsCache = buildTrustStatementListCache();
-        this.piTLSCache = buildTrustStatementCache();
-        this.ncTLSCache = buildTrustStatementCache();
-        this.piaTsCache = buildTrustStatementListCache();
+        this.idTsCache = buildTrustStatementCache(this::fetchIdentityTrustStatement);
+        this.pvaTsCache = buildTrustStatementListCache(this::fetchProtectedVerificationAuthorizationTrustStatements);
+        this.piTLSCache = buildTrustStatementCache(k -> fetchProtectedIssuanceTrustListStatement());
+        this.ncTLSCache = buildTrustStatementCache(k -> fetchNonComplianceTrustListStatement());
+        this.piaTsCache = buildTrustStatementListCache(this::fetchProtectedIssuanceAuthorizationTrustStatements);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        validationScheduler.dispose();
     }
 
     /**
      * Retrieves every Trust Protocol 2.0 issuance statement that is relevant for
      * the given
-     * {@code issuerDid}. The method performs a single {@link Mono#zip} call that
-     * concurrently
-     * invokes the four side‑channel endpoints:
+     * {@code issuerDid}. The method concurrently looks up the four statements
+     * and invokes the side‑channel endpoint of every cache miss, so a cold
+     * lookup costs the latency of the slowest call instead of the sum of all:
      * <ul>
      * <li>{@code GET /idTS/{issuerDid}}</li>
      * <li>{@code GET /activePiTLS}</li>
@@ -155,13 +199,36 @@ public class TrustStatementCacheService {
      *         call returns {@code null} or an empty page
      */
     public List<String> getAllIssuanceStatementsFor(String issuerDid) {
+        return getIssuanceStatementsFor(issuerDid).statements();
+    }
+
+    /**
+     * Same as {@link #getAllIssuanceStatementsFor(String)}, additionally returning
+     * how long the statements stay unchanged in the cache. Results derived from
+     * the statements can be cached for that long.
+     *
+     * @param issuerDid the DID of the credential issuer for which issuance
+     *                  statements are required
+     * @return the statements with the remaining lifetime of the first of them to
+     *         expire, which is zero if any of them could not be loaded
+     */
+    public IssuanceStatements getIssuanceStatementsFor(String issuerDid) {
         log.trace("Fetching trust statements related to issuance for {}", issuerDid);
-        List<String> trustStatements = new LinkedList<>();
-        trustStatements.add(getIdentityTrustStatement(issuerDid));
-        trustStatements.add(getProtectedIssuanceTrustListStatement());
-        trustStatements.add(getNonComplianceTrustListStatement());
-        trustStatements.addAll(getProtectedIssuanceAuthorizationTrustStatements(issuerDid));
-        return trustStatements.stream().filter(Objects::nonNull).toList();
+        var idTs = lookupIdentityTrustStatement(issuerDid);
+        var piTls = lookupProtectedIssuanceTrustListStatement();
+        var ncTls = lookupNonComplianceTrustListStatement();
+        var piaTs = lookupProtectedIssuanceAuthorizationTrustStatements(issuerDid);
+        CompletableFuture.allOf(idTs, piTls, ncTls, piaTs).join();
+
+        List<String> trustStatements = new ArrayList<>();
+        validStatement(idTs.join()).ifPresent(trustStatements::add);
+        validStatement(piTls.join()).ifPresent(trustStatements::add);
+        validStatement(ncTls.join()).ifPresent(trustStatements::add);
+        trustStatements.addAll(presentStatements(piaTs.join()));
+        // Arrays.asList as entries which could not be loaded are null
+        var validityNanos = remainingNanos(Arrays.asList(idTs.join(), loadedTrustList(piTls.join()),
+                loadedTrustList(ncTls.join()), piaTs.join()));
+        return new IssuanceStatements(trustStatements, validityNanos);
     }
 
     /**
@@ -175,22 +242,17 @@ public class TrustStatementCacheService {
      */
     @Nullable
     public String getIdentityTrustStatement(String did) {
-        ValidatedSingleTrustStatement cached = idTsCache.get(did, this::fetchIdentityTrustStatement);
-        return cached != null && cached.trustStatement.isPresent() && cached.valid ? cached.trustStatement.orElse(null) : null;
+        return validStatement(lookupIdentityTrustStatement(did).join()).orElse(null);
     }
 
     @Nullable
     public String getProtectedIssuanceTrustListStatement() {
-        ValidatedSingleTrustStatement cached = piTLSCache.get(ACTIVE_TRUST_LIST_STATEMENT,
-                k -> this.fetchProtectedIssuanceTrustListStatement());
-        return cached != null && cached.trustStatement.isPresent() && cached.valid ? cached.trustStatement.orElse(null) : null;
+        return validStatement(lookupProtectedIssuanceTrustListStatement().join()).orElse(null);
     }
 
     @Nullable
     public String getNonComplianceTrustListStatement() {
-        ValidatedSingleTrustStatement cached = ncTLSCache.get(ACTIVE_TRUST_LIST_STATEMENT,
-                k -> this.fetchNonComplianceTrustListStatement());
-        return cached != null && cached.trustStatement.isPresent() && cached.valid ? cached.trustStatement.orElse(null) : null;
+        return validStatement(lookupNonComplianceTrustListStatement().join()).orElse(null);
     }
 
     /**
@@ -216,32 +278,47 @@ public class TrustStatementCacheService {
      * @return a non-null, possibly empty list of pvaTS JWT strings
      */
     public List<String> getProtectedVerificationAuthorizationTrustStatements(String verifierDid) {
-        List<ValidatedSingleTrustStatement> statements = pvaTsCache.get(verifierDid, this::fetchProtectedVerificationAuthorizationTrustStatements);
-        if (statements == null) {
-            return List.of();
-        }
-        return statements
-                .stream().map(vts -> vts.trustStatement)
-                .filter(ts -> ts.isPresent())
-                .map(ts -> ts.get()).toList();
+        return presentStatements(lookup(pvaTsCache, verifierDid).join());
     }
 
     public List<String> getProtectedIssuanceAuthorizationTrustStatements(String issuerDid) {
-        List<ValidatedSingleTrustStatement> statements = piaTsCache.get(issuerDid, this::fetchProtectedIssuanceAuthorizationTrustStatements);
-        if (statements == null) {
-            return List.of();
-        }
-        return statements
-                .stream().map(vts -> vts.trustStatement)
-                .filter(ts -> ts.isPresent())
-                .map(ts -> ts.get()).toList();
+        return presentStatements(lookupProtectedIssuanceAuthorizationTrustStatements(issuerDid).join());
+    }
+
+    /**
+     * Loads the trust statements used for verifying credentials of the given
+     * issuers and for the authorization requests of the given verifiers into the
+     * caches, so the first requests do not have to wait for the trust registry.
+     * Statements which are already cached and due for a refresh are reloaded in
+     * the background. All lookups run concurrently, failures are only logged.
+     *
+     * @param issuerDids   DIDs of the issuers whose {@code idTS} and {@code piaTS} are loaded,
+     *                     along with the active {@code piTLS} and {@code ncTLS}
+     * @param verifierDids DIDs of the verifiers whose {@code idTS} and {@code pvaTS} are loaded
+     */
+    public void warmUp(Collection<String> issuerDids, Collection<String> verifierDids) {
+        List<CompletableFuture<?>> lookups = new ArrayList<>();
+        lookups.add(lookupProtectedIssuanceTrustListStatement());
+        lookups.add(lookupNonComplianceTrustListStatement());
+        issuerDids.forEach(issuerDid -> {
+            lookups.add(lookupIdentityTrustStatement(issuerDid));
+            lookups.add(lookupProtectedIssuanceAuthorizationTrustStatements(issuerDid));
+        });
+        verifierDids.forEach(verifierDid -> {
+            lookups.add(lookupIdentityTrustStatement(verifierDid));
+            lookups.add(lookup(pvaTsCache, verifierDid));
+        });
+        CompletableFuture.allOf(lookups.toArray(CompletableFuture[]::new)).join();
+        var loaded = lookups.stream().filter(lookup -> lookup.join() != null).count();
+        log.info("Warmed up trust statement caches, {} of {} lookups loaded", loaded, lookups.size());
     }
 
     /**
-     * Invalidates all cached Trust Statements (idTS and pvaTS) for the given DID.
+     * Invalidates all cached Trust Statements of the given DID (idTS, pvaTS and
+     * piaTS) and notifies the registered invalidation listeners.
      *
      * <p>
-     * Convenience method combining both invalidations. Useful when a general
+     * Convenience method combining these invalidations. Useful when a general
      * trust failure is detected and all statements for a DID should be refreshed.
      * </p>
      *
@@ -255,49 +332,111 @@ public class TrustStatementCacheService {
      */
     public void invalidateAllTrustStatements(String did) {
         log.info("Invalidating all cached trust statements for DID {}", did);
-        idTsCache.invalidate(did);
-        pvaTsCache.invalidate(did);
-        piaTsCache.invalidate(did);
+        idTsCache.synchronous().invalidate(did);
+        pvaTsCache.synchronous().invalidate(did);
+        piaTsCache.synchronous().invalidate(did);
+        invalidationListeners.forEach(listener -> listener.accept(did));
         cacheMaintenanceService.evictJwkManually(did);
     }
 
-    private ValidatedSingleTrustStatement fetchIdentityTrustStatement(String issuerDid) {
-        try {
-            String jwt = trustProtocol20Api.getIdTS(issuerDid).block();
-            if (jwt == null) {
-                log.warn("No idTS trust statement found for issuer {}", issuerDid);
-            }
-            return validateTrustStatement(jwt);
-        } catch (RuntimeException e) {
-            log.warn("Failed to fetch idTS for issuer {}: {}", issuerDid, e.getMessage());
-            return null;
-        }
+    /**
+     * Registers a listener which is called with the DID passed to
+     * {@link #invalidateAllTrustStatements(String)}, for caches holding results
+     * derived from the trust statements of that DID.
+     *
+     * @param listener consumer of the invalidated DID
+     */
+    public void addInvalidationListener(Consumer<String> listener) {
+        invalidationListeners.add(listener);
     }
 
-    private ValidatedSingleTrustStatement fetchProtectedIssuanceTrustListStatement() {
-        try {
-            String jwt = trustProtocol20Api.getActivePiTLS().block();
-            if (jwt == null) {
-                log.warn("No active protected issuance trust list statement found");
-            }
-            return validateTrustStatement(jwt);
-        } catch (RuntimeException e) {
-            log.warn("Failed to fetch piTLS", e.getMessage());
-            return new ValidatedSingleTrustStatement(Optional.empty(), false, 0);
-        }
+    private CompletableFuture<CachedValue<ValidatedSingleTrustStatement>> lookupIdentityTrustStatement(String issuerDid) {
+        return lookup(idTsCache, issuerDid);
     }
 
-    private ValidatedSingleTrustStatement fetchNonComplianceTrustListStatement() {
-        try {
-            String jwt = trustProtocol20Api.getActiveNcTLS().block();
-            if (jwt == null) {
-                log.warn("No active non-compliance statement found");
+    private CompletableFuture<CachedValue<ValidatedSingleTrustStatement>> lookupProtectedIssuanceTrustListStatement() {
+        return lookup(piTLSCache, ACTIVE_TRUST_LIST_STATEMENT);
+    }
+
+    private CompletableFuture<CachedValue<ValidatedSingleTrustStatement>> lookupNonComplianceTrustListStatement() {
+        return lookup(ncTLSCache, ACTIVE_TRUST_LIST_STATEMENT);
+    }
+
+    private CompletableFuture<CachedValue<List<ValidatedSingleTrustStatement>>> lookupProtectedIssuanceAuthorizationTrustStatements(String issuerDid) {
+        return lookup(piaTsCache, issuerDid);
+    }
+
+    /**
+     * Looks up the cached value, loading it on a miss, and starts a background
+     * refresh once the value is due for it. Concurrent refreshes of the same key
+     * are coalesced by Caffeine.
+     *
+     * @return future completing with the cache entry, or {@code null} if it
+     *         could not be loaded
+     */
+    private <V> CompletableFuture<CachedValue<V>> lookup(AsyncLoadingCache<String, CachedValue<V>> cache, String key) {
+        var future = cache.get(key);
+        return future.thenApply(cached -> {
+            if (cached == null) {
+                // Caffeine drops failed loads asynchronously, remove it right away so the next lookup retries
+                cache.asMap().remove(key, future);
+                return null;
             }
-            return validateTrustStatement(jwt);
-        } catch (RuntimeException e) {
-            log.warn("Failed to fetch idTS for issuer {}", e.getMessage());
-            return new ValidatedSingleTrustStatement(Optional.empty(), false, 0);
-        }
+            if (ticker.read() >= cached.refreshAtNanos()) {
+                log.debug("Refreshing trust statement cache entry {} in the background", key);
+                cache.synchronous().refresh(key);
+            }
+            return cached;
+        });
+    }
+
+    /**
+     * Completes with {@code null} on failure, which Caffeine does not cache, so the
+     * next lookup asks the registry again.
+     */
+    private CompletableFuture<ValidatedSingleTrustStatement> fetchIdentityTrustStatement(String issuerDid) {
+        return validateStatement(Mono.defer(() -> trustProtocol20Api.getIdTS(issuerDid)),
+                () -> log.warn("No idTS trust statement found for issuer {}", issuerDid))
+                .onErrorResume(e -> {
+                    log.warn("Failed to fetch idTS for issuer {}: {}", issuerDid, e.getMessage());
+                    return Mono.empty();
+                })
+                .toFuture();
+    }
+
+    private CompletableFuture<ValidatedSingleTrustStatement> fetchProtectedIssuanceTrustListStatement() {
+        return validateStatement(Mono.defer(trustProtocol20Api::getActivePiTLS),
+                () -> log.warn("No active protected issuance trust list statement found"))
+                .onErrorResume(e -> {
+                    log.warn("Failed to fetch piTLS: {}", e.getMessage());
+                    return Mono.just(FAILED_TRUST_LIST_STATEMENT);
+                })
+                .toFuture();
+    }
+
+    private CompletableFuture<ValidatedSingleTrustStatement> fetchNonComplianceTrustListStatement() {
+        return validateStatement(Mono.defer(trustProtocol20Api::getActiveNcTLS),
+                () -> log.warn("No active non-compliance statement found"))
+                .onErrorResume(e -> {
+                    log.warn("Failed to fetch ncTLS: {}", e.getMessage());
+                    return Mono.just(FAILED_TRUST_LIST_STATEMENT);
+                })
+                .toFuture();
+    }
+
+    /**
+     * Validates the statement emitted by the registry call. Validation may resolve
+     * DIDs and status lists with blocking calls, so it runs on a virtual thread
+     * instead of the thread completing the HTTP response.
+     */
+    private Mono<ValidatedSingleTrustStatement> validateStatement(Mono<String> registryCall, Runnable onEmpty) {
+        return registryCall
+                .publishOn(validationScheduler)
+                .map(this::validateTrustStatement)
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    onEmpty.run();
+                    return validateTrustStatement(null);
+                }));
     }
 
     /**
@@ -313,33 +452,37 @@ public class TrustStatementCacheService {
      * @return an Optional wrapping the list of validated pvaTS JWT strings;
      *         {@code Optional.empty()} for negative cache entries
      */
-    private List<ValidatedSingleTrustStatement> fetchProtectedVerificationAuthorizationTrustStatements(
+    private CompletableFuture<List<ValidatedSingleTrustStatement>> fetchProtectedVerificationAuthorizationTrustStatements(
             String verifierDid) {
-        try {
-            var response = trustProtocol20Api.listPvaTS(verifierDid, true, null, null, null).block();
-            List<String> jwts = getListOfStatements(response);
-            return jwts.stream()
-                    .map(this::validateTrustStatement)
-                    .filter(vts -> vts.valid)
-                    .toList();
-        } catch (RuntimeException e) {
-            log.warn("An error occured while fetching pvaTS for verifier {}: {}", verifierDid, e.getMessage());
-            return null;
-        }
+        return Mono.defer(() -> trustProtocol20Api.listPvaTS(verifierDid, true, null, null, null))
+                .publishOn(validationScheduler)
+                .map(this::validateTrustStatements)
+                .defaultIfEmpty(List.of())
+                .onErrorResume(e -> {
+                    log.warn("An error occured while fetching pvaTS for verifier {}: {}", verifierDid, e.getMessage());
+                    return Mono.empty();
+                })
+                .toFuture();
     }
 
-    private List<ValidatedSingleTrustStatement> fetchProtectedIssuanceAuthorizationTrustStatements(String issuerDid) {
-        try {
-            var response = trustProtocol20Api.listPiaTS(issuerDid, true, null, null, null).block();
-            List<String> jwts = getListOfStatements(response);
-            return jwts.stream()
-                    .map(this::validateTrustStatement)
-                    .filter(vts -> vts.valid)
-                    .toList();
-        } catch (RuntimeException e) {
-            log.warn("An error occured while fetching piaTS for issuer {}: {}", issuerDid, e.getMessage());
-            return null; // Returning an empty list here will cause it to be cached for cacheProperties.getRequestBackoffSeconds()
-        }
+    private CompletableFuture<List<ValidatedSingleTrustStatement>> fetchProtectedIssuanceAuthorizationTrustStatements(String issuerDid) {
+        return Mono.defer(() -> trustProtocol20Api.listPiaTS(issuerDid, true, null, null, null))
+                .publishOn(validationScheduler)
+                .map(this::validateTrustStatements)
+                .defaultIfEmpty(List.of())
+                .onErrorResume(e -> {
+                    log.warn("An error occured while fetching piaTS for issuer {}: {}", issuerDid, e.getMessage());
+                    // Completing with an empty list here would cache it for cacheProperties.getRequestBackoffSeconds()
+                    return Mono.empty();
+                })
+                .toFuture();
+    }
+
+    private List<ValidatedSingleTrustStatement> validateTrustStatements(PagedModelString response) {
+        return getListOfStatements(response).stream()
+                .map(this::validateTrustStatement)
+                .filter(vts -> vts.valid)
+                .toList();
     }
 
     private ValidatedSingleTrustStatement validateTrustStatement(String tsJWT) {
@@ -351,37 +494,13 @@ public class TrustStatementCacheService {
     /**
      * Builds a Caffeine cache for single valid trust statement with dynamic TTL.
      * derived from the minimum of JWT {@code exp} claims and Status List TTL claim.
+     * A reload which did not return any statement keeps the cached one.
      */
-    private Cache<String, ValidatedSingleTrustStatement> buildTrustStatementCache() {
-        return Caffeine.newBuilder()
-                .maximumSize(properties.getMaxCacheSize())
-                .expireAfter(buildSingleTrustStatementExpiry())
-                .build();
-    }
-
-    private @NonNull Expiry<String, ValidatedSingleTrustStatement> buildSingleTrustStatementExpiry() {
-        return new Expiry<>() {
-            @Override
-            public long expireAfterCreate(String key, ValidatedSingleTrustStatement ts, long currentTime) {
-                return getValidTtlOrBackoff(ts);
-            }
-
-            @Override
-            public long expireAfterUpdate(String key, ValidatedSingleTrustStatement ts, long currentTime,
-                    long currentDuration) {
-                return getValidTtlOrBackoff(ts);
-            }
-
-            @Override
-            public long expireAfterRead(String key, ValidatedSingleTrustStatement ts, long currentTime,
-                    long currentDuration) {
-                return currentDuration;
-            }
-
-            private long getValidTtlOrBackoff(ValidatedSingleTrustStatement value) {
-                return value.valid ? value.ttl : TimeUnit.SECONDS.toNanos(cacheProperties.getRequestBackoffSeconds());
-            }
-        };
+    private AsyncLoadingCache<String, CachedValue<ValidatedSingleTrustStatement>> buildTrustStatementCache(
+            Function<String, CompletableFuture<ValidatedSingleTrustStatement>> fetch) {
+        return buildCache(fetch,
+                ts -> ts.valid ? OptionalLong.of(ts.ttl) : OptionalLong.empty(),
+                ts -> ts.trustStatement.isEmpty());
     }
 
     /**
@@ -394,48 +513,66 @@ public class TrustStatementCacheService {
      * Invalid Statements or no statments use a fixed TTL until fetch is
      * reattempted.
      */
-    private Cache<String, List<ValidatedSingleTrustStatement>> buildTrustStatementListCache() {
+    private AsyncLoadingCache<String, CachedValue<List<ValidatedSingleTrustStatement>>> buildTrustStatementListCache(
+            Function<String, CompletableFuture<List<ValidatedSingleTrustStatement>>> fetch) {
+        return buildCache(fetch,
+                statements -> statements.stream()
+                        .filter(v -> v.valid)
+                        .mapToLong(v -> v.ttl)
+                        .min(),
+                statements -> false);
+    }
+
+    /**
+     * @param fetch            loads the value from the trust registry, completes with {@code null} on failure
+     * @param validityWindow   how long a value is valid in nanoseconds, empty if it is cached for the backoff only
+     * @param isFailedReload   whether a reloaded value must not replace the cached one
+     */
+    private <V> AsyncLoadingCache<String, CachedValue<V>> buildCache(Function<String, CompletableFuture<V>> fetch,
+            Function<V, OptionalLong> validityWindow, Predicate<V> isFailedReload) {
         return Caffeine.newBuilder()
                 .maximumSize(properties.getMaxCacheSize())
-                .expireAfter(buildListTrustStatementExpiry())
-                .build();
+                .ticker(ticker)
+                .expireAfter(new CachedValueExpiry<V>())
+                .buildAsync(new AsyncCacheLoader<String, CachedValue<V>>() {
+                    @Override
+                    public CompletableFuture<CachedValue<V>> asyncLoad(String key, Executor executor) {
+                        return fetch.apply(key).thenApply(value -> value != null ? toCachedValue(value, validityWindow.apply(value)) : null);
+                    }
+
+                    @Override
+                    public CompletableFuture<CachedValue<V>> asyncReload(String key, CachedValue<V> oldValue, Executor executor) {
+                        return asyncLoad(key, executor).thenApply(reloaded -> {
+                            if (reloaded != null && !isFailedReload.test(reloaded.value())) {
+                                return reloaded;
+                            }
+                            log.warn("Failed to refresh trust statement cache entry {}, keeping the cached one", key);
+                            return oldValue.withRefreshAt(saturatedAdd(ticker.read(), getBackoffNanos()));
+                        });
+                    }
+                });
     }
 
-    private @NonNull Expiry<String, List<ValidatedSingleTrustStatement>> buildListTrustStatementExpiry() {
-        return new Expiry<String, List<ValidatedSingleTrustStatement>>() {
-
-            @Override
-            public long expireAfterCreate(String key, List<ValidatedSingleTrustStatement> value, long currentTime) {
-                return getValidTtlOrBackoff(value);
-            }
-
-            @Override
-            public long expireAfterUpdate(String key, List<ValidatedSingleTrustStatement> value, long currentTime,
-                    long currentDuration) {
-                return getValidTtlOrBackoff(value);
-            }
-
-            @Override
-            public long expireAfterRead(String key, List<ValidatedSingleTrustStatement> value, long currentTime,
-                    long currentDuration) {
-                return currentDuration;
-            }
+    /**
+     * Cache the value for its validity window, refreshing it after the configured share of it. Without a validity
+     * window the value is cached for backoff seconds to prevent spamming the registry.
+     */
+    private <V> CachedValue<V> toCachedValue(V value, OptionalLong validityWindow) {
+        var now = ticker.read();
+        if (validityWindow.isEmpty()) {
+            return new CachedValue<>(value, saturatedAdd(now, getBackoffNanos()), Long.MAX_VALUE);
+        }
+        var ttl = validityWindow.getAsLong();
+        var refreshAfter = (long) (ttl * properties.getRefreshAheadRatio());
+        return new CachedValue<>(value, saturatedAdd(now, ttl), saturatedAdd(now, refreshAfter));
+    }
 
-            /**
-             * Cache the list of trust statements for the ttl. If no valid trust statement is found, cache the empty list for
-             * backoff seconds to prevent spamming the registry
-             * @param value the list of trust statements to be cached
-             * @return cache duration in nanoseconds
-             */
-            private long getValidTtlOrBackoff(List<ValidatedSingleTrustStatement> value) {
-                return value.stream()
-                        .filter(v -> v.valid)
-                        .mapToLong(v -> v.ttl)
-                        .min()
-                        .orElse(TimeUnit.SECONDS.toNanos(cacheProperties.getRequestBackoffSeconds()));
-            }
+    private long getBackoffNanos() {
+        return TimeUnit.SECONDS.toNanos(cacheProperties.getRequestBackoffSeconds());
+    }
 
-        };
+    private static long saturatedAdd(long nanoTime, long duration) {
+        return nanoTime > 0 && duration > Long.MAX_VALUE - nanoTime ? Long.MAX_VALUE : nanoTime + duration;
     }
 
     /**
@@ -457,6 +594,89 @@ public class TrustStatementCacheService {
         return pagedModelString.getContent();
     }
 
+    /**
+     * Value of a cache entry with the points in time (of the cache ticker) it
+     * expires and is due for a refresh at. Refreshing an entry never extends its
+     * expiry unless the reload succeeded.
+     */
+    protected record CachedValue<V>(V value, long expiresAtNanos, long refreshAtNanos) {
+        CachedValue<V> withRefreshAt(long nextRefreshAtNanos) {
+            return new CachedValue<>(value, expiresAtNanos, nextRefreshAtNanos);
+        }
+    }
+
+    private static final class CachedValueExpiry<V> implements Expiry<String, CachedValue<V>> {
+        @Override
+        public long expireAfterCreate(String key, CachedValue<V> value, long currentTime) {
+            return remainingNanos(value, currentTime);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedValue<V> value, long currentTime, long currentDuration) {
+            return remainingNanos(value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedValue<V> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        private static long remainingNanos(CachedValue<?> value, long currentTime) {
+            if (value.expiresAtNanos() == Long.MAX_VALUE) {
+                return Long.MAX_VALUE;
+            }
+            return Math.max(0, value.expiresAtNanos() - currentTime);
+        }
+    }
+
+    private static Optional<String> validStatement(@Nullable CachedValue<ValidatedSingleTrustStatement> cached) {
+        return cached != null && cached.value().valid ? cached.value().trustStatement : Optional.empty();
+    }
+
+    private static List<String> presentStatements(@Nullable CachedValue<List<ValidatedSingleTrustStatement>> cached) {
+        if (cached == null) {
+            return List.of();
+        }
+        return cached.value().stream()
+                .flatMap(vts -> vts.trustStatement.stream())
+                .toList();
+    }
+
+    /**
+     * @return the cached trust list statement, {@code null} if it could not be fetched
+     */
+    @Nullable
+    private static CachedValue<ValidatedSingleTrustStatement> loadedTrustList(
+            @Nullable CachedValue<ValidatedSingleTrustStatement> cached) {
+        return cached == null || cached.value() == FAILED_TRUST_LIST_STATEMENT ? null : cached;
+    }
+
+    /**
+     * @return nanoseconds until the first of the entries expires, zero if any entry is missing
+     */
+    private long remainingNanos(List<CachedValue<?>> entries) {
+        var now = ticker.read();
+        long remaining = Long.MAX_VALUE;
+        for (var entry : entries) {
+            if (entry == null) {
+                return 0;
+            }
+            if (entry.expiresAtNanos() != Long.MAX_VALUE) {
+                remaining = Math.min(remaining, Math.max(0, entry.expiresAtNanos() - now));
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Issuance trust statements of an issuer.
+     *
+     * @param statements    the valid {@code idTS}, {@code piTLS}, {@code ncTLS} and {@code piaTS} JWTs
+     * @param validityNanos nanoseconds until the first of the statements expires in the cache
+     */
+    public record IssuanceStatements(List<String> statements, long validityNanos) {
+    }
+
     public record ValidatedSingleTrustStatement(@NonNull Optional<String> trustStatement, boolean valid, long ttl) {
     }
 }
@@ -5,21 +5,21 @@ import ch.admin.bj.swiyu.jwtutil.JwtUtilException;
 import ch.admin.bj.swiyu.jwtvalidator.DidJwtValidator;
 import ch.admin.bj.swiyu.jwtvalidator.DidKidParser;
 import ch.admin.bj.swiyu.jwtvalidator.JwtValidatorException;
-import ch.admin.bj.swiyu.statuslist.TokenStatusListVerifier;
-import ch.admin.bj.swiyu.statuslist.dto.StatusVerificationResultDto;
 import ch.admin.bj.swiyu.statuslist.dto.TokenStatusListMapper;
 import ch.admin.bj.swiyu.statuslist.dto.TokenStatusListReferenceDto;
-import ch.admin.bj.swiyu.statuslist.dto.TokenStatusListTokenDto;
 import ch.admin.bj.swiyu.verifier.common.config.CacheProperties;
 import ch.admin.bj.swiyu.verifier.common.config.TrustRegistryProperties;
 import ch.admin.bj.swiyu.verifier.common.util.time.TimeUtil;
 import ch.admin.bj.swiyu.verifier.service.publickey.DidResolverFacade;
 import ch.admin.bj.swiyu.verifier.service.statuslist.StatusListCacheService;
+import ch.admin.bj.swiyu.verifier.service.statuslist.StatusListStatusVerifier;
+import ch.admin.bj.swiyu.verifier.service.statuslist.ValidatedStatusList;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.IOException;
 import java.text.ParseException;
+import java.util.Map;
+import java.util.OptionalInt;
 
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
@@ -57,7 +57,7 @@ public class TrustStatementValidator {
 
     private final StatusListCacheService statusListCacheService;
     private final DidResolverFacade keyLoader;
-    private final TokenStatusListVerifier statusListVerifier;
+    private final StatusListStatusVerifier statusListStatusVerifier;
     private final DidKidParser didKidParser = new DidKidParser();
 
 
@@ -86,25 +86,31 @@ public class TrustStatementValidator {
             JWK trustStatementKey = keyLoader.resolveKey(kid);
             trustStatementDidJwtValidator.validateJwt(jwtString, trustStatementKey);
             log.debug("Trust statement validation passed - DID: {}, URL: {}", didString, didUrl);
-            TokenStatusListReferenceDto reference = TokenStatusListMapper.toTokenStatusListReference(trustStatementJWT.getJWTClaimsSet().getClaims(), trustStatementJWT.getHeader());
-            TokenStatusListTokenDto statusList = statusListCacheService.getTokenStatusListTokenByUri(reference.getReferencedStatusListUri());
-            StatusVerificationResultDto statusListState = statusListVerifier.verifyStatus(reference, statusList);
+            Map<String, Object> claims = trustStatementJWT.getJWTClaimsSet().getClaims();
+            TokenStatusListReferenceDto reference = TokenStatusListMapper.toTokenStatusListReference(claims, trustStatementJWT.getHeader());
+            int index = StatusListStatusVerifier.getStatusListIndex(claims).orElseThrow(() ->
+                    new IllegalArgumentException("Status list reference of the trust statement is malformed"));
+            ValidatedStatusList statusList = statusListCacheService.getValidatedStatusListByUri(reference.getReferencedStatusListUri());
+            // Same status list rules as for credentials, see SdJwtVpTokenVerifier#verifyStatus
+            OptionalInt status = statusListStatusVerifier.verifyStatus(claims.get("iss"),
+                    reference.getReferencedStatusListUri(), index, statusList);
+            boolean isValid = status.isPresent() && status.getAsInt() == StatusListStatusVerifier.VALID_STATUS;
             
             // Compute TTL in Nanoseconds
             long minimumTimeoutNs = Long.MAX_VALUE;
-            minimumTimeoutNs = TimeUtil.minNanosUntilExpiry(minimumTimeoutNs, TimeUtil.secondsToNanos(statusList.getExp()));
+            minimumTimeoutNs = TimeUtil.minNanosUntilExpiry(minimumTimeoutNs, TimeUtil.secondsToNanos(statusList.token().getExp()));
             minimumTimeoutNs = TimeUtil.minNanosUntilExpiry(minimumTimeoutNs, trustStatementJWT.getJWTClaimsSet().getExpirationTime());
             // Substract the clock skew from expiration time to ensure that we fetch sufficiently soon the new Trust Statement
             var clockSkewBufferNs = TimeUtil.secondsToNanos(trustRegistryProperties.getClockSkewBufferSeconds());
             minimumTimeoutNs = Math.max(0, minimumTimeoutNs - clockSkewBufferNs);
-            minimumTimeoutNs = TimeUtil.minWithNullable(minimumTimeoutNs, TimeUtil.secondsToNanos(statusList.getTtl()));
+            minimumTimeoutNs = TimeUtil.minWithNullable(minimumTimeoutNs, TimeUtil.secondsToNanos(statusList.token().getTtl()));
             minimumTimeoutNs = TimeUtil.minWithNullable(minimumTimeoutNs, TimeUtil.secondsToNanos(trustRegistryProperties.getMaxCacheTtlSeconds()));
-            log.debug("Trust statement state validation completed - Validity: {} Cache TTL {} - DID: {}, URL: {}", statusListState.valid(), minimumTimeoutNs, didString, didUrl);
+            log.debug("Trust statement state validation completed - Validity: {} Cache TTL {} - DID: {}, URL: {}", isValid, minimumTimeoutNs, didString, didUrl);
 
             // If we reached this point the status list state hold the information whether the trust statement can be used. Either way we should not reprocess it until the timeout is through
-            return new TrustStatementValidationResult(statusListState.valid(), minimumTimeoutNs);
+            return new TrustStatementValidationResult(isValid, minimumTimeoutNs);
 
-        } catch (JwtUtilException | IllegalArgumentException | ParseException | IOException e) {
+        } catch (JwtUtilException | IllegalArgumentException | IndexOutOfBoundsException | ParseException e) {
             log.info("Malformed or invalid Trust Statement detected: {} - Ignoring it", jwtString, e);
             return new TrustStatementValidationResult(false, TimeUtil.secondsToNanos(cacheProperties.getRequestBackoffSeconds()));
         }
@@ -93,9 +93,11 @@ public class VqpsTokenService {
      *
      * <p>Intended for use in 401-retry logic in the WebClient filter.</p>
      *
+     * <p>Not transactional: the new token set is committed before the lock is released and no database
+     * connection is held while waiting for the token endpoint.</p>
+     *
      * @return the freshly acquired access token
      */
-    @Transactional
     public String forceRefreshAccessToken() {
         try {
             return lockingTaskExecutor.executeWithLock(
@@ -0,0 +1,114 @@
+package ch.admin.bj.swiyu.verifier.common.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.time.Duration;
+
+import static ch.admin.bj.swiyu.verifier.common.config.CachingConfig.JWK_CACHE;
+import static ch.admin.bj.swiyu.verifier.common.config.CachingConfig.TRUST_STATEMENT_CACHE;
+import static ch.admin.bj.swiyu.verifier.common.config.CachingConfig.VERIFIER_METADATA_CACHE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CachingConfigTest {
+
+    private CacheProperties cacheProperties;
+    private StaticListableBeanFactory beanFactory;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        cacheProperties = new CacheProperties();
+        beanFactory = new StaticListableBeanFactory();
+        meterRegistry = new SimpleMeterRegistry();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+    }
+
+    @Test
+    void cacheManager_whenDefaults_thenCachesAreBoundedAndExpireEntriesIndividually() {
+        cacheProperties.setJwkCacheTtlMs(1000L);
+
+        var cacheManager = new CachingConfig().cacheManager(cacheProperties,
+                beanFactory.getBeanProvider(RefreshableCacheLoader.class),
+                beanFactory.getBeanProvider(MeterRegistry.class));
+
+        var jwkCache = nativeCache(cacheManager.getCache(JWK_CACHE));
+        assertThat(jwkCache.policy().eviction().orElseThrow().getMaximum()).isEqualTo(10_000L);
+        assertThat(jwkCache.policy().expireAfterWrite().orElseThrow().getExpiresAfter()).isEqualTo(Duration.ofSeconds(1));
+        assertThat(jwkCache.policy().refreshAfterWrite()).isEmpty();
+        assertThat(jwkCache.policy().isRecordingStats()).isTrue();
+
+        var trustCache = nativeCache(cacheManager.getCache(TRUST_STATEMENT_CACHE));
+        assertThat(trustCache.policy().expireAfterWrite().orElseThrow().getExpiresAfter()).isEqualTo(Duration.ofHours(1));
+
+        var metadataCache = nativeCache(cacheManager.getCache(VERIFIER_METADATA_CACHE));
+        assertThat(metadataCache.policy().expireAfterWrite()).isEmpty();
+
+        assertThat(cacheManager.getCache("unknownCache")).isNull();
+    }
+
+    @Test
+    void cacheManager_whenStatsRecorded_thenExportedAsMetrics() {
+        cacheProperties.getVerifierMetadata().setRecordStats(false);
+
+        var cacheManager = new CachingConfig().cacheManager(cacheProperties,
+                beanFactory.getBeanProvider(RefreshableCacheLoader.class),
+                beanFactory.getBeanProvider(MeterRegistry.class));
+        var jwkCache = cacheManager.getCache(JWK_CACHE);
+        jwkCache.get("did:example:123#key-1");
+
+        assertThat(meterRegistry.get("cache.gets").tag("cache", JWK_CACHE).tag("result", "miss").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.find("cache.gets").tag("cache", VERIFIER_METADATA_CACHE).meters()).isEmpty();
+    }
+
+    @Test
+    void cacheManager_whenRefreshConfiguredWithLoader_thenRefreshesInBackground() {
+        cacheProperties.getJwk().setExpireAfterWrite(Duration.ofMinutes(10));
+        cacheProperties.getJwk().setRefreshAfterWrite(Duration.ofMinutes(5));
+        beanFactory.addBean("jwkCacheLoader", new RefreshableCacheLoader() {
+            @Override
+            public String getCacheName() {
+                return JWK_CACHE;
+            }
+
+            @Override
+            public Object load(Object key) {
+                return "loaded " + key;
+            }
+        });
+
+        var cacheManager = new CachingConfig().cacheManager(cacheProperties,
+                beanFactory.getBeanProvider(RefreshableCacheLoader.class),
+                beanFactory.getBeanProvider(MeterRegistry.class));
+
+        var jwkCache = nativeCache(cacheManager.getCache(JWK_CACHE));
+        assertThat(jwkCache).isInstanceOf(LoadingCache.class);
+        assertThat(jwkCache.policy().expireAfterWrite().orElseThrow().getExpiresAfter()).isEqualTo(Duration.ofMinutes(10));
+        assertThat(jwkCache.policy().refreshAfterWrite().orElseThrow().getRefreshesAfter()).isEqualTo(Duration.ofMinutes(5));
+    }
+
+    @Test
+    void cacheManager_whenRefreshConfiguredWithoutLoader_thenFails() {
+        cacheProperties.getTrustStatement().setRefreshAfterWrite(Duration.ofMinutes(5));
+
+        var providerOfLoaders = beanFactory.getBeanProvider(RefreshableCacheLoader.class);
+        var providerOfRegistry = beanFactory.getBeanProvider(MeterRegistry.class);
+        var config = new CachingConfig();
+        var ex = assertThrows(IllegalStateException.class,
+                () -> config.cacheManager(cacheProperties, providerOfLoaders, providerOfRegistry));
+
+        assertThat(ex.getMessage()).isEqualTo("Cache trustStatementCache does not support refresh-after-write");
+    }
+
+    private static Cache<Object, Object> nativeCache(org.springframework.cache.Cache cache) {
+        return ((CaffeineCache) cache).getNativeCache();
+    }
+}
@@ -0,0 +1,46 @@
+package ch.admin.bj.swiyu.verifier.domain;
+
+import ch.admin.bj.swiyu.verifier.common.exception.VerificationErrorResponseCode;
+import ch.admin.bj.swiyu.verifier.common.exception.VerificationException;
+import ch.admin.bj.swiyu.verifier.service.oid4vp.test.mock.SDJWTCredentialMock;
+import com.authlete.sd.Disclosure;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SdJwtTest {
+
+    @Test
+    void parts_whenAccessedRepeatedly_thenParsedOnlyOnce() throws Exception {
+        var mock = new SDJWTCredentialMock();
+        var sdJwt = new SdJwt(mock.addKeyBindingProof(mock.createSDJWTMock(), "nonce", "did:example:verifier"));
+
+        assertThat(sdJwt.getSignedJwt()).isSameAs(sdJwt.getSignedJwt());
+        assertThat(sdJwt.getSignedJwt().getHeader().getKeyID()).isEqualTo(SDJWTCredentialMock.DEFAULT_KID_HEADER_VALUE);
+        assertThat(sdJwt.getDisclosures()).isSameAs(sdJwt.getDisclosures()).isNotEmpty();
+        assertThat(sdJwt.getDisclosuresByDigest())
+                .isSameAs(sdJwt.getDisclosuresByDigest())
+                .hasSameSizeAs(sdJwt.getDisclosures());
+        assertThat(sdJwt.getKeyBindingJwt()).containsSame(sdJwt.getKeyBindingJwt().orElseThrow());
+    }
+
+    @Test
+    void getKeyBindingJwt_whenNoKeyBinding_thenEmpty() throws Exception {
+        var sdJwt = new SdJwt(new SDJWTCredentialMock().createSDJWTMock());
+
+        assertThat(sdJwt.getKeyBindingJwt()).isEmpty();
+    }
+
+    @Test
+    void indexByDigest_whenDisclosurePresentedTwice_thenMalformedCredential() {
+        var disclosure = new Disclosure("nationality", "CH");
+
+        var ex = assertThrows(VerificationException.class, () -> SdJwt.indexByDigest(List.of(disclosure, disclosure)));
+
+        assertThat(ex.getErrorResponseCode()).isEqualTo(VerificationErrorResponseCode.MALFORMED_CREDENTIAL);
+        assertThat(ex.getErrorDescription()).isEqualTo("Request contains non-distinct disclosures");
+    }
+}
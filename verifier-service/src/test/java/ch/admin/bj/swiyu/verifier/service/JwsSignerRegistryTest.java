@@ -0,0 +1,109 @@
+package ch.admin.bj.swiyu.verifier.service;
+
+import ch.admin.bj.swiyu.jwssignatureservice.factory.strategy.KeyStrategyException;
+import ch.admin.bj.swiyu.verifier.common.config.ApplicationProperties;
+import ch.admin.bj.swiyu.verifier.common.config.CacheProperties;
+import ch.admin.bj.swiyu.verifier.common.config.HSMProperties;
+import com.nimbusds.jose.JWSSigner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class JwsSignerRegistryTest {
+
+    private static final String VERIFICATION_METHOD = "did:example:123#key-1";
+
+    private JwsSignatureFacade jwsSignatureFacade;
+    private JwsSignerRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        var applicationProperties = new ApplicationProperties();
+        applicationProperties.setKeyManagementMethod("key");
+        applicationProperties.setHsm(new HSMProperties());
+        jwsSignatureFacade = mock(JwsSignatureFacade.class);
+        @SuppressWarnings("unchecked")
+        ObjectProvider<io.micrometer.core.instrument.MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        registry = new JwsSignerRegistry(applicationProperties, jwsSignatureFacade, new CacheProperties(), meterRegistry);
+    }
+
+    @Test
+    void getSigner_whenRequestedRepeatedly_thenCreatedOnce() throws Exception {
+        var signer = mock(JWSSigner.class);
+        when(jwsSignatureFacade.createSigner(any(), isNull(), isNull())).thenReturn(signer);
+
+        assertThat(registry.getSigner(null, null, VERIFICATION_METHOD)).isSameAs(signer);
+        assertThat(registry.getSigner(null, null, VERIFICATION_METHOD)).isSameAs(signer);
+
+        verify(jwsSignatureFacade, times(1)).createSigner(any(), isNull(), isNull());
+    }
+
+    @Test
+    void getSigner_whenDifferentKeyPin_thenNotShared() throws Exception {
+        var signer = mock(JWSSigner.class);
+        var otherSigner = mock(JWSSigner.class);
+        when(jwsSignatureFacade.createSigner(any(), eq("key-id"), eq("pin"))).thenReturn(signer);
+        when(jwsSignatureFacade.createSigner(any(), eq("key-id"), eq("other-pin"))).thenReturn(otherSigner);
+
+        assertThat(registry.getSigner("key-id", "pin", VERIFICATION_METHOD)).isSameAs(signer);
+        assertThat(registry.getSigner("key-id", "other-pin", VERIFICATION_METHOD)).isSameAs(otherSigner);
+        assertThat(registry.getSigners().asMap().keySet())
+                .extracting(JwsSignerRegistry.SignerKey::keyPinHash)
+                .doesNotContain("pin", "other-pin");
+    }
+
+    @Test
+    void getSigner_whenSamePin_thenSharedWithoutPlainPinHash() throws Exception {
+        var signer = mock(JWSSigner.class);
+        when(jwsSignatureFacade.createSigner(any(), eq("key-id"), eq("pin"))).thenReturn(signer);
+
+        assertThat(registry.getSigner("key-id", "pin", VERIFICATION_METHOD)).isSameAs(signer);
+        assertThat(registry.getSigner("key-id", "pin", VERIFICATION_METHOD)).isSameAs(signer);
+
+        verify(jwsSignatureFacade, times(1)).createSigner(any(), eq("key-id"), eq("pin"));
+        var unsaltedHash = HexFormat.of().formatHex(
+                MessageDigest.getInstance("SHA-256").digest("pin".getBytes(StandardCharsets.UTF_8)));
+        assertThat(registry.getSigners().asMap().keySet())
+                .extracting(JwsSignerRegistry.SignerKey::keyPinHash)
+                .singleElement()
+                .isNotNull()
+                .isNotEqualTo(unsaltedHash);
+    }
+
+    @Test
+    void getSigner_whenEvicted_thenCreatedAgain() throws Exception {
+        when(jwsSignatureFacade.createSigner(any(), isNull(), isNull()))
+                .thenReturn(mock(JWSSigner.class), mock(JWSSigner.class));
+
+        var first = registry.getSigner(null, null, VERIFICATION_METHOD);
+        registry.evict(null, null, VERIFICATION_METHOD);
+        var second = registry.getSigner(null, null, VERIFICATION_METHOD);
+
+        assertThat(second).isNotSameAs(first);
+        verify(jwsSignatureFacade, times(2)).createSigner(any(), isNull(), isNull());
+    }
+
+    @Test
+    void getSigner_whenNoSigningKeyOrCreationFails_thenNotCached() throws Exception {
+        when(jwsSignatureFacade.createSigner(any(), isNull(), isNull()))
+                .thenReturn(null)
+                .thenThrow(KeyStrategyException.class);
+
+        assertThat(registry.getSigner(null, null, VERIFICATION_METHOD)).isNull();
+        assertThatThrownBy(() -> registry.getSigner(null, null, VERIFICATION_METHOD))
+                .isInstanceOf(IllegalStateException.class)
+                .hasCauseInstanceOf(KeyStrategyException.class);
+        assertThat(registry.getSigners().estimatedSize()).isZero();
+    }
+}
@@ -11,6 +11,7 @@ import ch.admin.bj.swiyu.verifier.dto.VerificationPresentationRejectionDto;
 import ch.admin.bj.swiyu.verifier.dto.management.CreateVerificationManagementDto;
 import ch.admin.bj.swiyu.verifier.dto.management.ResponseModeTypeDto;
 import ch.admin.bj.swiyu.verifier.dto.management.dcql.DcqlQueryDto;
+import ch.admin.bj.swiyu.verifier.service.callback.CallbackEventProducer;
 import com.nimbusds.jose.*;
 import com.nimbusds.jose.crypto.ECDHDecrypter;
 import com.nimbusds.jose.crypto.ECDHEncrypter;
@@ -25,6 +26,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.MockedStatic;
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -33,6 +35,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class ManagementServiceTest {
@@ -47,8 +50,8 @@ class ManagementServiceTest {
         id = UUID.randomUUID();
         repository = mock(ManagementRepository.class);
         applicationProperties = mock(ApplicationProperties.class);
-        ManagementTransactionalService managementTransactionalService = new ManagementTransactionalService(repository, applicationProperties);
-        service = new ManagementService(applicationProperties, managementTransactionalService, null);
+        ManagementTransactionalService managementTransactionalService = new ManagementTransactionalService(repository, applicationProperties, mock(CallbackEventProducer.class));
+        service = new ManagementService(applicationProperties, managementTransactionalService, null, event -> { });
     }
 
     @Test
@@ -127,8 +130,8 @@ class ManagementServiceTest {
     void getManagementResponseDto_whenAcceptableResponseCode_shouldPassToTransactionalService(String input) {
 
         var uuid = input == null ? null : UUID.fromString(input);
-        var transactionalService = spy(new ManagementTransactionalService(repository, applicationProperties));
-        var mgmtService = new ManagementService(applicationProperties, transactionalService, null);
+        var transactionalService = spy(new ManagementTransactionalService(repository, applicationProperties, mock(CallbackEventProducer.class)));
+        var mgmtService = new ManagementService(applicationProperties, transactionalService, null, event -> { });
 
         // when
         doReturn(mock(Management.class)).when(transactionalService).findAndHandleExpiration(id, uuid);
@@ -145,8 +148,67 @@ class ManagementServiceTest {
 
     @Test
     void removeExpiredManagements_shouldDelete() {
+        when(applicationProperties.getDataClearBatchSize()).thenReturn(100);
+        when(applicationProperties.getDataClearTimeBudget()).thenReturn(Duration.ofMinutes(1));
+        when(repository.deleteExpired(anyLong(), eq(100))).thenReturn(3);
+
+        service.removeExpiredManagements();
+
+        verify(repository).deleteExpired(anyLong(), eq(100));
+        verify(repository, never()).partitionByExpiry(anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    void removeExpiredManagements_whenChunkFull_thenDeletesNextChunk() {
+        when(applicationProperties.getDataClearBatchSize()).thenReturn(100);
+        when(applicationProperties.getDataClearTimeBudget()).thenReturn(Duration.ofMinutes(1));
+        when(repository.deleteExpired(anyLong(), eq(100))).thenReturn(100, 100, 42);
+
+        service.removeExpiredManagements();
+
+        verify(repository, times(3)).deleteExpired(anyLong(), eq(100));
+    }
+
+    @Test
+    void removeExpiredManagements_whenTimeBudgetUsedUp_thenStopsAfterChunk() {
+        when(applicationProperties.getDataClearBatchSize()).thenReturn(100);
+        when(applicationProperties.getDataClearTimeBudget()).thenReturn(Duration.ZERO);
+        when(repository.deleteExpired(anyLong(), eq(100))).thenReturn(100);
+
         service.removeExpiredManagements();
-        verify(repository).deleteByExpiresAtIsBefore(anyLong());
+
+        verify(repository, times(1)).deleteExpired(anyLong(), eq(100));
+    }
+
+    @Test
+    void removeExpiredManagements_whenPartitioned_thenMaintainsPartitionsBeforeDeleting() {
+        when(applicationProperties.isManagementPartitioning()).thenReturn(true);
+        when(applicationProperties.getManagementPartitionInterval()).thenReturn(Duration.ofDays(1));
+        when(applicationProperties.getVerificationTTL()).thenReturn(900);
+        when(applicationProperties.getDataClearBatchSize()).thenReturn(100);
+        when(applicationProperties.getDataClearTimeBudget()).thenReturn(Duration.ofMinutes(1));
+
+        service.removeExpiredManagements();
+
+        var inOrder = inOrder(repository);
+        inOrder.verify(repository).partitionByExpiry(anyLong(), anyLong(), eq(Duration.ofDays(1).toMillis()));
+        inOrder.verify(repository).createPartitions(anyLong(), anyLong(), eq(Duration.ofDays(1).toMillis()));
+        inOrder.verify(repository).dropExpiredPartitions(anyLong());
+        inOrder.verify(repository).deleteExpired(anyLong(), eq(100));
+    }
+
+    @Test
+    void removeExpiredManagements_whenPartitionMaintenanceFails_thenStillDeletesInChunks() {
+        when(applicationProperties.isManagementPartitioning()).thenReturn(true);
+        when(applicationProperties.getManagementPartitionInterval()).thenReturn(Duration.ofDays(1));
+        when(applicationProperties.getVerificationTTL()).thenReturn(900);
+        when(applicationProperties.getDataClearBatchSize()).thenReturn(100);
+        when(applicationProperties.getDataClearTimeBudget()).thenReturn(Duration.ofMinutes(1));
+        when(repository.partitionByExpiry(anyLong(), anyLong(), anyLong())).thenThrow(new IllegalStateException("permission denied"));
+
+        assertDoesNotThrow(() -> service.removeExpiredManagements());
+
+        verify(repository).deleteExpired(anyLong(), eq(100));
     }
 
     @Test
@@ -207,7 +269,7 @@ class ManagementServiceTest {
     @Test
     void markVerificationSucceeded_withValidRequest_returnsRedirectURI() {
         var transactionalService = mock(ManagementTransactionalService.class);
-        var mgmtService = new ManagementService(applicationProperties, transactionalService, null);
+        var mgmtService = new ManagementService(applicationProperties, transactionalService, null, event -> { });
         var managementId = UUID.randomUUID();
         var expected = URI.create("https://wallet.example/callback?response_code=abc");
         when(transactionalService.markVerificationSucceeded(managementId, "credentialData")).thenReturn(expected);
@@ -219,7 +281,7 @@ class ManagementServiceTest {
     @Test
     void markVerificationFailedDueToClientRejection_shouldReturnNullRedirect_andPersistFailure() {
         var transactionalService = mock(ManagementTransactionalService.class);
-        var mgmtService = new ManagementService(applicationProperties, transactionalService, null);
+        var mgmtService = new ManagementService(applicationProperties, transactionalService, null, event -> { });
         var managementId = UUID.randomUUID();
         var rejection = new VerificationPresentationRejectionDto(VerificationClientErrorDto.CLIENT_REJECTED, "reason");
         var dto = mgmtService.markVerificationFailedDueToClientRejection(managementId, rejection);
@@ -2,15 +2,19 @@ package ch.admin.bj.swiyu.verifier.service.management;
 
 import ch.admin.bj.swiyu.verifier.common.config.ApplicationProperties;
 import ch.admin.bj.swiyu.verifier.common.exception.ProcessClosedException;
+import ch.admin.bj.swiyu.verifier.common.exception.VerificationErrorResponseCode;
 import ch.admin.bj.swiyu.verifier.common.exception.VerificationException;
 import ch.admin.bj.swiyu.verifier.common.exception.VerificationNotFoundException;
 import ch.admin.bj.swiyu.verifier.domain.management.Management;
 import ch.admin.bj.swiyu.verifier.domain.management.ManagementRepository;
 import ch.admin.bj.swiyu.verifier.domain.management.VerificationStatus;
+import ch.admin.bj.swiyu.verifier.dto.VerificationPresentationRejectionDto;
+import ch.admin.bj.swiyu.verifier.service.callback.CallbackEventProducer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.net.URI;
 import java.util.Optional;
@@ -20,18 +24,23 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class ManagementTransactionalServiceTest {
 
     private ManagementTransactionalService managementTransactionalService;
     private ManagementRepository mockRepository;
+    private ApplicationProperties applicationProperties;
+    private CallbackEventProducer callbackEventProducer;
 
     @BeforeEach
     void setup() {
-        var applicationProperties = mock(ApplicationProperties.class);
+        applicationProperties = mock(ApplicationProperties.class);
         mockRepository = mock(ManagementRepository.class);
-        managementTransactionalService = new ManagementTransactionalService(mockRepository, applicationProperties);
+        callbackEventProducer = mock(CallbackEventProducer.class);
+        managementTransactionalService = new ManagementTransactionalService(mockRepository, applicationProperties, callbackEventProducer);
     }
 
     @Test
@@ -59,6 +68,7 @@ class ManagementTransactionalServiceTest {
         when(mockManagement.getState()).thenReturn(status);
         when(mockRepository.findById(any())).thenReturn(Optional.of(mockManagement));
         assertThrows(ProcessClosedException.class, () -> managementTransactionalService.markVerificationSucceeded(UUID.randomUUID(), "Some Test Data"));
+        verifyNoInteractions(callbackEventProducer);
     }
 
     @ParameterizedTest
@@ -139,4 +149,130 @@ class ManagementTransactionalServiceTest {
         assertThrows(IllegalArgumentException.class,
                 () -> managementTransactionalService.findAndHandleExpiration(id, providedResponseCode));
     }
-}
\ No newline at end of file
+
+    @Test
+    void claimSessionForProcessing_whenAtomic_thenClaimsWithoutLoading() {
+        UUID id = UUID.randomUUID();
+        var claimed = Management.builder().id(id).state(VerificationStatus.IN_PROGRESS).build();
+        when(applicationProperties.isAtomicSessionClaim()).thenReturn(true);
+        when(mockRepository.claimForProcessing(eq(id), anyLong())).thenReturn(Optional.of(claimed));
+
+        var result = managementTransactionalService.claimSessionForProcessing(id);
+
+        assertThat(result).isSameAs(claimed);
+        verify(mockRepository, never()).findById(any());
+        verifyNoInteractions(callbackEventProducer);
+    }
+
+    @Test
+    void claimSessionForProcessing_whenAtomicAndNotPending_thenThrowsProcessClosedException() {
+        UUID id = UUID.randomUUID();
+        when(applicationProperties.isAtomicSessionClaim()).thenReturn(true);
+        when(mockRepository.claimForProcessing(eq(id), anyLong())).thenReturn(Optional.empty());
+        when(mockRepository.findStateById(id)).thenReturn(Optional.of(VerificationStatus.SUCCESS));
+
+        assertThrows(ProcessClosedException.class, () -> managementTransactionalService.claimSessionForProcessing(id));
+    }
+
+    @Test
+    void claimSessionForProcessing_whenAtomicAndClaimedConcurrently_thenThrowsOptimisticLockingFailure() {
+        UUID id = UUID.randomUUID();
+        when(applicationProperties.isAtomicSessionClaim()).thenReturn(true);
+        when(mockRepository.claimForProcessing(eq(id), anyLong())).thenReturn(Optional.empty());
+        when(mockRepository.findStateById(id)).thenReturn(Optional.of(VerificationStatus.IN_PROGRESS));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> managementTransactionalService.claimSessionForProcessing(id));
+    }
+
+    @Test
+    void claimSessionForProcessing_whenAtomicAndMissing_thenThrowsNotFound() {
+        UUID id = UUID.randomUUID();
+        when(applicationProperties.isAtomicSessionClaim()).thenReturn(true);
+        when(mockRepository.claimForProcessing(eq(id), anyLong())).thenReturn(Optional.empty());
+        when(mockRepository.findStateById(id)).thenReturn(Optional.empty());
+
+        var ex = assertThrows(VerificationException.class, () -> managementTransactionalService.claimSessionForProcessing(id));
+
+        assertThat(ex.getErrorResponseCode()).isEqualTo(VerificationErrorResponseCode.AUTHORIZATION_REQUEST_OBJECT_NOT_FOUND);
+    }
+
+    @Test
+    void markVerificationSucceeded_whenAtomic_thenCompletesClaimedManagementWithSingleUpdate() {
+        UUID id = UUID.randomUUID();
+        var claimed = Management.builder()
+                .id(id)
+                .state(VerificationStatus.IN_PROGRESS)
+                .redirectURI(URI.create("https://example.com/callback"))
+                .build();
+        when(applicationProperties.isAtomicSessionClaim()).thenReturn(true);
+        when(mockRepository.completeProcessing(eq(id), eq(VerificationStatus.SUCCESS), any(), any(), any(), any())).thenReturn(1);
+
+        var redirectURI = managementTransactionalService.markVerificationSucceeded(claimed, "Some Test Data");
+
+        assertThat(redirectURI).hasToString("https://example.com/callback?response_code=" + claimed.getResponseCode());
+        verify(mockRepository).completeProcessing(eq(id), eq(VerificationStatus.SUCCESS), eq(claimed.getWalletResponse()),
+                eq(claimed.getResponseCode()), eq(redirectURI), any());
+        verify(mockRepository, never()).findById(any());
+        verify(callbackEventProducer).produceEvent(id);
+    }
+
+    @Test
+    void markVerificationFailed_whenAtomicAndNotInProgressAnymore_thenThrowsProcessClosedException() {
+        var claimed = Management.builder().state(VerificationStatus.IN_PROGRESS).build();
+        when(applicationProperties.isAtomicSessionClaim()).thenReturn(true);
+        when(mockRepository.completeProcessing(any(), any(), any(), any(), any(), any())).thenReturn(0);
+        var exception = VerificationException.credentialError(VerificationErrorResponseCode.CREDENTIAL_EXPIRED, "expired");
+
+        assertThrows(ProcessClosedException.class, () -> managementTransactionalService.markVerificationFailed(claimed, exception));
+        verifyNoInteractions(callbackEventProducer);
+    }
+
+    @Test
+    void markVerificationSucceeded_whenNotAtomic_thenLoadsManagementAgain() {
+        var claimed = Management.builder().state(VerificationStatus.IN_PROGRESS).build();
+        var loaded = spy(Management.class);
+        when(loaded.getState()).thenReturn(VerificationStatus.IN_PROGRESS);
+        when(mockRepository.findById(claimed.getId())).thenReturn(Optional.of(loaded));
+
+        managementTransactionalService.markVerificationSucceeded(claimed, "Some Test Data");
+
+        verify(loaded).verificationSucceeded("Some Test Data");
+        verify(mockRepository, never()).completeProcessing(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void markVerificationSucceeded_thenCallbackEventWrittenWithResult() {
+        UUID id = UUID.randomUUID();
+        var mockManagement = spy(Management.class);
+        when(mockManagement.getState()).thenReturn(VerificationStatus.IN_PROGRESS);
+        when(mockRepository.findById(id)).thenReturn(Optional.of(mockManagement));
+
+        managementTransactionalService.markVerificationSucceeded(id, "Some Test Data");
+
+        var inOrder = inOrder(mockManagement, callbackEventProducer);
+        inOrder.verify(mockManagement).verificationSucceeded("Some Test Data");
+        inOrder.verify(callbackEventProducer).produceEvent(id);
+    }
+
+    @Test
+    void markVerificationFailedDueToClientRejection_thenCallbackEventWrittenWithResult() {
+        UUID id = UUID.randomUUID();
+        var mockManagement = spy(Management.class);
+        when(mockManagement.getState()).thenReturn(VerificationStatus.IN_PROGRESS);
+        when(mockRepository.findById(id)).thenReturn(Optional.of(mockManagement));
+
+        managementTransactionalService.markVerificationFailedDueToClientRejection(id, mock(VerificationPresentationRejectionDto.class));
+
+        verify(mockManagement).verificationFailedDueToClientRejection(any(), any());
+        verify(callbackEventProducer).produceEvent(id);
+    }
+
+    @Test
+    void markVerificationFailed_whenMissing_thenNoCallbackEventWritten() {
+        when(mockRepository.findById(any())).thenReturn(Optional.empty());
+        var exception = VerificationException.credentialError(VerificationErrorResponseCode.CREDENTIAL_EXPIRED, "expired");
+
+        assertThrows(VerificationException.class, () -> managementTransactionalService.markVerificationFailed(UUID.randomUUID(), exception));
+        verifyNoInteractions(callbackEventProducer);
+    }
+}
@@ -59,7 +59,7 @@ class DcqlVpTokenVerifierTest {
         // Initialize mocks
         vpToken = mock(SdJwt.class);
         management = mock(Management.class);
-        when(vpToken.getJwt()).thenReturn(getDummyJWT());
+        when(vpToken.getHeader()).thenReturn(getDummyJWT().getHeader());
     }
 
     @Test
@@ -138,13 +138,13 @@ class DcqlVpTokenVerifierTest {
     /**
      * @return Dummy JWT where the KID is set to satisfy extracting the issuer with an Issuer holding another did than the kid
      */
-    private String getDummyJWT() {
+    private SignedJWT getDummyJWT() {
         ECKey key = assertDoesNotThrow( () -> new ECKeyGenerator(Curve.P_256).keyID("key-1").algorithm(JWSAlgorithm.ES256).generate());
         SignedJWT jwt = new SignedJWT(
             new JWSHeader.Builder(JWSAlgorithm.ES256).keyID(TEST_ISSUER + "#" + key.getKeyID()).build(),
             new JWTClaimsSet.Builder().jwtID("1234").issuer("did:webvh:other.example.com").build()
         );
         assertDoesNotThrow(() -> jwt.sign(new ECDSASigner(key)));
-        return jwt.serialize();
+        return jwt;
     }
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package ch.admin.bj.swiyu.verifier.service.oid4vp;
+
+import ch.admin.bj.swiyu.verifier.common.exception.VerificationErrorResponseCode;
+import ch.admin.bj.swiyu.verifier.common.exception.VerificationException;
+import ch.admin.bj.swiyu.verifier.domain.SdJwt;
+import com.authlete.sd.Disclosure;
+import com.authlete.sd.SDObjectBuilder;
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.junit.jupiter.api.Test;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static ch.admin.bj.swiyu.verifier.service.oid4vp.test.mock.SDJWTCredentialMock.getClaimsFromSdJwt;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SdJwtDisclosureResolverTest {
+
+    @Test
+    void resolvePayload_whenNestedDisclosures_thenResolvesObjectsAndArrayElements() throws ParseException {
+        List<Disclosure> disclosures = new ArrayList<>();
+        var claims = JWTClaimsSet.parse(getClaimsFromSdJwt(disclosures).build()).getClaims();
+
+        var resolver = new SdJwtDisclosureResolver(SdJwt.indexByDigest(disclosures));
+        var processed = resolver.resolvePayload(claims);
+
+        assertThat(processed)
+                .containsEntry("name", "Max Muster")
+                .containsEntry("email", "max@example.com")
+                .doesNotContainKey("_sd");
+        assertThat((List<?>) processed.get("addresses")).hasSize(2);
+        var firstAddress = (Map<?, ?>) ((List<?>) processed.get("addresses")).getFirst();
+        assertThat(firstAddress)
+                .containsEntry("city", "Bern")
+                .containsEntry("street", "Bahnhofstrasse")
+                .doesNotContainKey("_sd");
+        assertThat(resolver.allDisclosuresUsed()).isTrue();
+    }
+
+    @Test
+    void resolvePayload_whenArrayElementNotDisclosed_thenKeepsDigestAndMarksDisclosureUnused() throws ParseException {
+        var disclosed = new Disclosure("DE");
+        var undisclosed = new Disclosure("FR");
+        var builder = new SDObjectBuilder();
+        builder.putClaim("languages", List.of(disclosed.toArrayElement(), undisclosed.toArrayElement()));
+        var claims = JWTClaimsSet.parse(builder.build()).getClaims();
+
+        var resolver = new SdJwtDisclosureResolver(SdJwt.indexByDigest(List.of(disclosed)));
+        var processed = resolver.resolvePayload(claims);
+
+        assertThat((List<?>) processed.get("languages")).containsExactly("DE", undisclosed.digest());
+        assertThat(resolver.allDisclosuresUsed()).isTrue();
+
+        var unusedResolver = new SdJwtDisclosureResolver(SdJwt.indexByDigest(List.of(disclosed, new Disclosure("IT"))));
+        unusedResolver.resolvePayload(claims);
+        assertThat(unusedResolver.allDisclosuresUsed()).isFalse();
+    }
+
+    @Test
+    void resolvePayload_whenNoDigests_thenKeepsNestedStructuresAndConvertsTimesToNumericDate() {
+        var address = Map.of("city", "Bern");
+        var issuedAt = new Date(1_700_000_000_000L);
+        var claims = new JWTClaimsSet.Builder()
+                .issueTime(issuedAt)
+                .claim("address", address)
+                .build()
+                .getClaims();
+
+        var processed = new SdJwtDisclosureResolver(Map.of()).resolvePayload(claims);
+
+        assertThat(processed).containsEntry("iat", 1_700_000_000L);
+        assertThat(processed.get("address")).isSameAs(address);
+    }
+
+    @Test
+    void resolvePayload_whenDigestReferencedTwice_thenMalformedCredential() throws ParseException {
+        var disclosure = new Disclosure("nationality", "CH");
+        var claims = JWTClaimsSet.parse(Map.of(
+                "_sd", List.of(disclosure.digest()),
+                "nested", Map.of("_sd", List.of(disclosure.digest())))).getClaims();
+
+        var resolver = new SdJwtDisclosureResolver(SdJwt.indexByDigest(List.of(disclosure)));
+        var ex = assertThrows(VerificationException.class, () -> resolver.resolvePayload(claims));
+
+        assertThat(ex.getErrorResponseCode()).isEqualTo(VerificationErrorResponseCode.MALFORMED_CREDENTIAL);
+        assertThat(ex.getErrorDescription()).isEqualTo("Duplicate digest detected");
+    }
+}
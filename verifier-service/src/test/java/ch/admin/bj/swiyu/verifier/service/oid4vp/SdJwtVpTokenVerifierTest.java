@@ -1,7 +1,6 @@
 package ch.admin.bj.swiyu.verifier.service.oid4vp;
 
 import ch.admin.bj.swiyu.jwtvalidator.DidJwtValidator;
-import ch.admin.bj.swiyu.statuslist.TokenStatusListVerifier;
 import ch.admin.bj.swiyu.verifier.common.config.ApplicationProperties;
 import ch.admin.bj.swiyu.verifier.common.config.VerificationProperties;
 import ch.admin.bj.swiyu.verifier.common.exception.VerificationErrorResponseCode;
@@ -15,6 +14,7 @@ import ch.admin.bj.swiyu.verifier.service.oid4vp.test.fixtures.KeyFixtures;
 import ch.admin.bj.swiyu.verifier.service.oid4vp.test.mock.SDJWTCredentialMock;
 import ch.admin.bj.swiyu.verifier.service.publickey.DidResolverFacade;
 import ch.admin.bj.swiyu.verifier.service.statuslist.StatusListCacheService;
+import ch.admin.bj.swiyu.verifier.service.statuslist.StatusListStatusVerifier;
 import com.authlete.sd.Disclosure;
 import com.authlete.sd.SDJWT;
 import com.authlete.sd.SDObjectBuilder;
@@ -63,7 +63,6 @@ class SdJwtVpTokenVerifierTest {
         issuerPublicKeyLoader = mock(DidResolverFacade.class);
         StatusListCacheService statusListResolver = mock(StatusListCacheService.class);
         DidJwtValidator didJwtValidator = mock(DidJwtValidator.class);
-        TokenStatusListVerifier statusListVerifier = mock(TokenStatusListVerifier.class);
         ApplicationProperties applicationProperties = mock(ApplicationProperties.class);
         VerificationProperties verificationProperties = mock(VerificationProperties.class);
         management = mock(Management.class);
@@ -80,7 +79,8 @@ class SdJwtVpTokenVerifierTest {
         when(issuerPublicKeyLoader.resolveKey(DEFAULT_KID_HEADER_VALUE))
                 .thenReturn(KeyFixtures.issuerKey().toPublicJWK());
 
-        verifier = new SdJwtVpTokenVerifier(issuerPublicKeyLoader, didJwtValidator, statusListResolver, applicationProperties, verificationProperties, statusListVerifier);
+        verifier = new SdJwtVpTokenVerifier(issuerPublicKeyLoader, didJwtValidator, statusListResolver,
+                new StatusListStatusVerifier(verificationProperties), applicationProperties, verificationProperties);
     }
 
     @Deprecated(since = "Trust Protocol 2.0")
@@ -1,14 +1,17 @@
 package ch.admin.bj.swiyu.verifier.service.oid4vp;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import ch.admin.bj.swiyu.verifier.service.publickey.LoadingPublicKeyOfIssuerFailedException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -20,9 +23,12 @@ import com.nimbusds.jwt.SignedJWT;
 import ch.admin.bj.swiyu.verifier.domain.management.Management;
 import ch.admin.bj.swiyu.verifier.domain.management.TrustAnchor;
 import ch.admin.bj.swiyu.verifier.service.publickey.DidResolverFacade;
+import ch.admin.bj.swiyu.verifier.service.statuslist.StatusListFetchResult;
 import ch.admin.bj.swiyu.verifier.service.statuslist.StatusListResolver;
 import ch.admin.bj.swiyu.verifier.service.trustregistry.TestTrustStatementGenerator;
 import ch.admin.bj.swiyu.verifier.service.trustregistry.TrustStatementCacheService;
+import ch.admin.bj.swiyu.verifier.service.trustregistry.TrustStatementCacheService.IssuanceStatements;
+import ch.admin.bj.swiyu.verifier.common.config.TrustRegistryProperties;
 import ch.admin.bj.swiyu.jwtvalidator.DidJwtValidator;
 
 /**
@@ -63,7 +69,7 @@ class TrustProtocol2ValidatorTest {
     @BeforeEach
     void setUp() throws Exception {
         MockitoAnnotations.openMocks(this);
-        validator = new TrustProtocol2Validator(statementProvider);
+        validator = new TrustProtocol2Validator(statementProvider, new TrustRegistryProperties());
         anchor = new TrustAnchor(TRUST_ROOT, "https://www.example.com");
         management = Management.builder()
                 .trustAnchors(List.of(anchor))
@@ -72,7 +78,7 @@ class TrustProtocol2ValidatorTest {
         trustStatementGenerator = new TestTrustStatementGenerator(mockKey);
 
         when(keyLoader.resolveKey(anyString())).thenReturn(mockKey.toPublicJWK());
-        when(statusListResolverAdapter.resolveStatusList(anyString())).then(a -> trustStatementGenerator.generateTokenStatusList(TRUST_ROOT_KID, a.getArgument(0)));
+        when(statusListResolverAdapter.fetchStatusList(anyString(), any(), any())).then(a -> StatusListFetchResult.modified(trustStatementGenerator.generateTokenStatusList(TRUST_ROOT_KID, a.getArgument(0)), null, null));
 
         trustStatements = List.of(
             trustStatementGenerator.generateIdTsJwt(TRUST_ROOT_KID, ISSUER_DID),
@@ -87,10 +93,144 @@ class TrustProtocol2ValidatorTest {
         // arrange: stub verifier to return a TrustVerificationResult with a trusted
         // marker
         // Build Valid Trust Statements linked to the status list
-        when(statementProvider.getAllIssuanceStatementsFor(anyString()))
-                .thenReturn(trustStatements.stream().map(SignedJWT::serialize).toList());
+        when(statementProvider.getIssuanceStatementsFor(anyString()))
+                .thenReturn(new IssuanceStatements(trustStatements.stream().map(SignedJWT::serialize).toList(), Long.MAX_VALUE));
 
         boolean result = validator.isTrusted(ISSUER_DID, TRUSTED_VCT, management);
         assertThat(result).as("Issuer should be trusted when markers indicate trust").isTrue();
     }
+
+    @Test
+    void isTrusted_whenVerifiedBefore_thenCachedResultUsed() {
+        when(statementProvider.getIssuanceStatementsFor(anyString()))
+                .thenReturn(new IssuanceStatements(trustStatements.stream().map(SignedJWT::serialize).toList(), Long.MAX_VALUE));
+
+        assertThat(validator.isTrusted(ISSUER_DID, TRUSTED_VCT, management)).isTrue();
+        assertThat(validator.isTrusted(ISSUER_DID, TRUSTED_VCT, management)).isTrue();
+
+        verify(statementProvider, times(1)).getIssuanceStatementsFor(ISSUER_DID);
+        assertThat(validator.getVerificationResultCache().estimatedSize()).isEqualTo(1);
+    }
+
+    @Test
+    void isTrusted_whenStatementsIncomplete_thenResultNotCached() {
+        when(statementProvider.getIssuanceStatementsFor(anyString()))
+                .thenReturn(new IssuanceStatements(trustStatements.stream().map(SignedJWT::serialize).toList(), 0));
+
+        validator.isTrusted(ISSUER_DID, TRUSTED_VCT, management);
+        validator.isTrusted(ISSUER_DID, TRUSTED_VCT, management);
+
+        verify(statementProvider, times(2)).getIssuanceStatementsFor(ISSUER_DID);
+    }
+
+    @Test
+    void isTrusted_whenStatementsOfIssuerInvalidated_thenVerifiedAgain() {
+        var listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(statementProvider).addInvalidationListener(listener.capture());
+        when(statementProvider.getIssuanceStatementsFor(anyString()))
+                .thenReturn(new IssuanceStatements(trustStatements.stream().map(SignedJWT::serialize).toList(), Long.MAX_VALUE));
+
+        validator.isTrusted(ISSUER_DID, TRUSTED_VCT, management);
+        listener.getValue().accept(ISSUER_DID);
+        validator.isTrusted(ISSUER_DID, TRUSTED_VCT, management);
+
+        verify(statementProvider, times(2)).getIssuanceStatementsFor(ISSUER_DID);
+    }
+
+    @Test
+    void isTrusted_whenFirstTrustAnchorTrusts_thenOtherAnchorsNotEvaluated() {
+        when(statementProvider.getIssuanceStatementsFor(anyString()))
+                .thenReturn(new IssuanceStatements(trustStatements.stream().map(SignedJWT::serialize).toList(), Long.MAX_VALUE));
+        var otherAnchor = new TrustAnchor("did:webvh:testscid:anchor2", "https://www.example.org");
+        var managementWithAnchors = Management.builder().trustAnchors(List.of(anchor, otherAnchor, anchor)).build();
+
+        assertThat(validator.isTrusted(ISSUER_DID, TRUSTED_VCT, managementWithAnchors)).isTrue();
+
+        verify(statementProvider, times(1)).getIssuanceStatementsFor(ISSUER_DID);
+        assertThat(validator.getVerificationResultCache().asMap().keySet())
+                .extracting(TrustProtocol2Validator.TrustEvaluationKey::trustAnchorDid)
+                .containsExactly(TRUST_ROOT);
+    }
+
+    @Test
+    void isTrusted_whenDuplicateTrustAnchors_thenEvaluatedOnce() {
+        when(statementProvider.getIssuanceStatementsFor(anyString()))
+                .thenReturn(new IssuanceStatements(trustStatements.stream().map(SignedJWT::serialize).toList(), 0));
+        var managementWithDuplicates = Management.builder().trustAnchors(List.of(anchor, anchor)).build();
+
+        assertThat(validator.isTrusted(ISSUER_DID, TRUSTED_VCT, managementWithDuplicates)).isTrue();
+
+        verify(statementProvider, times(1)).getIssuanceStatementsFor(ISSUER_DID);
+    }
+
+    @Test
+    void isTrusted_whenEvaluatedConcurrently_thenTrustedByAnyAnchor() {
+        var properties = new TrustRegistryProperties();
+        properties.setTrustAnchorParallelism(2);
+        var concurrentValidator = new TrustProtocol2Validator(statementProvider, properties);
+        when(statementProvider.getIssuanceStatementsFor(anyString()))
+                .thenReturn(new IssuanceStatements(trustStatements.stream().map(SignedJWT::serialize).toList(), Long.MAX_VALUE));
+        var untrustedAnchor = new TrustAnchor("did:webvh:testscid:anchor2", "https://www.example.org");
+
+        try {
+            assertThat(concurrentValidator.isTrusted(ISSUER_DID, TRUSTED_VCT,
+                    Management.builder().trustAnchors(List.of(untrustedAnchor, anchor)).build())).isTrue();
+            assertThat(concurrentValidator.isTrusted(ISSUER_DID, TRUSTED_VCT,
+                    Management.builder().trustAnchors(List.of(untrustedAnchor)).build())).isFalse();
+        } finally {
+            concurrentValidator.shutdown();
+        }
+    }
+
+    @Test
+    void isTrusted_whenTrustAnchorFails_thenRemainingAnchorsEvaluated() {
+        var failingAnchor = new TrustAnchor("did:webvh:testscid:anchor2", "https://www.example.org");
+        cacheTrustedVerification(validator);
+        when(statementProvider.getIssuanceStatementsFor(anyString())).thenThrow(new IllegalStateException("registry unavailable"));
+
+        assertThat(validator.isTrusted(ISSUER_DID, TRUSTED_VCT,
+                Management.builder().trustAnchors(List.of(failingAnchor, anchor)).build())).isTrue();
+    }
+
+    @Test
+    void isTrusted_whenTrustAnchorFailsAndNoneTrusts_thenFailureThrown() {
+        var failingAnchor = new TrustAnchor("did:webvh:testscid:anchor2", "https://www.example.org");
+        when(statementProvider.getIssuanceStatementsFor(anyString())).thenThrow(new IllegalStateException("registry unavailable"));
+        var managementWithFailingAnchor = Management.builder().trustAnchors(List.of(failingAnchor)).build();
+
+        assertThatThrownBy(() -> validator.isTrusted(ISSUER_DID, TRUSTED_VCT, managementWithFailingAnchor))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("registry unavailable");
+    }
+
+    @Test
+    void isTrusted_whenEvaluatedConcurrentlyAndTrustAnchorFails_thenTrustedByRemainingAnchor() {
+        var properties = new TrustRegistryProperties();
+        properties.setTrustAnchorParallelism(2);
+        var concurrentValidator = new TrustProtocol2Validator(statementProvider, properties);
+        var failingAnchor = new TrustAnchor("did:webvh:testscid:anchor2", "https://www.example.org");
+        var otherFailingAnchor = new TrustAnchor("did:webvh:testscid:anchor3", "https://www.example.net");
+
+        try {
+            cacheTrustedVerification(concurrentValidator);
+            when(statementProvider.getIssuanceStatementsFor(anyString())).thenThrow(new IllegalStateException("registry unavailable"));
+
+            assertThat(concurrentValidator.isTrusted(ISSUER_DID, TRUSTED_VCT,
+                    Management.builder().trustAnchors(List.of(failingAnchor, otherFailingAnchor, anchor)).build())).isTrue();
+            var managementWithFailingAnchors = Management.builder().trustAnchors(List.of(failingAnchor, otherFailingAnchor)).build();
+            assertThatThrownBy(() -> concurrentValidator.isTrusted(ISSUER_DID, TRUSTED_VCT, managementWithFailingAnchors))
+                    .isInstanceOf(IllegalStateException.class);
+        } finally {
+            concurrentValidator.shutdown();
+        }
+    }
+
+    /**
+     * Verifies the trusted anchor once, so its result is served from the cache afterward
+     */
+    private void cacheTrustedVerification(TrustProtocol2Validator trustValidator) {
+        when(statementProvider.getIssuanceStatementsFor(anyString()))
+                .thenReturn(new IssuanceStatements(trustStatements.stream().map(SignedJWT::serialize).toList(), Long.MAX_VALUE));
+        assertThat(trustValidator.isTrusted(ISSUER_DID, TRUSTED_VCT, management)).isTrue();
+    }
 }
@@ -3,6 +3,7 @@ package ch.admin.bj.swiyu.verifier.service.oid4vp.service;
 import ch.admin.bj.swiyu.verifier.common.config.ApplicationProperties;
 import ch.admin.bj.swiyu.verifier.dto.VerificationPresentationDCQLRequestDto;
 import ch.admin.bj.swiyu.verifier.common.exception.VerificationError;
+import ch.admin.bj.swiyu.verifier.common.exception.VerificationErrorResponseCode;
 import ch.admin.bj.swiyu.verifier.common.exception.VerificationException;
 import ch.admin.bj.swiyu.verifier.domain.SdJwt;
 import ch.admin.bj.swiyu.verifier.domain.management.Management;
@@ -24,6 +25,8 @@ import org.junit.jupiter.params.provider.ValueSource;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static ch.admin.bj.swiyu.verifier.common.DcqlTestHelper.DC_SD_JWT_CREDENTIAL_FORMAT;
 import static org.junit.jupiter.api.Assertions.*;
@@ -224,4 +227,62 @@ class DcqlPresentationVerificationServiceTest {
         assertEquals("No matching SD-JWT for requested credential id " + credentialId, ex.getErrorDescription());
         verify(dcqlEvaluator, never()).validateRequestedClaims(any(), any());
     }
+
+    @Test
+    void process_whenParallel_thenVerifiesAllCredentialsConcurrently() {
+        when(applicationProperties.isParallelDcqlVerification()).thenReturn(true);
+        var management = mock(Management.class);
+        var meta = new DcqlCredentialMeta(null, List.of("vct:test"), null);
+        var claims = List.of(new DcqlClaim(null, List.of("given_name"), null));
+        var firstCredential = new DcqlCredential("cred-1", DC_SD_JWT_CREDENTIAL_FORMAT, meta, claims, true, false);
+        var secondCredential = new DcqlCredential("cred-2", DC_SD_JWT_CREDENTIAL_FORMAT, meta, claims, true, false);
+        when(management.getDcqlQuery()).thenReturn(new DcqlQuery(List.of(firstCredential, secondCredential), null));
+        var request = new VerificationPresentationDCQLRequestDto(Map.of("cred-1", List.of("vp-token-1"), "cred-2", List.of("vp-token-2")));
+
+        // each verification only completes once both are running at the same time
+        var bothVerificationsRunning = new CountDownLatch(2);
+        var firstSdJwt = mockVerification("vp-token-1", management, firstCredential, Map.of("given_name", "Alice"), bothVerificationsRunning);
+        var secondSdJwt = mockVerification("vp-token-2", management, secondCredential, Map.of("given_name", "Bob"), bothVerificationsRunning);
+        when(dcqlEvaluator.filterByVct(List.of(firstSdJwt), meta)).thenReturn(List.of(firstSdJwt));
+        when(dcqlEvaluator.filterByVct(List.of(secondSdJwt), meta)).thenReturn(List.of(secondSdJwt));
+
+        var resultJson = dcqlPresentationVerificationService.process(management, request);
+
+        assertTrue(resultJson.contains("\"cred-1\":[{\"given_name\":\"Alice\"}]"));
+        assertTrue(resultJson.contains("\"cred-2\":[{\"given_name\":\"Bob\"}]"));
+        verify(dcqlEvaluator).validateRequestedClaims(firstSdJwt, claims);
+        verify(dcqlEvaluator).validateRequestedClaims(secondSdJwt, claims);
+    }
+
+    @Test
+    void process_whenParallelAndVerificationFails_thenRethrowsVerificationException() {
+        when(applicationProperties.isParallelDcqlVerification()).thenReturn(true);
+        var management = mock(Management.class);
+        var meta = new DcqlCredentialMeta(null, List.of("vct:test"), null);
+        var firstCredential = new DcqlCredential("cred-1", DC_SD_JWT_CREDENTIAL_FORMAT, meta, null, true, false);
+        var secondCredential = new DcqlCredential("cred-2", DC_SD_JWT_CREDENTIAL_FORMAT, meta, null, true, false);
+        when(management.getDcqlQuery()).thenReturn(new DcqlQuery(List.of(firstCredential, secondCredential), null));
+        var request = new VerificationPresentationDCQLRequestDto(Map.of("cred-1", List.of("vp-token-1"), "cred-2", List.of("vp-token-2")));
+
+        var verificationError = VerificationException.credentialError(VerificationErrorResponseCode.CREDENTIAL_REVOKED, "revoked");
+        when(sdJwtLegacyPresentationVerifier.verify("vp-token-1", management, firstCredential)).thenThrow(verificationError);
+        when(sdJwtLegacyPresentationVerifier.verify("vp-token-2", management, secondCredential)).thenReturn(mock(SdJwt.class));
+
+        var ex = assertThrows(VerificationException.class, () -> dcqlPresentationVerificationService.process(management, request));
+
+        assertSame(verificationError, ex);
+        verify(dcqlEvaluator, never()).validateRequestedClaims(any(), any());
+    }
+
+    private SdJwt mockVerification(String vpToken, Management management, DcqlCredential requestedCredential,
+                                   Map<String, Object> resolvedClaims, CountDownLatch bothVerificationsRunning) {
+        var sdJwt = mock(SdJwt.class);
+        when(sdJwt.getResolvedClaims()).thenReturn(resolvedClaims);
+        when(sdJwtLegacyPresentationVerifier.verify(vpToken, management, requestedCredential)).thenAnswer(invocation -> {
+            bothVerificationsRunning.countDown();
+            assertTrue(bothVerificationsRunning.await(5, TimeUnit.SECONDS), "VP tokens are not verified concurrently");
+            return sdJwt;
+        });
+        return sdJwt;
+    }
 }
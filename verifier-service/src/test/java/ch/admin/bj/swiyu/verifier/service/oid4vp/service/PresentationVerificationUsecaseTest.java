@@ -2,6 +2,7 @@ package ch.admin.bj.swiyu.verifier.service.oid4vp.service;
 
 import ch.admin.bj.swiyu.verifier.common.config.ApplicationProperties;
 import ch.admin.bj.swiyu.verifier.common.exception.ProcessClosedException;
+import ch.admin.bj.swiyu.verifier.common.exception.VerificationErrorResponseCode;
 import ch.admin.bj.swiyu.verifier.common.exception.VerificationException;
 import ch.admin.bj.swiyu.verifier.domain.SdJwt;
 import ch.admin.bj.swiyu.verifier.domain.management.Management;
@@ -62,11 +63,11 @@ class PresentationVerificationUsecaseTest {
     void setUp() {
         ManagementRepository managementRepository = mock(ManagementRepository.class);
         ApplicationProperties applicationProperties = mock(ApplicationProperties.class);
-        ManagementTransactionalService managementTransactionalService = new ManagementTransactionalService(managementRepository, applicationProperties);
-        ManagementService managementService = new ManagementService(applicationProperties, managementTransactionalService, null);
+        callbackEventProducer = mock(CallbackEventProducer.class);
+        ManagementTransactionalService managementTransactionalService = new ManagementTransactionalService(managementRepository, applicationProperties, callbackEventProducer);
+        ManagementService managementService = new ManagementService(applicationProperties, managementTransactionalService, null, event -> { });
 
         objectMapper = new ObjectMapper();
-        callbackEventProducer = mock(CallbackEventProducer.class);
         presentationVerifier = mock(PresentationVerifier.class);
         dcqlPresentationVerificationService = mock(DcqlPresentationVerificationService.class);
 
@@ -140,6 +141,24 @@ class PresentationVerificationUsecaseTest {
         verify(callbackEventProducer, times(1)).produceEvent(any());
     }
 
+    /**
+     * The session was closed while the presentation was verified, so no result is persisted.
+     * The callback event is then written on its own.
+     */
+    @Test
+    void receiveVerificationPresentationDCQL_whenResultCannotBePersisted_thenCallbackEventWrittenOnce() {
+        var request = new VerificationPresentationDCQLRequestDto(Map.of("credId", List.of("token")));
+        when(dcqlPresentationVerificationService.process(managementEntity, request))
+                .thenThrow(VerificationException.credentialError(VerificationErrorResponseCode.CREDENTIAL_EXPIRED, "expired"));
+        when(managementEntity.getState()).thenReturn(VerificationStatus.FAILED);
+
+        assertThrows(ProcessClosedException.class, () ->
+                presentationVerificationUsecase.receiveVerificationPresentationDCQL(managementId, request));
+
+        verify(managementEntity, never()).verificationFailed(any(), any());
+        verify(callbackEventProducer, times(1)).produceEvent(managementId);
+    }
+
     /**
      * Simulates an expired session: entity exists but expiresAt is in the past.
      * claimSessionForProcessing must throw ProcessClosedException.
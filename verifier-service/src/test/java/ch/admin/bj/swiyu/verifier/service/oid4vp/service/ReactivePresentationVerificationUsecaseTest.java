@@ -0,0 +1,174 @@
+package ch.admin.bj.swiyu.verifier.service.oid4vp.service;
+
+import ch.admin.bj.swiyu.verifier.common.config.ApplicationProperties;
+import ch.admin.bj.swiyu.verifier.common.exception.ProcessClosedException;
+import ch.admin.bj.swiyu.verifier.common.exception.VerificationErrorResponseCode;
+import ch.admin.bj.swiyu.verifier.common.exception.VerificationException;
+import ch.admin.bj.swiyu.verifier.domain.management.Management;
+import ch.admin.bj.swiyu.verifier.dto.VPApiVersion;
+import ch.admin.bj.swiyu.verifier.dto.VerificationPresentationDCQLRequestDto;
+import ch.admin.bj.swiyu.verifier.dto.VerificationPresentationRejectionDto;
+import ch.admin.bj.swiyu.verifier.dto.VerificationPresentationResponseDto;
+import ch.admin.bj.swiyu.verifier.dto.VerificationPresentationUnionDto;
+import ch.admin.bj.swiyu.verifier.service.callback.CallbackEventProducer;
+import ch.admin.bj.swiyu.verifier.service.management.ManagementService;
+import ch.admin.bj.swiyu.verifier.service.oid4vp.DcqlPresentationVerificationService;
+import ch.admin.bj.swiyu.verifier.service.oid4vp.PresentationResponseResolver;
+import ch.admin.bj.swiyu.verifier.service.oid4vp.PresentationResult;
+import ch.admin.bj.swiyu.verifier.service.oid4vp.PresentationVerificationUsecase;
+import ch.admin.bj.swiyu.verifier.service.oid4vp.ReactivePresentationVerificationUsecase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static ch.admin.bj.swiyu.verifier.common.exception.VerificationException.credentialError;
+import static ch.admin.bj.swiyu.verifier.common.exception.VerificationException.submissionError;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ReactivePresentationVerificationUsecaseTest {
+
+    private static final String STATE = "state";
+
+    private PresentationResponseResolver presentationResponseResolver;
+    private PresentationVerificationUsecase presentationVerificationUsecase;
+    private DcqlPresentationVerificationService dcqlPresentationVerificationService;
+    private ManagementService managementService;
+    private CallbackEventProducer callbackEventProducer;
+    private ReactivePresentationVerificationUsecase usecase;
+
+    private UUID managementId;
+    private Management managementEntity;
+    private VerificationPresentationUnionDto unionDto;
+    private VerificationPresentationDCQLRequestDto dcqlRequest;
+
+    @BeforeEach
+    void setUp() {
+        presentationResponseResolver = mock(PresentationResponseResolver.class);
+        presentationVerificationUsecase = mock(PresentationVerificationUsecase.class);
+        dcqlPresentationVerificationService = mock(DcqlPresentationVerificationService.class);
+        managementService = mock(ManagementService.class);
+        callbackEventProducer = mock(CallbackEventProducer.class);
+        usecase = new ReactivePresentationVerificationUsecase(presentationResponseResolver, presentationVerificationUsecase,
+                dcqlPresentationVerificationService, managementService, callbackEventProducer, new ApplicationProperties());
+
+        managementId = UUID.randomUUID();
+        managementEntity = mock(Management.class);
+        unionDto = VerificationPresentationUnionDto.builder().vp_token(Map.of()).state(STATE).build();
+        dcqlRequest = new VerificationPresentationDCQLRequestDto(Map.of("credential", List.of("vp-token")));
+
+        when(managementService.getManagementById(managementId)).thenReturn(managementEntity);
+        when(managementEntity.matchesOauthState(STATE)).thenReturn(true);
+        when(presentationResponseResolver.decryptIfNecessary(managementEntity, unionDto)).thenReturn(unionDto);
+        when(presentationResponseResolver.mapToPresentationResult(managementEntity, VPApiVersion.V1, unionDto))
+                .thenReturn(new PresentationResult.Dcql(dcqlRequest));
+        when(managementService.claimSessionForProcessing(managementId)).thenReturn(managementEntity);
+    }
+
+    @Test
+    void receiveVerificationPresentation_whenDcqlPresentationValid_thenVerifiedOnVirtualThreadAndSucceeded() {
+        var responseDto = new VerificationPresentationResponseDto(URI.create("https://example.com/callback"));
+        var verifiedOnVirtualThread = new AtomicBoolean();
+        when(dcqlPresentationVerificationService.process(managementEntity, dcqlRequest)).thenAnswer(invocation -> {
+            verifiedOnVirtualThread.set(Thread.currentThread().isVirtual());
+            return "credential-subject-data";
+        });
+        when(managementService.markVerificationSucceeded(managementEntity, "credential-subject-data")).thenReturn(responseDto);
+
+        var response = usecase.receiveVerificationPresentation(managementId, VPApiVersion.V1, unionDto).block();
+
+        assertThat(response).isSameAs(responseDto);
+        assertThat(verifiedOnVirtualThread).isTrue();
+        // the callback event is written together with the verification result
+        verify(callbackEventProducer, never()).produceEvent(any());
+    }
+
+    @Test
+    void receiveVerificationPresentation_whenVerificationFails_thenMarkedFailedAndV1ErrorReturned() {
+        var verificationError = credentialError(VerificationErrorResponseCode.CREDENTIAL_EXPIRED, "expired");
+        when(dcqlPresentationVerificationService.process(managementEntity, dcqlRequest)).thenThrow(verificationError);
+
+        var mono = usecase.receiveVerificationPresentation(managementId, VPApiVersion.V1, unionDto);
+        var ex = assertThrows(VerificationException.class, mono::block);
+
+        assertThat(ex.getErrorResponseCode()).isEqualTo(VerificationErrorResponseCode.CREDENTIAL_EXPIRED);
+        assertThat(ex.getCause()).isSameAs(verificationError);
+        verify(managementService).markVerificationFailed(managementEntity, verificationError);
+        verify(managementService, never()).markVerificationSucceeded(any(Management.class), any());
+        verify(callbackEventProducer, never()).produceEvent(any());
+    }
+
+    @Test
+    void receiveVerificationPresentation_whenResultCannotBePersisted_thenCallbackEventWrittenOnItsOwn() {
+        var verificationError = credentialError(VerificationErrorResponseCode.CREDENTIAL_EXPIRED, "expired");
+        when(dcqlPresentationVerificationService.process(managementEntity, dcqlRequest)).thenThrow(verificationError);
+        doThrow(new ProcessClosedException()).when(managementService).markVerificationFailed(managementEntity, verificationError);
+
+        var mono = usecase.receiveVerificationPresentation(managementId, VPApiVersion.V1, unionDto);
+        assertThrows(ProcessClosedException.class, mono::block);
+
+        verify(callbackEventProducer).produceEvent(managementId);
+    }
+
+    @Test
+    void receiveVerificationPresentation_whenClaimedConcurrently_thenProcessClosedWithoutCallback() {
+        when(managementService.claimSessionForProcessing(managementId))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Management.class, managementId));
+
+        var mono = usecase.receiveVerificationPresentation(managementId, VPApiVersion.V1, unionDto);
+        assertThrows(ProcessClosedException.class, mono::block);
+
+        verifyNoInteractions(dcqlPresentationVerificationService);
+        verify(callbackEventProducer, never()).produceEvent(any());
+    }
+
+    @Test
+    void receiveVerificationPresentation_whenClaimFailsWithVerificationException_thenMarkedFailedById() {
+        var claimError = submissionError(VerificationErrorResponseCode.AUTHORIZATION_REQUEST_OBJECT_NOT_FOUND, "not found");
+        when(managementService.claimSessionForProcessing(managementId)).thenThrow(claimError);
+
+        var mono = usecase.receiveVerificationPresentation(managementId, VPApiVersion.V1, unionDto);
+        var ex = assertThrows(VerificationException.class, mono::block);
+
+        assertThat(ex.getErrorResponseCode()).isEqualTo(VerificationErrorResponseCode.AUTHORIZATION_REQUEST_OBJECT_NOT_FOUND);
+        assertThat(ex.getCause()).isSameAs(claimError);
+        verify(managementService).markVerificationFailed(managementId, claimError);
+        verifyNoInteractions(dcqlPresentationVerificationService);
+        // the callback event is written together with the verification result
+        verify(callbackEventProducer, never()).produceEvent(any());
+    }
+
+    @Test
+    void receiveVerificationPresentation_whenStateDoesNotMatch_thenRejectedBeforeClaim() {
+        when(managementEntity.matchesOauthState(STATE)).thenReturn(false);
+
+        var mono = usecase.receiveVerificationPresentation(managementId, VPApiVersion.V1, unionDto);
+        assertThrows(IllegalArgumentException.class, mono::block);
+
+        verify(managementService, never()).claimSessionForProcessing(any());
+        verifyNoInteractions(callbackEventProducer);
+    }
+
+    @Test
+    void receiveVerificationPresentation_whenRejection_thenDelegatesToBlockingUsecase() {
+        var rejection = mock(VerificationPresentationRejectionDto.class);
+        var responseDto = new VerificationPresentationResponseDto(null);
+        when(presentationResponseResolver.mapToPresentationResult(managementEntity, VPApiVersion.V1, unionDto))
+                .thenReturn(new PresentationResult.Rejection(rejection));
+        when(presentationVerificationUsecase.receiveVerificationPresentationClientRejection(managementId, rejection))
+                .thenReturn(responseDto);
+
+        var response = usecase.receiveVerificationPresentation(managementId, VPApiVersion.V1, unionDto).block();
+
+        assertThat(response).isSameAs(responseDto);
+        verifyNoInteractions(dcqlPresentationVerificationService);
+    }
+}
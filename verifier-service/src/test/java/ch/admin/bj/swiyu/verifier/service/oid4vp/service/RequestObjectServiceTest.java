@@ -4,10 +4,12 @@ import ch.admin.bj.swiyu.verifier.common.profile.SwissProfileVersions;
 import ch.admin.bj.swiyu.verifier.dto.management.ResponseModeTypeDto;
 import ch.admin.bj.swiyu.verifier.dto.metadata.OpenidClientMetadataDto;
 import ch.admin.bj.swiyu.verifier.common.config.ApplicationProperties;
+import ch.admin.bj.swiyu.verifier.common.config.CacheProperties;
 import ch.admin.bj.swiyu.verifier.common.util.SignerProvider;
 import ch.admin.bj.swiyu.verifier.common.exception.ProcessClosedException;
 import ch.admin.bj.swiyu.verifier.domain.management.*;
 import ch.admin.bj.swiyu.verifier.service.JwtSigningService;
+import ch.admin.bj.swiyu.verifier.service.management.VerificationManagementCreatedEvent;
 import ch.admin.bj.swiyu.verifier.service.oid4vp.MetadataService;
 import ch.admin.bj.swiyu.verifier.service.oid4vp.RequestObjectService;
 import tools.jackson.databind.ObjectMapper;
@@ -35,7 +37,17 @@ import java.util.UUID;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.*;
+import static any;
+import static anyLong;
+import static anyString;
+import static eq;
+import static isNull;
+import static org.mockito.Mockito.after;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class RequestObjectServiceTest {
@@ -51,6 +63,7 @@ class RequestObjectServiceTest {
     private JwtSigningService jwtSigningService;
     private final String prefix = "test-prefix";
     private ApplicationProperties applicationProperties;
+    private MetadataService metadataService;
 
     @BeforeEach
     void setUp() {
@@ -59,7 +72,7 @@ class RequestObjectServiceTest {
         jwtSigningService = mock(JwtSigningService.class);
         signerProvider = mock(SignerProvider.class);
 
-        var metadataService = mock(MetadataService.class);
+        metadataService = mock(MetadataService.class);
 
         service = new RequestObjectService(
                 applicationProperties,
@@ -67,7 +80,8 @@ class RequestObjectServiceTest {
                 objectMapper,
                 jwtSigningService,
                 metadataService,
-                Optional.empty()
+                Optional.empty(),
+                new CacheProperties()
         );
         
         // Mock application configurations
@@ -76,7 +90,7 @@ class RequestObjectServiceTest {
         when(applicationProperties.getExternalUrl()).thenReturn("https://test");
         when(applicationProperties.getSigningKeyVerificationMethod()).thenReturn("did:example:123#key1");
         when(applicationProperties.getRequestObjectTTLSeconds()).thenReturn( 600);
-        when(metadataService.getOpenidClientMetadataForManagementEntity(org.mockito.ArgumentMatchers.any(), org.mockito.ArgumentMatchers.any())).thenReturn(openidClientMetadataDto);
+        when(metadataService.getOpenidClientMetadataForManagementEntity(any(), any())).thenReturn(openidClientMetadataDto);
     }
     
     @Test
@@ -87,12 +101,7 @@ class RequestObjectServiceTest {
         when(signerProvider.canProvideSigner()).thenReturn(true);
         JWSSigner jwsSigner = new ECDSASigner(new ECKeyGenerator(Curve.P_256).generate());
         when(signerProvider.getSigner()).thenReturn(jwsSigner);
-        when(jwtSigningService.signJwt(
-                org.mockito.ArgumentMatchers.any(),
-                org.mockito.ArgumentMatchers.isNull(),
-                org.mockito.ArgumentMatchers.isNull(),
-                org.mockito.ArgumentMatchers.eq(keyId)
-        )).thenAnswer(invocation -> {
+        when(jwtSigningService.signJwt(any(), isNull(), isNull(), eq(keyId))).thenAnswer(invocation -> {
             var claimsSet = invocation.getArgument(0, JWTClaimsSet.class);
             JWSHeader header = new JWSHeader.Builder(com.nimbusds.jose.JWSAlgorithm.ES256)
                     .keyID(keyId)
@@ -144,12 +153,7 @@ class RequestObjectServiceTest {
         when(signerProvider.canProvideSigner()).thenReturn(true);
         JWSSigner jwsSigner = new ECDSASigner(new ECKeyGenerator(Curve.P_256).generate());
         when(signerProvider.getSigner()).thenReturn(jwsSigner);
-        when(jwtSigningService.signJwt(
-                org.mockito.ArgumentMatchers.any(),
-                org.mockito.ArgumentMatchers.isNull(),
-                org.mockito.ArgumentMatchers.isNull(),
-                org.mockito.ArgumentMatchers.eq("did:override#key1")
-        )).thenAnswer(invocation -> {
+        when(jwtSigningService.signJwt(any(), isNull(), isNull(), eq("did:override#key1"))).thenAnswer(invocation -> {
             var claimsSet = invocation.getArgument(0, JWTClaimsSet.class);
             JWSHeader header = new JWSHeader.Builder(com.nimbusds.jose.JWSAlgorithm.ES256)
                     .keyID("did:override#key1")
@@ -184,12 +188,7 @@ class RequestObjectServiceTest {
         when(signerProvider.canProvideSigner()).thenReturn(true);
         JWSSigner jwsSigner = new ECDSASigner(new ECKeyGenerator(Curve.P_256).generate());
         when(signerProvider.getSigner()).thenReturn(jwsSigner);
-        when(jwtSigningService.signJwt(
-                org.mockito.ArgumentMatchers.any(),
-                org.mockito.ArgumentMatchers.isNull(),
-                org.mockito.ArgumentMatchers.isNull(),
-                org.mockito.ArgumentMatchers.eq("did:example:123#key1")
-        )).thenAnswer(invocation -> {
+        when(jwtSigningService.signJwt(any(), isNull(), isNull(), eq("did:example:123#key1"))).thenAnswer(invocation -> {
             var claimsSet = invocation.getArgument(0, JWTClaimsSet.class);
             JWSHeader header = new JWSHeader.Builder(com.nimbusds.jose.JWSAlgorithm.ES256)
                     .keyID("did:example:123#key1")
@@ -221,12 +220,7 @@ class RequestObjectServiceTest {
         when(management.getConfigurationOverride()).thenReturn(new ConfigurationOverride(null, null, null, null, null, null));
         when(management.getOauthState()).thenReturn(UUID.randomUUID().toString());
         JWSSigner jwsSigner = new ECDSASigner(new ECKeyGenerator(Curve.P_256).generate());
-        when(jwtSigningService.signJwt(
-                org.mockito.ArgumentMatchers.any(),
-                org.mockito.ArgumentMatchers.isNull(),
-                org.mockito.ArgumentMatchers.isNull(),
-                org.mockito.ArgumentMatchers.eq("did:example:123#key1")
-        )).thenAnswer(invocation -> {
+        when(jwtSigningService.signJwt(any(), isNull(), isNull(), eq("did:example:123#key1"))).thenAnswer(invocation -> {
             var claimsSet = invocation.getArgument(0, JWTClaimsSet.class);
             JWSHeader header = new JWSHeader.Builder(com.nimbusds.jose.JWSAlgorithm.ES256)
                     .keyID("did:example:123#key1")
@@ -267,6 +261,71 @@ class RequestObjectServiceTest {
         assertThat(claims.getStringClaim("response_uri")).as("Was using overridden external url").startsWith(externalUrl);
     }
 
+    @Test
+    void assembleRequestObject_whenSameConfiguration_thenTemplateReusedAndSessionValuesPatched() throws Exception {
+        var management = mockManagement(true);
+        mockSigning();
+
+        var first = SignedJWT.parse(service.assembleRequestObject(mgmtId)).getJWTClaimsSet();
+        var otherState = UUID.randomUUID().toString();
+        when(management.getRequestNonce()).thenReturn("other-nonce");
+        when(management.getOauthState()).thenReturn(otherState);
+        var second = SignedJWT.parse(service.assembleRequestObject(mgmtId)).getJWTClaimsSet();
+
+        verify(metadataService, times(1)).getOpenidClientMetadataForManagementEntity(any(), any());
+        assertThat(first.getClaim("nonce")).isEqualTo(nonce);
+        assertThat(second.getClaim("nonce")).isEqualTo("other-nonce");
+        assertThat(second.getClaim("state")).isEqualTo(otherState);
+        assertThat(second.getClaim("client_id")).isEqualTo(first.getClaim("client_id"));
+        assertThat(second.getClaim("client_metadata")).isEqualTo(first.getClaim("client_metadata"));
+    }
+
+    @Test
+    void assembleRequestObject_whenPresignedRequestObjectValid_thenReturnedWithoutSigning() throws Exception {
+        var management = mockManagement(true);
+        when(applicationProperties.isPresignRequestObjects()).thenReturn(true);
+        when(management.getSignedRequestObjectValidFor(300_000L)).thenReturn(Optional.of("presigned.request.object"));
+
+        assertThat(service.assembleRequestObject(mgmtId)).isEqualTo("presigned.request.object");
+
+        verify(jwtSigningService, never()).signJwt(any(), any(), any(), any());
+    }
+
+    @Test
+    void assembleRequestObject_whenPresignedRequestObjectMissingOrExpired_thenSignedAndStored() throws Exception {
+        var management = mockManagement(true);
+        when(management.getId()).thenReturn(mgmtId);
+        when(applicationProperties.isPresignRequestObjects()).thenReturn(true);
+        mockSigning();
+
+        var jwtString = service.assembleRequestObject(mgmtId);
+
+        var expiresAt = SignedJWT.parse(jwtString).getJWTClaimsSet().getExpirationTime().getTime();
+        verify(managementRepository).storeSignedRequestObject(mgmtId, jwtString, expiresAt);
+    }
+
+    @Test
+    void onVerificationManagementCreated_whenPresignEnabled_thenSignedAndStoredInBackground() throws Exception {
+        var management = mockManagement(true);
+        when(management.getId()).thenReturn(mgmtId);
+        when(applicationProperties.isPresignRequestObjects()).thenReturn(true);
+        mockSigning();
+
+        service.onVerificationManagementCreated(new VerificationManagementCreatedEvent(mgmtId, true));
+
+        verify(managementRepository, timeout(5000)).storeSignedRequestObject(eq(mgmtId), anyString(), anyLong());
+    }
+
+    @Test
+    void onVerificationManagementCreated_whenPresignDisabledOrNoJar_thenNothingSigned() throws Exception {
+        service.onVerificationManagementCreated(new VerificationManagementCreatedEvent(mgmtId, true));
+        when(applicationProperties.isPresignRequestObjects()).thenReturn(true);
+        service.onVerificationManagementCreated(new VerificationManagementCreatedEvent(mgmtId, false));
+
+        verify(jwtSigningService, after(200).never()).signJwt(any(), any(), any(), any());
+        verify(managementRepository, never()).findById(any());
+    }
+
     @Test
     void assembleRequestObjectNotPending_throwsException() {
         var management = mock(Management.class);
@@ -301,6 +360,15 @@ class RequestObjectServiceTest {
                 .hasMessageContaining("Failed to sign request object");
     }
 
+    private void mockSigning() throws JOSEException {
+        JWSSigner jwsSigner = new ECDSASigner(new ECKeyGenerator(Curve.P_256).generate());
+        when(jwtSigningService.signJwt(any(), isNull(), isNull(), anyString())).thenAnswer(invocation -> {
+            SignedJWT signedJwt = new SignedJWT(new JWSHeader(com.nimbusds.jose.JWSAlgorithm.ES256), invocation.getArgument(0, JWTClaimsSet.class));
+            signedJwt.sign(jwsSigner);
+            return signedJwt;
+        });
+    }
+
     private Management mockManagement(boolean needsJwsAuthorizationRequest) {
         var management = mock(Management.class);
         when(managementRepository.findById(mgmtId)).thenReturn(Optional.of(management));
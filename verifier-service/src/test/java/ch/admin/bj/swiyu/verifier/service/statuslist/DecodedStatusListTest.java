@@ -0,0 +1,76 @@
+package ch.admin.bj.swiyu.verifier.service.statuslist;
+
+import ch.admin.bj.swiyu.verifier.service.oid4vp.test.fixtures.StatusListGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DecodedStatusListTest {
+
+    private static final int MAX_DECODED_LENGTH = 1024;
+
+    @Test
+    void statusAt_whenSpecStatusList_thenReturnsStatusOfEachIndex() throws IOException {
+        var statusList = DecodedStatusList.decode(StatusListGenerator.SPEC_STATUS_LIST, 2, MAX_DECODED_LENGTH);
+
+        assertThat(statusList.statusAt(0)).isEqualTo(1);
+        assertThat(statusList.statusAt(1)).isEqualTo(2);
+        assertThat(statusList.statusAt(2)).isZero();
+        assertThat(statusList.statusAt(3)).isEqualTo(3);
+        assertThat(statusList.statusAt(3, 2)).isEqualTo(3);
+    }
+
+    @Test
+    void statusAt_whenOneBitPerStatus_thenReadsLeastSignificantBitFirst() throws IOException {
+        // 0b10100101 -> indices 0, 2, 5 and 7 are set
+        var statusList = DecodedStatusList.decode(compress(new byte[]{(byte) 0b10100101, 0}), 1, MAX_DECODED_LENGTH);
+
+        assertThat(statusList.size()).isEqualTo(16);
+        assertThat(statusList.statusAt(0)).isEqualTo(1);
+        assertThat(statusList.statusAt(1)).isZero();
+        assertThat(statusList.statusAt(5)).isEqualTo(1);
+        assertThat(statusList.statusAt(7)).isEqualTo(1);
+        assertThat(statusList.statusAt(8)).isZero();
+    }
+
+    @Test
+    void statusAt_whenEightBitsPerStatus_thenReturnsUnsignedValue() throws IOException {
+        var statusList = DecodedStatusList.decode(compress(new byte[]{(byte) 0xFF, 0x02}), 8, MAX_DECODED_LENGTH);
+
+        assertThat(statusList.statusAt(0)).isEqualTo(255);
+        assertThat(statusList.statusAt(1)).isEqualTo(2);
+    }
+
+    @Test
+    void statusAt_whenIndexOutsideOfList_thenIndexOutOfBounds() throws IOException {
+        var statusList = DecodedStatusList.decode(StatusListGenerator.SPEC_STATUS_LIST, 2, MAX_DECODED_LENGTH);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> statusList.statusAt(4));
+        assertThrows(IndexOutOfBoundsException.class, () -> statusList.statusAt(-1));
+        assertThrows(IllegalArgumentException.class, () -> statusList.statusAt(0, 1));
+    }
+
+    @Test
+    void decode_whenInvalidInput_thenFails() throws IOException {
+        var tooLarge = compress(new byte[MAX_DECODED_LENGTH + 1]);
+
+        assertThrows(IOException.class, () -> DecodedStatusList.decode(tooLarge, 1, MAX_DECODED_LENGTH));
+        assertThrows(IOException.class, () -> DecodedStatusList.decode("not+base64url", 1, MAX_DECODED_LENGTH));
+        assertThrows(IOException.class, () -> DecodedStatusList.decode("AAAA", 1, MAX_DECODED_LENGTH));
+        assertThrows(IllegalArgumentException.class, () -> DecodedStatusList.decode(StatusListGenerator.SPEC_STATUS_LIST, 3, MAX_DECODED_LENGTH));
+    }
+
+    private static String compress(byte[] statuses) throws IOException {
+        var compressed = new ByteArrayOutputStream();
+        try (var deflater = new DeflaterOutputStream(compressed)) {
+            deflater.write(statuses);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(compressed.toByteArray());
+    }
+}
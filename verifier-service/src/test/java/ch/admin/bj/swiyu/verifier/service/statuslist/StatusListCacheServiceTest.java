@@ -4,12 +4,18 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.nimbusds.jose.jwk.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -54,7 +60,7 @@ class StatusListCacheServiceTest {
             .generate();
         when(issuerPublicKeyLoader.resolveKey(eq(testKey.getKeyID()))).thenReturn(testKey.toPublicJWK());
         var statusListJwt = StatusListGenerator.createTokenStatusListTokenVerifiableCredential(StatusListGenerator.SPEC_STATUS_LIST, testKey, "did:example", testKey.getKeyID());
-        when(statusListResolver.resolveStatusList(eq(StatusListGenerator.SPEC_SUBJECT))).thenReturn(statusListJwt);
+        when(statusListResolver.fetchStatusList(eq(StatusListGenerator.SPEC_SUBJECT), any(), any())).thenReturn(StatusListFetchResult.modified(statusListJwt, null, null));
 
         var statusList = assertDoesNotThrow(() -> cacheService.getTokenStatusListTokenByUri(StatusListGenerator.SPEC_SUBJECT));
 
@@ -83,7 +89,7 @@ class StatusListCacheServiceTest {
         when(issuerPublicKeyLoader.resolveKey(eq(testKey.getKeyID()))).thenReturn(testKey.toPublicJWK());
         var statusListJwt = StatusListGenerator.createTokenStatusListTokenVerifiableCredential(StatusListGenerator.SPEC_STATUS_LIST, testKey, "did:example", testKey.getKeyID());
 
-        when(statusListResolver.resolveStatusList(eq(StatusListGenerator.SPEC_SUBJECT))).thenReturn(statusListJwt);
+        when(statusListResolver.fetchStatusList(eq(StatusListGenerator.SPEC_SUBJECT), any(), any())).thenReturn(StatusListFetchResult.modified(statusListJwt, null, null));
 
         var statusList = assertDoesNotThrow(() -> cacheService.getTokenStatusListTokenByUri(StatusListGenerator.SPEC_SUBJECT));
         // Ensure data is returned
@@ -96,4 +102,143 @@ class StatusListCacheServiceTest {
         assertDoesNotThrow(() -> cacheService.getTokenStatusListTokenByUri(StatusListGenerator.SPEC_SUBJECT));
         verify(didJwtValidator, times(2)).validateJwt(eq(statusListJwt), any(JWK.class));
     }
+
+    /**
+     * With refresh-ahead a cached status list is returned immediately while a single reload runs in the background
+     */
+    @Test
+    void testGetTokenStatusListTokenByUri_refreshAhead() throws Exception {
+        cacheProperties.setStatusListCacheTtlMs(60_000L);
+        cacheProperties.setStatusListRefreshAhead(true);
+        // refresh on every access after the status list was loaded
+        cacheProperties.setStatusListRefreshAheadRatio(Double.MIN_VALUE);
+        cacheService = new StatusListCacheService(cacheProperties, didJwtValidator, issuerPublicKeyLoader, statusListResolver);
+        ECKey testKey = new ECKeyGenerator(Curve.P_256)
+            .algorithm(JWSAlgorithm.ES256)
+            .keyID("did:webvh:example.com#key-1")
+            .keyUse(KeyUse.SIGNATURE)
+            .generate();
+        when(issuerPublicKeyLoader.resolveKey(eq(testKey.getKeyID()))).thenReturn(testKey.toPublicJWK());
+        var statusListJwt = StatusListGenerator.createTokenStatusListTokenVerifiableCredential(StatusListGenerator.SPEC_STATUS_LIST, testKey, "did:example", testKey.getKeyID());
+        var reloadStarted = new CountDownLatch(1);
+        var releaseReload = new CountDownLatch(1);
+        when(statusListResolver.fetchStatusList(eq(StatusListGenerator.SPEC_SUBJECT), any(), any()))
+            .thenReturn(StatusListFetchResult.modified(statusListJwt, null, null))
+            .thenAnswer(invocation -> {
+                reloadStarted.countDown();
+                releaseReload.await(5, TimeUnit.SECONDS);
+                return StatusListFetchResult.modified(statusListJwt, null, null);
+            });
+
+        var statusList = cacheService.getTokenStatusListTokenByUri(StatusListGenerator.SPEC_SUBJECT);
+        assertThat(reloadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // while the reload is blocked, the cached status list is served and no further reload is started
+        for (int i = 0; i < 10; i++) {
+            assertThat(cacheService.getTokenStatusListTokenByUri(StatusListGenerator.SPEC_SUBJECT)).isSameAs(statusList);
+        }
+        verify(statusListResolver, times(2)).fetchStatusList(eq(StatusListGenerator.SPEC_SUBJECT), any(), any());
+
+        releaseReload.countDown();
+        verify(didJwtValidator, timeout(5000).times(2)).validateJwt(eq(statusListJwt), any(JWK.class));
+    }
+
+    /**
+     * A status list answered with 304 Not Modified is reused without validating it again
+     */
+    @Test
+    void testGetTokenStatusListTokenByUri_notModified() throws Exception {
+        cacheProperties.setStatusListCacheTtlMs(60_000L);
+        cacheProperties.setStatusListRefreshAhead(true);
+        cacheProperties.setStatusListRefreshAheadRatio(Double.MIN_VALUE);
+        cacheService = new StatusListCacheService(cacheProperties, didJwtValidator, issuerPublicKeyLoader, statusListResolver);
+        ECKey testKey = new ECKeyGenerator(Curve.P_256)
+            .algorithm(JWSAlgorithm.ES256)
+            .keyID("did:webvh:example.com#key-1")
+            .keyUse(KeyUse.SIGNATURE)
+            .generate();
+        when(issuerPublicKeyLoader.resolveKey(eq(testKey.getKeyID()))).thenReturn(testKey.toPublicJWK());
+        var statusListJwt = StatusListGenerator.createTokenStatusListTokenVerifiableCredential(StatusListGenerator.SPEC_STATUS_LIST, testKey, "did:example", testKey.getKeyID());
+        when(statusListResolver.fetchStatusList(StatusListGenerator.SPEC_SUBJECT, null, null))
+            .thenReturn(StatusListFetchResult.modified(statusListJwt, "\"v1\"", null));
+        when(statusListResolver.fetchStatusList(StatusListGenerator.SPEC_SUBJECT, "\"v1\"", null))
+            .thenReturn(StatusListFetchResult.notModified("\"v1\"", null));
+
+        var statusList = cacheService.getValidatedStatusListByUri(StatusListGenerator.SPEC_SUBJECT);
+
+        // the refresh ahead sends the ETag of the cached status list and keeps it on 304
+        verify(statusListResolver, timeout(5000)).fetchStatusList(StatusListGenerator.SPEC_SUBJECT, "\"v1\"", null);
+        assertThat(cacheService.getValidatedStatusListByUri(StatusListGenerator.SPEC_SUBJECT)).isSameAs(statusList);
+        assertThat(statusList.statuses().statusAt(1)).isEqualTo(2);
+        verify(didJwtValidator, times(1)).validateJwt(eq(statusListJwt), any(JWK.class));
+    }
+
+    /**
+     * A status list served without ETag and Last-Modified can never be revalidated, so it is not kept for it
+     */
+    @Test
+    void testGetTokenStatusListTokenByUri_withoutValidators_thenNotKeptForRevalidation() throws Exception {
+        cacheProperties.setStatusListCacheTtlMs(60_000L);
+        cacheService = new StatusListCacheService(cacheProperties, didJwtValidator, issuerPublicKeyLoader, statusListResolver);
+        ECKey testKey = new ECKeyGenerator(Curve.P_256)
+            .algorithm(JWSAlgorithm.ES256)
+            .keyID("did:webvh:example.com#key-1")
+            .keyUse(KeyUse.SIGNATURE)
+            .generate();
+        when(issuerPublicKeyLoader.resolveKey(eq(testKey.getKeyID()))).thenReturn(testKey.toPublicJWK());
+        var statusListJwt = StatusListGenerator.createTokenStatusListTokenVerifiableCredential(StatusListGenerator.SPEC_STATUS_LIST, testKey, "did:example", testKey.getKeyID());
+        when(statusListResolver.fetchStatusList(eq(StatusListGenerator.SPEC_SUBJECT), any(), any())).thenReturn(StatusListFetchResult.modified(statusListJwt, null, null));
+
+        cacheService.getValidatedStatusListByUri(StatusListGenerator.SPEC_SUBJECT);
+
+        assertThat(cacheService.getCache().estimatedSize()).isEqualTo(1);
+        assertThat(cacheService.getRevalidationCache().getIfPresent(StatusListGenerator.SPEC_SUBJECT)).isNull();
+    }
+
+    /**
+     * A status list with an ETag is kept for revalidation, but only for twice the status list cache TTL
+     */
+    @Test
+    void testGetTokenStatusListTokenByUri_withValidators_thenKeptForRevalidationUntilExpired() throws Exception {
+        cacheProperties.setStatusListCacheTtlMs(100L);
+        cacheService = new StatusListCacheService(cacheProperties, didJwtValidator, issuerPublicKeyLoader, statusListResolver);
+        ECKey testKey = new ECKeyGenerator(Curve.P_256)
+            .algorithm(JWSAlgorithm.ES256)
+            .keyID("did:webvh:example.com#key-1")
+            .keyUse(KeyUse.SIGNATURE)
+            .generate();
+        when(issuerPublicKeyLoader.resolveKey(eq(testKey.getKeyID()))).thenReturn(testKey.toPublicJWK());
+        var statusListJwt = StatusListGenerator.createTokenStatusListTokenVerifiableCredential(StatusListGenerator.SPEC_STATUS_LIST, testKey, "did:example", testKey.getKeyID());
+        when(statusListResolver.fetchStatusList(eq(StatusListGenerator.SPEC_SUBJECT), any(), any())).thenReturn(StatusListFetchResult.modified(statusListJwt, "\"v1\"", null));
+
+        cacheService.getValidatedStatusListByUri(StatusListGenerator.SPEC_SUBJECT);
+
+        assertThat(cacheService.getRevalidationCache().getIfPresent(StatusListGenerator.SPEC_SUBJECT)).isNotNull();
+        Thread.sleep(300);
+        assertThat(cacheService.getRevalidationCache().getIfPresent(StatusListGenerator.SPEC_SUBJECT)).isNull();
+    }
+
+    /**
+     * Without caching every access loads the status list anyway, refresh-ahead must not start further reloads
+     */
+    @Test
+    void testGetTokenStatusListTokenByUri_noCacheWithRefreshAhead() throws Exception {
+        cacheProperties.setStatusListCacheTtlMs(0L);
+        cacheProperties.setStatusListRefreshAhead(true);
+        cacheService = new StatusListCacheService(cacheProperties, didJwtValidator, issuerPublicKeyLoader, statusListResolver);
+        ECKey testKey = new ECKeyGenerator(Curve.P_256)
+            .algorithm(JWSAlgorithm.ES256)
+            .keyID("did:webvh:example.com#key-1")
+            .keyUse(KeyUse.SIGNATURE)
+            .generate();
+        when(issuerPublicKeyLoader.resolveKey(eq(testKey.getKeyID()))).thenReturn(testKey.toPublicJWK());
+        var statusListJwt = StatusListGenerator.createTokenStatusListTokenVerifiableCredential(StatusListGenerator.SPEC_STATUS_LIST, testKey, "did:example", testKey.getKeyID());
+        when(statusListResolver.fetchStatusList(eq(StatusListGenerator.SPEC_SUBJECT), any(), any())).thenReturn(StatusListFetchResult.modified(statusListJwt, null, null));
+
+        cacheService.getTokenStatusListTokenByUri(StatusListGenerator.SPEC_SUBJECT);
+        cacheService.getTokenStatusListTokenByUri(StatusListGenerator.SPEC_SUBJECT);
+
+        // one load per access, no reload in the background
+        verify(statusListResolver, after(500).times(2)).fetchStatusList(eq(StatusListGenerator.SPEC_SUBJECT), any(), any());
+    }
 }
@@ -0,0 +1,109 @@
+package ch.admin.bj.swiyu.verifier.service.statuslist;
+
+import ch.admin.bj.swiyu.statuslist.dto.TokenStatusListTokenDto;
+import ch.admin.bj.swiyu.verifier.common.config.VerificationProperties;
+import ch.admin.bj.swiyu.verifier.service.oid4vp.test.fixtures.StatusListGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StatusListStatusVerifierTest {
+
+    private static final String ISSUER = "did:example:issuer";
+    private static final String STATUS_LIST_URI = "https://example.com/statuslists/1";
+    // Index of a revoked token in StatusListGenerator.SPEC_STATUS_LIST
+    private static final int REVOKED_INDEX = 0;
+
+    private StatusListStatusVerifier verifier;
+    private TokenStatusListTokenDto token;
+    private DecodedStatusList statuses;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        verifier = new StatusListStatusVerifier(new VerificationProperties());
+        token = mock(TokenStatusListTokenDto.class);
+        when(token.getExp()).thenReturn(Instant.now().plusSeconds(3600).getEpochSecond());
+        statuses = DecodedStatusList.decode(StatusListGenerator.SPEC_STATUS_LIST, 2, 1024);
+    }
+
+    @Test
+    void verifyStatus_whenSubjectIsReferencedUri_thenReturnsStatus() {
+        var statusList = new ValidatedStatusList(token, ISSUER, STATUS_LIST_URI, statuses);
+
+        assertThat(verifier.verifyStatus(ISSUER, STATUS_LIST_URI, REVOKED_INDEX, statusList)).hasValue(1);
+    }
+
+    @Test
+    void verifyStatus_whenSubjectIsOtherUri_thenNotApplicable() {
+        var statusList = new ValidatedStatusList(token, ISSUER, "https://example.com/statuslists/2", statuses);
+
+        assertThat(verifier.verifyStatus(ISSUER, STATUS_LIST_URI, REVOKED_INDEX, statusList)).isEmpty();
+    }
+
+    @Test
+    void verifyStatus_whenSubjectMissing_thenNotApplicable() {
+        var statusList = new ValidatedStatusList(token, ISSUER, null, statuses);
+
+        assertThat(verifier.verifyStatus(ISSUER, STATUS_LIST_URI, REVOKED_INDEX, statusList)).isEmpty();
+    }
+
+    @Test
+    void verifyStatus_whenIssuedByOtherIssuer_thenNotApplicable() {
+        var statusList = new ValidatedStatusList(token, "did:example:other", STATUS_LIST_URI, statuses);
+
+        assertThat(verifier.verifyStatus(ISSUER, STATUS_LIST_URI, REVOKED_INDEX, statusList)).isEmpty();
+    }
+
+    @Test
+    void getStatusListIndex_whenWholeNumber_thenReturnsIndex() {
+        assertThat(StatusListStatusVerifier.getStatusListIndex(claimsWithIndex(0))).hasValue(0);
+        assertThat(StatusListStatusVerifier.getStatusListIndex(claimsWithIndex(2L))).hasValue(2);
+        assertThat(StatusListStatusVerifier.getStatusListIndex(claimsWithIndex(3.0))).hasValue(3);
+        assertThat(StatusListStatusVerifier.getStatusListIndex(claimsWithIndex(Integer.MAX_VALUE)))
+                .hasValue(Integer.MAX_VALUE);
+    }
+
+    @Test
+    void getStatusListIndex_whenTooLarge_thenEmpty() {
+        assertThat(StatusListStatusVerifier.getStatusListIndex(claimsWithIndex(Integer.MAX_VALUE + 1L))).isEmpty();
+        assertThat(StatusListStatusVerifier.getStatusListIndex(claimsWithIndex(Long.MAX_VALUE))).isEmpty();
+        assertThat(StatusListStatusVerifier.getStatusListIndex(
+                claimsWithIndex(BigInteger.TWO.pow(64)))).isEmpty();
+        assertThat(StatusListStatusVerifier.getStatusListIndex(claimsWithIndex(1e300))).isEmpty();
+        assertThat(StatusListStatusVerifier.getStatusListIndex(claimsWithIndex(Double.POSITIVE_INFINITY))).isEmpty();
+    }
+
+    @Test
+    void getStatusListIndex_whenFractional_thenEmpty() {
+        assertThat(StatusListStatusVerifier.getStatusListIndex(claimsWithIndex(2.7))).isEmpty();
+        assertThat(StatusListStatusVerifier.getStatusListIndex(claimsWithIndex(0.5))).isEmpty();
+        assertThat(StatusListStatusVerifier.getStatusListIndex(claimsWithIndex(Double.NaN))).isEmpty();
+    }
+
+    @Test
+    void getStatusListIndex_whenNegative_thenEmpty() {
+        assertThat(StatusListStatusVerifier.getStatusListIndex(claimsWithIndex(-1))).isEmpty();
+        assertThat(StatusListStatusVerifier.getStatusListIndex(claimsWithIndex(-0.5))).isEmpty();
+        assertThat(StatusListStatusVerifier.getStatusListIndex(claimsWithIndex(Long.MIN_VALUE))).isEmpty();
+    }
+
+    @Test
+    void getStatusListIndex_whenMissingOrNotNumber_thenEmpty() {
+        assertThat(StatusListStatusVerifier.getStatusListIndex(Map.of())).isEmpty();
+        assertThat(StatusListStatusVerifier.getStatusListIndex(claimsWithIndex("2"))).isEmpty();
+    }
+
+    private static Map<String, Object> claimsWithIndex(Object idx) {
+        return Map.of("status", Map.of("status_list", Map.of(
+                "idx", idx,
+                "uri", "https://example.com/statuslists/1")));
+    }
+}
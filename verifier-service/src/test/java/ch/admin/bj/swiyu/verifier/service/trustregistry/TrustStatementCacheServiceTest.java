@@ -16,10 +16,13 @@ import org.junit.jupiter.api.Test;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -40,16 +43,19 @@ class TrustStatementCacheServiceTest {
     private TrustProtocol20Api trustProtocol20Api;
     private TrustStatementCacheService cacheService;
     private TrustStatementValidator statementValidator;
+    private CacheMaintenanceService cacheMaintenanceService;
+    private CacheProperties cacheProperties;
+    private TrustRegistryProperties properties;
 
     @BeforeEach
     void setUp() {
         trustProtocol20Api = mock(TrustProtocol20Api.class);
-        CacheMaintenanceService cacheMaintenanceService = mock(CacheMaintenanceService.class);
-        CacheProperties cacheProperties = new CacheProperties();
+        cacheMaintenanceService = mock(CacheMaintenanceService.class);
+        cacheProperties = new CacheProperties();
         cacheProperties.setRequestBackoffSeconds(10);
         cacheProperties.setStatusListCacheTtlMs(100L);
         statementValidator = mock(TrustStatementValidator.class);
-        TrustRegistryProperties properties = new TrustRegistryProperties();
+        properties = new TrustRegistryProperties();
         properties.setMaxCacheSize(100);
         properties.setClockSkewBufferSeconds(0);
         properties.setMaxCacheTtlSeconds(0); // no cap in tests
@@ -121,7 +127,7 @@ class TrustStatementCacheServiceTest {
         List<String> result = cacheService.getProtectedVerificationAuthorizationTrustStatements(VERIFIER_DID);
 
         assertThat(result).hasSize(2).containsExactlyInAnyOrder(jwt1, jwt2);
-        assertThat(cacheService.getPvaTsCache().estimatedSize())
+        assertThat(cacheService.getPvaTsCache().synchronous().estimatedSize())
             .as("The two statements are returned for the same did, only 1 entry should be made for the did")
             .isEqualTo(1);
     }
@@ -136,7 +142,7 @@ class TrustStatementCacheServiceTest {
         List<String> result = cacheService.getProtectedVerificationAuthorizationTrustStatements(VERIFIER_DID);
 
         assertThat(result).isEmpty();
-        assertThat(cacheService.getPvaTsCache().estimatedSize())
+        assertThat(cacheService.getPvaTsCache().synchronous().estimatedSize())
             .as("When no valid trust statement is found, but a return value is saved should be cached")
             .isEqualTo(1);
     }
@@ -149,7 +155,7 @@ class TrustStatementCacheServiceTest {
         List<String> result = cacheService.getProtectedVerificationAuthorizationTrustStatements(VERIFIER_DID);
 
         assertThat(result).isEmpty();
-        assertThat(cacheService.getPvaTsCache().estimatedSize())
+        assertThat(cacheService.getPvaTsCache().synchronous().estimatedSize())
             .as("When API error is detected, should not be cached")
             .isEqualTo(0);
     }
@@ -177,11 +183,11 @@ class TrustStatementCacheServiceTest {
                 .thenReturn(Mono.just(page));
 
         cacheService.getProtectedVerificationAuthorizationTrustStatements(VERIFIER_DID);
-        assertThat(cacheService.getPvaTsCache().estimatedSize()).as("Cache should have 1 entry").isEqualTo(1);
+        assertThat(cacheService.getPvaTsCache().synchronous().estimatedSize()).as("Cache should have 1 entry").isEqualTo(1);
         cacheService.invalidateAllTrustStatements(VERIFIER_DID);
-        assertThat(cacheService.getPvaTsCache().estimatedSize()).as("Cache should be emptied").isEqualTo(0);
+        assertThat(cacheService.getPvaTsCache().synchronous().estimatedSize()).as("Cache should be emptied").isEqualTo(0);
         cacheService.getProtectedVerificationAuthorizationTrustStatements(VERIFIER_DID);
-        assertThat(cacheService.getPvaTsCache().estimatedSize()).as("Cache should have again 1 entry").isEqualTo(1);
+        assertThat(cacheService.getPvaTsCache().synchronous().estimatedSize()).as("Cache should have again 1 entry").isEqualTo(1);
 
         verify(trustProtocol20Api, times(2)).listPvaTS(eq(VERIFIER_DID), eq(true), any(), any(), any());
     }
@@ -230,8 +236,176 @@ class TrustStatementCacheServiceTest {
         verify(trustProtocol20Api, times(1)).getActiveNcTLS();
         verify(trustProtocol20Api, times(1)).listPiaTS(eq(VERIFIER_DID), eq(true), any(), any(), any());
     }
+
+    @Test
+    void getAllIssuanceStatementsFor_whenNotCached_thenRegistryCalledConcurrently() {
+        // every call only completes once all four calls have been started
+        var started = new CountDownLatch(4);
+        PagedModelString piaTsPage = mock(PagedModelString.class);
+        when(piaTsPage.getContent()).thenReturn(List.of("piaTS-1"));
+        when(trustProtocol20Api.getIdTS(anyString())).thenReturn(awaitOthers(started, "idTS-jwt"));
+        when(trustProtocol20Api.getActivePiTLS()).thenReturn(awaitOthers(started, "piTLS-jwt"));
+        when(trustProtocol20Api.getActiveNcTLS()).thenReturn(awaitOthers(started, "ncTLS-jwt"));
+        when(trustProtocol20Api.listPiaTS(eq(VERIFIER_DID), eq(true), any(), any(), any()))
+                .thenReturn(awaitOthers(started, piaTsPage));
+
+        List<String> statements = cacheService.getAllIssuanceStatementsFor(VERIFIER_DID);
+
+        assertThat(statements).containsExactlyInAnyOrder("idTS-jwt", "piTLS-jwt", "ncTLS-jwt", "piaTS-1");
+    }
+
+    @Test
+    void getAllIssuanceStatementsFor_whenIdTsFails_thenOtherStatementsReturnedAndIdTsNotCached() {
+        PagedModelString piaTsPage = mock(PagedModelString.class);
+        when(piaTsPage.getContent()).thenReturn(List.of());
+        when(trustProtocol20Api.getIdTS(anyString()))
+                .thenReturn(Mono.error(WebClientResponseException.create(503, "Service Unavailable", null, null, null)));
+        when(trustProtocol20Api.getActivePiTLS()).thenReturn(Mono.just("piTLS-jwt"));
+        when(trustProtocol20Api.getActiveNcTLS()).thenReturn(Mono.just("ncTLS-jwt"));
+        when(trustProtocol20Api.listPiaTS(eq(VERIFIER_DID), eq(true), any(), any(), any()))
+                .thenReturn(Mono.just(piaTsPage));
+
+        assertThat(cacheService.getAllIssuanceStatementsFor(VERIFIER_DID)).containsExactlyInAnyOrder("piTLS-jwt", "ncTLS-jwt");
+        assertThat(cacheService.getAllIssuanceStatementsFor(VERIFIER_DID)).containsExactlyInAnyOrder("piTLS-jwt", "ncTLS-jwt");
+
+        verify(trustProtocol20Api, times(2)).getIdTS(eq(VERIFIER_DID));
+        verify(trustProtocol20Api, times(1)).getActivePiTLS();
+        verify(trustProtocol20Api, times(1)).getActiveNcTLS();
+        verify(trustProtocol20Api, times(1)).listPiaTS(eq(VERIFIER_DID), eq(true), any(), any(), any());
+    }
+
+    @Test
+    void getIdentityTrustStatement_whenDueForRefresh_thenCachedReturnedAndReloadedInBackground() throws Exception {
+        properties.setRefreshAheadRatio(0);
+        cacheService = new TrustStatementCacheService(trustProtocol20Api, properties, cacheMaintenanceService, statementValidator, cacheProperties);
+        String jwt = buildJwt(List.of("birth_date"), Instant.now().plusSeconds(3600));
+        String reloadedJwt = buildJwt(List.of("birth_date"), Instant.now().plusSeconds(7200));
+        when(trustProtocol20Api.getIdTS(eq(VERIFIER_DID)))
+                .thenReturn(Mono.just(jwt))
+                .thenReturn(Mono.just(reloadedJwt));
+
+        assertThat(cacheService.getIdentityTrustStatement(VERIFIER_DID)).isEqualTo(jwt);
+
+        verify(trustProtocol20Api, timeout(5000).times(2)).getIdTS(eq(VERIFIER_DID));
+        verify(statementValidator, timeout(5000)).trustStatementValidityWindow(eq(reloadedJwt));
+    }
+
+    @Test
+    void getIdentityTrustStatement_whenRefreshFails_thenCachedStatementKept() throws Exception {
+        properties.setRefreshAheadRatio(0);
+        cacheService = new TrustStatementCacheService(trustProtocol20Api, properties, cacheMaintenanceService, statementValidator, cacheProperties);
+        String jwt = buildJwt(List.of("birth_date"), Instant.now().plusSeconds(3600));
+        when(trustProtocol20Api.getIdTS(eq(VERIFIER_DID)))
+                .thenReturn(Mono.just(jwt))
+                .thenReturn(Mono.error(WebClientResponseException.create(503, "Service Unavailable", null, null, null)));
+
+        assertThat(cacheService.getIdentityTrustStatement(VERIFIER_DID)).isEqualTo(jwt);
+        verify(trustProtocol20Api, timeout(5000).times(2)).getIdTS(eq(VERIFIER_DID));
+
+        // the failed reload postpones the next refresh by the backoff, so the cached statement is served without a call
+        assertThat(cacheService.getIdentityTrustStatement(VERIFIER_DID)).isEqualTo(jwt);
+        verify(trustProtocol20Api, after(200).times(2)).getIdTS(eq(VERIFIER_DID));
+    }
+
+    @Test
+    void warmUp_whenCalled_thenStatementsServedFromCache() {
+        String issuerDid = "did:tdw:example.com:issuer";
+        PagedModelString page = mock(PagedModelString.class);
+        when(page.getContent()).thenReturn(List.of("ts-1"));
+        when(trustProtocol20Api.getIdTS(anyString())).thenReturn(Mono.just("idTS-jwt"));
+        when(trustProtocol20Api.getActivePiTLS()).thenReturn(Mono.just("piTLS-jwt"));
+        when(trustProtocol20Api.getActiveNcTLS()).thenReturn(Mono.just("ncTLS-jwt"));
+        when(trustProtocol20Api.listPiaTS(eq(issuerDid), eq(true), any(), any(), any())).thenReturn(Mono.just(page));
+        when(trustProtocol20Api.listPvaTS(eq(VERIFIER_DID), eq(true), any(), any(), any())).thenReturn(Mono.just(page));
+
+        cacheService.warmUp(List.of(issuerDid), List.of(VERIFIER_DID));
+
+        assertThat(cacheService.getAllIssuanceStatementsFor(issuerDid)).hasSize(4);
+        assertThat(cacheService.getIdentityTrustStatement(VERIFIER_DID)).isEqualTo("idTS-jwt");
+        assertThat(cacheService.getProtectedVerificationAuthorizationTrustStatements(VERIFIER_DID)).containsExactly("ts-1");
+        verify(trustProtocol20Api, times(1)).getIdTS(eq(issuerDid));
+        verify(trustProtocol20Api, times(1)).getIdTS(eq(VERIFIER_DID));
+        verify(trustProtocol20Api, times(1)).getActivePiTLS();
+        verify(trustProtocol20Api, times(1)).getActiveNcTLS();
+        verify(trustProtocol20Api, times(1)).listPiaTS(eq(issuerDid), eq(true), any(), any(), any());
+        verify(trustProtocol20Api, times(1)).listPvaTS(eq(VERIFIER_DID), eq(true), any(), any(), any());
+    }
+
+    @Test
+    void getIssuanceStatementsFor_whenStatementMissing_thenNoValidity() {
+        PagedModelString piaTsPage = mock(PagedModelString.class);
+        when(piaTsPage.getContent()).thenReturn(List.of("piaTS-1"));
+        when(trustProtocol20Api.getActivePiTLS()).thenReturn(Mono.just("piTLS-jwt"));
+        when(trustProtocol20Api.getActiveNcTLS()).thenReturn(Mono.just("ncTLS-jwt"));
+        when(trustProtocol20Api.listPiaTS(eq(VERIFIER_DID), eq(true), any(), any(), any())).thenReturn(Mono.just(piaTsPage));
+        when(trustProtocol20Api.getIdTS(anyString()))
+                .thenReturn(Mono.error(WebClientResponseException.create(503, "Service Unavailable", null, null, null)))
+                .thenReturn(Mono.just("idTS-jwt"));
+
+        var incomplete = cacheService.getIssuanceStatementsFor(VERIFIER_DID);
+        var complete = cacheService.getIssuanceStatementsFor(VERIFIER_DID);
+
+        assertThat(incomplete.statements()).containsExactlyInAnyOrder("piTLS-jwt", "ncTLS-jwt", "piaTS-1");
+        assertThat(incomplete.validityNanos()).isZero();
+        assertThat(complete.statements()).containsExactlyInAnyOrder("idTS-jwt", "piTLS-jwt", "ncTLS-jwt", "piaTS-1");
+        assertThat(complete.validityNanos()).isPositive().isLessThanOrEqualTo(TimeUnit.MINUTES.toNanos(5));
+    }
+
+    @Test
+    void getIssuanceStatementsFor_whenTrustListFetchFails_thenNoValidity() {
+        PagedModelString piaTsPage = mock(PagedModelString.class);
+        when(piaTsPage.getContent()).thenReturn(List.of("piaTS-1"));
+        when(trustProtocol20Api.getIdTS(anyString())).thenReturn(Mono.just("idTS-jwt"));
+        when(trustProtocol20Api.getActivePiTLS())
+                .thenReturn(Mono.error(WebClientResponseException.create(503, "Service Unavailable", null, null, null)));
+        when(trustProtocol20Api.getActiveNcTLS()).thenReturn(Mono.just("ncTLS-jwt"));
+        when(trustProtocol20Api.listPiaTS(eq(VERIFIER_DID), eq(true), any(), any(), any())).thenReturn(Mono.just(piaTsPage));
+
+        var result = cacheService.getIssuanceStatementsFor(VERIFIER_DID);
+
+        assertThat(result.statements()).containsExactlyInAnyOrder("idTS-jwt", "ncTLS-jwt", "piaTS-1");
+        assertThat(result.validityNanos()).isZero();
+    }
+
+    @Test
+    void getIssuanceStatementsFor_whenNoActiveTrustList_thenValidityOfOtherStatements() {
+        PagedModelString piaTsPage = mock(PagedModelString.class);
+        when(piaTsPage.getContent()).thenReturn(List.of("piaTS-1"));
+        when(trustProtocol20Api.getIdTS(anyString())).thenReturn(Mono.just("idTS-jwt"));
+        when(trustProtocol20Api.getActivePiTLS()).thenReturn(Mono.just("piTLS-jwt"));
+        when(trustProtocol20Api.getActiveNcTLS()).thenReturn(Mono.empty());
+        when(trustProtocol20Api.listPiaTS(eq(VERIFIER_DID), eq(true), any(), any(), any())).thenReturn(Mono.just(piaTsPage));
+
+        var result = cacheService.getIssuanceStatementsFor(VERIFIER_DID);
+
+        assertThat(result.statements()).containsExactlyInAnyOrder("idTS-jwt", "piTLS-jwt", "piaTS-1");
+        assertThat(result.validityNanos()).isPositive();
+    }
+
+    @Test
+    void invalidateAllTrustStatements_whenCalled_thenInvalidationListenersNotified() {
+        List<String> invalidated = new ArrayList<>();
+        cacheService.addInvalidationListener(invalidated::add);
+
+        cacheService.invalidateAllTrustStatements(VERIFIER_DID);
+
+        assertThat(invalidated).containsExactly(VERIFIER_DID);
+    }
+
     // --- helpers ---
 
+    /**
+     * Response which only completes once all calls counted by {@code started} are in flight, or with no value
+     * if they are not started concurrently.
+     */
+    private static <T> Mono<T> awaitOthers(CountDownLatch started, T value) {
+        return Mono.fromCallable(() -> {
+                    started.countDown();
+                    return started.await(5, TimeUnit.SECONDS) ? value : null;
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
     /**
      * Builds a minimal HMAC-signed JWT containing an {@code authorized_fields} claim and the
      * given {@code exp}. The signature is irrelevant for unit tests that do not perform
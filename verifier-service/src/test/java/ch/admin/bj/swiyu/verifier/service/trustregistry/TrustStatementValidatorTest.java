@@ -2,7 +2,6 @@ package ch.admin.bj.swiyu.verifier.service.trustregistry;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
@@ -28,14 +27,17 @@ import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 
 import ch.admin.bj.swiyu.jwtvalidator.DidJwtValidator;
-import ch.admin.bj.swiyu.statuslist.TokenStatusListVerifier;
-import ch.admin.bj.swiyu.statuslist.dto.StatusVerificationResultDto;
 import ch.admin.bj.swiyu.statuslist.dto.TokenStatusListTokenDto;
 import ch.admin.bj.swiyu.verifier.common.config.CacheProperties;
 import ch.admin.bj.swiyu.verifier.common.config.TrustRegistryProperties;
+import ch.admin.bj.swiyu.verifier.common.config.VerificationProperties;
 import ch.admin.bj.swiyu.verifier.service.publickey.DidResolverFacade;
 import ch.admin.bj.swiyu.verifier.service.publickey.LoadingPublicKeyOfIssuerFailedException;
+import ch.admin.bj.swiyu.verifier.service.oid4vp.test.fixtures.StatusListGenerator;
+import ch.admin.bj.swiyu.verifier.service.statuslist.DecodedStatusList;
 import ch.admin.bj.swiyu.verifier.service.statuslist.StatusListCacheService;
+import ch.admin.bj.swiyu.verifier.service.statuslist.StatusListStatusVerifier;
+import ch.admin.bj.swiyu.verifier.service.statuslist.ValidatedStatusList;
 
 public class TrustStatementValidatorTest {
 
@@ -44,7 +46,6 @@ public class TrustStatementValidatorTest {
     private StatusListCacheService statusListCacheService;
     private CacheProperties cacheProperties;
     private DidResolverFacade keyLoader;
-    private TokenStatusListVerifier statusListVerifier;
     private TokenStatusListTokenDto statusListTokenDto;
 
     private TrustStatementValidator validator;
@@ -55,6 +56,9 @@ public class TrustStatementValidatorTest {
     private static final String ISS = "did:example";
     private static final String KID = "did:example#key-1";
     private static final String STATUS_LIST_URI = "https://www.example.com/statuslist/1";
+    // Indexes in StatusListGenerator.SPEC_STATUS_LIST
+    private static final int VALID_INDEX = 2;
+    private static final int REVOKED_INDEX = 0;
 
     @BeforeEach
     void setUp() throws JOSEException, LoadingPublicKeyOfIssuerFailedException, IOException {
@@ -64,28 +68,26 @@ public class TrustStatementValidatorTest {
         statusListCacheService = mock(StatusListCacheService.class);
         cacheProperties = mock(CacheProperties.class);
         keyLoader = mock(DidResolverFacade.class);
-        statusListVerifier = mock(TokenStatusListVerifier.class);
         validator = new TrustStatementValidator(
                 trustStatementDidJwtValidator,
                 trustRegistryProperties,
                 cacheProperties,
                 statusListCacheService,
                 keyLoader,
-                statusListVerifier);
+                new StatusListStatusVerifier(new VerificationProperties()));
         when(trustStatementDidJwtValidator.getAndValidateResolutionUrl(anyString())).thenReturn("TEST");
         when(trustStatementDidJwtValidator.getDidString(anyString())).thenReturn("TEST");
         when(keyLoader.resolveKey(eq(KID))).thenReturn(testKey.toPublicJWK());
         statusListTokenDto = mock(TokenStatusListTokenDto.class);
-        when(statusListCacheService.getTokenStatusListTokenByUri(eq(STATUS_LIST_URI))).thenReturn(statusListTokenDto);
+        var statuses = DecodedStatusList.decode(StatusListGenerator.SPEC_STATUS_LIST, 2, 1024);
+        when(statusListCacheService.getValidatedStatusListByUri(eq(STATUS_LIST_URI)))
+                .thenReturn(new ValidatedStatusList(statusListTokenDto, ISS, STATUS_LIST_URI, statuses));
         expiry = Instant.now().plusSeconds(DEFAULT_VALIDITY_SECONDS).getEpochSecond();
         when(statusListTokenDto.getExp()).thenReturn(expiry+100); // Adding some seconds here to use by default expiry form token status list 
         when(statusListTokenDto.getTtl()).thenReturn(DEFAULT_VALIDITY_SECONDS);
-        var verificationResult = mock(StatusVerificationResultDto.class);
-        when(statusListVerifier.verifyStatus(any(), any())).thenReturn(verificationResult);
-        when(verificationResult.valid()).thenReturn(true);
 
         when(trustRegistryProperties.getMaxCacheTtlSeconds()).thenReturn(Long.valueOf(DEFAULT_VALIDITY_SECONDS));
-        testJwt = buildExpiringJWT(expiry);
+        testJwt = buildExpiringJWT(ISS, expiry, VALID_INDEX);
     }
 
 
@@ -130,15 +132,53 @@ public class TrustStatementValidatorTest {
         assertThat(validity.valditiyWindow()).isGreaterThan(0).isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(ttl));
     }
 
-    private String buildExpiringJWT(long expiry) {
+    @Test
+    void testTrustStatementValidityWindow_whenRevoked_thenInvalid() {
+        var revokedJwt = buildExpiringJWT(ISS, expiry, REVOKED_INDEX);
+        var validity = assertDoesNotThrow(() -> validator.trustStatementValidityWindow(revokedJwt));
+        assertThat(validity.isValid()).isFalse();
+        assertThat(validity.valditiyWindow()).isGreaterThan(0);
+    }
+
+    @Test
+    void testTrustStatementValidityWindow_whenStatusListOfOtherIssuer_thenInvalid() {
+        var otherIssuerJwt = buildExpiringJWT("did:example:other", expiry, VALID_INDEX);
+        var validity = assertDoesNotThrow(() -> validator.trustStatementValidityWindow(otherIssuerJwt));
+        assertThat(validity.isValid()).isFalse();
+    }
+
+    @Test
+    void testTrustStatementValidityWindow_whenStatusListPublishedForOtherUri_thenInvalid() {
+        var statuses = assertDoesNotThrow(() -> DecodedStatusList.decode(StatusListGenerator.SPEC_STATUS_LIST, 2, 1024));
+        when(statusListCacheService.getValidatedStatusListByUri(eq(STATUS_LIST_URI)))
+                .thenReturn(new ValidatedStatusList(statusListTokenDto, ISS, "https://www.example.com/statuslist/2", statuses));
+        var validity = assertDoesNotThrow(() -> validator.trustStatementValidityWindow(testJwt));
+        assertThat(validity.isValid()).isFalse();
+    }
+
+    @Test
+    void testTrustStatementValidityWindow_whenStatusListExpired_thenInvalid() {
+        when(statusListTokenDto.getExp()).thenReturn(Instant.now().minusSeconds(1).getEpochSecond());
+        var validity = assertDoesNotThrow(() -> validator.trustStatementValidityWindow(testJwt));
+        assertThat(validity.isValid()).isFalse();
+    }
+
+    @Test
+    void testTrustStatementValidityWindow_whenIndexOutsideOfStatusList_thenInvalid() {
+        var outOfRangeJwt = buildExpiringJWT(ISS, expiry, 1000);
+        var validity = assertDoesNotThrow(() -> validator.trustStatementValidityWindow(outOfRangeJwt));
+        assertThat(validity.isValid()).isFalse();
+    }
+
+    private String buildExpiringJWT(String issuer, long expiry, int statusListIndex) {
         SignedJWT jwt = new SignedJWT(
                 new JWSHeader.Builder(JWSAlgorithm.ES256).keyID(testKey.getKeyID()).build(),
                 new JWTClaimsSet.Builder()
-                    .issuer(ISS)
+                    .issuer(issuer)
                     .claim("exp", expiry)
                     .claim("status", Map.of(
                         "status_list", Map.of(
-                            "idx", 1,
+                            "idx", statusListIndex,
                             "uri", STATUS_LIST_URI
                         )
                     ))